@@ -205,6 +205,49 @@ public enum DatabaseCategory {
 		}
 	}
 
+	/**
+	 * Max number of parameters allowed in one statement
+	 */
+	public int getMaxParameterCount() {
+		switch (this) {
+			case SqlServer:
+				// Leave room for parameters not from pojo
+				return 2000;
+			default:
+				return 65535;
+		}
+	}
+
+	/**
+	 * Max bytes of one request sent to server. For MySql it is the default max_allowed_packet,
+	 * for SqlServer it is the max batch size with default network packet size.
+	 */
+	public int getMaxPacketSize() {
+		switch (this) {
+			case MySql:
+				return 4 * 1024 * 1024;
+			default:
+				return 256 * 1024 * 1024;
+		}
+	}
+
+	/**
+	 * Fetch size that makes the driver read rows as they are consumed instead of loading
+	 * the whole result set. For MySql Integer.MIN_VALUE turns on row by row streaming.
+	 * SqlServer driver streams with the default adaptive response buffering, so 0 is
+	 * returned to keep the driver default.
+	 */
+	public int getStreamingFetchSize() {
+		switch (this) {
+			case MySql:
+				return Integer.MIN_VALUE;
+			case Oracle:
+				return 500;
+			default:
+				return 0;
+		}
+	}
+
 	public abstract boolean isTimeOutException(ErrorContext ctx);
 
 	public abstract String quote(String fieldName);
@@ -39,6 +39,21 @@ public interface DalClient {
 	List<?> query(String sql, StatementParameters parameters, DalHints hints, 
 			List<DalResultSetExtractor<?>> extractors) throws SQLException;
 
+	/**
+	 * Query against the given sql and parameters, rows are read and mapped as the
+	 * returned iterator advances. The connection is held until the iterator is closed
+	 * or exhausted, so the caller MUST close it.
+	 * 
+	 * @param sql The sql statement to be executed
+	 * @param parameters A container that holds all the necessary parameters
+	 * @param hints Additional parameters that instruct how DAL Client perform database operation.
+	 * @param mapper helper used to convert each row to desired type
+	 * @return iterator over the mapped rows
+	 * @throws SQLException when things going wrong during the execution
+	 */
+	<T> DalResultIterator<T> queryIterator(String sql, StatementParameters parameters, DalHints hints,
+			DalRowMapper<T> mapper) throws SQLException;
+
 	/**
 	 * Update against the given sql and parameters.
 	 *  
@@ -1,8 +1,10 @@
 package com.ctrip.platform.dal.dao;
 
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.ctrip.platform.dal.dao.configure.DalConfigLoader;
+import com.ctrip.platform.dal.dao.helper.DalEntityCache;
 import com.ctrip.platform.dal.dao.helper.ServiceLoaderHelper;
 
 import org.slf4j.Logger;
@@ -10,10 +12,15 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.platform.dal.dao.client.DalDirectClient;
 import com.ctrip.platform.dal.dao.client.DalLogger;
+import com.ctrip.platform.dal.dao.client.DalStatementCache;
 import com.ctrip.platform.dal.dao.client.DalWatcher;
+import com.ctrip.platform.dal.dao.client.HedgedRead;
 import com.ctrip.platform.dal.dao.client.LogEntry;
 import com.ctrip.platform.dal.dao.configure.DalConfigure;
 import com.ctrip.platform.dal.dao.configure.DalConfigureFactory;
+import com.ctrip.platform.dal.dao.configure.DatabaseSelector;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
+import com.ctrip.platform.dal.dao.configure.ReplicationLagMonitor;
 import com.ctrip.platform.dal.dao.status.DalStatusManager;
 import com.ctrip.platform.dal.dao.task.DalRequestExecutor;
 import com.ctrip.platform.dal.dao.task.DalTaskFactory;
@@ -79,9 +86,20 @@ public class DalClientFactory {
 
             DalWatcher.init();
             LogEntry.init();
-            DalRequestExecutor.init(
-                    config.getFacory().getProperty(DalRequestExecutor.MAX_POOL_SIZE),
-                    config.getFacory().getProperty(DalRequestExecutor.KEEP_ALIVE_TIME));
+            DalRequestExecutor.init(config.getFacory());
+            DalStatementCache.init(
+                    config.getFacory().getProperty(DalStatementCache.STATEMENT_CACHE_SIZE),
+                    config.getFacory().getProperty(DalStatementCache.STATEMENT_CACHE_DATABASE_CATEGORIES));
+            DatabaseSelector.init(config.getFacory().getProperty(DatabaseSelector.SELECTION_POLICY));
+            ReadYourWrites.init(config.getFacory().getProperty(ReadYourWrites.READ_YOUR_WRITES_WINDOW));
+            ReplicationLagMonitor.init(config,
+                    config.getFacory().getProperty(ReplicationLagMonitor.REPLICATION_LAG_THRESHOLD),
+                    config.getFacory().getProperty(ReplicationLagMonitor.REPLICATION_LAG_PROBE_INTERVAL),
+                    config.getFacory().getProperty(ReplicationLagMonitor.REPLICATION_LAG_QUERY));
+            HedgedRead.init(
+                    config.getFacory().getProperty(HedgedRead.HEDGE_BUDGET),
+                    config.getFacory().getProperty(HedgedRead.HEDGE_DELAY),
+                    config.getFacory().getProperty(HedgedRead.HEDGE_MAX_THREADS));
 
             DalStatusManager.initialize(config);
 
@@ -96,6 +114,18 @@ public class DalClientFactory {
         getDalConfigure().warmUpConnections();
     }
 
+    /**
+     * Initialize connection pools and metadata of all the logic db in the Dal.config in parallel
+     *
+     * @param maxThreads max number of data sources to warm up at the same time
+     * @param timeoutMillis max time to wait for the warm up. The rest keeps running in background
+     * @param entityClasses pojo classes to load metadata for
+     * @return milliseconds taken by each data source that is warmed up in time
+     */
+    public static Map<String, Long> warmUpConnections(int maxThreads, long timeoutMillis, Class<?>... entityClasses) {
+        return getDalConfigure().warmUpConnections(maxThreads, timeoutMillis, entityClasses);
+    }
+
     public static DalClient getClient(String logicDbName) {
         if (logicDbName == null)
             throw new NullPointerException("Database Set name can not be null");
@@ -157,6 +187,9 @@ public class DalClientFactory {
                 logger.info("Dal Java Client Factory is shutdown");
 
                 DalStatusManager.shutdown();
+                DalEntityCache.unregisterAll();
+                ReplicationLagMonitor.shutdown();
+                HedgedRead.shutdown();
 
                 DalWatcher.destroy();
                 LogEntry.shutdown();
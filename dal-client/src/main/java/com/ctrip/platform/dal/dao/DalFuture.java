@@ -0,0 +1,66 @@
+package com.ctrip.platform.dal.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Result of asynchronized execution. Besides blocking get, callbacks can be added to
+ * be notified when the execution is completed, so that caller does not need to park
+ * a thread for each of the call.
+ *
+ * Callbacks added before completion are invoked in the thread that executes the
+ * request, the ones added after completion are invoked immediately in caller's thread.
+ */
+public class DalFuture<T> extends FutureTask<T> {
+	private List<DalResultCallback> callbacks = new ArrayList<>();
+	private boolean notified;
+
+	public DalFuture(Callable<T> callable) {
+		super(callable);
+	}
+
+	public DalFuture<T> addCallback(DalResultCallback callback) {
+		synchronized (this) {
+			// get may return before done is called
+			if(!notified && !isDone()) {
+				callbacks.add(callback);
+				return this;
+			}
+		}
+
+		notify(callback);
+		return this;
+	}
+
+	@Override
+	protected void done() {
+		List<DalResultCallback> toNotify;
+		synchronized (this) {
+			notified = true;
+			toNotify = callbacks;
+			callbacks = null;
+		}
+
+		for(DalResultCallback callback: toNotify)
+			notify(callback);
+	}
+
+	private void notify(DalResultCallback callback) {
+		T result;
+		try {
+			result = get();
+		} catch (ExecutionException e) {
+			callback.onError(e.getCause());
+			return;
+		} catch (CancellationException | InterruptedException e) {
+			callback.onError(e);
+			return;
+		}
+
+		callback.onResult(result);
+	}
+}
@@ -195,6 +195,52 @@ public enum DalHintEnum {
 	 */
 	sequentialExecution,
 	
+	/**
+	 * Max milliseconds a cross shard request can take. Shards that are not completed
+	 * before the deadline will be cancelled. Value should be Long
+	 */
+	crossShardTimeout,
+	
+	/**
+	 * Return merged result of the completed shards instead of throwing exception
+	 * when crossShardTimeout is reached
+	 */
+	partialResultOnTimeout,
+	
+	/**
+	 * Set<String> of shards that are cancelled because of crossShardTimeout.
+	 * It is populated by DAL when partialResultOnTimeout is set
+	 */
+	timeoutShards,
+	
+	/**
+	 * List of primary key values that are not found by queryByPks.
+	 * It is populated by DAL
+	 */
+	missingPks,
+	
+	/**
+	 * Max number of pojos sent in one statement or batch for bulk operation. Value should be Integer
+	 */
+	bulkChunkSize,
+	
+	/**
+	 * Max estimated bytes of parameters sent in one statement or batch for bulk operation.
+	 * Value should be Integer. Default is decided by DatabaseCategory
+	 */
+	bulkChunkBytes,
+	
+	/**
+	 * Max number of table shards executed concurrently in one DB shard for bulk operation.
+	 * Value should be Integer. It is ignored in transaction
+	 */
+	parallelTableShardExecution,
+	
+	/**
+	 * Max rows read ahead for each shard of cross shard streaming query. Value should be Integer
+	 */
+	streamingBufferSize,
+	
 	/**
 	 * Indicate the queryCallback for async execution
 	 */
@@ -205,6 +251,11 @@ public enum DalHintEnum {
 	 */
 	futureResult,
 	
+	/**
+	 * Executor used for async execution instead of DAL's shared thread pool
+	 */
+	asyncExecutor,
+	
 	/**
 	 * allow insert incremental id. So DAL will not remove id from pojo before any of the inser operation
 	 */
@@ -236,4 +287,15 @@ public enum DalHintEnum {
      * It request extractor or mapper to be HintsAwareExtractor or HintsAareMapper to do the required work
      */
     allowPartial,
+	
+	/**
+	 * Session token to track writes for read your writes window, instead of current thread
+	 */
+	readYourWritesSession,
+	
+	/**
+	 * Hedge query to another slave after the delay in milliseconds, 0 means the delay is
+	 * derived from recent latency of the slave
+	 */
+	hedgeReads,
 }
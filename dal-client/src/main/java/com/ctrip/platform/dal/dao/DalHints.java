@@ -5,11 +5,10 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 
 import com.ctrip.platform.dal.dao.client.DalHA;
@@ -25,12 +24,23 @@ import com.ctrip.platform.dal.exceptions.DalException;
  * @author jhhe
  */
 public class DalHints {
-	private Map<DalHintEnum, Object> hints = new ConcurrentHashMap<DalHintEnum, Object>();
+	private static final Object NULL = new Object();
+	private static final Object[] EMPTY = new Object[DalHintEnum.values().length];
+
+	/**
+	 * Hint values indexed by ordinal of DalHintEnum, null means the hint is not set.
+	 * The array is shared with clones and copied before it is changed, so cloning hints
+	 * for each shard is cheap. Writes are synchronized, and reassigning the volatile
+	 * reference after each change makes it visible to other threads.
+	 */
+	private volatile Object[] values = EMPTY;
+	private boolean shared = true;
+	// The shardColValues map is also shared with clones until setShardColValue is called
+	private boolean shardColValuesShared;
+
 	// It is not so nice to put keyholder here, but to make Task stateless, I have no other choice
 	private KeyHolder keyHolder;
 
-	private static final Object NULL = new Object();
-
 	public KeyHolder getKeyHolder() {
 		return keyHolder;
 	}
@@ -44,19 +54,19 @@ public class DalHints {
 		return hints == null ? new DalHints() : hints;
 	}
 
+	/**
+	 * The clone shares storage with this hints until either of them is changed.
+	 * The fields map is shared as DAL never changes it, the shardColValues map is
+	 * copied before setShardColValue changes it.
+	 */
 	public DalHints clone() {
 		DalHints newHints = new DalHints();
-		newHints.hints.putAll(hints);
-
-		// Make sure we do deep copy for Map
-		Map shardColValues = (Map)newHints.get(DalHintEnum.shardColValues);
-		if(shardColValues != null)
-			newHints.setShardColValues(new HashMap<String, Object>(shardColValues));
-
-		// Make sure we do deep copy for Map
-		Map fields = (Map)newHints.get(DalHintEnum.fields);
-		if(fields != null)
-			newHints.setFields(new LinkedHashMap<String, Object>(fields));
+		synchronized (this) {
+			shared = true;
+			shardColValuesShared = true;
+			newHints.values = values;
+			newHints.shardColValuesShared = true;
+		}
 
 		newHints.keyHolder = keyHolder;
 		return newHints;
@@ -68,11 +78,39 @@ public class DalHints {
 	 * Make sure only shardId, tableShardId, shardValue, shardColValue will be used to locate shard Id.
 	 */
 	public DalHints cleanUp() {
-		hints.remove(DalHintEnum.fields);
-		hints.remove(DalHintEnum.parameters);
+		remove(DalHintEnum.fields);
+		remove(DalHintEnum.parameters);
 		return this;
 	}
 
+	private synchronized void put(DalHintEnum hint, Object value) {
+		if(value == null)
+			throw new NullPointerException("Value of hint " + hint + " can not be null");
+
+		Object[] newValues = getWritableValues();
+		newValues[hint.ordinal()] = value;
+		if(hint == DalHintEnum.shardColValues)
+			shardColValuesShared = false;
+		values = newValues;
+	}
+
+	private synchronized void remove(DalHintEnum hint) {
+		if(values[hint.ordinal()] == null)
+			return;
+
+		Object[] newValues = getWritableValues();
+		newValues[hint.ordinal()] = null;
+		values = newValues;
+	}
+
+	private Object[] getWritableValues() {
+		if(!shared)
+			return values;
+
+		shared = false;
+		return values.clone();
+	}
+
 	public DalHints(DalHintEnum...hints) {
 		for(DalHintEnum hint: hints) {
 			set(hint);
@@ -80,35 +118,35 @@ public class DalHints {
 	}
 
 	public boolean is(DalHintEnum hint) {
-		return hints.containsKey(hint);
+		return values[hint.ordinal()] != null;
 	}
 
 	public Object get(DalHintEnum hint) {
-		return hints.get(hint);
+		return values[hint.ordinal()];
 	}
 
 	public DalHA getHA(){
-		return (DalHA)hints.get(DalHintEnum.heighAvaliable);
+		return (DalHA)get(DalHintEnum.heighAvaliable);
 	}
 
 	public DalHints setHA(DalHA ha){
-		hints.put(DalHintEnum.heighAvaliable, ha);
+		put(DalHintEnum.heighAvaliable, ha);
 		return this;
 	}
 
 	public Integer getInt(DalHintEnum hint, int defaultValue) {
-		Object value = hints.get(hint);
+		Object value = get(hint);
 		if(value == null)
 			return defaultValue;
 		return (Integer)value;
 	}
 
 	public Integer getInt(DalHintEnum hint) {
-		return (Integer)hints.get(hint);
+		return (Integer)get(hint);
 	}
 
 	public String getString(DalHintEnum hint) {
-		Object value = hints.get(hint);
+		Object value = get(hint);
 		if(value == null)
 			return null;
 
@@ -119,7 +157,7 @@ public class DalHints {
 	}
 
 	public Set<String> getStringSet(DalHintEnum hint) {
-		return (Set<String>)hints.get(hint);
+		return (Set<String>)get(hint);
 	}
 
 	public DalHints set(DalHintEnum hint) {
@@ -128,7 +166,7 @@ public class DalHints {
 	}
 
 	public DalHints set(DalHintEnum hint, Object value) {
-		hints.put(hint, value);
+		put(hint, value);
 		return this;
 	}
 
@@ -136,32 +174,32 @@ public class DalHints {
 		if(is(hint))
 			return this;
 
-		hints.put(hint, value);
+		put(hint, value);
 		return this;
 	}
 
 	public DalHints inDatabase(String databaseName) {
-		hints.put(DalHintEnum.designatedDatabase, databaseName);
+		put(DalHintEnum.designatedDatabase, databaseName);
 		return this;
 	}
 
 	public DalHints inShard(String shardId) {
-		hints.put(DalHintEnum.shard, shardId);
+		put(DalHintEnum.shard, shardId);
 		return this;
 	}
 
 	public DalHints inShard(Integer shardId) {
-		hints.put(DalHintEnum.shard, shardId);
+		put(DalHintEnum.shard, shardId);
 		return this;
 	}
 
 	public DalHints inTableShard(String tableShardId) {
-		hints.put(DalHintEnum.tableShard, tableShardId);
+		put(DalHintEnum.tableShard, tableShardId);
 		return this;
 	}
 
 	public DalHints inTableShard(Integer tableShardId) {
-		hints.put(DalHintEnum.tableShard, tableShardId);
+		put(DalHintEnum.tableShard, tableShardId);
 		return this;
 	}
 
@@ -185,12 +223,16 @@ public class DalHints {
 		return set(DalHintEnum.shardColValues, shardColValues);
 	}
 
-	public DalHints setShardColValue(String column, Object value) {
-		if(is(DalHintEnum.shardColValues) == false) {
-			setShardColValues(new HashMap<String, Object>());
+	public synchronized DalHints setShardColValue(String column, Object value) {
+		Map<String, Object> shardColValues = (Map<String, Object>)get(DalHintEnum.shardColValues);
+		if(shardColValues == null) {
+			shardColValues = new HashMap<String, Object>();
+			setShardColValues(shardColValues);
+		} else if(shardColValuesShared) {
+			shardColValues = new HashMap<String, Object>(shardColValues);
+			setShardColValues(shardColValues);
 		}
 
-		Map<String, Object> shardColValues = (Map<String, Object>)get(DalHintEnum.shardColValues);
 		shardColValues.put(column, value);
 		return this;
 	}
@@ -219,7 +261,7 @@ public class DalHints {
 	}
 
 	public DalHints inShards(Set<String> shards) {
-		hints.put(DalHintEnum.shards, shards);
+		put(DalHintEnum.shards, shards);
 		return this;
 	}
 
@@ -228,16 +270,16 @@ public class DalHints {
 	}
 
 	public Set<String> getShards() {
-		return (Set<String>)hints.get(DalHintEnum.shards);
+		return (Set<String>)get(DalHintEnum.shards);
 	}
 
 	public DalHints shardBy(String parameterName) {
-		hints.put(DalHintEnum.shardBy, parameterName);
+		put(DalHintEnum.shardBy, parameterName);
 		return this;
 	}
 
 	public String getShardBy() {
-		return (String)hints.get(DalHintEnum.shardBy);
+		return (String)get(DalHintEnum.shardBy);
 	}
 
 	public boolean isShardBy() {
@@ -245,12 +287,12 @@ public class DalHints {
 	}
 
 	public <T> DalHints mergeBy(ResultMerger<T> merger) {
-		hints.put(DalHintEnum.resultMerger, merger);
+		put(DalHintEnum.resultMerger, merger);
 		return this;
 	}
 
 	public <T> DalHints sortBy(Comparator<T> sorter) {
-		hints.put(DalHintEnum.resultSorter, sorter);
+		put(DalHintEnum.resultSorter, sorter);
 		return this;
 	}
 
@@ -263,6 +305,68 @@ public class DalHints {
 		return this;
 	}
 
+	/**
+	 * Limit the total time of cross shard execution. Shards not completed in time are cancelled.
+	 */
+	public DalHints crossShardTimeout(long milliseconds) {
+		set(DalHintEnum.crossShardTimeout, milliseconds);
+		return this;
+	}
+
+	/**
+	 * Return the merged result of completed shards when crossShardTimeout is reached.
+	 * The timeout shards can be get by getTimeoutShards().
+	 */
+	public DalHints partialResultOnTimeout() {
+		set(DalHintEnum.partialResultOnTimeout);
+		return this;
+	}
+
+	public Set<String> getTimeoutShards() {
+		return (Set<String>)get(DalHintEnum.timeoutShards);
+	}
+
+	/**
+	 * @return primary key values not found by the last queryByPks with this hints
+	 */
+	public List<?> getMissingPks() {
+		return (List<?>)get(DalHintEnum.missingPks);
+	}
+
+	/**
+	 * Split combinedInsert or batch operation into chunks of at most the given number of pojos
+	 */
+	public DalHints bulkChunkSize(int size) {
+		set(DalHintEnum.bulkChunkSize, size);
+		return this;
+	}
+
+	/**
+	 * Split combinedInsert or batch operation into chunks of at most the given estimated bytes
+	 */
+	public DalHints bulkChunkBytes(int bytes) {
+		set(DalHintEnum.bulkChunkBytes, bytes);
+		return this;
+	}
+
+	/**
+	 * Execute table shards of bulk operation concurrently, each with its own connection.
+	 * At most maxConcurrency table shards are executed at the same time in one DB shard.
+	 * Table shards are still executed one by one in transaction.
+	 */
+	public DalHints parallelTableShardExecution(int maxConcurrency) {
+		set(DalHintEnum.parallelTableShardExecution, maxConcurrency);
+		return this;
+	}
+
+	/**
+	 * Read ahead at most the given number of rows for each shard of cross shard streaming query
+	 */
+	public DalHints streamingBufferSize(int size) {
+		set(DalHintEnum.streamingBufferSize, size);
+		return this;
+	}
+
 	public DalHints masterOnly() {
 		set(DalHintEnum.masterOnly, true);
 		return this;
@@ -283,6 +387,18 @@ public class DalHints {
 		return this;
 	}
 
+	/**
+	 * Execute asynchronously in the given executor instead of DAL's shared thread pool.
+	 */
+	public DalHints asyncExecution(Executor executor) {
+		set(DalHintEnum.asyncExecutor, executor);
+		return asyncExecution();
+	}
+
+	public Executor getAsyncExecutor() {
+		return (Executor)get(DalHintEnum.asyncExecutor);
+	}
+
 	/**
 	 * If asyncExecution is set or there is callback, we assume it is asynchronized execution.
 	 * And in this case the futureResult will always be populated with Future.
@@ -298,6 +414,10 @@ public class DalHints {
 		return (Future<?>)get(DalHintEnum.futureResult);
 	}
 
+	public <T> DalFuture<T> getFuture() {
+		return (DalFuture<T>)get(DalHintEnum.futureResult);
+	}
+
 	public <T> T getResult() throws Exception {
 		return (T)((Future<?>)get(DalHintEnum.futureResult)).get();
 	}
@@ -439,4 +559,24 @@ public class DalHints {
 		return set(DalHintEnum.allowPartial);
 	}
 
+	/**
+	 * Track writes by the session token for read your writes window. Reads with the same token
+	 * are pinned to master after a write, even if they are in different threads.
+	 */
+	public DalHints readYourWrites(String sessionToken) {
+		return set(DalHintEnum.readYourWritesSession, sessionToken);
+	}
+
+	/**
+	 * Send the query to another slave if it does not return in time, and take the first
+	 * result. The delay is derived from recent latency of the selected slave.
+	 */
+	public DalHints hedgeReads() {
+		return hedgeReads(0);
+	}
+
+	public DalHints hedgeReads(int delayMillis) {
+		return set(DalHintEnum.hedgeReads, delayMillis);
+	}
+
 }
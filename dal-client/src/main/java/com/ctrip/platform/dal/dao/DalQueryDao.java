@@ -8,6 +8,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.helper.DalOrderedRangedResultMerger;
 import com.ctrip.platform.dal.dao.helper.DalRangedResultMerger;
 import com.ctrip.platform.dal.dao.helper.DalRowCallbackExtractor;
 import com.ctrip.platform.dal.dao.helper.DalRowMapperExtractor;
@@ -19,6 +20,7 @@ import com.ctrip.platform.dal.dao.task.DalSqlTaskRequest;
 import com.ctrip.platform.dal.dao.task.FreeSqlUpdateTask;
 import com.ctrip.platform.dal.dao.task.MultipleQueryTask;
 import com.ctrip.platform.dal.dao.task.QuerySqlTask;
+import com.ctrip.platform.dal.dao.task.StreamingQuerySqlTask;
 
 /**
  * DAO class that provides multiple common query functions and simple update function.
@@ -94,6 +96,50 @@ public final class DalQueryDao {
 			throws SQLException {
 		query(new FreeSelectSqlBuilder<>(dbCategory).setTemplate(sql).extractorWith(new DalRowCallbackExtractor(callback)).nullable(), parameters, hints);
 	}
+
+	/**
+	 * Execute query by the given sql with parameters and return the rows lazily. Rows are fetched
+	 * with streaming fetch size of the database unless fetchSize is set in hints. The connection
+	 * is held until the iterator is closed or exhausted, so it MUST be closed by caller, e.g.
+	 * with try-with-resources. Rows of cross shard query are returned in the order they arrive
+	 * from shards.
+	 * 
+	 * @param sql The sql statement to be executed
+	 * @param parameters A container that holds all the necessary parameters
+	 * @param hints Additional parameters that instruct how DAL Client perform database operation.
+	 * @param mapper Helper that converters each row to entity. 
+	 * @return iterator of entities that represent the query result.
+	 * @throws SQLException when things going wrong during the execution
+	 */
+	public <T> DalResultIterator<T> queryIterator(String sql, StatementParameters parameters, DalHints hints, DalRowMapper<T> mapper) 
+			throws SQLException {
+		return queryIterator(sql, parameters, hints, mapper, null);
+	}
+
+	/**
+	 * Execute query by the given sql with parameters and return the rows lazily. For cross shard
+	 * query, the sql must sort rows by the same order as the given comparator, and rows of all
+	 * shards are merge sorted by the comparator. Each shard is read ahead by at most
+	 * streamingBufferSize rows in DAL's thread pool.
+	 * @see #queryIterator(String, StatementParameters, DalHints, DalRowMapper)
+	 */
+	public <T> DalResultIterator<T> queryIterator(String sql, StatementParameters parameters, DalHints hints, DalRowMapper<T> mapper, Comparator<? super T> comparator) 
+			throws SQLException {
+		DalSqlTaskRequest<DalResultIterator<T>> request = new DalSqlTaskRequest<>(
+				logicDbName, new FreeSelectSqlBuilder<>(dbCategory).setTemplate(sql).with(parameters), hints, 
+				new StreamingQuerySqlTask<>(mapper), null);
+
+		return executor.executeStreaming(hints, request, comparator);
+	}
+
+	/**
+	 * Execute query by the given sql with parameters and return instances of the given clazz lazily.
+	 * @see #queryIterator(String, StatementParameters, DalHints, DalRowMapper)
+	 */
+	public <T> DalResultIterator<T> queryIterator(String sql, StatementParameters parameters, DalHints hints, Class<T> clazz) 
+			throws SQLException {
+		return queryIterator(sql, parameters, hints, getMapper(clazz));
+	}
 	
 	/**
 	 * Execute query by the given sqls with parameters. The result will be wrapped into type defined by the given extractors.
@@ -355,6 +401,56 @@ public final class DalQueryDao {
 		return getSafeResult((Integer)executor.execute(hints, new DalSqlTaskRequest<>(logicDbName, builder.with(parameters), hints, new FreeSqlUpdateTask(), new ResultMerger.IntSummary())));
 	}
 	
+	/**
+	 * Asynchronized version of query. The query is executed in DAL's thread pool
+	 * or the executor set by DalHints.asyncExecution(Executor). The given hints are not
+	 * changed, so that they can be reused for synchronized call.
+	 * 
+	 * @return future of the result. Callback can be added to the future or set by DalHints.callbackWith.
+	 * @throws SQLException when the request can not be created or submitted
+	 */
+	public <T> DalFuture<List<T>> queryAsync(String sql, StatementParameters parameters, DalHints hints, DalRowMapper<T> mapper) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		query(sql, parameters, asyncHints, mapper);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of query.
+	 */
+	public <T> DalFuture<List<T>> queryAsync(String sql, StatementParameters parameters, DalHints hints, Class<T> clazz) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		query(sql, parameters, asyncHints, clazz);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of query with MultipleSqlBuilder.
+	 */
+	public DalFuture<List<?>> queryAsync(MultipleSqlBuilder mqr, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		query(mqr, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of query with FreeSelectSqlBuilder.
+	 */
+	public <T> DalFuture<T> queryAsync(FreeSelectSqlBuilder<T> builder, StatementParameters parameters, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		query(builder, parameters, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of update with FreeUpdateSqlBuilder.
+	 */
+	public DalFuture<Integer> updateAsync(FreeUpdateSqlBuilder builder, StatementParameters parameters, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		update(builder, parameters, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
 	private int getSafeResult(Integer value) {
 		if(value == null)
 			return 0;
@@ -376,12 +472,17 @@ public final class DalQueryDao {
 		FreeSelectSqlBuilder<List<T>> builder = new FreeSelectSqlBuilder<List<T>>(dbCategory).setTemplate(sql).mapWith(mapper);
 		
 		if(hints.isAllShards() || hints.isInShards()) {
-			builder.mergerWith(new DalRangedResultMerger<>((Comparator<T>)hints.getSorter(), start, count));
-			builder.extractorWith(new DalRowMapperExtractor<T>(mapper));
+			// Each shard only need to return the first start + count rows. The sql is given by user,
+			// so rows are limited when extracting result set instead of rewriting the sql
+			Comparator<T> sorter = (Comparator<T>)hints.getSorter();
+			builder.mergerWith(sorter == null ?
+					new DalRangedResultMerger<T>(start, count) :
+					new DalOrderedRangedResultMerger<>(sorter, start, count));
+			builder.extractorWith(new DalRowMapperExtractor<T>(mapper, start + count));
 		} else {
 			builder.extractorWith(new DalRowMapperExtractor<T>(mapper, start, count));
 		}
 
 		return query(builder, parameters, hints);
-	}	
+	}
 }
@@ -0,0 +1,22 @@
+package com.ctrip.platform.dal.dao;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+
+/**
+ * Pull based result of streaming query. Rows are mapped one by one as they are read,
+ * and the connection, statement and result set are held until the iterator is closed.
+ *
+ * It is closed automatically when all rows are read or any error happens. Otherwise it
+ * MUST be closed by the caller, preferably with try-with-resources. Error happened
+ * during iteration is thrown as RuntimeException with the SQLException as cause.
+ *
+ * It is not thread safe.
+ */
+public interface DalResultIterator<T> extends Iterator<T>, AutoCloseable {
+	/**
+	 * Release the connection and finish logging. It is safe to close more than once.
+	 */
+	@Override
+	void close() throws SQLException;
+}
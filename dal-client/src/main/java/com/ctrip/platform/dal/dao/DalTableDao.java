@@ -1,28 +1,42 @@
 package com.ctrip.platform.dal.dao;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.client.DalTransactionListener;
+import com.ctrip.platform.dal.dao.client.DalTransactionManager;
 import com.ctrip.platform.dal.dao.client.DalWatcher;
+import com.ctrip.platform.dal.dao.configure.DalConfigure;
 import com.ctrip.platform.dal.dao.helper.DalDefaultJpaParser;
+import com.ctrip.platform.dal.dao.helper.DalEntityCache;
+import com.ctrip.platform.dal.dao.helper.DalShardingHelper;
 import com.ctrip.platform.dal.dao.sqlbuilder.BaseTableSelectBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.DeleteSqlBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.FreeUpdateSqlBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.InsertSqlBuilder;
+import com.ctrip.platform.dal.dao.sqlbuilder.SelectSqlBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.SqlBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.TableSelectBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.TableSqlBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.UpdateSqlBuilder;
+import com.ctrip.platform.dal.dao.strategy.DalShardingStrategy;
 import com.ctrip.platform.dal.dao.task.BulkTask;
+import com.ctrip.platform.dal.dao.task.BulkTaskChunker;
 import com.ctrip.platform.dal.dao.task.DalBulkTaskRequest;
+import com.ctrip.platform.dal.dao.task.DalQueryByPksRequest;
 import com.ctrip.platform.dal.dao.task.DalRequestExecutor;
 import com.ctrip.platform.dal.dao.task.DalSingleTaskRequest;
 import com.ctrip.platform.dal.dao.task.DalSqlTaskRequest;
 import com.ctrip.platform.dal.dao.task.DalTaskFactory;
 import com.ctrip.platform.dal.dao.task.DeleteSqlTask;
+import com.ctrip.platform.dal.dao.task.QueryByPksTask;
 import com.ctrip.platform.dal.dao.task.QuerySqlTask;
+import com.ctrip.platform.dal.dao.task.StreamingQuerySqlTask;
 import com.ctrip.platform.dal.dao.task.SingleTask;
 import com.ctrip.platform.dal.dao.task.TaskAdapter;
 import com.ctrip.platform.dal.dao.task.UpdateSqlTask;
@@ -51,8 +65,12 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	
 	private DeleteSqlTask<T> deleteSqlTask;
 	private UpdateSqlTask<T> updateSqlTask;
+	
+	private QueryByPksTask<T> queryByPksTask;
 
 	private DalRequestExecutor executor; 
+	
+	private volatile DalEntityCache<T> cache;
 			
 	public DalTableDao(DalParser<T> parser) {
 		this(parser, DalClientFactory.getTaskFactory());
@@ -97,6 +115,9 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 		
 		deleteSqlTask = factory.createDeleteSqlTask(parser);
 		updateSqlTask = factory.createUpdateSqlTask(parser);
+		
+		queryByPksTask = new QueryByPksTask<>();
+		queryByPksTask.initialize(parser);
 	}
 	
 	public DalClient getClient() {
@@ -107,6 +128,21 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 		return dbCategory;
 	}
 	
+	/**
+	 * Cache entities read by queryByPk. The cache is bypassed in transaction and for async
+	 * or callback query. Entities not in cache are read from master, so that stale data of
+	 * slave is not cached. Update and delete of this dao invalidate the cache.
+	 * 
+	 * @param cache the cache to use, null to disable
+	 */
+	public void setCache(DalEntityCache<T> cache) {
+		this.cache = cache;
+	}
+	
+	public DalEntityCache<T> getCache() {
+		return cache;
+	}
+	
 	/**
 	 * Query by Primary key. The key column type should be Integer, Long, etc.
 	 * For table that the primary key is not of Integer type, this method will
@@ -124,7 +160,7 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 		StatementParameters parameters = new StatementParameters();
 		parameters.set(1, parser.getPrimaryKeyNames()[0], getColumnType(parser.getPrimaryKeyNames()[0]), id);
 
-		return queryObject(new BaseTableSelectBuilder(rawTableName, dbCategory).where(pkSql).with(parameters).requireSingle().nullable(), hints);
+		return queryByPk(cache == null ? null : DalEntityCache.keyOf(id), parameters, null, hints);
 	}
 	
 	/**
@@ -137,9 +173,128 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 */
 	public T queryByPk(T pk, DalHints hints) throws SQLException {
 		StatementParameters parameters = new StatementParameters();
-		addParameters(parameters, parser.getPrimaryKeys(pk));
+		Map<String, ?> primaryKeys = parser.getPrimaryKeys(pk);
+		addParameters(parameters, primaryKeys);
 
-		return queryObject(new BaseTableSelectBuilder(rawTableName, dbCategory).where(pkSql).with(parameters).requireSingle().nullable(), hints.setFields(parser.getFields(pk)));
+		Map<String, ?> fields = parser.getFields(pk);
+		return queryByPk(cache == null ? null : DalEntityCache.keyOf(parser.getPrimaryKeyNames(), primaryKeys), parameters, fields, hints.setFields(fields));
+	}
+	
+	/**
+	 * Query by list of primary key values. The values are grouped by DB and table shard,
+	 * each group is queried by IN statements within the parameter limit of the database,
+	 * and DB shards are queried in parallel. It only applies to table that the primary
+	 * key is of one column.
+	 * 
+	 * @param ids The primary key values
+	 * @param hints Additional parameters that instruct how DAL Client perform database operation.
+	 * @return entities in the order of ids, null for id that is not found. The ids not found
+	 * can be get by hints.getMissingPks()
+	 * @throws SQLException
+	 */
+	public List<T> queryByPks(List<?> ids, DalHints hints) throws SQLException {
+		if (parser.getPrimaryKeyNames().length != 1)
+			throw new DalException(ErrorCode.ValidatePrimaryKeyCount);
+
+		return executor.execute(hints, new DalQueryByPksRequest<>(logicDbName, rawTableName, hints, ids, queryByPksTask));
+	}
+
+	private T queryByPk(List<?> key, StatementParameters parameters, Map<String, ?> fields, DalHints hints) throws SQLException {
+		TableSelectBuilder builder = new BaseTableSelectBuilder(rawTableName, dbCategory).where(pkSql).with(parameters).requireSingle().nullable();
+		DalEntityCache<T> cache = this.cache;
+		String shard = key == null || !isCacheable(hints) ? null : locateCacheShard(parameters, fields, hints);
+		if(shard == null)
+			return queryObject(builder, hints);
+
+		T entity = cache.get(key, shard);
+		if(entity != null)
+			return entity;
+
+		long version = cache.getVersion();
+		entity = queryObject(builder, hints.clone().masterOnly());
+		if(entity != null)
+			cache.put(key, shard, entity, cache.isBytesLimited() ? BulkTaskChunker.estimateBytes(parser.getFields(entity)) : 0, version);
+
+		return entity;
+	}
+
+	private boolean isCacheable(DalHints hints) {
+		return !hints.isAsyncExecution()
+				&& !hints.is(DalHintEnum.resultCallback)
+				&& !DalTransactionManager.isInTransaction();
+	}
+
+	/**
+	 * @return DB and table shard the entity is read from, or null if it can not be located
+	 */
+	private String locateCacheShard(StatementParameters parameters, Map<String, ?> fields, DalHints hints) throws SQLException {
+		boolean shardByDb = DalShardingHelper.isShardingEnabled(logicDbName);
+		boolean shardByTable = DalShardingHelper.isTableShardingEnabled(logicDbName, rawTableName);
+		if(!shardByDb && !shardByTable)
+			return "";
+
+		DalHints locateHints = hints.clone().setParameters(parameters);
+		if(fields != null)
+			locateHints.setFields(fields);
+
+		DalConfigure config = DalClientFactory.getDalConfigure();
+		DalShardingStrategy strategy = config.getDatabaseSet(logicDbName).getStrategy();
+		String dbShard = shardByDb ? strategy.locateDbShard(config, logicDbName, locateHints) : "";
+		String tableShard = shardByTable ? strategy.locateTableShard(config, logicDbName, locateHints) : "";
+
+		return dbShard == null || tableShard == null ? null : dbShard + "/" + tableShard;
+	}
+
+	private void invalidate(DalHints hints, T daoPojo) throws SQLException {
+		if(cache != null && daoPojo != null)
+			invalidate(hints, Collections.singletonList(daoPojo));
+	}
+
+	private void invalidate(DalHints hints, List<T> daoPojos) throws SQLException {
+		if(cache == null || daoPojos == null)
+			return;
+
+		List<List<?>> keys = new ArrayList<>(daoPojos.size());
+		for(T pojo: daoPojos) {
+			if(pojo != null)
+				keys.add(DalEntityCache.keyOf(parser.getPrimaryKeyNames(), parser.getPrimaryKeys(pojo)));
+		}
+		invalidateKeys(hints, keys);
+	}
+
+	/**
+	 * Invalidate the given keys, or all if keys is null. It is invalidated again after
+	 * commit in transaction, or after completion for async execution, so that entity read
+	 * by others before the change is visible is not kept.
+	 */
+	private void invalidateKeys(DalHints hints, final List<List<?>> keys) throws SQLException {
+		final DalEntityCache<T> cache = this.cache;
+		if(cache == null)
+			return;
+
+		cache.invalidate(keys);
+
+		if(DalTransactionManager.isInTransaction()) {
+			DalTransactionManager.register(new DalTransactionListener() {
+				public void beforeCommit() {}
+				public void beforeRollback() {}
+				public void afterCommit() {
+					cache.invalidate(keys);
+				}
+				public void afterRollback() {}
+			});
+		}
+
+		if(hints.isAsyncExecution() && hints.getFuture() != null) {
+			hints.getFuture().addCallback(new DalResultCallback() {
+				public <K> void onResult(K result) {
+					cache.invalidate(keys);
+				}
+				public void onError(Throwable e) {
+					cache.invalidate(keys);
+				}
+			});
+		}
 	}
 
 	/**
@@ -193,6 +348,39 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 		return commonQuery((TableSelectBuilder)selectBuilder.mapWith(parser).nullable(), hints);
 	}
 
+	/**
+	 * Query by the given where clause and parameters, pojos are read lazily as the
+	 * returned iterator advances. The iterator MUST be closed to release the connection
+	 * if it is not read to the end. Pojos of cross shard query are returned in the order
+	 * they arrive from shards.
+	 * 
+	 * @param whereClause the where section for the search statement.
+	 * @param parameters A container that holds all the necessary parameters 
+	 * @param hints Additional parameters that instruct how DAL Client perform database operation.
+	 * @return iterator of pojos that meet the search criteria
+	 * @throws SQLException
+	 */
+	public DalResultIterator<T> queryIterator(String whereClause, StatementParameters parameters,
+			DalHints hints) throws SQLException {
+		return queryIterator(whereClause, parameters, hints, null);
+	}
+
+	/**
+	 * Query by the given where clause and parameters, pojos are read lazily. For cross shard
+	 * query, the where clause must end with ORDER BY of the same order as the given comparator,
+	 * and pojos of all shards are merge sorted by the comparator.
+	 * @see #queryIterator(String, StatementParameters, DalHints)
+	 */
+	public DalResultIterator<T> queryIterator(String whereClause, StatementParameters parameters,
+			DalHints hints, Comparator<? super T> comparator) throws SQLException {
+		DalWatcher.begin();
+		TableSelectBuilder selectBuilder = new BaseTableSelectBuilder(rawTableName, dbCategory).where(whereClause).with(parameters);
+		DalSqlTaskRequest<DalResultIterator<T>> request = new DalSqlTaskRequest<>(
+				logicDbName, populate(selectBuilder), hints, new StreamingQuerySqlTask<>(parser), null);
+
+		return executor.executeStreaming(hints, request, comparator);
+	}
+
 	/**
 	 * Query by the given where clause and parameters. The where clause can
 	 * contain value placeholder "?". The parameter should match the index of
@@ -302,9 +490,15 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	}
 
 	private <K> K commonQuery(TableSelectBuilder builder, DalHints hints) throws SQLException {
-		DalSqlTaskRequest<K> request = new DalSqlTaskRequest<K>(
-				logicDbName, populate(builder), hints, 
-				new QuerySqlTask<>((DalResultSetExtractor<K>)builder.getResultExtractor(hints)), (ResultMerger<K>)builder.getResultMerger(hints));
+		DalSqlTaskRequest<K> request = new DalSqlTaskRequest<K>(logicDbName, populate(builder), hints, null, null);
+
+		// Range is merged only if the query is executed on more than one of the resolved shards
+		if(builder instanceof BaseTableSelectBuilder)
+			((BaseTableSelectBuilder)builder).mergeRange(request.isCrossShard(), hints);
+		else if(builder instanceof SelectSqlBuilder)
+			((SelectSqlBuilder)builder).mergeRange(request.isCrossShard(), hints);
+
+		request.with(new QuerySqlTask<>((DalResultSetExtractor<K>)builder.getResultExtractor(hints)), (ResultMerger<K>)builder.getResultMerger(hints));
 		
 		return executor.execute(hints, request, builder.isNullable());
 	}
@@ -453,7 +647,11 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 * @throws SQLException
 	 */
 	public int delete(DalHints hints, T daoPojo) throws SQLException {
-		return getSafeResult(getSafeResult(executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojo, singleDeleteTask))));
+		try {
+			return getSafeResult(getSafeResult(executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojo, singleDeleteTask))));
+		} finally {
+			invalidate(hints, daoPojo);
+		}
 	}
 	
 	/**
@@ -465,7 +663,11 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 * @throws SQLException
 	 */
 	public int[] delete(DalHints hints, List<T> daoPojos) throws SQLException {
-		return executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojos, singleDeleteTask));
+		try {
+			return executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojos, singleDeleteTask));
+		} finally {
+			invalidate(hints, daoPojos);
+		}
 	}
 	
 	/**
@@ -478,7 +680,11 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 * @throws SQLException
 	 */
 	public int[] batchDelete(DalHints hints, List<T> daoPojos) throws SQLException {
-		return executor.execute(hints, new DalBulkTaskRequest<>(logicDbName, rawTableName, hints, daoPojos, batchDeleteTask));
+		try {
+			return executor.execute(hints, new DalBulkTaskRequest<>(logicDbName, rawTableName, hints, daoPojos, batchDeleteTask));
+		} finally {
+			invalidate(hints, daoPojos);
+		}
 	}
 	
 	/**
@@ -495,7 +701,11 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 * @throws SQLException
 	 */
 	public int update(DalHints hints, T daoPojo) throws SQLException {
-		return getSafeResult(executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojo, singleUpdateTask)));
+		try {
+			return getSafeResult(executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojo, singleUpdateTask)));
+		} finally {
+			invalidate(hints, daoPojo);
+		}
 	}
 	
 	/**
@@ -512,11 +722,19 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 * @throws SQLException
 	 */
 	public int[] update(DalHints hints, List<T> daoPojos) throws SQLException {
-		return executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojos, singleUpdateTask));
+		try {
+			return executor.execute(hints, new DalSingleTaskRequest<>(logicDbName, hints, daoPojos, singleUpdateTask));
+		} finally {
+			invalidate(hints, daoPojos);
+		}
 	}
 	
 	public int[] batchUpdate(DalHints hints, List<T> daoPojos) throws SQLException {
-		return executor.execute(hints, new DalBulkTaskRequest<>(logicDbName, rawTableName, hints, daoPojos, batchUpdateTask));
+		try {
+			return executor.execute(hints, new DalBulkTaskRequest<>(logicDbName, rawTableName, hints, daoPojos, batchUpdateTask));
+		} finally {
+			invalidate(hints, daoPojos);
+		}
 	}
 	
 	/**
@@ -542,7 +760,11 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 * @throws SQLException
 	 */
 	public int delete(DeleteSqlBuilder deleteBuilder, DalHints hints) throws SQLException {
-		return getSafeResult(executor.execute(hints, new DalSqlTaskRequest<>(logicDbName, populate(deleteBuilder), hints, deleteSqlTask, new ResultMerger.IntSummary())));
+		try {
+			return getSafeResult(executor.execute(hints, new DalSqlTaskRequest<>(logicDbName, populate(deleteBuilder), hints, deleteSqlTask, new ResultMerger.IntSummary())));
+		} finally {
+			invalidateKeys(hints, null);
+		}
 	}
 
 	/**
@@ -559,7 +781,11 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 */
 	public int update(String sql, StatementParameters parameters, DalHints hints)
 			throws SQLException {
-		return getSafeResult(executor.execute(hints, new DalSqlTaskRequest<>(logicDbName, new FreeUpdateSqlBuilder(dbCategory).setTemplate(sql).with(parameters), hints, updateSqlTask, new ResultMerger.IntSummary())));
+		try {
+			return getSafeResult(executor.execute(hints, new DalSqlTaskRequest<>(logicDbName, new FreeUpdateSqlBuilder(dbCategory).setTemplate(sql).with(parameters), hints, updateSqlTask, new ResultMerger.IntSummary())));
+		} finally {
+			invalidateKeys(hints, null);
+		}
 	}
 	
 	/**
@@ -573,7 +799,142 @@ public final class DalTableDao<T> extends TaskAdapter<T> {
 	 */
 	public int update(UpdateSqlBuilder updateBuilder, DalHints hints)
 			throws SQLException {
-		return getSafeResult(executor.execute(hints, new DalSqlTaskRequest<>(logicDbName, populate(updateBuilder), hints, updateSqlTask, new ResultMerger.IntSummary())));
+		try {
+			return getSafeResult(executor.execute(hints, new DalSqlTaskRequest<>(logicDbName, populate(updateBuilder), hints, updateSqlTask, new ResultMerger.IntSummary())));
+		} finally {
+			invalidateKeys(hints, null);
+		}
+	}
+	
+	/**
+	 * Asynchronized version of queryByPk. The query is executed in DAL's thread pool
+	 * or the executor set by DalHints.asyncExecution(Executor). The given hints are not
+	 * changed, so that they can be reused for synchronized call.
+	 * 
+	 * @return future of the entity. Callback can be added to the future or set by DalHints.callbackWith.
+	 * @throws SQLException when the request can not be created or submitted
+	 */
+	public DalFuture<T> queryByPkAsync(Number id, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		queryByPk(id, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of queryByPk.
+	 */
+	public DalFuture<T> queryByPkAsync(T pk, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		queryByPk(pk, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of query.
+	 */
+	public DalFuture<List<T>> queryAsync(String whereClause, StatementParameters parameters, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		query(whereClause, parameters, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of query.
+	 */
+	public DalFuture<List<T>> queryAsync(TableSelectBuilder selectBuilder, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		query(selectBuilder, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of query.
+	 */
+	public <K> DalFuture<List<K>> queryAsync(TableSelectBuilder selectBuilder, DalHints hints, Class<K> clazz) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		query(selectBuilder, asyncHints, clazz);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of insert. The future result is how many rows been affected for each of the pojo.
+	 */
+	public DalFuture<int[]> insertAsync(DalHints hints, List<T> daoPojos) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		insert(asyncHints, daoPojos);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of combinedInsert.
+	 */
+	public DalFuture<Integer> combinedInsertAsync(DalHints hints, List<T> daoPojos) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		combinedInsert(asyncHints, daoPojos);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of batchInsert.
+	 */
+	public DalFuture<int[]> batchInsertAsync(DalHints hints, List<T> daoPojos) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		batchInsert(asyncHints, daoPojos);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of delete.
+	 */
+	public DalFuture<int[]> deleteAsync(DalHints hints, List<T> daoPojos) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		delete(asyncHints, daoPojos);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of batchDelete.
+	 */
+	public DalFuture<int[]> batchDeleteAsync(DalHints hints, List<T> daoPojos) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		batchDelete(asyncHints, daoPojos);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of update.
+	 */
+	public DalFuture<int[]> updateAsync(DalHints hints, List<T> daoPojos) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		update(asyncHints, daoPojos);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of batchUpdate.
+	 */
+	public DalFuture<int[]> batchUpdateAsync(DalHints hints, List<T> daoPojos) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		batchUpdate(asyncHints, daoPojos);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of update with UpdateSqlBuilder.
+	 */
+	public DalFuture<Integer> updateAsync(UpdateSqlBuilder updateBuilder, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		update(updateBuilder, asyncHints);
+		return asyncHints.getFuture();
+	}
+	
+	/**
+	 * Asynchronized version of delete with DeleteSqlBuilder.
+	 */
+	public DalFuture<Integer> deleteAsync(DeleteSqlBuilder deleteBuilder, DalHints hints) throws SQLException {
+		DalHints asyncHints = hints.clone().asyncExecution();
+		delete(deleteBuilder, asyncHints);
+		return asyncHints.getFuture();
 	}
 	
 	private SqlBuilder populate(TableSqlBuilder builder) throws SQLException {
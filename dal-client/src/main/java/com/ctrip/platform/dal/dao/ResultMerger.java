@@ -9,8 +9,16 @@ import java.util.Map;
 public interface ResultMerger<T> {
 	void addPartial(String shard, T partial) throws SQLException;
 	T merge() throws SQLException;
+
+	/**
+	 * Marks merger that the merged result does not depend on the order of partial results,
+	 * like summary. Partial results of parallel execution are added to it in the order of
+	 * shard completion, and to others in the order of shards.
+	 */
+	interface Unordered {
+	}
 	
-	static class IntSummary implements ResultMerger<Integer>{
+	static class IntSummary implements ResultMerger<Integer>, Unordered{
 		private int total;
 		@Override
 		public void addPartial(String shard, Integer partial) {
@@ -23,7 +31,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class LongSummary implements ResultMerger<Long>{
+	static class LongSummary implements ResultMerger<Long>, Unordered{
 		private long total;
 		@Override
 		public void addPartial(String shard, Long partial) {
@@ -36,7 +44,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class DoubleSummary implements ResultMerger<Double>{
+	static class DoubleSummary implements ResultMerger<Double>, Unordered{
 		private double total;
 		@Override
 		public void addPartial(String shard, Double partial) {
@@ -49,7 +57,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class BigIntegerSummary implements ResultMerger<BigInteger>{
+	static class BigIntegerSummary implements ResultMerger<BigInteger>, Unordered{
 		private BigInteger total;
 		@Override
 		public void addPartial(String shard, BigInteger partial) {
@@ -65,7 +73,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class BigDecimalSummary implements ResultMerger<BigDecimal>{
+	static class BigDecimalSummary implements ResultMerger<BigDecimal>, Unordered{
 		private BigDecimal total;
 		@Override
 		public void addPartial(String shard, BigDecimal partial) {
@@ -81,7 +89,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class IntAverage implements ResultMerger<Map<String, Number>>{
+	static class IntAverage implements ResultMerger<Map<String, Number>>, Unordered{
 		private int count;
 		private int sum;
 		private String countColumn;
@@ -113,7 +121,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class LongAverage implements ResultMerger<Map<String, Number>>{
+	static class LongAverage implements ResultMerger<Map<String, Number>>, Unordered{
 		private int count;
 		private long sum;
 		private String countColumn;
@@ -145,7 +153,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class DoubleAverage implements ResultMerger<Map<String, Number>>{
+	static class DoubleAverage implements ResultMerger<Map<String, Number>>, Unordered{
 		private int count;
 		private double sum;
 		private String countColumn;
@@ -177,7 +185,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class BigIntegerAverage implements ResultMerger<Map<String, Number>>{
+	static class BigIntegerAverage implements ResultMerger<Map<String, Number>>, Unordered{
 		private int count;
 		private BigInteger sum;
 		private String countColumn;
@@ -212,7 +220,7 @@ public interface ResultMerger<T> {
 		}
 	}
 
-	static class BigDecimalAverage implements ResultMerger<Map<String, Number>>{
+	static class BigDecimalAverage implements ResultMerger<Map<String, Number>>, Unordered{
 		private int count;
 		private BigDecimal sum;
 		private String countColumn;
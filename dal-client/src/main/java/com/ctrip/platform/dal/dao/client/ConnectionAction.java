@@ -17,9 +17,11 @@ import com.ctrip.platform.dal.dao.DalHintEnum;
 import com.ctrip.platform.dal.dao.DalHints;
 import com.ctrip.platform.dal.dao.StatementParameters;
 import com.ctrip.platform.dal.dao.Version;
+import com.ctrip.platform.dal.dao.configure.DatabaseLoadStats;
+import com.ctrip.platform.dal.dao.markdown.MarkdownManager;
 import com.ctrip.platform.dal.exceptions.DalException;
 
-public abstract class ConnectionAction<T> {
+public abstract class ConnectionAction<T> implements Cloneable {
 	public DalEventEnum operation;
 	public String sql;
 	public String callString;
@@ -41,6 +43,15 @@ public abstract class ConnectionAction<T> {
 	public LogEntry entry;
 	public Throwable e;
 
+	// Resources are kept open after execute returns, e.g. for streaming query
+	private boolean deferred;
+
+	// Cancelled by the other attempt of hedged read
+	private volatile boolean cancelled;
+
+	// Can be executed twice at the same time for hedged read
+	private boolean hedgeable;
+
 	void populate(DalEventEnum operation, String sql, StatementParameters parameters) {
 		this.operation = operation;
 		this.sql = sql;
@@ -131,22 +142,25 @@ public abstract class ConnectionAction<T> {
 	}
 
 	private void wrapSql() {
+		// Caller is resolved only once for all the sqls
+		String appIdComment = wrapAPPID("");
+
 		/**
 		 * You can not add comments before callString
 		 */
 		if(sql != null) {
-			sql = wrapAPPID(sql);
+			sql = appIdComment + sql;
 		}
 
 		if(sqls != null) {
 			for(int i = 0; i < sqls.length; i++){
-				sqls[i] = wrapAPPID(sqls[i]);
+				sqls[i] = appIdComment + sqls[i];
 			}
 		}
 
 		if(callString != null) {
 			// Call can not have comments at the begining
-			callString = callString + wrapAPPID("");
+			callString = callString + appIdComment;
 		}
 
 	}
@@ -172,6 +186,8 @@ public abstract class ConnectionAction<T> {
 	private void log(Object result, Throwable e) {
 		try {
 			entry.setDuration(System.currentTimeMillis() - start);
+			DatabaseLoadStats.recordLatency(entry.getDataBaseKeyName(), entry.getDuration());
+			DalLatencyMetrics.record(entry);
 			if(e == null) {
 				logger.success(entry, entry.getResultCount());
 			}else{
@@ -182,6 +198,92 @@ public abstract class ConnectionAction<T> {
 		}
 	}
 
+	/**
+	 * Keep connection, statement and result set open after execute returns. It must be
+	 * the last call of a successful execute, and complete must be called when the result
+	 * is consumed.
+	 */
+	public void defer() {
+		deferred = true;
+	}
+
+	public boolean isDeferred() {
+		return deferred && e == null;
+	}
+
+	/**
+	 * Release resources and log for deferred action.
+	 * @param error error happened when consuming the result, or null
+	 */
+	public void complete(Throwable error) throws SQLException {
+		try {
+			if(error != null) {
+				MarkdownManager.detect(connHolder, start, error);
+				error(error);
+			}
+		} finally {
+			cleanup();
+		}
+
+		end(null);
+	}
+
+	/**
+	 * Copy of this action that can be executed at the same time in another thread, e.g. for
+	 * hedged read. It must be called before the action is executed.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConnectionAction<T> fork() {
+		ConnectionAction<T> copy;
+		try {
+			copy = (ConnectionAction<T>)clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+
+		if(sqls != null)
+			copy.sqls = sqls.clone();
+		copy.usedDbs = new HashSet<>();
+		return copy;
+	}
+
+	/**
+	 * Cancel the statement being executed. The error caused by cancel does not mark down
+	 * the data source.
+	 */
+	public void cancel() {
+		cancelled = true;
+
+		Statement _statement = statement != null?
+				statement : preparedStatement != null?
+				preparedStatement : callableStatement;
+
+		if(_statement != null) {
+			try {
+				_statement.cancel();
+			} catch (Throwable e) {
+				logger.warn("Cancel statement failed: " + e.getMessage());
+			}
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @param hedgeable if the action can be forked and executed twice at the same time,
+	 * e.g. the result extractor keeps no state. Deferred action, e.g. streaming query,
+	 * is not hedgeable because both attempts would hold the connection open.
+	 */
+	public void setHedgeable(boolean hedgeable) {
+		this.hedgeable = hedgeable;
+	}
+
+	public boolean isHedgeable() {
+		return hedgeable;
+	}
+
 	public void cleanup() {
 		closeResultSet();
 		closeStatement();
@@ -209,6 +311,10 @@ public abstract class ConnectionAction<T> {
 		callableStatement = null;
 
 		if(_statement != null) {
+			// Cached statement is kept open for later use
+			if(_statement instanceof PreparedStatement && conn != null && DalStatementCache.release(conn, (PreparedStatement)_statement))
+				return;
+			
 			try {
 				_statement.close();
 			} catch (Throwable e) {
@@ -8,6 +8,7 @@ import org.apache.tomcat.jdbc.pool.PooledConnection;
 import com.ctrip.platform.dal.dao.DalClientFactory;
 import com.ctrip.platform.dal.dao.DalHintEnum;
 import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.configure.DatabaseLoadStats;
 import com.ctrip.platform.dal.exceptions.DalException;
 
 public class DalConnection {
@@ -19,6 +20,7 @@ public class DalConnection {
 	private DbMeta meta;
 	private DalLogger logger;
 	private boolean needDiscard;;
+	private boolean released;
 
 	public DalConnection(Connection conn, boolean master, String shardId, DbMeta meta) throws SQLException {
 		this.oldIsolationLevel = conn.getTransactionIsolation();
@@ -27,6 +29,7 @@ public class DalConnection {
 		this.shardId = shardId;
 		this.meta = meta;
 		this.logger = DalClientFactory.getDalLogger();
+		DatabaseLoadStats.acquire(meta.getDataBaseKeyName());
 	}
 
 	public Connection getConn() {
@@ -69,6 +72,11 @@ public class DalConnection {
 	}
 
 	public void close() {
+		if(!released) {
+			released = true;
+			DatabaseLoadStats.release(meta.getDataBaseKeyName());
+		}
+
 		try {
 			if(conn == null || conn.isClosed())
 				return;
@@ -8,6 +8,7 @@ import com.ctrip.platform.dal.dao.DalHintEnum;
 import com.ctrip.platform.dal.dao.DalHints;
 import com.ctrip.platform.dal.dao.configure.DalConfigure;
 import com.ctrip.platform.dal.dao.configure.DatabaseSet;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
 import com.ctrip.platform.dal.dao.markdown.MarkdownManager;
 import com.ctrip.platform.dal.dao.status.DalStatusManager;
 import com.ctrip.platform.dal.dao.strategy.DalShardingStrategy;
@@ -51,6 +52,10 @@ public class DalConnectionManager {
 			boolean isMaster = hints.is(DalHintEnum.masterOnly) || useMaster;
 			boolean isSelect = operation == DalEventEnum.QUERY;
 
+			// Read after recent write goes to master
+			if(isSelect && !isMaster && ReadYourWrites.isPinnedToMaster(logicDbName, hints))
+				isMaster = true;
+
 			connHolder = getConnectionFromDSLocator(hints, isMaster, isSelect);
 
 			connHolder.setAutoCommit(true);
@@ -98,6 +103,7 @@ public class DalConnectionManager {
 		String allInOneKey;
 		DatabaseSet dbSet = config.getDatabaseSet(logicDbName);
 		String shardId = null;
+		String excludedDataSource = HedgedRead.getExcludedDataSource();
 
 		if(dbSet.isShardingSupported()){
 			DalShardingStrategy strategy = dbSet.getStrategy();
@@ -111,11 +117,21 @@ public class DalConnectionManager {
 				throw new DalException(ErrorCode.ShardLocated, logicDbName);
 			dbSet.validate(shardId);
 
-			allInOneKey = dbSet.getRandomRealDbName(hints, shardId, isMaster, isSelect);
+			allInOneKey = excludedDataSource == null ?
+					dbSet.getRandomRealDbName(hints, shardId, isMaster, isSelect) :
+					dbSet.getOtherSlaveDbName(hints, shardId, excludedDataSource);
 		} else {
-			allInOneKey = dbSet.getRandomRealDbName(hints, isMaster, isSelect);
+			allInOneKey = excludedDataSource == null ?
+					dbSet.getRandomRealDbName(hints, isMaster, isSelect) :
+					dbSet.getOtherSlaveDbName(hints, null, excludedDataSource);
 		}
 
+		// No other slave for hedged read
+		if(allInOneKey == null)
+			throw new DalException(ErrorCode.NoMoreConnectionToFailOver);
+
+		HedgedRead.selected(allInOneKey, isSelect && !isMaster && dbSet.hasMultipleSlaves(shardId));
+
 		try {
 			conn = locator.getConnection(allInOneKey);
 			DbMeta meta = DbMeta.createIfAbsent(allInOneKey, dbSet.getDatabaseCategory(), conn);
@@ -127,6 +143,10 @@ public class DalConnectionManager {
 
 	public <T> T doInConnection(ConnectionAction<T> action, DalHints hints)
 			throws SQLException {
+		// Hedged read is not retried by HA, another slave is tried at the same time or on failure instead
+		if(action.operation == DalEventEnum.QUERY && HedgedRead.isEnabled(action, hints))
+			return new HedgedRead<>(this, action, hints).execute();
+
 		// If HA disabled or not query, we just directly call _doInConnnection
 
 		if(!DalStatusManager.getHaStatus().isEnabled()
@@ -146,7 +166,7 @@ public class DalConnectionManager {
 		throw highAvalible.getException();
 	}
 
-	private <T> T _doInConnection(ConnectionAction<T> action, DalHints hints)
+	<T> T _doInConnection(ConnectionAction<T> action, DalHints hints)
 			throws SQLException {
 		action.initLogEntry(logicDbName, hints);
 		action.start();
@@ -156,14 +176,23 @@ public class DalConnectionManager {
 		try {
 			result = action.execute();
 		} catch (Throwable e) {
-			MarkdownManager.detect(action.connHolder, action.start, e);
+			// Cancelled by hedged read is not an error of the data source
+			if(!action.isCancelled())
+				MarkdownManager.detect(action.connHolder, action.start, e);
 			action.error(e);
 		} finally {
 			DalWatcher.endExectue();
+			if(action.operation != DalEventEnum.QUERY)
+				ReadYourWrites.recordWrite(logicDbName, hints);
 			action.populateDbMeta();
-			action.cleanup();
+			// Deferred action is cleaned up when its result is closed
+			if(!action.isDeferred())
+				action.cleanup();
 		}
 
+		if(action.isDeferred())
+			return result;
+
 		action.end(result);
 		return result;
 	}
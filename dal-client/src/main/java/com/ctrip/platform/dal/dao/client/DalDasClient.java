@@ -7,7 +7,9 @@ import java.util.Map;
 import com.ctrip.platform.dal.dao.DalClient;
 import com.ctrip.platform.dal.dao.DalCommand;
 import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalResultIterator;
 import com.ctrip.platform.dal.dao.DalResultSetExtractor;
+import com.ctrip.platform.dal.dao.DalRowMapper;
 import com.ctrip.platform.dal.dao.StatementParameters;
 
 /**
@@ -35,6 +37,13 @@ public class DalDasClient implements DalClient {
 		return null;
 	}
 
+	@Override
+	public <T> DalResultIterator<T> queryIterator(String sql, StatementParameters parameters,
+			DalHints hints, DalRowMapper<T> mapper) throws SQLException {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	@Override
 	public int update(String sql, StatementParameters parameters, DalHints hints)
 			throws SQLException {
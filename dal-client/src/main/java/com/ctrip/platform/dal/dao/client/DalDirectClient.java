@@ -19,13 +19,16 @@ import com.ctrip.platform.dal.dao.DalCommand;
 import com.ctrip.platform.dal.dao.DalEventEnum;
 import com.ctrip.platform.dal.dao.DalHintEnum;
 import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalResultIterator;
 import com.ctrip.platform.dal.dao.DalResultSetExtractor;
+import com.ctrip.platform.dal.dao.DalRowMapper;
 import com.ctrip.platform.dal.dao.KeyHolder;
 import com.ctrip.platform.dal.dao.StatementParameter;
 import com.ctrip.platform.dal.dao.StatementParameters;
 import com.ctrip.platform.dal.dao.configure.DalConfigure;
 import com.ctrip.platform.dal.dao.helper.DalColumnMapRowMapper;
 import com.ctrip.platform.dal.dao.helper.DalRowMapperExtractor;
+import com.ctrip.platform.dal.dao.helper.DalScalarExtractor;
 import com.ctrip.platform.dal.dao.helper.HintsAwareExtractor;
 import com.ctrip.platform.dal.exceptions.DalException;
 
@@ -72,6 +75,33 @@ public class DalDirectClient implements DalClient {
 			}
 		};
 		action.populate(DalEventEnum.QUERY, sql, parameters);
+		action.setHedgeable(isStateless(extractor));
+
+		return doInConnection(action, hints);
+	}
+
+	@Override
+	public <T> DalResultIterator<T> queryIterator(String sql, StatementParameters parameters, final DalHints hints, final DalRowMapper<T> mapper)
+			throws SQLException {
+		ConnectionAction<DalResultIterator<T>> action = new ConnectionAction<DalResultIterator<T>>() {
+			@Override
+			public DalResultIterator<T> execute() throws Exception {
+				conn = getConnection(hints, this);
+
+				preparedStatement = stmtCreator.createStreamingStatement(conn, sql, parameters, hints);
+				DalWatcher.beginExecute();
+				rs = executeQuery(preparedStatement, entry);
+				DalWatcher.endExectue();
+
+				DalResultIterator<T> result = new DalStreamingResultIterator<>(this, rs, mapper, hints);
+
+				// Connection and result set are released when the iterator is closed
+				defer();
+				return result;
+			}
+		};
+		// Streaming query is not hedged, both attempts would hold open result set and connection
+		action.populate(DalEventEnum.QUERY, sql, parameters);
 
 		return doInConnection(action, hints);
 	}
@@ -112,6 +142,7 @@ public class DalDirectClient implements DalClient {
 			}
 		};
 		action.populate(DalEventEnum.QUERY, sql, parameters);
+		action.setHedgeable(isStateless(extractors));
 
 		return doInConnection(action, hints);
 	}
@@ -492,6 +523,21 @@ public class DalDirectClient implements DalClient {
 		}}, entry);
 	}
 
+	/**
+	 * Hints aware extractor creates new instance for each extract, others are not known to keep no state
+	 */
+	private boolean isStateless(DalResultSetExtractor<?> extractor) {
+		return extractor instanceof HintsAwareExtractor || extractor instanceof DalScalarExtractor;
+	}
+
+	private boolean isStateless(List<DalResultSetExtractor<?>> extractors) {
+		for(DalResultSetExtractor<?> extractor: extractors) {
+			if(!isStateless(extractor))
+				return false;
+		}
+		return true;
+	}
+
 	private <T> T execute(Callable<T> statementTask, LogEntry entry) throws Exception {
 		Throwable error = null;
 		logger.startStatement(entry);
@@ -0,0 +1,225 @@
+package com.ctrip.platform.dal.dao.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.ctrip.platform.dal.dao.DalEventEnum;
+import com.ctrip.platform.dal.dao.helper.LatencyHistogram;
+import com.ctrip.platform.dal.dao.helper.LoggerHelper;
+
+/**
+ * Latency histograms of each phase of statements, keyed by logic DB, data source, shard,
+ * event and fingerprint of the SQL. Phases are taken from DalWatcher when the statement
+ * is logged, merge of cross shard results is recorded by DalRequestExecutor.
+ *
+ * Number of keys is limited by maxKeys, statements with new keys beyond the limit are
+ * counted under OTHERS of the logic DB, so that SQL built with inlined values can not
+ * exhaust the memory.
+ */
+public class DalLatencyMetrics {
+	public enum Phase {
+		CONNECT, PREPARE, EXECUTE, MAP, MERGE
+	}
+
+	public static final int DEFAULT_MAX_KEYS = 256;
+	public static final String OTHERS = "OTHERS";
+
+	private static final String SEPARATOR = "|";
+	private static final int MAX_FINGERPRINTS = 4096;
+	private static final int MAX_FINGERPRINT_LENGTH = 256;
+	private static final String SENSITIVE = "*";
+	private static final String NONE = "-";
+
+	private static final ConcurrentHashMap<String, DalLatencyMetrics> metricsMap = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, String> fingerprints = new ConcurrentHashMap<>();
+	private static final AtomicLong overflowCount = new AtomicLong();
+	private static volatile int maxKeys = DEFAULT_MAX_KEYS;
+
+	private static final ThreadLocal<long[]> phaseNanos = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[DalWatcher.PHASES];
+		}
+	};
+
+	// Created when the phase is first recorded
+	private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(Phase.values().length);
+
+	/**
+	 * Record connect, prepare, execute and map phase of the statement taken by DalWatcher
+	 * in current thread. It must be called before the costs are taken by logger.
+	 */
+	public static void record(LogEntry entry) {
+		String key = keyOf(entry.getLogicDbName(), entry.getDataBaseKeyName(), entry.getShardId(),
+				entry.getEvent(), fingerprintOf(entry));
+		DalLatencyMetrics metrics = getMetrics(key, entry.getLogicDbName());
+
+		long[] nanos = phaseNanos.get();
+		DalWatcher.getPhaseNanos(nanos);
+		metrics.record(Phase.CONNECT, nanos[DalWatcher.CONNECT]);
+		metrics.record(Phase.PREPARE, nanos[DalWatcher.PREPARE]);
+		metrics.record(Phase.EXECUTE, nanos[DalWatcher.EXECUTE]);
+
+		if(entry.getEvent() == DalEventEnum.QUERY)
+			metrics.record(Phase.MAP, nanos[DalWatcher.MAP]);
+	}
+
+	/**
+	 * Record phase that is not for a single statement, like merging results of shards
+	 */
+	public static void record(String logicDbName, Phase phase, long nanos) {
+		String key = keyOf(logicDbName, null, null, null, null);
+		getMetrics(key, logicDbName).record(phase, nanos);
+	}
+
+	private static DalLatencyMetrics getMetrics(String key, String logicDbName) {
+		DalLatencyMetrics metrics = metricsMap.get(key);
+		if(metrics != null)
+			return metrics;
+
+		if(metricsMap.size() >= maxKeys) {
+			overflowCount.incrementAndGet();
+			key = keyOf(logicDbName, OTHERS, null, null, null);
+			metrics = metricsMap.get(key);
+			if(metrics != null)
+				return metrics;
+		}
+
+		metrics = new DalLatencyMetrics();
+		DalLatencyMetrics oldMetrics = metricsMap.putIfAbsent(key, metrics);
+		return oldMetrics == null ? metrics : oldMetrics;
+	}
+
+	private static String keyOf(String logicDbName, String dataBaseKeyName, String shardId, DalEventEnum event, String fingerprint) {
+		return new StringBuilder().append(valueOf(logicDbName)).
+				append(SEPARATOR).append(valueOf(dataBaseKeyName)).
+				append(SEPARATOR).append(valueOf(shardId)).
+				append(SEPARATOR).append(event == null ? NONE : event.name()).
+				append(SEPARATOR).append(valueOf(fingerprint)).toString();
+	}
+
+	private static String valueOf(String value) {
+		return value == null ? NONE : value;
+	}
+
+	private static String fingerprintOf(LogEntry entry) {
+		if(entry.isSensitive())
+			return SENSITIVE;
+
+		String[] sqls = entry.getSqls();
+		String sql = sqls != null && sqls.length > 0 ? sqls[0] : entry.getCallString();
+		if(sql == null)
+			return null;
+
+		String fingerprint = fingerprints.get(sql);
+		if(fingerprint != null)
+			return fingerprint;
+
+		fingerprint = getFingerprint(sql);
+		if(fingerprints.size() < MAX_FINGERPRINTS)
+			fingerprints.putIfAbsent(sql, fingerprint);
+
+		return fingerprint;
+	}
+
+	/**
+	 * Compact SQL without the appid comment that ConnectionAction adds before SQL or after
+	 * call string
+	 */
+	static String getFingerprint(String sql) {
+		sql = sql.trim();
+		if(sql.startsWith("/*")) {
+			int end = sql.indexOf("*/");
+			if(end > 0)
+				sql = sql.substring(end + 2);
+		} else if(sql.endsWith("*/")) {
+			int begin = sql.lastIndexOf("/*");
+			if(begin > 0)
+				sql = sql.substring(0, begin);
+		}
+
+		String fingerprint = LoggerHelper.getCompactSql(sql).trim();
+		return fingerprint.length() > MAX_FINGERPRINT_LENGTH ? fingerprint.substring(0, MAX_FINGERPRINT_LENGTH) : fingerprint;
+	}
+
+	private void record(Phase phase, long nanos) {
+		if(nanos < 0)
+			return;
+
+		LatencyHistogram histogram = histograms.get(phase.ordinal());
+		if(histogram == null) {
+			histograms.compareAndSet(phase.ordinal(), null, new LatencyHistogram());
+			histogram = histograms.get(phase.ordinal());
+		}
+		histogram.record(nanos);
+	}
+
+	public LatencyHistogram getHistogram(Phase phase) {
+		return histograms.get(phase.ordinal());
+	}
+
+	public static DalLatencyMetrics getMetrics(String key) {
+		return metricsMap.get(key);
+	}
+
+	public static int getKeyCount() {
+		return metricsMap.size();
+	}
+
+	public static int getMaxKeys() {
+		return maxKeys;
+	}
+
+	/**
+	 * Existing keys are kept if the limit is lowered, call reset to remove them
+	 */
+	public static void setMaxKeys(int maxKeys) {
+		if(maxKeys <= 0)
+			throw new IllegalArgumentException("Max keys must be positive number.");
+		DalLatencyMetrics.maxKeys = maxKeys;
+	}
+
+	public static long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	/**
+	 * @return count, mean, p50, p90, p99 and max in microseconds of each recorded phase,
+	 * ordered by key
+	 */
+	public static String[] getLatencies() {
+		List<String> latencies = new ArrayList<>();
+		for(Map.Entry<String, DalLatencyMetrics> entry: new TreeMap<>(metricsMap).entrySet()) {
+			for(Phase phase: Phase.values()) {
+				LatencyHistogram histogram = entry.getValue().getHistogram(phase);
+				if(histogram == null || histogram.getCount() == 0)
+					continue;
+
+				latencies.add(String.format("%s%s%s count=%d mean=%d p50=%d p90=%d p99=%d max=%d",
+						entry.getKey(), SEPARATOR, phase, histogram.getCount(),
+						toMicros(histogram.getMean()),
+						toMicros(histogram.getPercentile(50)),
+						toMicros(histogram.getPercentile(90)),
+						toMicros(histogram.getPercentile(99)),
+						toMicros(histogram.getMax())));
+			}
+		}
+		return latencies.toArray(new String[latencies.size()]);
+	}
+
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	public static void reset() {
+		metricsMap.clear();
+		fingerprints.clear();
+		overflowCount.set(0);
+	}
+}
@@ -0,0 +1,323 @@
+package com.ctrip.platform.dal.dao.client;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+import org.apache.tomcat.jdbc.pool.interceptor.StatementFinalizer;
+
+import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.DalClientFactory;
+
+/**
+ * Per pooled connection LRU cache of prepared statement. It is disabled by default.
+ * The statements are prepared through the pooled connection, so that interceptors of the
+ * pool still apply, and stored in the attributes of the pooled connection, so that they are
+ * not closed when the connection is returned to the pool and will be released together with
+ * the connection.
+ *
+ * StatementFinalizer closes all statements prepared through a connection when it is returned,
+ * so it is removed from the interceptors of pools created while the cache is enabled. Statements
+ * are still closed by DAL after use if they are not cached.
+ *
+ * Settings in TaskFactory of Dal.config:
+ * statementCacheSize: max cached statements per connection. 0 means disabled.
+ * statementCacheDatabaseCategories: comma separated DatabaseCategory that the cache applies to,
+ * 		e.g. MySql,SqlServer. Default is all categories.
+ */
+public class DalStatementCache {
+	public static final String STATEMENT_CACHE_SIZE = "statementCacheSize";
+	public static final String STATEMENT_CACHE_DATABASE_CATEGORIES = "statementCacheDatabaseCategories";
+
+	private static final String CACHE_ATTRIBUTE = DalStatementCache.class.getName();
+	private static final String STATEMENT_FINALIZER = StatementFinalizer.class.getName();
+
+	private static volatile int cacheSize;
+	private static volatile Set<DatabaseCategory> categories = new HashSet<>();
+
+	// Version of each pool, increased when its data source is refreshed. Caches created before are invalid
+	private static Map<PoolConfiguration, Integer> versions = Collections.synchronizedMap(new WeakHashMap<PoolConfiguration, Integer>());
+
+	private static AtomicLong hits = new AtomicLong();
+	private static AtomicLong misses = new AtomicLong();
+	private static AtomicLong evictions = new AtomicLong();
+
+	public static void init(String cacheSizeStr, String categoriesStr) {
+		int size = cacheSizeStr == null ? 0 : Integer.parseInt(cacheSizeStr.trim());
+
+		Set<DatabaseCategory> enabled = new HashSet<>();
+		if(categoriesStr == null) {
+			for(DatabaseCategory category: DatabaseCategory.values())
+				enabled.add(category);
+		} else {
+			for(String name: categoriesStr.split(",")) {
+				if(!name.trim().isEmpty())
+					enabled.add(DatabaseCategory.valueOf(name.trim()));
+			}
+		}
+
+		categories = enabled;
+		cacheSize = size;
+	}
+
+	public static boolean isEnabled(DatabaseCategory dbCategory) {
+		return cacheSize > 0 && categories.contains(dbCategory);
+	}
+
+	/**
+	 * @param interceptors jdbc interceptors of the pool, separated by ';'
+	 * @return interceptors without StatementFinalizer if the cache is enabled, so that
+	 * cached statements are not closed when the connection is returned to the pool
+	 */
+	public static String filterInterceptors(String interceptors) {
+		if(cacheSize <= 0 || interceptors == null)
+			return interceptors;
+
+		StringBuilder filtered = new StringBuilder();
+		for(String interceptor: interceptors.split(";")) {
+			// Interceptor may have properties like name(key=value)
+			String name = interceptor.trim();
+			int index = name.indexOf('(');
+			if(index >= 0)
+				name = name.substring(0, index).trim();
+
+			if(name.isEmpty() || name.equals(STATEMENT_FINALIZER) || name.equals(StatementFinalizer.class.getSimpleName()))
+				continue;
+
+			if(filtered.length() > 0)
+				filtered.append(';');
+			filtered.append(interceptor.trim());
+		}
+		return filtered.toString();
+	}
+
+	/**
+	 * Invalidate cached statements of connections of the given pool. Cache of each
+	 * connection is cleared when it is accessed next time.
+	 */
+	public static void invalidate(PoolConfiguration pool) {
+		synchronized (versions) {
+			versions.put(pool, getVersion(pool) + 1);
+		}
+	}
+
+	private static int getVersion(PoolConfiguration pool) {
+		Integer version = versions.get(pool);
+		return version == null ? 0 : version;
+	}
+
+	/**
+	 * @return cached statement, or null if the connection is not pooled or the same
+	 * statement is being used.
+	 */
+	public static PreparedStatement prepare(Connection conn, String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys) throws SQLException {
+		StatementCache cache = getCache(conn, true);
+		if(cache == null)
+			return null;
+
+		return cache.prepare(conn, new StatementKey(sql, resultSetType, resultSetConcurrency, autoGeneratedKeys));
+	}
+
+	/**
+	 * @return true if the statement is returned to cache, false if it is not cached
+	 * and should be closed by caller
+	 */
+	public static boolean release(Connection conn, PreparedStatement statement) {
+		try {
+			StatementCache cache = getCache(conn, false);
+			return cache != null && cache.release(statement);
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	private static StatementCache getCache(Connection conn, boolean create) throws SQLException {
+		PooledConnection pConn;
+		try {
+			pConn = conn.unwrap(PooledConnection.class);
+		} catch (SQLException e) {
+			return null;
+		}
+
+		if(pConn == null)
+			return null;
+
+		Map<Object, Object> attributes = pConn.getAttributes();
+		StatementCache cache = (StatementCache)attributes.get(CACHE_ATTRIBUTE);
+		Connection physical = pConn.getConnection();
+		int version = getVersion(pConn.getPoolProperties());
+		if(cache != null && (cache.version != version || cache.physical != physical)) {
+			// Reconnected or data source is refreshed
+			cache.clear();
+			attributes.remove(CACHE_ATTRIBUTE);
+			cache = null;
+		}
+
+		if(cache == null && create) {
+			cache = new StatementCache(physical, cacheSize, version);
+			attributes.put(CACHE_ATTRIBUTE, cache);
+		}
+
+		return cache;
+	}
+
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+	public static long getEvictionCount() {
+		return evictions.get();
+	}
+
+	public static int getCacheSize() {
+		return cacheSize;
+	}
+
+	private static void close(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (Throwable e) {
+			DalClientFactory.getDalLogger().error("Close cached statement failed.", e);
+		}
+	}
+
+	private static class StatementKey {
+		private String sql;
+		private int resultSetType;
+		private int resultSetConcurrency;
+		private int autoGeneratedKeys;
+		private int hashCode;
+
+		StatementKey(String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys) {
+			this.sql = sql;
+			this.resultSetType = resultSetType;
+			this.resultSetConcurrency = resultSetConcurrency;
+			this.autoGeneratedKeys = autoGeneratedKeys;
+			hashCode = ((sql.hashCode() * 31 + resultSetType) * 31 + resultSetConcurrency) * 31 + autoGeneratedKeys;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof StatementKey))
+				return false;
+
+			StatementKey key = (StatementKey)obj;
+			return hashCode == key.hashCode
+					&& resultSetType == key.resultSetType
+					&& resultSetConcurrency == key.resultSetConcurrency
+					&& autoGeneratedKeys == key.autoGeneratedKeys
+					&& sql.equals(key.sql);
+		}
+	}
+
+	private static class StatementCache {
+		private Connection physical;
+		private int maxSize;
+		private int version;
+		private LinkedHashMap<StatementKey, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+		private IdentityHashMap<PreparedStatement, StatementKey> inUse = new IdentityHashMap<>();
+
+		StatementCache(Connection physical, int maxSize, int version) {
+			this.physical = physical;
+			this.maxSize = maxSize;
+			this.version = version;
+		}
+
+		/**
+		 * @param conn the pooled connection that is currently borrowed. The physical
+		 * connection is only used to detect reconnect.
+		 */
+		synchronized PreparedStatement prepare(Connection conn, StatementKey key) throws SQLException {
+			PreparedStatement statement = statements.get(key);
+			if(statement != null && inUse.containsKey(statement))
+				return null;
+
+			boolean prepared = false;
+			try {
+				if(statement != null && !statement.isClosed()) {
+					hits.incrementAndGet();
+					reset(statement);
+				} else {
+					misses.incrementAndGet();
+					statements.remove(key);
+					statement = null;
+					statement = key.autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ?
+							conn.prepareStatement(key.sql, key.autoGeneratedKeys) :
+							conn.prepareStatement(key.sql, key.resultSetType, key.resultSetConcurrency);
+					statements.put(key, statement);
+					evict();
+				}
+
+				inUse.put(statement, key);
+				prepared = true;
+				return statement;
+			} finally {
+				// Statement that can not be reset is not usable any more
+				if(!prepared && statement != null) {
+					inUse.remove(statement);
+					statements.remove(key);
+					close(statement);
+				}
+			}
+		}
+
+		synchronized boolean release(PreparedStatement statement) {
+			return inUse.remove(statement) != null;
+		}
+
+		private void reset(PreparedStatement statement) throws SQLException {
+			// Result set left open by the previous use
+			ResultSet rs = statement.getResultSet();
+			if(rs != null)
+				rs.close();
+
+			statement.clearParameters();
+			statement.clearBatch();
+			statement.setMaxRows(0);
+			statement.setFetchSize(0);
+			statement.setQueryTimeout(0);
+		}
+
+		private void evict() {
+			Iterator<Map.Entry<StatementKey, PreparedStatement>> it = statements.entrySet().iterator();
+			while(statements.size() > maxSize && it.hasNext()) {
+				PreparedStatement statement = it.next().getValue();
+				if(inUse.containsKey(statement))
+					continue;
+
+				it.remove();
+				close(statement);
+				evictions.incrementAndGet();
+			}
+		}
+
+		synchronized void clear() {
+			for(PreparedStatement statement: statements.values())
+				close(statement);
+			statements.clear();
+			inUse.clear();
+		}
+	}
+}
@@ -33,35 +33,98 @@ public class DalStatementCreator {
 	}
 
 	public PreparedStatement createPreparedStatement(Connection conn, String sql, StatementParameters parameters, DalHints hints) throws Exception {
-		PreparedStatement statement = conn.prepareStatement(sql, getResultSetType(hints), getResultSetConcurrency(hints));
+		PreparedStatement statement = prepareStatement(conn, sql, hints, Statement.NO_GENERATED_KEYS);
 		
-		applyHints(statement, hints);
-		setParameter(statement, parameters);
+		try {
+			applyHints(statement, hints);
+			setParameter(statement, parameters);
+		} catch (Exception e) {
+			discard(conn, statement);
+			throw e;
+		}
 		
 		return statement;
 	}
+
+	/**
+	 * Create statement for streaming query. Fetch size in hints takes precedence over
+	 * the streaming fetch size of the database category.
+	 */
+	public PreparedStatement createStreamingStatement(Connection conn, String sql, StatementParameters parameters, DalHints hints) throws Exception {
+		PreparedStatement statement = createPreparedStatement(conn, sql, parameters, hints);
+
+		Integer fetchSize = (Integer)hints.get(DalHintEnum.fetchSize);
+		int streamingFetchSize = dbCategory.getStreamingFetchSize();
+		try {
+			if((fetchSize == null || fetchSize <= 0) && streamingFetchSize != 0)
+				statement.setFetchSize(streamingFetchSize);
+		} catch (SQLException e) {
+			discard(conn, statement);
+			throw e;
+		}
+
+		return statement;
+	}
 	
 	public PreparedStatement createPreparedStatement(Connection conn, String sql, StatementParameters parameters, DalHints hints, KeyHolder keyHolder) throws Exception {
-		PreparedStatement statement = conn.prepareStatement(sql,Statement.RETURN_GENERATED_KEYS);
+		PreparedStatement statement = prepareStatement(conn, sql, hints, Statement.RETURN_GENERATED_KEYS);
 		
-		applyHints(statement, hints);
-		setParameter(statement, parameters);
+		try {
+			applyHints(statement, hints);
+			setParameter(statement, parameters);
+		} catch (Exception e) {
+			discard(conn, statement);
+			throw e;
+		}
 		
 		return statement;
 	}
 	
 	public PreparedStatement createPreparedStatement(Connection conn, String sql, StatementParameters[] parametersList, DalHints hints) throws Exception {
-		PreparedStatement statement = conn.prepareStatement(sql, getResultSetType(hints), getResultSetConcurrency(hints));
+		PreparedStatement statement = prepareStatement(conn, sql, hints, Statement.NO_GENERATED_KEYS);
 		
-		applyHints(statement, hints);
-		for(StatementParameters parameters: parametersList) {
-			setParameter(statement, parameters);
-			statement.addBatch();
+		try {
+			applyHints(statement, hints);
+			for(StatementParameters parameters: parametersList) {
+				setParameter(statement, parameters);
+				statement.addBatch();
+			}
+		} catch (Exception e) {
+			discard(conn, statement);
+			throw e;
 		}
 		
 		return statement;
 	}
 	
+	private PreparedStatement prepareStatement(Connection conn, String sql, DalHints hints, int autoGeneratedKeys) throws SQLException {
+		int resultSetType = getResultSetType(hints);
+		int resultSetConcurrency = getResultSetConcurrency(hints);
+		
+		if(DalStatementCache.isEnabled(dbCategory)) {
+			PreparedStatement statement = DalStatementCache.prepare(conn, sql, resultSetType, resultSetConcurrency, autoGeneratedKeys);
+			if(statement != null)
+				return statement;
+		}
+		
+		return autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ?
+				conn.prepareStatement(sql, autoGeneratedKeys) :
+				conn.prepareStatement(sql, resultSetType, resultSetConcurrency);
+	}
+	
+	/**
+	 * Statement that is not returned to caller is given back to cache, or closed if it is not cached
+	 */
+	private void discard(Connection conn, PreparedStatement statement) {
+		if(DalStatementCache.release(conn, statement))
+			return;
+
+		try {
+			statement.close();
+		} catch (Throwable e) {
+		}
+	}
+	
 	public CallableStatement createCallableStatement(Connection conn,  String sql, StatementParameters parameters, DalHints hints) throws Exception {
 		CallableStatement statement = conn.prepareCall(sql);
 		
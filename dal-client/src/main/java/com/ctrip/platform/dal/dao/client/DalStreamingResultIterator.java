@@ -0,0 +1,105 @@
+package com.ctrip.platform.dal.dao.client;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalResultIterator;
+import com.ctrip.platform.dal.dao.DalRowMapper;
+import com.ctrip.platform.dal.dao.helper.CustomizableMapper;
+
+/**
+ * Iterate result set of a deferred ConnectionAction. The action is completed when
+ * the iterator is closed, exhausted or failed, so that connection is released and
+ * the statement is logged exactly once.
+ */
+public class DalStreamingResultIterator<T> implements DalResultIterator<T> {
+	private ConnectionAction<?> action;
+	private ResultSet rs;
+	private DalRowMapper<T> mapper;
+
+	private int rowNum;
+	// Current row is read but not returned yet
+	private boolean fetched;
+	private boolean closed;
+
+	public DalStreamingResultIterator(ConnectionAction<?> action, ResultSet rs, DalRowMapper<T> mapper) {
+		this.action = action;
+		this.rs = rs;
+		this.mapper = mapper;
+	}
+
+	/**
+	 * CustomizableMapper is bound to the result set and hints once, so that columns are not
+	 * resolved again for each row. It is the same as DalRowMapperExtractor.
+	 */
+	@SuppressWarnings("unchecked")
+	public DalStreamingResultIterator(ConnectionAction<?> action, ResultSet rs, DalRowMapper<T> mapper, DalHints hints) throws SQLException {
+		this(action, rs, hints != null && mapper instanceof CustomizableMapper ?
+				((CustomizableMapper<T>)mapper).mapWith(rs, hints) : mapper);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(closed)
+			return false;
+
+		if(fetched)
+			return true;
+
+		try {
+			fetched = rs.next();
+			if(!fetched)
+				close(null);
+			return fetched;
+		} catch (Throwable e) {
+			throw fail(e);
+		}
+	}
+
+	@Override
+	public T next() {
+		if(!hasNext())
+			throw new NoSuchElementException();
+
+		fetched = false;
+		try {
+			return mapper.map(rs, rowNum++);
+		} catch (Throwable e) {
+			throw fail(e);
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		close(null);
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	private void close(Throwable error) throws SQLException {
+		if(closed)
+			return;
+
+		closed = true;
+		action.entry.setResultCount(rowNum);
+		action.complete(error);
+	}
+
+	private RuntimeException fail(Throwable e) {
+		try {
+			close(e);
+		} catch (SQLException e1) {
+			return new RuntimeException(e1);
+		}
+		return new RuntimeException(e);
+	}
+}
@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
 import com.ctrip.platform.dal.exceptions.DalException;
 import com.ctrip.platform.dal.exceptions.ErrorCode;
 
@@ -16,6 +18,7 @@ public class DalTransaction  {
 	private int level = 0;
 	private boolean rolledBack = false;
 	private boolean completed = false;
+	private DalHints writeHints;
 	private DalLogger logger;
 	
 	public DalTransaction(DalConnection connHolder, String logicDbName) throws SQLException{
@@ -77,6 +80,13 @@ public class DalTransaction  {
 		return level++;
 	}
 	
+	/**
+	 * Write in this transaction, it is recorded for read your writes when committed
+	 */
+	public void recordWrite(DalHints hints) {
+		writeHints = hints;
+	}
+	
 	public void endTransaction(int startLevel) throws SQLException {
 		if(rolledBack || completed)
 			throw new DalException(ErrorCode.TransactionState);
@@ -95,7 +105,8 @@ public class DalTransaction  {
 		beforeCommit();
 		level = 0;
 		completed = true;
-		cleanup(true);
+		if(cleanup(true) && writeHints != null)
+			ReadYourWrites.recordWrite(logicDbName, writeHints);
 		afterCommit();
 	}
 	
@@ -110,13 +121,18 @@ public class DalTransaction  {
 		afterRollback();
 	}
 	
-	private void cleanup(boolean commit) {
+	/**
+	 * @return if commit or rollback succeeds
+	 */
+	private boolean cleanup(boolean commit) {
 		Connection conn = connHolder.getConn();
+		boolean success = false;
 		try {
 			if(commit)
 				conn.commit();
 			else
 				conn.rollback();
+			success = true;
 		} catch (Throwable e) {
 			logger.error("Can not commit or rollback on current connection", e);
 		}
@@ -129,6 +145,7 @@ public class DalTransaction  {
 		
 		connHolder.close();
 		DalTransactionManager.clearCurrentTransaction();
+		return success;
 	}
 	
 	private void beforeCommit() throws SQLException {
@@ -151,6 +151,8 @@ public class DalTransactionManager {
 			action.populateDbMeta();
 
 			result = action.execute();
+			if(action.operation != DalEventEnum.QUERY)
+				transactionHolder.get().recordWrite(hints);
 
 			endTransaction(level);
 		} catch (Throwable e) {
@@ -1,16 +1,38 @@
 package com.ctrip.platform.dal.dao.client;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record the time of each phase of the statement in current thread. Time is taken by
+ * System.nanoTime, and costs in log are in milliseconds.
+ */
 public class DalWatcher {
 	private static ThreadLocal<CostRecorder> costRecorder = new ThreadLocal<CostRecorder>();
 	
 	private static final String JSON_PATTERN = "{'Decode':'%s','Connect':'%s','Prepare':'%s','Excute':'%s','ClearUp':'%s'}";
 	
+	/**
+	 * Number of costs taken by takeCosts
+	 */
+	public static final int COSTS = 5;
+	
+	/**
+	 * Index of phase nanos taken by getPhaseNanos
+	 */
+	public static final int CONNECT = 0;
+	public static final int PREPARE = 1;
+	public static final int EXECUTE = 2;
+	public static final int MAP = 3;
+	public static final int PHASES = 4;
+	
 	private static class CostRecorder {
 		long corssShardBegin;
 		long begin;
 		long beginConnect;
 		long endConnect;
 		long beginExecute;
+		// End of the first endExectue, the rest till endExecute is for mapping result
+		long executed;
 		long endExecute;
 		long end;
 		long corssShardEnd;
@@ -20,6 +42,7 @@ public class DalWatcher {
 			beginConnect = 0;
 			endConnect = 0;
 			beginExecute = 0;
+			executed = 0;
 			endExecute = 0;
 			end = 0;
 		}
@@ -54,17 +77,51 @@ public class DalWatcher {
 		recorder().reset();
 	}
 	
+	/**
+	 * Copy current thread's cost recorder, so that it can be continued in another thread
+	 */
+	public static Object capture() {
+		CostRecorder cur = recorder();
+		CostRecorder copy = new CostRecorder();
+		copy.corssShardBegin = cur.corssShardBegin;
+		copy.begin = cur.begin;
+		copy.beginConnect = cur.beginConnect;
+		copy.endConnect = cur.endConnect;
+		copy.beginExecute = cur.beginExecute;
+		copy.executed = cur.executed;
+		copy.endExecute = cur.endExecute;
+		copy.end = cur.end;
+		copy.corssShardEnd = cur.corssShardEnd;
+		return copy;
+	}
+	
+	/**
+	 * Continue with the cost recorder captured in another thread
+	 */
+	public static void restore(Object captured) {
+		if(costRecorder != null && captured instanceof CostRecorder)
+			costRecorder.set((CostRecorder)captured);
+	}
+	
+	/**
+	 * Remove the cost recorder restored in pooled thread
+	 */
+	public static void clear() {
+		if(costRecorder != null)
+			costRecorder.remove();
+	}
+	
 	public static void crossShardBegin(){
-		recorder().corssShardBegin = System.currentTimeMillis();
+		recorder().corssShardBegin = System.nanoTime();
 	}
 	
 	public static void crossShardEnd(){
-		recorder().corssShardEnd = System.currentTimeMillis();
+		recorder().corssShardEnd = System.nanoTime();
 	}
 	
 	public static void begin(){
 		reset();
-		recorder().begin = System.currentTimeMillis();
+		recorder().begin = System.nanoTime();
 	}
 	
 	public static void beginConnect(){
@@ -74,32 +131,71 @@ public class DalWatcher {
 		if(curRecorder.beginConnect != 0)
 			curRecorder.reset();
 		
-		curRecorder.beginConnect = System.currentTimeMillis();
+		curRecorder.beginConnect = System.nanoTime();
 	}
 	
 	public static void endConnect(){
-		recorder().endConnect = System.currentTimeMillis();
+		recorder().endConnect = System.nanoTime();
 	}
 	
 	public static void beginExecute(){
-		recorder().beginExecute = System.currentTimeMillis();
+		CostRecorder curRecorder = recorder();
+		curRecorder.beginExecute = System.nanoTime();
+		curRecorder.executed = 0;
 	}
 	
 	public static void endExectue(){
-		recorder().endExecute = System.currentTimeMillis();
+		CostRecorder curRecorder = recorder();
+		curRecorder.endExecute = System.nanoTime();
+		if(curRecorder.executed == 0)
+			curRecorder.executed = curRecorder.endExecute;
+	}
+	
+	/**
+	 * Take nanos of connect, prepare, execute and map phase of current statement without reset.
+	 * Phase that is not recorded is -1.
+	 */
+	public static void getPhaseNanos(long[] nanos){
+		CostRecorder cur = recorder();
+		nanos[CONNECT] = between(cur.beginConnect, cur.endConnect);
+		nanos[PREPARE] = between(cur.endConnect, cur.beginExecute);
+		nanos[EXECUTE] = between(cur.beginExecute, cur.executed);
+		nanos[MAP] = between(cur.executed, cur.endExecute);
+	}
+	
+	private static long between(long begin, long end) {
+		return begin == 0 || end == 0 || end < begin ? -1 : end - begin;
 	}
 	
 	public static String toJson(){
+		long[] costs = new long[COSTS];
+		takeCosts(costs);
+		return toJson(costs);
+	}
+	
+	/**
+	 * Same as toJson but without formatting, so that it can be formatted later in another thread
+	 */
+	public static void takeCosts(long[] costs){
 		CostRecorder cur = recorder();
 		
 		// Final end
-		cur.end = System.currentTimeMillis();
+		cur.end = System.nanoTime();
 		
-		String json = String.format(JSON_PATTERN, cur.begin == 0 ? 0 : cur.beginConnect - cur.begin,
-				cur.endConnect - cur.beginConnect, cur.beginExecute - cur.endConnect,
-				cur.endExecute - cur.beginExecute, cur.end - cur.endExecute);
+		costs[0] = cur.begin == 0 ? 0 : toMillis(cur.beginConnect - cur.begin);
+		costs[1] = toMillis(cur.endConnect - cur.beginConnect);
+		costs[2] = toMillis(cur.beginExecute - cur.endConnect);
+		costs[3] = toMillis(cur.endExecute - cur.beginExecute);
+		costs[4] = toMillis(cur.end - cur.endExecute);
 		
 		reset();
-		return json;
+	}
+	
+	private static long toMillis(long nanos){
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+	
+	public static String toJson(long[] costs){
+		return String.format(JSON_PATTERN, costs[0], costs[1], costs[2], costs[3], costs[4]);
 	}
 }
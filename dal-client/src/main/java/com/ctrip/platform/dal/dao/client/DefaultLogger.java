@@ -27,23 +27,43 @@ public class DefaultLogger extends LoggerAdapter implements DalLogger {
 
 	@Override
 	public void info(final String desc) {
-		call(new Runnable() {public void run() {
+		if (!publish(LogEvent.INFO, desc, null))
 			logger.info(desc);
-		}});
 	}
 
 	@Override
 	public void warn(final String desc) {
-		call(new Runnable() {public void run() {
+		if (!publish(LogEvent.WARN, desc, null))
 			logger.warn(desc);
-		}});
 	}
 
 	@Override
 	public void error(final String desc, final Throwable e) {
-		call(new Runnable() {public void run() {
+		if (!publish(LogEvent.ERROR, desc, e))
 			logger.error(desc, e);
-		}});
+	}
+
+	@Override
+	void consume(LogEvent event) {
+		switch (event.type) {
+		case LogEvent.INFO:
+			logger.info(event.message);
+			break;
+		case LogEvent.WARN:
+			logger.warn(event.message);
+			break;
+		case LogEvent.ERROR:
+			logger.error(event.message, event.error);
+			break;
+		case LogEvent.SUCCESS:
+			recordSuccess(event.clientVersion, event.source,
+					LoggerHelper.getSqlTpl(event.event, event.sensitive, event.sqls, event.callString),
+					event.parameters == null ? null : LoggerHelper.getParams(event.event, event.parameters),
+					DalWatcher.toJson(event.costs), event.dbUrl);
+			break;
+		default:
+			super.consume(event);
+		}
 	}
 
 	private void infoOrError(final String desc, final Throwable e) {
@@ -102,44 +122,45 @@ public class DefaultLogger extends LoggerAdapter implements DalLogger {
 	public void success(final LogEntry entry, final int count) {
 		if (samplingLogging && !validate(entry) )
 			return;
-		call(new Runnable() {public void run() {
-			recordSuccess(entry, count);
-		}});
+
+		// Only copy what is needed, formatting and encryption are done in the logging thread
+		if (publishSuccess(entry, count))
+			return;
+
+		recordSuccess(entry.getClientVersion(), entry.getSource(), LoggerHelper.getSqlTpl(entry),
+				entry.getPramemters() == null ? null : LoggerHelper.getParams(entry), DalWatcher.toJson(), entry.getDbUrl());
 	}
 
-	private void recordSuccess(final LogEntry entry, final int count) {
+	/**
+	 * @param params null if there is no parameters
+	 */
+	private void recordSuccess(String clientVersion, String source, String sql, String params, String costDetail, String dbUrl) {
 		try {
 			StringBuilder msg = new StringBuilder("success info \n");
-			msg.append("\t").append("DAL.version : java-").append(entry.getClientVersion()).append(LINESEPARATOR);
-			msg.append("\t").append("source : ").append(entry.getSource()).append(LINESEPARATOR);
-			String sql = "*";
-			if (!entry.isSensitive()) {
-				sql = LoggerHelper.getSqlTpl(entry);
-			}
+			msg.append("\t").append("DAL.version : java-").append(clientVersion).append(LINESEPARATOR);
+			msg.append("\t").append("source : ").append(source).append(LINESEPARATOR);
 			msg.append("\t").append("sql: ").append(sql).append(LINESEPARATOR);
-			if (entry.getPramemters() != null) {
-				msg.append("\t").append("parameters : ").append(getEncryptParameters(encryptLogging, entry)).append(LINESEPARATOR);
+			if (params != null) {
+				msg.append("\t").append("parameters : ").append(getEncryptParameters(encryptLogging, params)).append(LINESEPARATOR);
 			} else {
 				msg.append("\t").append("parameters : ").append(LINESEPARATOR);
 			}
-			msg.append("\t").append("CostDetail : ").append(DalWatcher.toJson()).append(LINESEPARATOR);
-			msg.append("\t").append("SQL.database : ").append(entry.getDbUrl()).append(LINESEPARATOR);
+			msg.append("\t").append("CostDetail : ").append(costDetail).append(LINESEPARATOR);
+			msg.append("\t").append("SQL.database : ").append(dbUrl).append(LINESEPARATOR);
 			logger.info(msg.toString());
 		} catch (Throwable e) {
 			e.printStackTrace();
 		}
 	}
 
-	private String getEncryptParameters(boolean encryptLogging, LogEntry entry){
-		String params = "";
+	private String getEncryptParameters(boolean encryptLogging, String params){
 		if(encryptLogging){
 			try {
-				params = new String(Base64.encodeBase64(LoggerHelper.getParams(entry).getBytes()));
+				return new String(Base64.encodeBase64(params.getBytes()));
 			} catch (Exception e) {
 				logger.error(e.getMessage(), e);
+				return "";
 			}
-		} else {
-			params = LoggerHelper.getParams(entry);
 		}
 		return params;
 	}
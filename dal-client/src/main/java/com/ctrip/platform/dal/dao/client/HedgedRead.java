@@ -0,0 +1,460 @@
+package com.ctrip.platform.dal.dao.client;
+
+import java.sql.SQLException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.configure.DatabaseLoadStats;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
+import com.ctrip.platform.dal.dao.status.DalStatusManager;
+import com.ctrip.platform.dal.exceptions.DalException;
+
+/**
+ * Hedged read of query. The query is executed in the caller thread, if it does not return within
+ * the delay, the same query is sent to another slave of the same shard in a helper thread. The first
+ * successful result is taken and the statement of the other one is cancelled. Only the hedge is handed
+ * off, so read that will never be hedged, e.g. on master or the only slave, costs no thread switch.
+ *
+ * It only applies to hedgeable query with hedgeReads hint that is not in transaction and goes to
+ * a slave while there are other slaves. A query is hedgeable if it can be executed twice at the same
+ * time, e.g. its result extractor keeps no state. The delay is given by hint or hedgeDelay, or else
+ * derived from p95 of recent latency of the slave. Hedges are limited by hedgeBudget, which is the
+ * maximum percentage of extra queries to hedgeable ones.
+ *
+ * If the primary attempt fails before the delay with error that HA retries, the query is sent to
+ * another slave immediately in the caller thread, which is not limited by hedgeBudget.
+ */
+public class HedgedRead<T> {
+	public static final String HEDGE_BUDGET = "hedgeBudget";
+	public static final String HEDGE_DELAY = "hedgeDelay";
+	public static final String HEDGE_MAX_THREADS = "hedgeMaxThreads";
+
+	public static final int DEFAULT_BUDGET = 5;
+	// When there is no recent latency of the slave
+	public static final int DEFAULT_DELAY = 100;
+	public static final int DEFAULT_MAX_THREADS = 64;
+
+	private static final double DELAY_PERCENTILE = 95;
+
+	// A hedge takes 100 tokens, each hedgeable read deposits budget tokens
+	private static final long HEDGE_TOKENS = 100;
+	private static final long MAX_TOKENS = 10 * HEDGE_TOKENS;
+
+	private static final AtomicReference<ThreadPoolExecutor> executorRef = new AtomicReference<>();
+	// Fires the hedge after the delay
+	private static final AtomicReference<ScheduledThreadPoolExecutor> timerRef = new AtomicReference<>();
+	private static final ThreadLocal<Attempt<?>> currentAttempt = new ThreadLocal<>();
+
+	private static final AtomicLong tokens = new AtomicLong();
+	private static final AtomicLong hedgeableCount = new AtomicLong();
+	private static final AtomicLong firedCount = new AtomicLong();
+	private static final AtomicLong wonCount = new AtomicLong();
+	private static final AtomicLong throttledCount = new AtomicLong();
+	private static volatile int budget = DEFAULT_BUDGET;
+	private static volatile int delay = 0;
+
+	private DalConnectionManager connManager;
+	private DalHints hints;
+	private Attempt<T> primary;
+	private Attempt<T> hedge;
+
+	// Guarded by this
+	private boolean hedgeable;
+	private String primaryDataSource;
+	private boolean hedgeLaunched;
+	// Hedge is launched because primary attempt failed
+	private boolean failover;
+	private int finished;
+	private Attempt<T> winner;
+	private T result;
+	private ScheduledFuture<?> hedgeTimer;
+
+	HedgedRead(DalConnectionManager connManager, ConnectionAction<T> action, DalHints hints) {
+		this.connManager = connManager;
+		this.hints = hints;
+		// Fork before the action is executed
+		hedge = new Attempt<>(this, action.fork(), true);
+		primary = new Attempt<>(this, action, false);
+	}
+
+	public static void init(String budgetStr, String delayStr, String maxThreadsStr) {
+		setBudget(budgetStr == null ? DEFAULT_BUDGET : Integer.parseInt(budgetStr.trim()));
+		setDelay(delayStr == null ? 0 : Integer.parseInt(delayStr.trim()));
+		int maxThreads = maxThreadsStr == null ? DEFAULT_MAX_THREADS : Integer.parseInt(maxThreadsStr.trim());
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(0, maxThreads, 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), createThreadFactory("DAL-HedgedRead-"));
+
+		if(!executorRef.compareAndSet(null, executor)) {
+			executor.shutdown();
+			return;
+		}
+
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, createThreadFactory("DAL-HedgedRead-Timer-"));
+		timer.setRemoveOnCancelPolicy(true);
+		timerRef.set(timer);
+	}
+
+	private static ThreadFactory createThreadFactory(final String prefix) {
+		return new ThreadFactory() {
+			private AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, prefix + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+	public static void shutdown() {
+		ScheduledThreadPoolExecutor timer = timerRef.getAndSet(null);
+		if(timer != null)
+			timer.shutdownNow();
+
+		ThreadPoolExecutor executor = executorRef.getAndSet(null);
+		if(executor != null)
+			executor.shutdown();
+	}
+
+	static boolean isEnabled(ConnectionAction<?> action, DalHints hints) {
+		return executorRef.get() != null
+				&& timerRef.get() != null
+				&& action.isHedgeable()
+				&& hints.is(DalHintEnum.hedgeReads)
+				&& !hints.is(DalHintEnum.designatedDatabase)
+				&& !DalTransactionManager.isInTransaction();
+	}
+
+	/**
+	 * @return the data source selected by primary attempt if current thread is for hedge,
+	 * which must not be selected again
+	 */
+	static String getExcludedDataSource() {
+		Attempt<?> attempt = currentAttempt.get();
+		return attempt == null || !attempt.isHedge ? null : attempt.read.getPrimaryDataSource();
+	}
+
+	/**
+	 * Called when data source is selected for the attempt in current thread
+	 * @param hedgeable if it is a slave and there are other slaves
+	 */
+	static void selected(String dataSource, boolean hedgeable) {
+		Attempt<?> attempt = currentAttempt.get();
+		if(attempt != null && !attempt.isHedge)
+			attempt.read.primarySelected(dataSource, hedgeable);
+	}
+
+	private synchronized String getPrimaryDataSource() {
+		return primaryDataSource;
+	}
+
+	private synchronized void primarySelected(String dataSource, boolean hedgeable) {
+		primaryDataSource = dataSource;
+		this.hedgeable = hedgeable;
+
+		if(hedgeable) {
+			hedgeableCount.incrementAndGet();
+			deposit();
+			scheduleHedge();
+		}
+	}
+
+	/**
+	 * Called in the caller thread, so that the hedge continues its context
+	 */
+	private void scheduleHedge() {
+		ScheduledThreadPoolExecutor timer = timerRef.get();
+		if(timer == null)
+			return;
+
+		hedge.capture();
+		try {
+			hedgeTimer = timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					launchHedge();
+				}
+			}, getHedgeDelay(), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+		}
+	}
+
+	T execute() throws SQLException {
+		primary.execute();
+
+		try {
+			// Another slave is tried at once in the caller thread
+			if(startFailover())
+				hedge.execute();
+
+			synchronized (this) {
+				while(!isDone())
+					wait();
+
+				if(winner != null)
+					return result;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			hedge.action.cancel();
+			throw DalException.wrap(e);
+		}
+
+		// Both failed
+		throw primary.error instanceof SQLException ? (SQLException)primary.error : DalException.wrap(primary.error);
+	}
+
+	/**
+	 * @return if primary attempt failed before hedge is launched and HA would retry the error
+	 */
+	private synchronized boolean startFailover() {
+		if(winner != null || hedgeLaunched || !hedgeable || !(primary.error instanceof SQLException))
+			return false;
+
+		if(!DalStatusManager.getHaStatus().isEnabled())
+			return false;
+
+		DalHA ha = new DalHA();
+		ha.setDatabaseCategory(connManager.getConfig().getDatabaseSet(connManager.getLogicDbName()).getDatabaseCategory());
+		ha.update((SQLException)primary.error);
+		if(!ha.needTryAgain())
+			return false;
+
+		hedgeLaunched = true;
+		failover = true;
+		return true;
+	}
+
+	private long getHedgeDelay() {
+		int hintDelay = hints.getInt(DalHintEnum.hedgeReads, 0);
+		if(hintDelay > 0)
+			return hintDelay;
+
+		if(delay > 0)
+			return delay;
+
+		long latency = DatabaseLoadStats.getStats(primaryDataSource).getLatencyPercentile(DELAY_PERCENTILE);
+		return latency < 0 ? DEFAULT_DELAY : Math.max(1, latency);
+	}
+
+	/**
+	 * Called by timer when primary attempt is not done within the delay
+	 */
+	private void launchHedge() {
+		synchronized (this) {
+			if(isDone())
+				return;
+		}
+
+		if(!withdraw()) {
+			throttledCount.incrementAndGet();
+			return;
+		}
+
+		synchronized (this) {
+			if(isDone())
+				return;
+			hedgeLaunched = true;
+		}
+
+		if(launch(hedge)) {
+			firedCount.incrementAndGet();
+		} else {
+			synchronized (this) {
+				hedgeLaunched = false;
+				notifyAll();
+			}
+		}
+	}
+
+	private boolean launch(Attempt<T> attempt) {
+		ThreadPoolExecutor executor = executorRef.get();
+		if(executor == null)
+			return false;
+
+		try {
+			executor.execute(attempt);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	private boolean isDone() {
+		return winner != null || finished == (hedgeLaunched ? 2 : 1);
+	}
+
+	private void complete(Attempt<T> attempt, T value, Throwable error) {
+		Attempt<T> loser = null;
+		ScheduledFuture<?> timer = null;
+
+		synchronized (this) {
+			finished++;
+			if(winner == null && error == null) {
+				winner = attempt;
+				result = value;
+				if(attempt.isHedge && !failover)
+					wonCount.incrementAndGet();
+
+				Attempt<T> other = attempt == primary ? hedge : primary;
+				if(other == primary || hedgeLaunched)
+					loser = other;
+			} else if(error != null) {
+				attempt.error = error;
+			}
+
+			// Hedge is not needed any more once primary attempt is done
+			if(attempt == primary)
+				timer = hedgeTimer;
+			notifyAll();
+		}
+
+		if(timer != null)
+			timer.cancel(false);
+
+		// Cancel may take time, e.g. it sends kill query through another connection
+		if(loser != null)
+			loser.action.cancel();
+	}
+
+	private static void deposit() {
+		long current;
+		do {
+			current = tokens.get();
+		} while(current < MAX_TOKENS && !tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + budget)));
+	}
+
+	private static boolean withdraw() {
+		long current;
+		do {
+			current = tokens.get();
+			if(current < HEDGE_TOKENS)
+				return false;
+		} while(!tokens.compareAndSet(current, current - HEDGE_TOKENS));
+		return true;
+	}
+
+	public static int getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @param budget maximum percentage of hedges to hedgeable reads
+	 */
+	public static void setBudget(int budget) {
+		if(budget < 0 || budget > 100)
+			throw new IllegalArgumentException("Hedge budget must be between 0 and 100.");
+		HedgedRead.budget = budget;
+	}
+
+	public static int getDelay() {
+		return delay;
+	}
+
+	/**
+	 * @param delay in milliseconds, 0 means derived from recent latency of the slave
+	 */
+	public static void setDelay(int delay) {
+		if(delay < 0)
+			throw new IllegalArgumentException("Hedge delay can not be negative number.");
+		HedgedRead.delay = delay;
+	}
+
+	public static long getHedgeableCount() {
+		return hedgeableCount.get();
+	}
+
+	public static long getFiredCount() {
+		return firedCount.get();
+	}
+
+	public static long getWonCount() {
+		return wonCount.get();
+	}
+
+	public static long getThrottledCount() {
+		return throttledCount.get();
+	}
+
+	public static void reset() {
+		tokens.set(0);
+		hedgeableCount.set(0);
+		firedCount.set(0);
+		wonCount.set(0);
+		throttledCount.set(0);
+	}
+
+	private static class Attempt<T> implements Runnable {
+		private HedgedRead<T> read;
+		private ConnectionAction<T> action;
+		private boolean isHedge;
+		private Throwable error;
+
+		// Context of the caller thread
+		private Object watcher;
+		private Object writes;
+		private String caller;
+
+		Attempt(HedgedRead<T> read, ConnectionAction<T> action, boolean isHedge) {
+			this.read = read;
+			this.action = action;
+			this.isHedge = isHedge;
+		}
+
+		void capture() {
+			watcher = DalWatcher.capture();
+			writes = ReadYourWrites.capture();
+			caller = LogEntry.getCurrentCaller();
+		}
+
+		/**
+		 * Execute in current thread
+		 */
+		void execute() {
+			currentAttempt.set(this);
+
+			T value = null;
+			Throwable e = null;
+			try {
+				// The other one has won before it starts
+				if(action.isCancelled())
+					e = new SQLException("Hedged read is cancelled");
+				else
+					value = read.connManager._doInConnection(action, read.hints);
+			} catch (Throwable ex) {
+				e = ex;
+			} finally {
+				currentAttempt.remove();
+			}
+
+			read.complete(this, value, e);
+		}
+
+		@Override
+		public void run() {
+			// Continue the caller thread's context in the helper thread
+			DalWatcher.restore(watcher);
+			ReadYourWrites.restore(writes);
+			LogEntry.populateCurrentCaller(caller);
+			try {
+				execute();
+			} finally {
+				LogEntry.clearCurrentCaller();
+				ReadYourWrites.clear();
+				DalWatcher.clear();
+			}
+		}
+	}
+}
@@ -39,14 +39,26 @@ public class LogContext {
         this.shards = shards;
     }
 
+    /**
+     * @return caller of the outer request if it is populated in current thread, e.g. request in
+     * transaction or callback. Otherwise the stack is only walked for sampled requests,
+     * and null is returned for the others.
+     */
     public static String getRequestCaller(){
-        StackTraceElement[] callers = Thread.currentThread().getStackTrace();
-        for (int i = 4; i < callers.length; i++) {
-            StackTraceElement caller = callers[i];
-            if (caller.getClassName().startsWith(execludedPackageSpace))
+        String caller = LogEntry.getCurrentCaller();
+        if (caller != null)
+            return caller;
+
+        if (!LogEntry.isCallerSampled())
+            return null;
+
+        StackTraceElement[] callers = new Throwable().getStackTrace();
+        for (int i = 1; i < callers.length; i++) {
+            StackTraceElement frame = callers[i];
+            if (frame.getClassName().startsWith(execludedPackageSpace))
                 continue;
 
-            return caller.getClassName() + "." + caller.getMethodName();
+            return frame.getClassName() + "." + frame.getMethodName();
         }
 
         return "unknow";
@@ -1,5 +1,8 @@
 package com.ctrip.platform.dal.dao.client;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
 import com.ctrip.platform.dal.common.enums.DatabaseCategory;
 import com.ctrip.platform.dal.dao.DalEventEnum;
 
@@ -8,6 +11,22 @@ public class LogEntry {
 
 	private static String execludedPackageSpace = "com.ctrip.platform.dal.dao.";
 
+	private static final String UNKNOWN_CALLER = "unknown";
+	private static final int MAX_CACHED_CALLERS = 10000;
+
+	/**
+	 * Short caller of each call site, used for prefixing sql comment
+	 */
+	private static final ConcurrentHashMap<String, String> shortCallers = new ConcurrentHashMap<>();
+
+	public static final int DEFAULT_CALLER_SAMPLING = 100;
+
+	/**
+	 * Capture caller stack for one of every callerSampling entries or requests that have no
+	 * request caller populated in current thread. Other ones use unknown caller.
+	 */
+	private static volatile int callerSampling = DEFAULT_CALLER_SAMPLING;
+
 	private boolean sensitive;
 	private String[] sqls;
 	private String[] pramemters;
@@ -34,23 +53,58 @@ public class LogEntry {
 	private String dao;
 	private String method;
 	private String source;
+	private StackTraceElement callerFrame;
+	private String requestCaller;
+	private Throwable callerTrace;
+	private boolean callerResolved;
 	private String clientVersion;
 
 	private Throwable exception;
 
 	private long createTime = System.currentTimeMillis();
 
+	/**
+	 * The caller is resolved lazily. Only the stack is captured here and it is not walked until
+	 * the dao, method or source is actually required. The stack is not captured if the request caller
+	 * is already populated in current thread, and otherwise only captured for sampled entries.
+	 */
 	public LogEntry(){
-		StackTraceElement[] callers = Thread.currentThread().getStackTrace();
-		for (int i = 4; i < callers.length; i++) {
-			StackTraceElement caller = callers[i];
-			if (caller.getClassName().startsWith(execludedPackageSpace))
-				continue;
-
-			dao = caller.getClassName();
-			method = caller.getMethodName();
-			source = caller.toString();
-			break;
+		requestCaller = currentCaller == null ? null : currentCaller.get();
+
+		if(requestCaller == null && isCallerSampled())
+			callerTrace = new Throwable();
+	}
+
+	static boolean isCallerSampled() {
+		int sampling = callerSampling;
+		return sampling <= 1 || ThreadLocalRandom.current().nextInt(sampling) == 0;
+	}
+
+	private synchronized void resolveCaller() {
+		if(callerResolved)
+			return;
+
+		callerResolved = true;
+		if(callerTrace != null) {
+			StackTraceElement[] callers = callerTrace.getStackTrace();
+			callerTrace = null;
+			for (int i = 3; i < callers.length; i++) {
+				StackTraceElement caller = callers[i];
+				if (caller.getClassName().startsWith(execludedPackageSpace))
+					continue;
+
+				callerFrame = caller;
+				dao = caller.getClassName();
+				method = caller.getMethodName();
+				return;
+			}
+		}
+
+		if(requestCaller != null) {
+			int lastIndex = requestCaller.lastIndexOf('.');
+			dao = requestCaller.substring(0, lastIndex);
+			method = requestCaller.substring(lastIndex + 1);
+			source = requestCaller;
 		}
 	}
 
@@ -234,18 +288,24 @@ public class LogEntry {
 	}
 
 	public String getDao() {
+		resolveCaller();
 		return dao;
 	}
 
 	public String getMethod() {
+		resolveCaller();
 		return method;
 	}
 
 	public void setMethod(String method) {
+		resolveCaller();
 		this.method = method;
 	}
 
 	public String getSource() {
+		resolveCaller();
+		if(source == null && callerFrame != null)
+			source = callerFrame.toString();
 		return source;
 	}
 
@@ -318,27 +378,56 @@ public class LogEntry {
 	 * @return Current caller
 	 */
 	public String getCaller() {
-		String sqlType = getDao() + "." + getMethod();
+		// The request caller populated in current thread is preferred, no need to walk the stack
+		String sqlType = currentCaller == null ? null : currentCaller.get();
+		if(sqlType != null)
+			return sqlType;
+
+		// Not sampled and no request caller
+		if(getDao() == null)
+			return UNKNOWN_CALLER;
+
+		sqlType = getDao() + "." + getMethod();
 
 		// If comes from internal executor
 		if(sqlType.startsWith("java.util.concurrent.FutureTask"))
-			sqlType = currentCaller.get();
+			sqlType = requestCaller;
 
-		return sqlType;
+		return sqlType == null ? UNKNOWN_CALLER : sqlType;
 	}
 
 	public String getCallerInShort() {
 		try {
 			String caller = getCaller();
+			String shortCaller = shortCallers.get(caller);
+			if(shortCaller != null)
+				return shortCaller;
+
 			int lastIndex = caller.lastIndexOf('.');
 
 			lastIndex = caller.lastIndexOf('.', lastIndex - 1);
-			return caller.substring(lastIndex + 1);
+			shortCaller = caller.substring(lastIndex + 1);
+
+			if(shortCallers.size() < MAX_CACHED_CALLERS)
+				shortCallers.put(caller, shortCaller);
+
+			return shortCaller;
 		} catch (Throwable e) {
 			return "Error!! Can Not Locate Calller";
 		}
 	}
 
+	/**
+	 * @param sampling capture caller stack for one of every sampling entries, 1 means always capture
+	 */
+	public static void setCallerSampling(int sampling) {
+		callerSampling = sampling < 1 ? 1 : sampling;
+	}
+
+	public static int getCallerSampling() {
+		return callerSampling;
+	}
+
 	/**
 	 * Put curent caller into threadlocal to allow ConnectionAction get caller in later stage
 	 */
@@ -346,6 +435,13 @@ public class LogEntry {
 		currentCaller.set(caller);
 	}
 
+	/**
+	 * @return curent caller in threadlocal, or null if it is not populated
+	 */
+	public static String getCurrentCaller() {
+		return currentCaller == null ? null : currentCaller.get();
+	}
+
 	/**
 	 * Clear curent caller of threadlocal
 	 */
@@ -353,6 +449,16 @@ public class LogEntry {
 		currentCaller.remove();
 	}
 
+	/**
+	 * Restore caller of the outer request in current thread, or clear it if there is none
+	 */
+	public static void restoreCurrentCaller(String caller) {
+		if(caller == null)
+			clearCurrentCaller();
+		else
+			populateCurrentCaller(caller);
+	}
+
 	public synchronized static void init(){
 		if(currentCaller != null)
 			return;
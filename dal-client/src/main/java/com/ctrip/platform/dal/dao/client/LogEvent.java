@@ -0,0 +1,71 @@
+package com.ctrip.platform.dal.dao.client;
+
+import com.ctrip.platform.dal.dao.DalEventEnum;
+
+/**
+ * Slot of LogRingBuffer. It is preallocated and reused, producer copies only what is
+ * needed for the log into it, and the consumer does the formatting.
+ */
+class LogEvent {
+	static final int TASK = 0;
+	static final int INFO = 1;
+	static final int WARN = 2;
+	static final int ERROR = 3;
+	static final int SUCCESS = 4;
+	// Claimed but not filled, consumers ignore it
+	static final int SKIPPED = 5;
+
+	// Position the slot is free for or published at, see LogRingBuffer
+	volatile long sequence;
+	long publishTime;
+
+	int type;
+	Runnable task;
+	String message;
+	Throwable error;
+
+	// Fields copied from LogEntry for SUCCESS
+	DalEventEnum event;
+	boolean sensitive;
+	String[] sqls;
+	String callString;
+	String[] parameters;
+	String clientVersion;
+	String source;
+	String dbUrl;
+	int count;
+	long[] costs = new long[DalWatcher.COSTS];
+
+	LogEvent(long sequence) {
+		this.sequence = sequence;
+	}
+
+	void copy(LogEntry entry, int count) {
+		event = entry.getEvent();
+		sensitive = entry.isSensitive();
+		sqls = entry.getSqls();
+		callString = entry.getCallString();
+		parameters = entry.getPramemters();
+		clientVersion = entry.getClientVersion();
+		source = entry.getSource();
+		dbUrl = entry.getDbUrl();
+		this.count = count;
+		DalWatcher.takeCosts(costs);
+	}
+
+	/**
+	 * Release references so that they can be collected while the slot is idle
+	 */
+	void clear() {
+		task = null;
+		message = null;
+		error = null;
+		event = null;
+		sqls = null;
+		callString = null;
+		parameters = null;
+		clientVersion = null;
+		source = null;
+		dbUrl = null;
+	}
+}
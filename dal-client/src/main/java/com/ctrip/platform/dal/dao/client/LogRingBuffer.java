@@ -0,0 +1,201 @@
+package com.ctrip.platform.dal.dao.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded multi producer single consumer ring buffer for async logging.
+ *
+ * Slots are preallocated. Producer claims a slot with one CAS, copies what is needed into it
+ * and publishes it. The only consumer thread formats and writes logs in the order the slots
+ * are claimed, so the calling thread never formats, encrypts or does I/O.
+ *
+ * When the buffer is full, new events are dropped and counted. With SAMPLE policy, once the
+ * buffer is more than half full, only one of every samplingRate events that can be sampled is
+ * kept, so that warnings and errors still have room during burst.
+ */
+class LogRingBuffer {
+	static final String DROP = "drop";
+	static final String SAMPLE = "sample";
+
+	interface Consumer {
+		void consume(LogEvent event);
+	}
+
+	private static final Logger logger = LoggerFactory.getLogger(LogRingBuffer.class);
+
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final LogEvent[] slots;
+	private final int mask;
+	private final Consumer consumer;
+	private final boolean sampling;
+	private final int samplingRate;
+
+	private final AtomicLong tail = new AtomicLong();
+	// Only written by consumer thread
+	private volatile long head;
+	private volatile long lagMillis;
+
+	private final AtomicLong sampleCounter = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong sampled = new AtomicLong();
+
+	private volatile boolean running = true;
+	private volatile boolean waiting;
+	private final Thread consumerThread;
+
+	/**
+	 * @param capacity it is rounded up to power of 2
+	 * @param policy DROP or SAMPLE
+	 * @param samplingRate keep one of every samplingRate events for SAMPLE policy
+	 */
+	LogRingBuffer(int capacity, String policy, int samplingRate, Consumer consumer) {
+		if(capacity <= 0 || samplingRate <= 0)
+			throw new IllegalArgumentException("Capacity and sampling rate must be positive number.");
+
+		if(!DROP.equalsIgnoreCase(policy) && !SAMPLE.equalsIgnoreCase(policy))
+			throw new IllegalArgumentException("Unknown overflow policy: " + policy);
+
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity)
+			size <<= 1;
+
+		slots = new LogEvent[size];
+		for(int i = 0; i < size; i++)
+			slots[i] = new LogEvent(i);
+		mask = size - 1;
+
+		this.consumer = consumer;
+		this.sampling = SAMPLE.equalsIgnoreCase(policy);
+		this.samplingRate = samplingRate;
+
+		consumerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, "DAL-AsyncLogging");
+		consumerThread.setDaemon(true);
+		consumerThread.start();
+	}
+
+	/**
+	 * @param sampleable if the event can be dropped by sampling
+	 * @return the slot to fill and publish, or null if the event is dropped
+	 */
+	LogEvent claim(boolean sampleable) {
+		if(!running) {
+			dropped.incrementAndGet();
+			return null;
+		}
+
+		if(sampling && sampleable && tail.get() - head >= slots.length / 2
+				&& sampleCounter.getAndIncrement() % samplingRate != 0) {
+			sampled.incrementAndGet();
+			return null;
+		}
+
+		while(true) {
+			long position = tail.get();
+			LogEvent event = slots[(int)position & mask];
+
+			// The slot is not consumed yet since last round
+			if(event.sequence != position) {
+				dropped.incrementAndGet();
+				return null;
+			}
+
+			if(tail.compareAndSet(position, position + 1))
+				return event;
+		}
+	}
+
+	void publish(LogEvent event) {
+		event.publishTime = System.currentTimeMillis();
+		// The slot was claimed at sequence, it is consumable at sequence + 1
+		event.sequence = event.sequence + 1;
+
+		if(waiting)
+			LockSupport.unpark(consumerThread);
+	}
+
+	private void consume() {
+		long position = head;
+		while(true) {
+			LogEvent event = slots[(int)position & mask];
+			if(event.sequence != position + 1) {
+				if(!running)
+					return;
+
+				waiting = true;
+				if(event.sequence != position + 1 && running)
+					LockSupport.parkNanos(this, PARK_NANOS);
+				waiting = false;
+				continue;
+			}
+
+			lagMillis = System.currentTimeMillis() - event.publishTime;
+			try {
+				consumer.consume(event);
+			} catch (Throwable e) {
+				logger.error("Consume async logging event failed.", e);
+			}
+
+			event.clear();
+			event.sequence = position + slots.length;
+			head = ++position;
+		}
+	}
+
+	/**
+	 * Stop after published events are consumed, or the timeout is reached.
+	 */
+	void shutdown(long timeoutMillis) {
+		running = false;
+		LockSupport.unpark(consumerThread);
+		try {
+			consumerThread.join(timeoutMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * @return number of events claimed but not consumed yet
+	 */
+	int getSize() {
+		return (int)Math.max(0, tail.get() - head);
+	}
+
+	/**
+	 * @return milliseconds the last consumed event waited in the buffer
+	 */
+	long getLagMillis() {
+		return lagMillis;
+	}
+
+	long getPublishedCount() {
+		return tail.get();
+	}
+
+	long getConsumedCount() {
+		return head;
+	}
+
+	long getDroppedCount() {
+		return dropped.get();
+	}
+
+	long getSampledCount() {
+		return sampled.get();
+	}
+}
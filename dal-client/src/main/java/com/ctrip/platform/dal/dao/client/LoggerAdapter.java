@@ -1,14 +1,13 @@
 package com.ctrip.platform.dal.dao.client;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -29,8 +28,11 @@ public abstract class LoggerAdapter implements DalLogger {
 	private static final String SECRETKEY = "secretKey";
 	private static final String SIMPLIFIED = "simplified";
 	private static final String ASYNCLOGGING = "asyncLogging";
+	private static final String CALLERSAMPLING = "callerSampling";
 
 	private static final String CAPACITY = "capacity";
+	private static final String OVERFLOWPOLICY = "overflowPolicy";
+	private static final String OVERFLOWSAMPLING = "overflowSampling";
 	private static final String  SAMPLINGLOW = "samplingLow";
 	private static final String  SAMPLINGHIGH = "samplingHigh";
 	private static final String  SAMPLEMAXNUM = "sampleMaxNum";
@@ -50,20 +52,131 @@ public abstract class LoggerAdapter implements DalLogger {
 	private static ScheduledExecutorService scheduler = null;
 	private static final AtomicBoolean isClearingCache = new AtomicBoolean(false);
 
+	public static final int DEFAULT_CAPACITY = 16384;
+	public static final int DEFAULT_OVERFLOW_SAMPLING = 10;
+	private static final long SHUTDOWN_TIMEOUT = 1000;//milliseconds
+
 	protected static boolean asyncLogging = false;
 
-	protected static ExecutorService executor = null;
+	private static volatile LogRingBuffer ringBuffer = null;
+
+	/**
+	 * @deprecated Use call(Runnable). It is kept for sub class that submits task to it directly,
+	 * the task is published to the async logging buffer the same as call(Runnable).
+	 */
+	@Deprecated
+	protected static ExecutorService executor = new TaskExecutor();
 
 	/**
 	 * Helper method to unify asyn and sync invocation
 	 * @param task
 	 */
 	public void call(Runnable task) {
-		if (asyncLogging) {
-			executor.submit(task);
-		} else {
+		dispatch(task);
+	}
+
+	private static void dispatch(Runnable task) {
+		LogRingBuffer buffer = ringBuffer;
+		if (!asyncLogging || buffer == null) {
 			task.run();
+			return;
+		}
+
+		LogEvent event = buffer.claim(false);
+		if (event == null)
+			return;
+
+		event.type = LogEvent.TASK;
+		event.task = task;
+		buffer.publish(event);
+	}
+
+	/**
+	 * Executor view of call(Runnable). Its life cycle is the same as the async logging buffer,
+	 * so shutting it down does nothing.
+	 */
+	private static class TaskExecutor extends AbstractExecutorService {
+		@Override
+		public void execute(Runnable command) {
+			dispatch(command);
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return false;
+		}
+	}
+
+	/**
+	 * Publish message to async logging buffer without creating task.
+	 * @return false if async logging is not enabled, caller should log it in current thread
+	 */
+	boolean publish(int type, String message, Throwable e) {
+		LogRingBuffer buffer = ringBuffer;
+		if (!asyncLogging || buffer == null)
+			return false;
+
+		LogEvent event = buffer.claim(type == LogEvent.INFO);
+		if (event == null)
+			return true;
+
+		event.type = type;
+		event.message = message;
+		event.error = e;
+		buffer.publish(event);
+		return true;
+	}
+
+	/**
+	 * Copy what is needed from the entry to async logging buffer, the costs of the
+	 * statement recorded by DalWatcher are taken in current thread.
+	 * @return false if async logging is not enabled, caller should log it in current thread
+	 */
+	boolean publishSuccess(LogEntry entry, int count) {
+		LogRingBuffer buffer = ringBuffer;
+		if (!asyncLogging || buffer == null)
+			return false;
+
+		LogEvent event = buffer.claim(true);
+		if (event == null)
+			return true;
+
+		// The claimed slot must be published even if copying fails, or the consumer waits for it forever
+		event.type = LogEvent.SKIPPED;
+		try {
+			event.copy(entry, count);
+			event.type = LogEvent.SUCCESS;
+		} finally {
+			buffer.publish(event);
 		}
+		return true;
+	}
+
+	/**
+	 * Called in the async logging thread. Sub class that publishes other than task handles it.
+	 */
+	void consume(LogEvent event) {
+		if (event.type == LogEvent.TASK)
+			event.task.run();
 	}
 
 	@Override
@@ -82,6 +195,9 @@ public abstract class LoggerAdapter implements DalLogger {
 		if(settings.containsKey(SECRETKEY))
 			secretKey = settings.get(SECRETKEY);
 
+		if(settings.containsKey(CALLERSAMPLING))
+			LogEntry.setCallerSampling(Integer.parseInt(settings.get(CALLERSAMPLING)));
+
 		initAsyncLogging(settings);
 	}
 
@@ -128,32 +244,76 @@ public abstract class LoggerAdapter implements DalLogger {
 		isClearingCache.set(false);
 	}
 
+	/**
+	 * capacity: max events waiting in the buffer, default is DEFAULT_CAPACITY
+	 * overflowPolicy: drop or sample, default is drop. Events are dropped when the buffer is full.
+	 * 		For sample, only one of every overflowSampling info events is kept when the buffer
+	 * 		is more than half full
+	 * overflowSampling: default is DEFAULT_OVERFLOW_SAMPLING
+	 */
 	private void initAsyncLogging(Map<String, String> settings) {
 		if(settings.containsKey(ASYNCLOGGING))
 			asyncLogging = Boolean.parseBoolean(settings.get(ASYNCLOGGING));
 
-		if (settings.containsKey(CAPACITY)) {
-			executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
-					new ArrayBlockingQueue<Runnable>(Integer.parseInt(settings.get(CAPACITY)), true),
-					new RejectedExecutionHandler() {
-						@Override
-						public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-							//do nothing
-						}
-					});
-		} else {
-			executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
-		}
+		if(!asyncLogging)
+			return;
+
+		int capacity = settings.containsKey(CAPACITY) ? Integer.parseInt(settings.get(CAPACITY)) : DEFAULT_CAPACITY;
+		String policy = settings.containsKey(OVERFLOWPOLICY) ? settings.get(OVERFLOWPOLICY).trim() : LogRingBuffer.DROP;
+		int sampling = settings.containsKey(OVERFLOWSAMPLING) ? Integer.parseInt(settings.get(OVERFLOWSAMPLING)) : DEFAULT_OVERFLOW_SAMPLING;
+
+		LogRingBuffer old = ringBuffer;
+		ringBuffer = new LogRingBuffer(capacity, policy, sampling, new LogRingBuffer.Consumer() {
+			@Override
+			public void consume(LogEvent event) {
+				LoggerAdapter.this.consume(event);
+			}
+		});
+
+		if (old != null)
+			old.shutdown(SHUTDOWN_TIMEOUT);
 	}
 
 	@Override
 	public void shutdown() {
-		if (executor != null)
-			executor.shutdown();
+		LogRingBuffer buffer = ringBuffer;
+		ringBuffer = null;
+		if (buffer != null)
+			buffer.shutdown(SHUTDOWN_TIMEOUT);
 		if (scheduler != null)
 			scheduler.shutdown();
 	}
 
+	public static int getAsyncLoggingCapacity() {
+		LogRingBuffer buffer = ringBuffer;
+		return buffer == null ? 0 : buffer.getCapacity();
+	}
+
+	public static int getAsyncLoggingSize() {
+		LogRingBuffer buffer = ringBuffer;
+		return buffer == null ? 0 : buffer.getSize();
+	}
+
+	public static long getAsyncLoggingLagMillis() {
+		LogRingBuffer buffer = ringBuffer;
+		return buffer == null ? 0 : buffer.getLagMillis();
+	}
+
+	public static long getAsyncLoggingPublishedCount() {
+		LogRingBuffer buffer = ringBuffer;
+		return buffer == null ? 0 : buffer.getPublishedCount();
+	}
+
+	public static long getAsyncLoggingDroppedCount() {
+		LogRingBuffer buffer = ringBuffer;
+		return buffer == null ? 0 : buffer.getDroppedCount();
+	}
+
+	public static long getAsyncLoggingSampledCount() {
+		LogRingBuffer buffer = ringBuffer;
+		return buffer == null ? 0 : buffer.getSampledCount();
+	}
+
 
 	/**
 	 * 1. If log level is Warning/Error/Fatal, then immediately write with out validate.
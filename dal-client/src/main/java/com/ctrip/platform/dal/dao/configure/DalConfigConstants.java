@@ -14,6 +14,7 @@ public interface DalConfigConstants {
     String DATABASE_TYPE = "databaseType";
     String SHARDING = "sharding";
     String CONNECTION_STRING = "connectionString";
+    String WEIGHT = "weight";
     String MASTER = "Master";
     String LOG_LISTENER = "LogListener";
     String TASK_FACTORY = "TaskFactory";
@@ -1,16 +1,41 @@
 package com.ctrip.platform.dal.dao.configure;
 
 import java.sql.Connection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.platform.dal.common.enums.DatabaseCategory;
 import com.ctrip.platform.dal.dao.client.DalConnectionLocator;
 import com.ctrip.platform.dal.dao.client.DalLogger;
+import com.ctrip.platform.dal.dao.client.DbMeta;
+import com.ctrip.platform.dal.dao.helper.EntityManager;
 import com.ctrip.platform.dal.dao.task.DalTaskFactory;
 
 public class DalConfigure {
+    private static final Logger logger = LoggerFactory.getLogger(DalConfigure.class);
+
+    public static final int DEFAULT_WARM_UP_THREADS = 8;
+    public static final long NO_WARM_UP_TIMEOUT = 0;
+
     private String name;
     private Map<String, DatabaseSet> databaseSets = new ConcurrentHashMap<String, DatabaseSet>();
     private DalLogger dalLogger;
@@ -39,24 +64,111 @@ public class DalConfigure {
     }
 
     public void warmUpConnections() {
+        warmUpConnections(DEFAULT_WARM_UP_THREADS, NO_WARM_UP_TIMEOUT);
+    }
+
+    /**
+     * Create connection pools of all the data sources and load their DbMeta in parallel, together
+     * with metadata of the given entities. Warm up that is not done before the timeout is left
+     * running in background, so that the startup is not blocked by slow databases.
+     *
+     * @param maxThreads max number of data sources to warm up at the same time
+     * @param timeoutMillis NO_WARM_UP_TIMEOUT for waiting till all are done
+     * @param entityClasses pojo classes to load EntityManager for
+     * @return milliseconds taken by each data source that is warmed up before timeout
+     */
+    public Map<String, Long> warmUpConnections(int maxThreads, long timeoutMillis, Class<?>... entityClasses) {
+        long start = System.nanoTime();
+        long deadline = timeoutMillis == NO_WARM_UP_TIMEOUT ? Long.MAX_VALUE : start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        Map<String, DatabaseCategory> dataSources = new LinkedHashMap<>();
         for (DatabaseSet dbSet : databaseSets.values()) {
-            Map<String, DataBase> dbs = dbSet.getDatabases();
-            for (DataBase db : dbs.values()) {
-                Connection conn = null;
-                try {
-                    conn = locator.getConnection(db.getConnectionString());
-                } catch (Throwable e) {
-                    e.printStackTrace();
-                } finally {
-                    if (conn != null)
+            for (DataBase db : dbSet.getDatabases().values())
+                dataSources.put(db.getConnectionString(), dbSet.getDatabaseCategory());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxThreads), new ThreadFactory() {
+            private AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DAL-WarmUp-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<Long>, String> pending = new HashMap<>();
+        try {
+            for (final Class<?> entityClass : entityClasses) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
                         try {
-                            conn.close();
+                            EntityManager.getEntityManager(entityClass);
                         } catch (Throwable e) {
-                            e.printStackTrace();
+                            logger.warn("Can not load entity metadata of " + entityClass.getName(), e);
                         }
+                    }
+                });
+            }
+
+            for (final Map.Entry<String, DatabaseCategory> dataSource : dataSources.entrySet()) {
+                pending.put(completionService.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return warmUp(dataSource.getKey(), dataSource.getValue());
+                    }
+                }), dataSource.getKey());
+            }
+
+            Map<String, Long> costs = new TreeMap<>();
+            Set<String> failed = new TreeSet<>();
+            while (!pending.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                Future<Long> future = remaining > 0 ? completionService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (future == null)
+                    break;
+
+                String name = pending.remove(future);
+                try {
+                    costs.put(name, future.get());
+                    logger.info(String.format("Data source %s is warmed up in %d ms", name, costs.get(name)));
+                } catch (ExecutionException e) {
+                    failed.add(name);
+                    logger.warn("Can not warm up data source " + name, e.getCause());
                 }
             }
+
+            logger.info(String.format("%d of %d data sources are warmed up in %d ms. Failed: %s, not done: %s",
+                    costs.size(), dataSources.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    failed, new TreeSet<>(pending.values())));
+            return costs;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new TreeMap<>();
+        } finally {
+            // Not done ones keep running
+            executor.shutdown();
+        }
+    }
+
+    private long warmUp(String name, DatabaseCategory dbCategory) throws Exception {
+        long start = System.nanoTime();
+        Connection conn = null;
+        try {
+            conn = locator.getConnection(name);
+            DbMeta.createIfAbsent(name, dbCategory, conn);
+        } finally {
+            if (conn != null)
+                try {
+                    conn.close();
+                } catch (Throwable e) {
+                    logger.warn("Can not close connection of " + name, e);
+                }
         }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
     }
 
     public Set<String> getDatabaseSetNames() {
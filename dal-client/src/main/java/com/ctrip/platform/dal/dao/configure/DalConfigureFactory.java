@@ -182,8 +182,10 @@ public class DalConfigureFactory implements DalConfigConstants {
     }
 
     private DataBase readDataBase(Node dataBaseNode) {
+        int weight = hasAttribute(dataBaseNode, WEIGHT) ? Integer.parseInt(getAttribute(dataBaseNode, WEIGHT))
+                : DataBase.DEFAULT_WEIGHT;
         return new DataBase(getAttribute(dataBaseNode, NAME), getAttribute(dataBaseNode, DATABASE_TYPE).equals(MASTER),
-                getAttribute(dataBaseNode, SHARDING), getAttribute(dataBaseNode, CONNECTION_STRING));
+                getAttribute(dataBaseNode, SHARDING), getAttribute(dataBaseNode, CONNECTION_STRING), weight);
     }
 
     private List<Node> getChildNodes(Node node, String name) {
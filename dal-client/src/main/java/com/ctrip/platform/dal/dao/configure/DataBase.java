@@ -2,19 +2,37 @@ package com.ctrip.platform.dal.dao.configure;
 
 
 public class DataBase {
+	public static final int DEFAULT_WEIGHT = 1;
+
 	private String name;
 	private boolean master;
 	private String sharding;
 	private String connectionString;
+	private int weight;
 	
 	public DataBase(String name, 
 			boolean master, 
 			String sharding, 
 			String connectionString) {
+		this(name, master, sharding, connectionString, DEFAULT_WEIGHT);
+	}
+	
+	/**
+	 * @param weight relative weight used when selecting among databases of same role, must be positive
+	 */
+	public DataBase(String name, 
+			boolean master, 
+			String sharding, 
+			String connectionString,
+			int weight) {
+		if(weight <= 0)
+			throw new IllegalArgumentException("Weight of database " + name + " must be positive number.");
+
 		this.name = name;
 		this.master = master;
 		this.sharding = sharding;
 		this.connectionString = connectionString;
+		this.weight = weight;
 	}
 	
 	public String getName() {
@@ -32,4 +50,8 @@ public class DataBase {
 	public String getConnectionString() {
 		return connectionString;
 	}
+
+	public int getWeight() {
+		return weight;
+	}
 }
@@ -33,6 +33,9 @@ public interface DataSourceConfigureConstants {
     String OPTION = "option";
     String VALIDATORCLASSNAME = "validatorClassName";
 
+    // Max milliseconds to open minIdle connections of new pool before it replaces the old one
+    String WARMUP_TIMEOUT = "warmUpTimeout";
+
 
     boolean DEFAULT_TESTWHILEIDLE = false;
     boolean DEFAULT_TESTONBORROW = true;
@@ -47,6 +50,7 @@ public interface DataSourceConfigureConstants {
     int DEFAULT_MINIDLE = 0;
     int DEFAULT_MAXWAIT = 10000;
     int DEFAULT_INITIALSIZE = 1;
+    int DEFAULT_WARMUP_TIMEOUT = 5000;
     int DEFAULT_REMOVEABANDONEDTIMEOUT = 65;
     boolean DEFAULT_REMOVEABANDONED = true;
     boolean DEFAULT_LOGABANDONED = false;
@@ -55,7 +59,8 @@ public interface DataSourceConfigureConstants {
             "sendTimeAsDateTime=false;sendStringParametersAsUnicode=false;rewriteBatchedStatements=true;allowMultiQueries=true;useUnicode=true;characterEncoding=UTF-8";
     boolean DEFAULT_JMXENABLED = true;
     String DEFAULT_JDBCINTERCEPTORS = "org.apache.tomcat.jdbc.pool.interceptor.ConnectionState;"
-            + "org.apache.tomcat.jdbc.pool.interceptor.StatementFinalizer";
+            + "org.apache.tomcat.jdbc.pool.interceptor.StatementFinalizer;"
+            + "com.ctrip.platform.dal.dao.datasource.ConnectionReleaseInterceptor";
 
 
     String USE_LOCAL_CONFIG = "useLocalConfig";
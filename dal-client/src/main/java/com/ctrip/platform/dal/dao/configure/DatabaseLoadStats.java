@@ -0,0 +1,105 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrip.platform.dal.dao.helper.LatencyHistogram;
+
+/**
+ * Load of each data source seen by this client, used by load aware selection policies.
+ * In flight count is the number of connections currently held, latency is the exponentially
+ * weighted moving average of request duration in milliseconds. Percentiles of latency are
+ * taken from the last full window of requests.
+ */
+public class DatabaseLoadStats {
+	// Weight of the latest sample
+	private static final double ALPHA = 0.2;
+	private static final int WINDOW = 1000;
+	private static final int MIN_SAMPLES = 20;
+	// Latency before the first sample
+	private static final long NO_LATENCY = Double.doubleToLongBits(Double.NaN);
+
+	private static final ConcurrentHashMap<String, DatabaseLoadStats> statsMap = new ConcurrentHashMap<>();
+
+	private AtomicInteger inFlight = new AtomicInteger();
+	private AtomicLong latency = new AtomicLong(NO_LATENCY);
+
+	// In milliseconds, rotated every WINDOW requests
+	private volatile LatencyHistogram recentLatencies = new LatencyHistogram();
+	private volatile LatencyHistogram lastLatencies;
+
+	public static DatabaseLoadStats getStats(String dataBaseKeyName) {
+		DatabaseLoadStats stats = statsMap.get(dataBaseKeyName);
+		if(stats == null) {
+			stats = new DatabaseLoadStats();
+			DatabaseLoadStats oldStats = statsMap.putIfAbsent(dataBaseKeyName, stats);
+			stats = oldStats == null ? stats : oldStats;
+		}
+		return stats;
+	}
+
+	public static void acquire(String dataBaseKeyName) {
+		if(dataBaseKeyName != null)
+			getStats(dataBaseKeyName).inFlight.incrementAndGet();
+	}
+
+	public static void release(String dataBaseKeyName) {
+		if(dataBaseKeyName != null)
+			getStats(dataBaseKeyName).inFlight.decrementAndGet();
+	}
+
+	public static void recordLatency(String dataBaseKeyName, long duration) {
+		if(dataBaseKeyName != null)
+			getStats(dataBaseKeyName).recordLatency(duration);
+	}
+
+	public static void clear() {
+		statsMap.clear();
+	}
+
+	public int getInFlight() {
+		return Math.max(0, inFlight.get());
+	}
+
+	/**
+	 * @return latency in milliseconds, or 0 if there is no request yet
+	 */
+	public double getLatency() {
+		long current = latency.get();
+		return current == NO_LATENCY ? 0 : Double.longBitsToDouble(current);
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return latency in milliseconds, or -1 if there are too few requests
+	 */
+	public long getLatencyPercentile(double percentile) {
+		LatencyHistogram latencies = lastLatencies;
+		if(latencies == null) {
+			latencies = recentLatencies;
+			if(latencies.getCount() < MIN_SAMPLES)
+				return -1;
+		}
+		return latencies.getPercentile(percentile);
+	}
+
+	public void recordLatency(long duration) {
+		// Samples recorded while rotating may be lost, which does not matter for percentiles
+		LatencyHistogram latencies = recentLatencies;
+		latencies.record(duration);
+		if(latencies.getCount() >= WINDOW && latencies == recentLatencies) {
+			lastLatencies = latencies;
+			recentLatencies = new LatencyHistogram();
+		}
+
+		long current;
+		long next;
+		do {
+			current = latency.get();
+			double average = Double.longBitsToDouble(current);
+			// The first sample is taken as is
+			next = Double.doubleToLongBits(current == NO_LATENCY ? duration : average + ALPHA * (duration - average));
+		} while(!latency.compareAndSet(current, next));
+	}
+}
@@ -0,0 +1,18 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.util.List;
+
+/**
+ * Choose one database out of the available candidates. Databases that are marked down or
+ * already tried by DalHA are excluded before the policy is applied, and the designated
+ * database hint bypasses the policy.
+ *
+ * Implementation must be thread safe, it is shared by all the requests.
+ */
+public interface DatabaseSelectionPolicy {
+	/**
+	 * @param candidates available databases, never empty
+	 * @return the selected database
+	 */
+	DataBase select(List<DataBase> candidates);
+}
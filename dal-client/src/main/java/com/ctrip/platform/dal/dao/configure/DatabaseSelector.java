@@ -14,6 +14,19 @@ import com.ctrip.platform.dal.exceptions.DalException;
 import com.ctrip.platform.dal.exceptions.ErrorCode;
 
 public class DatabaseSelector {
+	/**
+	 * Policy to select among available databases. It can be random, powerOfTwoChoices,
+	 * leastOutstandingRequests or class name of a DatabaseSelectionPolicy implementation.
+	 * The default is random.
+	 */
+	public static final String SELECTION_POLICY = "databaseSelectionPolicy";
+	public static final String RANDOM = "random";
+	public static final String POWER_OF_TWO_CHOICES = "powerOfTwoChoices";
+	public static final String LEAST_OUTSTANDING_REQUESTS = "leastOutstandingRequests";
+
+	private static volatile DatabaseSelectionPolicy policy = new RandomSelectionPolicy();
+
+	private String logicDbName;
 	private List<DataBase> masters;
 	private List<DataBase> slaves;
 	private String designatedDatasource;
@@ -22,6 +35,14 @@ public class DatabaseSelector {
 	private boolean isSelect;
 	
 	public DatabaseSelector(DalHints hints, List<DataBase> masters, List<DataBase> slaves, boolean masterOnly, boolean isSelect){
+		this(null, hints, masters, slaves, masterOnly, isSelect);
+	}
+	
+	/**
+	 * Slaves of the logic DB that lag behind master more than its threshold are not selected
+	 */
+	public DatabaseSelector(String logicDbName, DalHints hints, List<DataBase> masters, List<DataBase> slaves, boolean masterOnly, boolean isSelect){
+		this.logicDbName = logicDbName;
 		if(hints != null) {
 			this.ha = hints.getHA();
 			this.designatedDatasource = hints.getString(DalHintEnum.designatedDatabase);
@@ -32,6 +53,27 @@ public class DatabaseSelector {
 		this.isSelect= isSelect;
 	}
 	
+	public static void init(String policyName) throws Exception {
+		if(policyName == null || policyName.trim().isEmpty() || RANDOM.equals(policyName.trim()))
+			setPolicy(new RandomSelectionPolicy());
+		else if(POWER_OF_TWO_CHOICES.equals(policyName.trim()))
+			setPolicy(new PowerOfTwoChoicesPolicy());
+		else if(LEAST_OUTSTANDING_REQUESTS.equals(policyName.trim()))
+			setPolicy(new LeastOutstandingRequestsPolicy());
+		else
+			setPolicy((DatabaseSelectionPolicy)Class.forName(policyName.trim()).getDeclaredConstructor().newInstance());
+	}
+	
+	public static void setPolicy(DatabaseSelectionPolicy policy) {
+		if(policy == null)
+			throw new NullPointerException("Database selection policy can not be null");
+		DatabaseSelector.policy = policy;
+	}
+	
+	public static DatabaseSelectionPolicy getPolicy() {
+		return policy;
+	}
+	
 	public String select() throws DalException {
 		if(masterOnly || !isSelect)
 			return getAvailableDbWithFallback(masters, null);
@@ -39,6 +81,20 @@ public class DatabaseSelector {
 		return getAvailableDbWithFallback(slaves, masters);
 	}
 	
+	/**
+	 * Select an available slave other than the given one, without falling back to masters.
+	 * It is used by hedged read.
+	 * @return null if there is no other slave
+	 */
+	public String selectSlaveExcept(String excludedDatasource) throws DalException {
+		List<DataBase> candidates = new ArrayList<DataBase>();
+		for (DataBase database : selectValidDbs(slaves)) {
+			if(!database.getConnectionString().equals(excludedDatasource))
+				candidates.add(database);
+		}
+		return candidates.isEmpty() ? null : choseByPolicy(candidates);
+	}
+	
 	private String getAvailableDbWithFallback(List<DataBase> primary, List<DataBase> secondary) throws DalException {
 		if(isNullOrEmpty(primary) && isNullOrEmpty(secondary))
 			throw new DalException(ErrorCode.NullLogicDbName);
@@ -87,47 +143,51 @@ public class DatabaseSelector {
 	private String getAvailableDb(List<DataBase> candidates) throws DalException{
 		if(isNullOrEmpty(candidates))
 			return null;
-		List<String> dbNames = this.selectValidDbNames(candidates);
-		if(dbNames.isEmpty())
+		List<DataBase> dbs = this.selectValidDbs(candidates);
+		if(dbs.isEmpty())
 			return null;
-		return this.getRandomRealDbName(dbNames);
+		return this.getRandomRealDbName(dbs);
 	}
 	
-	private String getRandomRealDbName(List<String> dbs) throws DalException{
+	private String getRandomRealDbName(List<DataBase> dbs) throws DalException{
 		if(ha == null|| dbs.size() == 1){
-			return choseByRandom(dbs);
+			return choseByPolicy(dbs);
 		}else{
-			List<String> dbNames = new ArrayList<String>();
-			for (String database : dbs) {
-				if(!ha.contains(database))
-					dbNames.add(database);
+			List<DataBase> validDbs = new ArrayList<DataBase>();
+			for (DataBase database : dbs) {
+				if(!ha.contains(database.getConnectionString()))
+					validDbs.add(database);
 			}
-			if(dbNames.isEmpty()){
+			if(validDbs.isEmpty()){
 				return null;
 			}else{
-				String selected = choseByRandom(dbNames);
+				String selected = choseByPolicy(validDbs);
 				ha.addDB(selected);
 				return selected;
 			}
 		}
 	}
 	
-	private String choseByRandom(List<String> dbs) throws DalException {
-		int index = (int)(Math.random() * dbs.size());	
-		return dbs.get(index);
+	private String choseByPolicy(List<DataBase> dbs) throws DalException {
+		if(dbs.size() == 1)
+			return dbs.get(0).getConnectionString();
+		return policy.select(dbs).getConnectionString();
 	}
 	
-	private List<String> selectValidDbNames(List<DataBase> dbs){
-		List<String> dbNames = new ArrayList<String>();
+	private List<DataBase> selectValidDbs(List<DataBase> dbs){
+		List<DataBase> validDbs = new ArrayList<DataBase>();
 		if(!this.isNullOrEmpty(dbs)){
 			for (DataBase database : dbs) {
 				if(MarkdownManager.isMarkdown(database.getConnectionString()))
 					continue;
 
-				dbNames.add(database.getConnectionString());
+				if(!database.isMaster() && ReplicationLagMonitor.isLagging(logicDbName, database.getConnectionString()))
+					continue;
+
+				validDbs.add(database);
 			}
 		}
-		return dbNames;
+		return validDbs;
 	}
 	
 	private boolean containsDesignatedDatasource(List<DataBase> dbs){
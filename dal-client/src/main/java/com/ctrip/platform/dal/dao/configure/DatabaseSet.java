@@ -148,7 +148,25 @@ public class DatabaseSet {
 		return getRandomRealDbName(hints, isMaster, isSelect, masterDbs, slaveDbs);
 	}
 	
+	/**
+	 * Select a slave of the shard other than the given one for hedged read, shard is null
+	 * if sharding is not supported
+	 * @return null if there is no other slave
+	 */
+	public String getOtherSlaveDbName(DalHints hints, String shard, String excludedDatasource) throws DalException {
+		List<DataBase> slaveCandidates = shard == null ? slaveDbs : getSlaveDbs(shard);
+		return new DatabaseSelector(name, hints, null, slaveCandidates, false, true).selectSlaveExcept(excludedDatasource);
+	}
+	
+	/**
+	 * @return if there are more than one slave of the shard, shard is null if sharding is not supported
+	 */
+	public boolean hasMultipleSlaves(String shard) {
+		List<DataBase> slaveCandidates = shard == null ? slaveDbs : getSlaveDbs(shard);
+		return slaveCandidates != null && slaveCandidates.size() > 1;
+	}
+	
 	private String getRandomRealDbName(DalHints hints, boolean isMaster, boolean isSelect, List<DataBase> masterCandidates, List<DataBase> slaveCandidates) throws DalException {
-		return new DatabaseSelector(hints, masterCandidates, slaveCandidates, isMaster, isSelect).select();
+		return new DatabaseSelector(name, hints, masterCandidates, slaveCandidates, isMaster, isSelect).select();
 	}
 }
@@ -0,0 +1,31 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Select the database with least requests in flight relative to its weight. Ties are
+ * broken randomly.
+ */
+public class LeastOutstandingRequestsPolicy implements DatabaseSelectionPolicy {
+	@Override
+	public DataBase select(List<DataBase> candidates) {
+		List<DataBase> selected = new ArrayList<>(candidates.size());
+		double least = Double.MAX_VALUE;
+
+		for(DataBase database: candidates) {
+			double load = (double)DatabaseLoadStats.getStats(database.getConnectionString()).getInFlight() / database.getWeight();
+			if(load > least)
+				continue;
+
+			if(load < least) {
+				selected.clear();
+				least = load;
+			}
+			selected.add(database);
+		}
+
+		return selected.get(ThreadLocalRandom.current().nextInt(selected.size()));
+	}
+}
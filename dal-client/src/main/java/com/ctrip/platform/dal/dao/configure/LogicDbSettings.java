@@ -0,0 +1,42 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Numeric setting that can be overridden for logic DB, in the form of "10;dbName1=20;dbName2=5"
+ */
+class LogicDbSettings {
+	private long defaultValue;
+	private Map<String, Long> valueByLogicDb = new HashMap<>();
+
+	LogicDbSettings(String settings, long defaultValue) {
+		this.defaultValue = defaultValue;
+		if(settings == null)
+			return;
+
+		for(String entry: settings.split(";")) {
+			entry = entry.trim();
+			if(entry.isEmpty())
+				continue;
+
+			int index = entry.indexOf('=');
+			if(index == -1)
+				this.defaultValue = Long.parseLong(entry);
+			else
+				valueByLogicDb.put(entry.substring(0, index).trim(), Long.parseLong(entry.substring(index + 1).trim()));
+		}
+	}
+
+	long get(String logicDbName) {
+		Long value = logicDbName == null ? null : valueByLogicDb.get(logicDbName);
+		return value == null ? defaultValue : value;
+	}
+
+	long getMax() {
+		long max = defaultValue;
+		for(long value: valueByLogicDb.values())
+			max = Math.max(max, value);
+		return max;
+	}
+}
@@ -0,0 +1,28 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.util.List;
+
+/**
+ * Pick two databases randomly by weight, and select the one with less load. The load
+ * is the average latency multiplied by requests in flight, divided by the weight.
+ *
+ * Compared to always selecting the least loaded one, it avoids all clients rushing to
+ * the same database while the load stats are stale.
+ */
+public class PowerOfTwoChoicesPolicy implements DatabaseSelectionPolicy {
+	@Override
+	public DataBase select(List<DataBase> candidates) {
+		DataBase first = RandomSelectionPolicy.choseByWeight(candidates, null);
+		if(candidates.size() == 1)
+			return first;
+
+		DataBase second = RandomSelectionPolicy.choseByWeight(candidates, first);
+		return getLoad(second) < getLoad(first) ? second : first;
+	}
+
+	private double getLoad(DataBase database) {
+		DatabaseLoadStats stats = DatabaseLoadStats.getStats(database.getConnectionString());
+		// Plus 1 so that idle or not yet measured database still compares by the other factor
+		return (stats.getLatency() + 1) * (stats.getInFlight() + 1) / database.getWeight();
+	}
+}
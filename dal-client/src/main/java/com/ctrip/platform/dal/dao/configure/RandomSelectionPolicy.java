@@ -0,0 +1,38 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Select database randomly in proportion to its weight. This is the default policy.
+ */
+public class RandomSelectionPolicy implements DatabaseSelectionPolicy {
+	@Override
+	public DataBase select(List<DataBase> candidates) {
+		return choseByWeight(candidates, null);
+	}
+
+	/**
+	 * @param excluded database that can not be selected, may be null
+	 */
+	static DataBase choseByWeight(List<DataBase> candidates, DataBase excluded) {
+		int total = 0;
+		for(DataBase database: candidates) {
+			if(database != excluded)
+				total += database.getWeight();
+		}
+
+		int point = ThreadLocalRandom.current().nextInt(total);
+		for(DataBase database: candidates) {
+			if(database == excluded)
+				continue;
+
+			point -= database.getWeight();
+			if(point < 0)
+				return database;
+		}
+
+		// Should never happen
+		return candidates.get(0);
+	}
+}
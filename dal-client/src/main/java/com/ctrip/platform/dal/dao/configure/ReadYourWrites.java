@@ -0,0 +1,131 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+
+/**
+ * Read your writes window. Reads are pinned to master for the window after a write to the
+ * same logic DB, so that they do not miss the write on lagging slaves.
+ *
+ * Writes are tracked for current thread, which is continued in threads of async and cross
+ * shard requests, or for the session token given by DalHints.readYourWrites, which can be
+ * shared among threads or requests of the same user.
+ */
+public class ReadYourWrites {
+	/**
+	 * Window in milliseconds, it can be overridden for logic DB in the form of "0;dbName1=3000".
+	 * The default is 0, which means disabled.
+	 */
+	public static final String READ_YOUR_WRITES_WINDOW = "readYourWritesWindow";
+
+	private static final int MAX_SESSIONS = 100000;
+	private static final String SEPARATOR = "|";
+
+	private static volatile LogicDbSettings windows = new LogicDbSettings(null, 0);
+	private static volatile boolean enabled = false;
+
+	private static final ThreadLocal<Map<String, Long>> threadWrites = new ThreadLocal<>();
+	private static final ConcurrentHashMap<String, Long> sessionWrites = new ConcurrentHashMap<>();
+
+	public static void init(String windowStr) {
+		windows = new LogicDbSettings(windowStr, 0);
+		enabled = windows.getMax() > 0;
+		sessionWrites.clear();
+	}
+
+	public static long getWindow(String logicDbName) {
+		return windows.get(logicDbName);
+	}
+
+	/**
+	 * Called when a write to the logic DB completes
+	 */
+	public static void recordWrite(String logicDbName, DalHints hints) {
+		if(!enabled || windows.get(logicDbName) <= 0)
+			return;
+
+		long now = System.nanoTime();
+		String session = getSession(hints);
+		if(session != null) {
+			if(sessionWrites.size() >= MAX_SESSIONS)
+				purgeExpired(now);
+			sessionWrites.put(session + SEPARATOR + logicDbName, now);
+			return;
+		}
+
+		Map<String, Long> writes = threadWrites.get();
+		if(writes == null) {
+			writes = new ConcurrentHashMap<>();
+			threadWrites.set(writes);
+		}
+		writes.put(logicDbName, now);
+	}
+
+	public static boolean isPinnedToMaster(String logicDbName, DalHints hints) {
+		if(!enabled)
+			return false;
+
+		long window = windows.get(logicDbName);
+		if(window <= 0)
+			return false;
+
+		Long lastWrite;
+		String session = getSession(hints);
+		if(session != null) {
+			lastWrite = sessionWrites.get(session + SEPARATOR + logicDbName);
+		} else {
+			Map<String, Long> writes = threadWrites.get();
+			lastWrite = writes == null ? null : writes.get(logicDbName);
+		}
+
+		return lastWrite != null && System.nanoTime() - lastWrite < TimeUnit.MILLISECONDS.toNanos(window);
+	}
+
+	private static String getSession(DalHints hints) {
+		return hints == null ? null : hints.getString(DalHintEnum.readYourWritesSession);
+	}
+
+	private static void purgeExpired(long now) {
+		long maxWindow = TimeUnit.MILLISECONDS.toNanos(windows.getMax());
+		Iterator<Long> iterator = sessionWrites.values().iterator();
+		while(iterator.hasNext()) {
+			if(now - iterator.next() >= maxWindow)
+				iterator.remove();
+		}
+	}
+
+	/**
+	 * Capture writes of current thread, so that writes in another thread are tracked together
+	 */
+	public static Object capture() {
+		if(!enabled)
+			return null;
+
+		Map<String, Long> writes = threadWrites.get();
+		if(writes == null) {
+			writes = new ConcurrentHashMap<>();
+			threadWrites.set(writes);
+		}
+		return writes;
+	}
+
+	/**
+	 * Continue with the writes captured in another thread
+	 */
+	@SuppressWarnings("unchecked")
+	public static void restore(Object captured) {
+		if(captured instanceof Map)
+			threadWrites.set((Map<String, Long>)captured);
+		else
+			threadWrites.remove();
+	}
+
+	public static void clear() {
+		threadWrites.remove();
+	}
+}
@@ -0,0 +1,184 @@
+package com.ctrip.platform.dal.dao.configure;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.client.DalConnectionLocator;
+
+/**
+ * Replication lag of slave data sources, probed in background and used by DatabaseSelector
+ * to exclude slaves that are behind master more than the threshold of the logic DB.
+ *
+ * Only slaves of logic DBs with threshold are probed. The lag is taken from SHOW SLAVE STATUS
+ * for MySQL, estimated by redo queue and redo rate of sys.dm_hadr_database_replica_states for
+ * SQL Server, or by replicationLagQuery
+ * if it is configured, which must return the lag in milliseconds, like query on a heartbeat table.
+ * Slaves with unknown lag are not excluded, unreachable ones are handled by markdown.
+ */
+public class ReplicationLagMonitor {
+	private static final Logger logger = LoggerFactory.getLogger(ReplicationLagMonitor.class);
+
+	/**
+	 * Max lag in milliseconds, it can be overridden for logic DB in the form of "1000;dbName1=500".
+	 * The default is unlimited.
+	 */
+	public static final String REPLICATION_LAG_THRESHOLD = "replicationLagThreshold";
+	public static final String REPLICATION_LAG_PROBE_INTERVAL = "replicationLagProbeInterval";
+	public static final String REPLICATION_LAG_QUERY = "replicationLagQuery";
+
+	public static final long UNLIMITED = -1;
+	public static final long UNKNOWN = -1;
+	public static final long NOT_REPLICATING = Long.MAX_VALUE;
+	public static final int DEFAULT_PROBE_INTERVAL = 1000;
+
+	// Seconds
+	private static final int PROBE_TIMEOUT = 1;
+
+	private static final String MYSQL_LAG_QUERY = "SHOW SLAVE STATUS";
+	private static final String MYSQL_LAG_COLUMN = "Seconds_Behind_Master";
+	// Time to redo the log already received, primary's commit time is not visible on secondary replica
+	private static final String SQLSVR_LAG_QUERY = "SELECT CASE WHEN redo_queue_size = 0 THEN 0 "
+			+ "WHEN redo_rate > 0 THEN CAST(redo_queue_size AS BIGINT) * 1000 / redo_rate END "
+			+ "FROM sys.dm_hadr_database_replica_states WHERE is_local = 1 AND database_id = DB_ID()";
+
+	private static final ConcurrentHashMap<String, Long> lags = new ConcurrentHashMap<>();
+	private static volatile LogicDbSettings thresholds = new LogicDbSettings(null, UNLIMITED);
+	private static final AtomicReference<ScheduledExecutorService> serviceRef = new AtomicReference<>();
+
+	public static void init(DalConfigure config, String thresholdStr, String intervalStr, final String query) {
+		thresholds = new LogicDbSettings(thresholdStr, UNLIMITED);
+
+		final Map<String, DatabaseCategory> slaves = new HashMap<>();
+		for(String logicDbName: config.getDatabaseSetNames()) {
+			if(thresholds.get(logicDbName) == UNLIMITED)
+				continue;
+
+			DatabaseSet dbSet = config.getDatabaseSet(logicDbName);
+			for(DataBase db: dbSet.getDatabases().values()) {
+				if(!db.isMaster())
+					slaves.put(db.getConnectionString(), dbSet.getDatabaseCategory());
+			}
+		}
+
+		if(slaves.isEmpty())
+			return;
+
+		final DalConnectionLocator locator = config.getLocator();
+		ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "DAL-ReplicationLagMonitor");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		if(!serviceRef.compareAndSet(null, service)) {
+			service.shutdown();
+			return;
+		}
+
+		long interval = intervalStr == null ? DEFAULT_PROBE_INTERVAL : Long.parseLong(intervalStr.trim());
+		service.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				for(Map.Entry<String, DatabaseCategory> slave: slaves.entrySet())
+					probe(locator, slave.getKey(), slave.getValue(), query);
+			}
+		}, 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	public static void shutdown() {
+		ScheduledExecutorService service = serviceRef.getAndSet(null);
+		if(service != null)
+			service.shutdownNow();
+
+		thresholds = new LogicDbSettings(null, UNLIMITED);
+		lags.clear();
+	}
+
+	private static void probe(DalConnectionLocator locator, String name, DatabaseCategory category, String query) {
+		try {
+			setLag(name, getLag(locator, name, category, query));
+		} catch (Throwable e) {
+			Long old = lags.put(name, UNKNOWN);
+			if(old == null || old != UNKNOWN)
+				logger.warn("Can not get replication lag of " + name, e);
+		}
+	}
+
+	private static long getLag(DalConnectionLocator locator, String name, DatabaseCategory category, String query) throws Exception {
+		if(query == null && category != DatabaseCategory.MySql && category != DatabaseCategory.SqlServer)
+			return UNKNOWN;
+
+		try(Connection conn = locator.getConnection(name); Statement statement = conn.createStatement()) {
+			statement.setQueryTimeout(PROBE_TIMEOUT);
+
+			if(query != null)
+				return getLag(statement.executeQuery(query), 1, 1, NOT_REPLICATING);
+
+			// Seconds_Behind_Master is null if replication is stopped
+			if(category == DatabaseCategory.MySql)
+				return getLag(statement.executeQuery(MYSQL_LAG_QUERY), MYSQL_LAG_COLUMN, 1000, NOT_REPLICATING);
+
+			// No row if the database is not in availability group, null if redo rate is not known yet
+			return getLag(statement.executeQuery(SQLSVR_LAG_QUERY), 1, 1, UNKNOWN);
+		}
+	}
+
+	private static long getLag(ResultSet rs, Object column, long unit, long nullLag) throws Exception {
+		try(ResultSet result = rs) {
+			// Not a replica
+			if(!result.next())
+				return 0;
+
+			Object lag = column instanceof String ? result.getObject((String)column) : result.getObject((Integer)column);
+			return lag == null ? nullLag : ((Number)lag).longValue() * unit;
+		}
+	}
+
+	/**
+	 * Set lag of the data source. It is used when lag is provided by other means
+	 */
+	public static void setLag(String dataSource, long lagMillis) {
+		lags.put(dataSource, lagMillis);
+	}
+
+	/**
+	 * @return lag in milliseconds of last probe, UNKNOWN if it is not probed or failed
+	 */
+	public static long getLag(String dataSource) {
+		Long lag = lags.get(dataSource);
+		return lag == null ? UNKNOWN : lag;
+	}
+
+	public static long getThreshold(String logicDbName) {
+		return thresholds.get(logicDbName);
+	}
+
+	public static void setThreshold(String thresholdStr) {
+		thresholds = new LogicDbSettings(thresholdStr, UNLIMITED);
+	}
+
+	public static boolean isLagging(String logicDbName, String dataSource) {
+		long threshold = thresholds.get(logicDbName);
+		if(threshold == UNLIMITED)
+			return false;
+
+		long lag = getLag(dataSource);
+		return lag != UNKNOWN && lag > threshold;
+	}
+}
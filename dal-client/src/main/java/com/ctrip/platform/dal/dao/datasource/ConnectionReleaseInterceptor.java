@@ -0,0 +1,33 @@
+package com.ctrip.platform.dal.dao.datasource;
+
+import java.lang.reflect.Method;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+/**
+ * Notify DataSourceTerminator when a connection is returned to its pool, so that a draining
+ * pool is closed as soon as the last connection in use is returned.
+ */
+public class ConnectionReleaseInterceptor extends JdbcInterceptor {
+    private ConnectionPool pool;
+
+    @Override
+    public void reset(ConnectionPool parent, PooledConnection con) {
+        if (parent != null)
+            pool = parent;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!compare(CLOSE_VAL, method))
+            return super.invoke(proxy, method, args);
+
+        try {
+            return super.invoke(proxy, method, args);
+        } finally {
+            DataSourceTerminator.connectionReleased(pool);
+        }
+    }
+}
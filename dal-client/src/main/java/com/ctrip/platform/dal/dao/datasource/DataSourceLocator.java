@@ -3,7 +3,10 @@ package com.ctrip.platform.dal.dao.datasource;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.naming.NamingException;
 import javax.sql.DataSource;
@@ -20,6 +23,9 @@ public class DataSourceLocator {
 
     private static final ConcurrentHashMap<String, DataSource> cache = new ConcurrentHashMap<>();
 
+    // Data sources being created. Callers of the same name wait for the same creation
+    private static final ConcurrentHashMap<String, FutureTask<DataSource>> creating = new ConcurrentHashMap<>();
+
     private DataSourceConfigureProvider provider;
 
     public DataSourceLocator(DataSourceConfigureProvider provider) {
@@ -39,35 +45,56 @@ public class DataSourceLocator {
     }
 
     /**
-     * Get DataSource by real db source name
+     * Get DataSource by real db source name. Data source is created by the first caller of the
+     * name, other callers of the same name wait for it, while data sources of different names
+     * are created in parallel. Creation is retried by next call if it fails.
      * 
      * @param name
      * @return DataSource
      * @throws NamingException
      */
-    public DataSource getDataSource(String name) throws Exception {
+    public DataSource getDataSource(final String name) throws Exception {
         DataSource ds = cache.get(name);
 
         if (ds != null) {
             return ds;
         }
 
-        synchronized (this.getClass()) {
-            ds = cache.get(name);
-            if (ds != null) {
+        FutureTask<DataSource> task = new FutureTask<>(new Callable<DataSource>() {
+            @Override
+            public DataSource call() throws Exception {
+                // It may be just created by another caller
+                DataSource ds = cache.get(name);
+                if (ds == null) {
+                    ds = createDataSource(name);
+                    cache.put(name, ds);
+                }
                 return ds;
             }
+        });
+
+        FutureTask<DataSource> oldTask = creating.putIfAbsent(name, task);
+        boolean creator = oldTask == null;
+        if (creator) {
             try {
-                ds = createDataSource(name);
-                cache.put(name, ds);
-            } catch (Throwable e) {
-                String msg = "Creating DataSource " + name + " error:" + e.getMessage();
-                logger.error(msg, e);
-                throw new RuntimeException(msg, e);
+                task.run();
+            } finally {
+                creating.remove(name, task);
             }
+        } else {
+            task = oldTask;
         }
 
-        return ds;
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            String msg = "Creating DataSource " + name + " error:" + cause.getMessage();
+            // Only the creating caller logs it, others just get the error
+            if (creator)
+                logger.error(msg, cause);
+            throw new RuntimeException(msg, cause);
+        }
     }
 
     private DataSource createDataSource(String name) throws SQLException {
@@ -2,19 +2,27 @@ package com.ctrip.platform.dal.dao.datasource;
 
 import com.ctrip.platform.dal.dao.configure.DataSourceConfigure;
 import com.ctrip.platform.dal.dao.configure.DataSourceConfigureConstants;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.util.Date;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Close data sources that are replaced. A replaced data source is draining: it does not lend
+ * connections any more, and connections returned to it are closed. It is closed as soon as
+ * the last connection in use is returned, which is notified by ConnectionReleaseInterceptor.
+ * Data sources that are not drained are checked every 5 seconds, and are force closed after
+ * the abandoned timeout.
+ */
 public class DataSourceTerminator {
     private static final Logger logger = LoggerFactory.getLogger(DataSourceTerminator.class);
     private static volatile DataSourceTerminator terminator = null;
@@ -33,77 +41,129 @@ public class DataSourceTerminator {
         return terminator;
     }
 
-    private BlockingQueue<SingleDataSource> dataSourceQueue = new LinkedBlockingQueue<>();
+    private ConcurrentHashMap<ConnectionPool, SingleDataSource> drainingDataSources = new ConcurrentHashMap<>();
+    private ScheduledExecutorService service;
 
-    public synchronized void close(SingleDataSource dataSource) {
-        if (dataSource != null) {
-            dataSource.setEnqueueTime(new Date());
-            dataSourceQueue.offer(dataSource);
-            logger.info(String.format("DataSource %s offered to DataSource destroy queue first time.",
-                    dataSource.getName()));
+    public void close(SingleDataSource dataSource) {
+        if (dataSource == null)
+            return;
+
+        ConnectionPool pool = dataSource.getPool();
+        if (pool == null) {
+            logger.info(String.format("DataSource %s has no pool to close.", dataSource.getName()));
+            return;
+        }
+
+        dataSource.setEnqueueTime(new Date());
+        dataSource.startDraining();
+        drainingDataSources.put(pool, dataSource);
+        logger.info(String.format("DataSource %s starts draining with %d active connections.", dataSource.getName(),
+                dataSource.getActiveConnections()));
+
+        // It may have no connection in use at all
+        service.execute(new DataSourceTerminateTask(pool));
+    }
+
+    /**
+     * Called when a connection is returned to the pool
+     */
+    static void connectionReleased(ConnectionPool pool) {
+        DataSourceTerminator current = terminator;
+        if (current == null || pool == null || current.drainingDataSources.isEmpty())
+            return;
+
+        if (pool.getActive() == 0 && current.drainingDataSources.containsKey(pool))
+            current.service.execute(current.new DataSourceTerminateTask(pool));
+    }
+
+    /**
+     * @return active connections of each draining data source
+     */
+    public Map<String, Integer> getDrainingConnections() {
+        Map<String, Integer> connections = new TreeMap<>();
+        for (SingleDataSource dataSource : drainingDataSources.values()) {
+            Integer count = connections.get(dataSource.getName());
+            connections.put(dataSource.getName(),
+                    (count == null ? 0 : count) + dataSource.getActiveConnections());
         }
+        return connections;
+    }
+
+    /**
+     * @return active connections of the draining data sources with the given name, 0 if there is none
+     */
+    public static int getDrainingConnections(String name) {
+        DataSourceTerminator current = terminator;
+        if (current == null)
+            return 0;
+
+        Integer count = current.getDrainingConnections().get(name);
+        return count == null ? 0 : count;
     }
 
     // executors
     private synchronized void init() {
-        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
-        service.scheduleAtFixedRate(new DataSourceTerminateTask(), INIT_DELAY, DELAY, TimeUnit.MILLISECONDS);
+        service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DAL-DataSourceTerminator");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        service.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (ConnectionPool pool : drainingDataSources.keySet())
+                    new DataSourceTerminateTask(pool).run();
+            }
+        }, INIT_DELAY, DELAY, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * It is only executed by the terminator thread, so that a data source is closed only once.
+     */
     class DataSourceTerminateTask implements Runnable {
+        private ConnectionPool pool;
+
+        public DataSourceTerminateTask(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
         @Override
         public void run() {
-            SingleDataSource dataSource = null;
-            String name = "";
+            SingleDataSource dataSource = drainingDataSources.get(pool);
+            if (dataSource == null)
+                return;
+
+            String name = dataSource.getName();
             try {
-                dataSource = dataSourceQueue.take();
-                name = dataSource.getName();
-                logger.info(String.format("DataSource %s taken from DataSource destroy queue.", name));
-
-                boolean success = closeDataSource(dataSource);
-                if (!success) {
-                    if (dataSource != null) {
-                        dataSourceQueue.offer(dataSource);
-                        logger.info(String.format(
-                                "DataSource %s offered to DataSource destroy queue again due to failure.", name));
-                    }
+                if (closeDataSource(dataSource)) {
+                    drainingDataSources.remove(pool, dataSource);
+                    retryTimesMap.remove(name);
                 }
             } catch (Throwable e) {
                 logger.warn(String.format("Error occured while closing DataSource %s", name), e);
-                if (dataSource != null) {
-                    dataSourceQueue.offer(dataSource);
-                    logger.info(String
-                            .format("DataSource %s offered to DataSource destroy queue again due to exception.", name));
-                }
             }
         }
 
         private boolean closeDataSource(SingleDataSource singleDataSource) throws Exception {
             DataSource dataSource = singleDataSource.getDataSource();
             String name = singleDataSource.getName();
-            logger.info(String.format("Trying to close DataSource %s", name));
             boolean success = true;
 
             try {
                 // Tomcat DataSource
                 if (dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource) {
                     org.apache.tomcat.jdbc.pool.DataSource ds = (org.apache.tomcat.jdbc.pool.DataSource) dataSource;
-                    ds.close();
 
-                    int retryTimes = getRetryTimes(singleDataSource.getName());
                     int abandonedTimeout = getAbandonedTimeout(singleDataSource);
                     int elapsedSeconds = getElapsedSeconds(singleDataSource.getEnqueueTime());
-                    logger.info(String.format("Retry times for DataSource %s:%s", name, retryTimes));
-                    logger.info(String.format("Abandoned timeout for DataSource %s:%s", name, abandonedTimeout));
-                    logger.info(String.format("Elapsed seconds for DataSource %s:%s", name, elapsedSeconds));
-
-                    if (ds.getActive() == 0) {
-                        logger.info(String.format("Active connections of DataSource %s is zero.", name));
-                        return success;
-                    } else if (retryTimes > MAX_RETRY_TIMES) {
-                        logger.info(String.format("Abandoned closing DataSource %s,retry times:%s,max retry times:%s.",
-                                name, retryTimes, MAX_RETRY_TIMES));
-                        return success;
+
+                    if (singleDataSource.getActiveConnections() == 0) {
+                        ds.close();
+                        logger.info(String.format("DataSource %s is drained and closed,elapsed seconds:%s.", name,
+                                elapsedSeconds));
                     } else if (elapsedSeconds >= abandonedTimeout) {
                         ds.close(true);
                         logger.info(
@@ -115,8 +175,16 @@ public class DataSourceTerminator {
                 }
             } catch (Throwable e) {
                 logger.warn(e.getMessage(), e);
-                addRetryTime(singleDataSource.getName());
-                success = false;
+                addRetryTime(name);
+
+                int retryTimes = getRetryTimes(name);
+                logger.info(String.format("Retry times for DataSource %s:%s", name, retryTimes));
+                if (retryTimes > MAX_RETRY_TIMES) {
+                    logger.info(String.format("Abandoned closing DataSource %s,retry times:%s,max retry times:%s.",
+                            name, retryTimes, MAX_RETRY_TIMES));
+                } else {
+                    success = false;
+                }
             }
 
             return success;
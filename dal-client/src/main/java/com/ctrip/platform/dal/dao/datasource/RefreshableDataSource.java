@@ -8,9 +8,12 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import javax.sql.DataSource;
 
+import com.ctrip.platform.dal.dao.client.DalStatementCache;
 import com.ctrip.platform.dal.dao.configure.DataSourceConfigureChangeEvent;
 import com.ctrip.platform.dal.dao.configure.DataSourceConfigure;
+import com.ctrip.platform.dal.dao.configure.DataSourceConfigureConstants;
 import com.ctrip.platform.dal.dao.configure.DataSourceConfigureChangeListener;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,12 +31,20 @@ public class RefreshableDataSource implements DataSource, DataSourceConfigureCha
         String name = event.getName();
         DataSourceConfigure newConfigure = event.getNewDataSourceConfigure();
         SingleDataSource newDataSource = new SingleDataSource(name, newConfigure);
+
+        // Open connections before the new data source takes traffic, to avoid connection storm on failover
+        newDataSource.warmUp(newConfigure.getIntProperty(DataSourceConfigureConstants.WARMUP_TIMEOUT,
+                DataSourceConfigureConstants.DEFAULT_WARMUP_TIMEOUT));
         logger.debug("DAL debug:(configChanged)new datasource url:{}",
                 newDataSource.getDataSourceConfigure().getConnectionUrl());
         SingleDataSource oldDataSource = dataSourceReference.getAndSet(newDataSource);
         logger.debug("DAL debug:(configChanged)old datasource url:{}",
                 oldDataSource.getDataSourceConfigure().getConnectionUrl());
 
+        // Statements prepared on connections of old data source can not be used any more
+        ConnectionPool oldPool = oldDataSource.getPool();
+        if (oldPool != null)
+            DalStatementCache.invalidate(oldPool.getPoolProperties());
         close(oldDataSource);
         logger.debug("DAL debug:(configChanged)datasource {} added to destroy queue.", name);
     }
@@ -1,8 +1,10 @@
 package com.ctrip.platform.dal.dao.datasource;
 
+import com.ctrip.platform.dal.dao.client.DalStatementCache;
 import com.ctrip.platform.dal.dao.configure.DataSourceConfigure;
 import com.ctrip.platform.dal.dao.configure.DataSourceConfigureConstants;
 import com.ctrip.platform.dal.dao.helper.PoolPropertiesHelper;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
 import org.apache.tomcat.jdbc.pool.PoolProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +12,10 @@ import org.slf4j.LoggerFactory;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class SingleDataSource implements DataSourceConfigureConstants {
     private static final Logger logger = LoggerFactory.getLogger(SingleDataSource.class);
@@ -50,6 +55,7 @@ public class SingleDataSource implements DataSourceConfigureConstants {
             this.dataSourceConfigure = dataSourceConfigure;
 
             PoolProperties p = poolPropertiesHelper.convert(dataSourceConfigure);
+            p.setJdbcInterceptors(DalStatementCache.filterInterceptors(p.getJdbcInterceptors()));
             PoolPropertiesHolder.getInstance().setPoolProperties(p);
             org.apache.tomcat.jdbc.pool.DataSource dataSource = new org.apache.tomcat.jdbc.pool.DataSource(p);
             this.dataSource = dataSource;
@@ -62,6 +68,69 @@ public class SingleDataSource implements DataSourceConfigureConstants {
         }
     }
 
+    /**
+     * Open connections till minIdle of the pool, so that the pool is ready before it takes traffic.
+     * It stops at the timeout, and the rest will be opened on demand.
+     */
+    public void warmUp(long timeoutMillis) {
+        if (!(dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource))
+            return;
+
+        org.apache.tomcat.jdbc.pool.DataSource ds = (org.apache.tomcat.jdbc.pool.DataSource) dataSource;
+        int target = Math.min(ds.getMinIdle(), ds.getMaxActive());
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        // Hold borrowed ones so that each borrow opens a new connection once idle ones are used up
+        List<Connection> connections = new ArrayList<>(target);
+        try {
+            while (connections.size() < target && System.nanoTime() < deadline)
+                connections.add(ds.getConnection());
+        } catch (Throwable e) {
+            logger.warn(String.format("Error warming up data source %s", name), e);
+        } finally {
+            for (Connection con : connections) {
+                try {
+                    con.close();
+                } catch (Throwable e) {
+                    logger.warn(e.getMessage(), e);
+                }
+            }
+        }
+
+        logger.info(String.format("Datasource %s warmed up with %d of %d connections in %d ms.", name,
+                connections.size(), target, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * Idle connections are closed, and connections returned from now on are closed instead of kept
+     * idle. The pool is closed by DataSourceTerminator when all connections are returned.
+     */
+    public void startDraining() {
+        ConnectionPool pool = getPool();
+        if (pool != null)
+            pool.purge();
+    }
+
+    /**
+     * @return pool of the tomcat data source, null if it is not created
+     */
+    public ConnectionPool getPool() {
+        if (!(dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource))
+            return null;
+
+        return ((org.apache.tomcat.jdbc.pool.DataSource) dataSource).getPool();
+    }
+
+    /**
+     * @return number of connections in use. Unlike DataSource.getActive, it will not create the pool again
+     * after the pool is closed
+     */
+    public int getActiveConnections() {
+        ConnectionPool pool = getPool();
+        return pool == null ? 0 : pool.getActive();
+    }
+
     private void testConnection(org.apache.tomcat.jdbc.pool.DataSource dataSource) throws SQLException {
         if (dataSource == null)
             return;
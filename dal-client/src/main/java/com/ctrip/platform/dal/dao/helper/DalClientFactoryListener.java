@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.configure.DalConfigure;
 
 public class DalClientFactoryListener implements ServletContextListener {
 	private Logger logger = LoggerFactory.getLogger(DalClientFactoryListener.class);
@@ -18,6 +19,8 @@ public class DalClientFactoryListener implements ServletContextListener {
 		
 		String DalConfigPath = context.getInitParameter("com.ctrip.platform.dal.dao.DalConfigPath");
 		String warmUp = context.getInitParameter("com.ctrip.platform.dal.dao.DalWarmUp");
+		String warmUpThreads = context.getInitParameter("com.ctrip.platform.dal.dao.DalWarmUpThreads");
+		String warmUpTimeout = context.getInitParameter("com.ctrip.platform.dal.dao.DalWarmUpTimeout");
 
 		try {
 			if(DalConfigPath == null || DalConfigPath.trim().length() == 0)
@@ -26,7 +29,9 @@ public class DalClientFactoryListener implements ServletContextListener {
 				DalClientFactory.initClientFactory(DalConfigPath.trim());
 			
 			if(Boolean.parseBoolean(warmUp))
-				DalClientFactory.warmUpConnections();
+				DalClientFactory.warmUpConnections(
+						warmUpThreads == null ? DalConfigure.DEFAULT_WARM_UP_THREADS : Integer.parseInt(warmUpThreads.trim()),
+						warmUpTimeout == null ? DalConfigure.NO_WARM_UP_TIMEOUT : Long.parseLong(warmUpTimeout.trim()));
 
 		} catch (Throwable e) {
 			logger.error("Error when init client factory", e);
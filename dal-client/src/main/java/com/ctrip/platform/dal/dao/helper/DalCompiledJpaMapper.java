@@ -0,0 +1,305 @@
+package com.ctrip.platform.dal.dao.helper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.cglib.reflect.FastClass;
+
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalRowMapper;
+import com.ctrip.platform.dal.dao.UpdatableEntity;
+import com.ctrip.platform.dal.exceptions.DalException;
+import com.ctrip.platform.dal.exceptions.ErrorCode;
+
+/**
+ * Compiled version of DalDefaultJpaMapper.
+ *
+ * For each entity and column layout, the field type checking is done once and turned into
+ * a list of typed column readers. Columns are resolved to index once per result set and
+ * read with primitive getters, the entity is created by cglib generated FastClass instead of
+ * Class.newInstance().
+ *
+ * Use DalCompiledJpaMapper.create() to get mapper for entity, it will fall back to
+ * DalDefaultJpaMapper if the entity can not be compiled.
+ *
+ * @param <T>
+ */
+public class DalCompiledJpaMapper<T> implements DalRowMapper<T>, CustomizableMapper<T> {
+	private static final Map<Class<?>, ColumnReader> readerCache = new HashMap<>();
+	private static final ConcurrentHashMap<Class<?>, FastClass> compiledEntities = new ConcurrentHashMap<>();
+	// Layouts are not cached any more beyond this, e.g. too many distinct partial queries
+	private static final int MAX_LAYOUTS = 1024;
+	private static final ConcurrentHashMap<LayoutKey, Layout> compiledLayouts = new ConcurrentHashMap<>();
+
+	private Class<T> clazz;
+	private FastClass creator;
+	private int constructorIndex;
+	private Map<String, Field> fieldsMap;
+	private Layout layout;
+	private boolean ignorMissingFields = false;
+
+	/**
+	 * Column index of current result set. Null if the mapper is not bound to result set.
+	 */
+	private int[] columnIndexes;
+
+	/**
+	 * @return compiled mapper if the entity can be compiled, otherwise DalDefaultJpaMapper
+	 */
+	public static <T> DalRowMapper<T> create(Class<T> clazz) throws SQLException {
+		DalCompiledJpaMapper<T> mapper = createCompiled(clazz);
+		return mapper == null ? new DalDefaultJpaMapper<T>(clazz) : mapper;
+	}
+
+	/**
+	 * @return compiled mapper, or null if the entity can not be compiled
+	 */
+	static <T> DalCompiledJpaMapper<T> createCompiled(Class<T> clazz) throws SQLException {
+		FastClass creator = compile(clazz);
+		return creator == null ? null : new DalCompiledJpaMapper<T>(clazz, creator);
+	}
+
+	private DalCompiledJpaMapper(Class<T> clazz, FastClass creator) throws SQLException {
+		this.clazz = clazz;
+		this.creator = creator;
+		this.constructorIndex = creator.getIndex(new Class<?>[0]);
+		EntityManager manager = EntityManager.getEntityManager(clazz);
+		this.fieldsMap = manager.getFieldMap();
+		this.layout = getLayout(clazz, fieldsMap, manager.getColumnNames());
+	}
+
+	private DalCompiledJpaMapper(DalCompiledJpaMapper<T> rawMapper, String[] columns, boolean ignorMissingFields, int[] columnIndexes) {
+		this.clazz = rawMapper.clazz;
+		this.creator = rawMapper.creator;
+		this.constructorIndex = rawMapper.constructorIndex;
+		this.fieldsMap = rawMapper.fieldsMap;
+		this.layout = getLayout(clazz, fieldsMap, columns);
+		this.ignorMissingFields = ignorMissingFields;
+		this.columnIndexes = columnIndexes;
+	}
+
+	@Override
+	public T map(ResultSet rs, int rowNum) throws SQLException {
+		try {
+			if(layout.missingColumn != null && !ignorMissingFields)
+				throw new DalException(ErrorCode.FieldNotExists, clazz.getName(), layout.missingColumn);
+
+			int[] indexes = columnIndexes == null ? resolveIndexes(rs) : columnIndexes;
+			T instance = clazz.cast(creator.newInstance(constructorIndex, null));
+			Field[] fields = layout.fields;
+			ColumnReader[] readers = layout.readers;
+			for (int i = 0; i < fields.length; i++) {
+				if(fields[i] != null)
+					readers[i].read(rs, indexes[i], fields[i], instance);
+			}
+
+			if(instance instanceof UpdatableEntity)
+				((UpdatableEntity)instance).reset();
+
+			return instance;
+		} catch (Throwable e) {
+			throw DalException.wrap(ErrorCode.ResultMappingError, e);
+		}
+	}
+
+	@Override
+	public DalRowMapper<T> mapWith(String[] columns) throws SQLException {
+		return new DalCompiledJpaMapper<T>(this, columns, ignorMissingFields, null);
+	}
+
+	@Override
+	public DalRowMapper<T> mapWith(ResultSet rs, DalHints hints) throws SQLException {
+		String[] columns = DalDefaultJpaMapper.resolveColumns(layout.columnNames, rs, hints);
+		DalCompiledJpaMapper<T> bound = new DalCompiledJpaMapper<T>(this, columns, hints.is(DalHintEnum.ignoreMissingFields), null);
+
+		// Missing field error will be reported when mapping
+		if(bound.layout.missingColumn == null || bound.ignorMissingFields)
+			bound.columnIndexes = bound.resolveIndexes(rs);
+
+		return bound;
+	}
+
+	private int[] resolveIndexes(ResultSet rs) throws SQLException {
+		String[] columnNames = layout.columnNames;
+		int[] indexes = new int[columnNames.length];
+		for (int i = 0; i < columnNames.length; i++) {
+			if(layout.fields[i] != null)
+				indexes[i] = rs.findColumn(columnNames[i]);
+		}
+		return indexes;
+	}
+
+	private static FastClass compile(Class<?> clazz) {
+		FastClass creator = compiledEntities.get(clazz);
+		if(creator != null)
+			return creator;
+
+		try {
+			if(!Modifier.isPublic(clazz.getModifiers()) || Modifier.isAbstract(clazz.getModifiers()))
+				return null;
+
+			if(!Modifier.isPublic(clazz.getConstructor().getModifiers()))
+				return null;
+
+			creator = FastClass.create(clazz);
+			if(creator.getIndex(new Class<?>[0]) < 0)
+				return null;
+		} catch (Throwable e) {
+			// Can not be compiled, e.g. no public default constructor
+			return null;
+		}
+
+		FastClass value = compiledEntities.putIfAbsent(clazz, creator);
+		return value == null ? creator : value;
+	}
+
+	private static Layout getLayout(Class<?> clazz, Map<String, Field> fieldsMap, String[] columnNames) {
+		LayoutKey key = new LayoutKey(clazz, columnNames);
+		Layout layout = compiledLayouts.get(key);
+		if(layout != null)
+			return layout;
+
+		// Keep a private copy in case caller changes the array
+		layout = new Layout(fieldsMap, columnNames.clone());
+		if(compiledLayouts.size() >= MAX_LAYOUTS)
+			return layout;
+
+		Layout value = compiledLayouts.putIfAbsent(new LayoutKey(clazz, layout.columnNames), layout);
+		return value == null ? layout : value;
+	}
+
+	/**
+	 * Field and reader of each column. Field will be null if the column has no
+	 * corresponding field.
+	 */
+	private static class Layout {
+		private String[] columnNames;
+		private Field[] fields;
+		private ColumnReader[] readers;
+		private String missingColumn;
+
+		Layout(Map<String, Field> fieldsMap, String[] columnNames) {
+			this.columnNames = columnNames;
+			fields = new Field[columnNames.length];
+			readers = new ColumnReader[columnNames.length];
+			for (int i = 0; i < columnNames.length; i++) {
+				Field field = fieldsMap.get(columnNames[i]);
+				if(field == null) {
+					if(missingColumn == null)
+						missingColumn = columnNames[i];
+					continue;
+				}
+
+				fields[i] = field;
+				ColumnReader reader = readerCache.get(field.getType());
+				readers[i] = reader == null ? objectReader : reader;
+			}
+		}
+	}
+
+	private static class LayoutKey {
+		private Class<?> clazz;
+		private String[] columnNames;
+		private int hash;
+
+		LayoutKey(Class<?> clazz, String[] columnNames) {
+			this.clazz = clazz;
+			this.columnNames = columnNames;
+			this.hash = 31 * clazz.hashCode() + Arrays.hashCode(columnNames);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof LayoutKey))
+				return false;
+
+			LayoutKey other = (LayoutKey)obj;
+			return clazz == other.clazz && Arrays.equals(columnNames, other.columnNames);
+		}
+	}
+
+	private static interface ColumnReader {
+		void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException;
+	}
+
+	private static ColumnReader objectReader = new ColumnReader() {
+		public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			field.set(entity, rs.getObject(index));
+		}
+	};
+
+	/**
+	 * Same as DalDefaultJpaMapper, setting null to primitive field will fail
+	 */
+	private static void setNull(Field field, Object entity) throws ReflectiveOperationException {
+		field.set(entity, null);
+	}
+
+	static {
+		readerCache.put(long.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			long value = rs.getLong(index);
+			if(rs.wasNull()) setNull(field, entity); else field.setLong(entity, value);}});
+
+		readerCache.put(Long.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			long value = rs.getLong(index);
+			field.set(entity, rs.wasNull() ? null : Long.valueOf(value));}});
+
+		readerCache.put(int.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			int value = rs.getInt(index);
+			if(rs.wasNull()) setNull(field, entity); else field.setInt(entity, value);}});
+
+		readerCache.put(Integer.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			int value = rs.getInt(index);
+			field.set(entity, rs.wasNull() ? null : Integer.valueOf(value));}});
+
+		readerCache.put(double.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			double value = rs.getDouble(index);
+			if(rs.wasNull()) setNull(field, entity); else field.setDouble(entity, value);}});
+
+		readerCache.put(Double.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			double value = rs.getDouble(index);
+			field.set(entity, rs.wasNull() ? null : Double.valueOf(value));}});
+
+		readerCache.put(float.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			float value = rs.getFloat(index);
+			if(rs.wasNull()) setNull(field, entity); else field.setFloat(entity, value);}});
+
+		readerCache.put(Float.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			float value = rs.getFloat(index);
+			field.set(entity, rs.wasNull() ? null : Float.valueOf(value));}});
+
+		readerCache.put(byte.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			byte value = rs.getByte(index);
+			if(rs.wasNull()) setNull(field, entity); else field.setByte(entity, value);}});
+
+		readerCache.put(Byte.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			byte value = rs.getByte(index);
+			field.set(entity, rs.wasNull() ? null : Byte.valueOf(value));}});
+
+		readerCache.put(short.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			short value = rs.getShort(index);
+			if(rs.wasNull()) setNull(field, entity); else field.setShort(entity, value);}});
+
+		readerCache.put(Short.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			short value = rs.getShort(index);
+			field.set(entity, rs.wasNull() ? null : Short.valueOf(value));}});
+
+		/**
+		 * This is because oracle returns its own Timestamp type instead of standard java.sql.Timestamp
+		 */
+		readerCache.put(java.sql.Timestamp.class, new ColumnReader(){ public void read(ResultSet rs, int index, Field field, Object entity) throws SQLException, ReflectiveOperationException {
+			field.set(entity, rs.getTimestamp(index));}});
+	}
+}
@@ -135,11 +135,24 @@ public class DalDefaultJpaMapper<T> implements DalRowMapper<T>, CustomizableMapp
 		this.fieldsMap = rawMapper.fieldsMap;
 		this.ignorMissingFields = hints.is(DalHintEnum.ignoreMissingFields);
 		
+        this.columnNames = resolveColumns(rawMapper.columnNames, rs, hints);
+	}
+	
+	/**
+	 * Get the actual columns to be mapped against result set and hints.
+	 * 
+	 * @param columnNames the pre defined columns
+	 * @param rs
+	 * @param hints
+	 * @return
+	 * @throws SQLException
+	 */
+	static String[] resolveColumns(String[] columnNames, ResultSet rs, DalHints hints) throws SQLException {
         // User user defined columns if it is partial query case
-        this.columnNames = hints.is(DalHintEnum.partialQuery) ? hints.getPartialQueryColumns() : rawMapper.columnNames;
+        columnNames = hints.is(DalHintEnum.partialQuery) ? hints.getPartialQueryColumns() : columnNames;
 
         if(hints.is(DalHintEnum.allowPartial) == false)
-            return;
+            return columnNames;
             
         Set<String> preDefinedColumns = toSet(columnNames);
         
@@ -155,14 +168,14 @@ public class DalDefaultJpaMapper<T> implements DalRowMapper<T>, CustomizableMapp
         
         // If what user specifies is a subset of actual result set columns set
         if(resetSetColumns.containsAll(preDefinedColumns))
-            return;
+            return columnNames;
 
         // Get the common set of both
         preDefinedColumns.retainAll(resetSetColumns);
-        columnNames = preDefinedColumns.toArray(new String[preDefinedColumns.size()]);
+        return preDefinedColumns.toArray(new String[preDefinedColumns.size()]);
 	}
 	
-	private Set<String> toSet(String[] values) {
+	private static Set<String> toSet(String[] values) {
 	    Set<String> s = new HashSet<>();
 	    for(String v: values) s.add(v);
 	    return s;
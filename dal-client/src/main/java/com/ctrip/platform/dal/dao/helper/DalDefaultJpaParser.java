@@ -21,7 +21,8 @@ public class DalDefaultJpaParser<T> extends AbstractDalParser<T> implements Cust
 	private Class<T> clazz;
 	private Field identity;
 	private boolean autoIncrement;
-	private DalDefaultJpaMapper<T> rowMapper;
+	private DalRowMapper<T> rowMapper;
+	private CustomizableMapper<T> customizableMapper;
 	
 	public DalDefaultJpaParser(Class<T> clazz) throws SQLException {
 		EntityManager manager = EntityManager.getEntityManager(clazz);
@@ -35,7 +36,15 @@ public class DalDefaultJpaParser<T> extends AbstractDalParser<T> implements Cust
 		this.fieldsMap = manager.getFieldMap();
 		Field[] identities = manager.getIdentity();
 		this.identity = identities != null && identities.length == 1 ? identities[0] : null;
-		this.rowMapper = new DalDefaultJpaMapper<T>(clazz);
+		DalCompiledJpaMapper<T> compiledMapper = DalCompiledJpaMapper.createCompiled(clazz);
+		if(compiledMapper == null) {
+			DalDefaultJpaMapper<T> defaultMapper = new DalDefaultJpaMapper<T>(clazz);
+			this.rowMapper = defaultMapper;
+			this.customizableMapper = defaultMapper;
+		} else {
+			this.rowMapper = compiledMapper;
+			this.customizableMapper = compiledMapper;
+		}
 		this.sensitiveColumnNames = manager.getSensitiveColumnNames();
 		this.versionColumn = manager.getVersionColumn();
 		this.updatableColumnNames = manager.getUpdatableColumnNames();
@@ -115,11 +124,11 @@ public class DalDefaultJpaParser<T> extends AbstractDalParser<T> implements Cust
 	@Override
 	public DalRowMapper<T> mapWith(ResultSet rs, DalHints hints)
 			throws SQLException {
-		return rowMapper.mapWith(rs, hints);
+		return customizableMapper.mapWith(rs, hints);
 	}
 
     @Override
     public DalRowMapper<T> mapWith(String[] columns) throws SQLException {
-        return rowMapper.mapWith(columns);
+        return customizableMapper.mapWith(columns);
     }
 }
@@ -0,0 +1,359 @@
+package com.ctrip.platform.dal.dao.helper;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrip.platform.dal.dao.status.DalStatusManager;
+
+/**
+ * Read through cache of entities by primary key. It is enabled for a table by
+ * DalTableDao.setCache, and can be shared by all DAOs of the table.
+ *
+ * Entries are keyed by primary key and shard. They are bounded by count and estimated
+ * bytes, the least recently used ones are evicted first, and they expire after TTL.
+ *
+ * Update and delete by pojos through DalTableDao invalidate the entries of the primary keys
+ * on all shards. Update and delete by sql clear the whole cache. Changes made by other
+ * means are seen after TTL.
+ *
+ * Entities are copied when put and get, so that modifying them does not change the cache.
+ * The copy is shallow except Date, byte[], collection and map fields, and requires non-parameters
+ * constructor. Collections and maps are copied by clone, so that the updated columns of
+ * UpdatableEntity are not shared. Immutable values like String and Number are not copied.
+ * Entity that can not be copied is not cached.
+ */
+public class DalEntityCache<T> {
+	public static final int UNLIMITED = -1;
+
+	private static ConcurrentHashMap<String, DalEntityCache<?>> caches = new ConcurrentHashMap<>();
+	private static ConcurrentHashMap<Class<?>, Field[]> copyFields = new ConcurrentHashMap<>();
+
+	private String name;
+	private int maxSize;
+	private long maxBytes;
+	private long ttl;
+
+	// Entries of each shard by primary key, in access order
+	private LinkedHashMap<List<?>, Map<String, Entry<T>>> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private int size;
+	private long bytes;
+
+	// Increased by every invalidation. Entity read before that is not put into cache
+	private AtomicLong version = new AtomicLong();
+
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+	private AtomicLong evictions = new AtomicLong();
+	private AtomicLong invalidations = new AtomicLong();
+
+	private static class Entry<T> {
+		private T entity;
+		private int bytes;
+		private long expireAt;
+
+		Entry(T entity, int bytes, long expireAt) {
+			this.entity = entity;
+			this.bytes = bytes;
+			this.expireAt = expireAt;
+		}
+	}
+
+	public DalEntityCache(String name, int maxSize, long ttl) {
+		this(name, maxSize, UNLIMITED, ttl);
+	}
+
+	/**
+	 * Cache with the same name replaces the previous one in status MBeans.
+	 * @param name name shown in status MBeans, usually the table name
+	 * @param maxSize max number of entities
+	 * @param maxBytes max estimated bytes of entities, or UNLIMITED
+	 * @param ttl milliseconds an entity is kept, or UNLIMITED
+	 */
+	public DalEntityCache(String name, int maxSize, long maxBytes, long ttl) {
+		if(maxSize <= 0)
+			throw new IllegalArgumentException("Max size must be positive number.");
+
+		if(maxBytes <= 0 && maxBytes != UNLIMITED)
+			throw new IllegalArgumentException("Max bytes must be positive number or UNLIMITED.");
+
+		if(ttl <= 0 && ttl != UNLIMITED)
+			throw new IllegalArgumentException("TTL must be positive number or UNLIMITED.");
+
+		this.name = name;
+		this.maxSize = maxSize;
+		this.maxBytes = maxBytes;
+		this.ttl = ttl;
+
+		caches.put(name, this);
+		DalStatusManager.registerEntityCache(name);
+	}
+
+	public static DalEntityCache<?> getCache(String name) {
+		return caches.get(name);
+	}
+
+	public static Set<String> getCacheNames() {
+		return caches.keySet();
+	}
+
+	/**
+	 * Remove all caches from status registry when DAL client factory is shutdown
+	 */
+	public static void unregisterAll() {
+		caches.clear();
+		copyFields.clear();
+	}
+
+	/**
+	 * Integral numbers are converted to Long, so that the key is the same no matter
+	 * it comes from the parameter of queryByPk or the field of pojo.
+	 */
+	public static List<?> keyOf(Object id) {
+		return Collections.singletonList(normalize(id));
+	}
+
+	/**
+	 * @return values of the primary key columns in the given order
+	 */
+	public static List<?> keyOf(String[] primaryKeyNames, Map<String, ?> primaryKeys) {
+		if(primaryKeyNames.length == 1)
+			return Collections.singletonList(normalize(primaryKeys.get(primaryKeyNames[0])));
+
+		List<Object> key = new ArrayList<>(primaryKeyNames.length);
+		for(String name: primaryKeyNames)
+			key.add(normalize(primaryKeys.get(name)));
+		return key;
+	}
+
+	private static Object normalize(Object value) {
+		if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+			return ((Number)value).longValue();
+
+		if(value instanceof BigInteger && ((BigInteger)value).bitLength() < 64)
+			return ((BigInteger)value).longValue();
+
+		return value;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isBytesLimited() {
+		return maxBytes != UNLIMITED;
+	}
+
+	/**
+	 * Get the version before reading entity from database, and pass it to put
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * @return cached entity, or null if not cached or expired
+	 */
+	public T get(List<?> key, String shard) {
+		synchronized (this) {
+			Map<String, Entry<T>> shards = entries.get(key);
+			Entry<T> entry = shards == null ? null : shards.get(shard);
+
+			if(entry != null && ttl != UNLIMITED && entry.expireAt <= System.currentTimeMillis()) {
+				remove(key, shards, shard);
+				entry = null;
+			}
+
+			if(entry != null) {
+				hits.incrementAndGet();
+				return copy(entry.entity);
+			}
+		}
+
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * The entity is not cached if any invalidation happens after the given version.
+	 * @param bytes estimated bytes of the entity, it is ignored if bytes is not limited
+	 */
+	public void put(List<?> key, String shard, T entity, int bytes, long version) {
+		if(entity == null)
+			return;
+
+		// Not cached if it can not be copied
+		entity = copy(entity);
+		if(entity == null)
+			return;
+
+		long expireAt = ttl == UNLIMITED ? Long.MAX_VALUE : System.currentTimeMillis() + ttl;
+		Entry<T> entry = new Entry<>(entity, isBytesLimited() ? bytes : 0, expireAt);
+
+		synchronized (this) {
+			if(version != this.version.get())
+				return;
+
+			Map<String, Entry<T>> shards = entries.get(key);
+			if(shards == null) {
+				shards = new HashMap<>(2);
+				entries.put(key, shards);
+			}
+
+			Entry<T> old = shards.put(shard, entry);
+			if(old != null) {
+				size--;
+				this.bytes -= old.bytes;
+			}
+
+			size++;
+			this.bytes += entry.bytes;
+			evict();
+		}
+	}
+
+	/**
+	 * Remove entities of the given primary keys on all shards.
+	 * @param keys null to remove all
+	 */
+	public void invalidate(Collection<List<?>> keys) {
+		synchronized (this) {
+			version.incrementAndGet();
+			if(keys == null) {
+				invalidations.addAndGet(size);
+				entries.clear();
+				size = 0;
+				bytes = 0;
+				return;
+			}
+
+			for(List<?> key: keys) {
+				Map<String, Entry<T>> shards = entries.remove(key);
+				if(shards == null)
+					continue;
+
+				invalidations.addAndGet(shards.size());
+				for(Entry<T> entry: shards.values()) {
+					size--;
+					bytes -= entry.bytes;
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		invalidate(null);
+	}
+
+	private void remove(List<?> key, Map<String, Entry<T>> shards, String shard) {
+		Entry<T> entry = shards.remove(shard);
+		size--;
+		bytes -= entry.bytes;
+		if(shards.isEmpty())
+			entries.remove(key);
+	}
+
+	private void evict() {
+		Iterator<Map<String, Entry<T>>> it = entries.values().iterator();
+		while(it.hasNext() && (size > maxSize || (isBytesLimited() && bytes > maxBytes))) {
+			Map<String, Entry<T>> shards = it.next();
+			for(Entry<T> entry: shards.values()) {
+				size--;
+				bytes -= entry.bytes;
+				evictions.incrementAndGet();
+			}
+			it.remove();
+		}
+	}
+
+	private static <T> T copy(T entity) {
+		if(entity instanceof String || entity instanceof Number || entity instanceof Boolean
+				|| entity instanceof Character || entity instanceof Enum)
+			return entity;
+
+		try {
+			@SuppressWarnings("unchecked")
+			Class<T> clazz = (Class<T>)entity.getClass();
+			Constructor<T> constructor = clazz.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			T copy = constructor.newInstance();
+			for(Field field: getCopyFields(clazz)) {
+				field.set(copy, copyValue(field.get(entity)));
+			}
+			return copy;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static Object copyValue(Object value) throws Exception {
+		if(value instanceof Date)
+			return ((Date)value).clone();
+
+		if(value instanceof byte[])
+			return ((byte[])value).clone();
+
+		// Shallow copy of elements, it fails if the collection is not cloneable
+		if(value instanceof Collection || value instanceof Map)
+			return value.getClass().getMethod("clone").invoke(value);
+
+		return value;
+	}
+
+	private static Field[] getCopyFields(Class<?> clazz) {
+		Field[] fields = copyFields.get(clazz);
+		if(fields != null)
+			return fields;
+
+		List<Field> list = new ArrayList<>();
+		for(Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+			for(Field field: c.getDeclaredFields()) {
+				if(Modifier.isStatic(field.getModifiers()))
+					continue;
+				field.setAccessible(true);
+				list.add(field);
+			}
+		}
+
+		fields = list.toArray(new Field[list.size()]);
+		copyFields.put(clazz, fields);
+		return fields;
+	}
+
+	public synchronized int getSize() {
+		return size;
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	public long getInvalidationCount() {
+		return invalidations.get();
+	}
+}
@@ -0,0 +1,153 @@
+package com.ctrip.platform.dal.dao.helper;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+import com.ctrip.platform.dal.dao.ResultMerger;
+
+/**
+ * Merge the partial result of each shard with k-way heap merge. It is designed for
+ * cross shard query that each shard's result is already sorted by the same order of
+ * the comparator, e.g. the sql contains ORDER BY.
+ *
+ * Only the first start + count elements are merged, so the cost is proportional to
+ * the page size instead of shard count times page size. If some partial is not
+ * sorted, it will be sorted before merging, so the result is always the same as
+ * DalRangedResultMerger.
+ */
+public class DalOrderedRangedResultMerger<T> implements ResultMerger<List<T>> {
+	private static final int NO_LIMIT = -1;
+
+	private Comparator<T> comparator;
+	private int start;
+	private int count;
+	private List<List<T>> partials = new ArrayList<>();
+
+	/**
+	 * Merge all the elements in order
+	 */
+	public DalOrderedRangedResultMerger(Comparator<T> comparator) {
+		this(comparator, 0, NO_LIMIT);
+	}
+
+	// Select top
+	public DalOrderedRangedResultMerger(Comparator<T> comparator, int count) {
+		this(comparator, 0, count);
+	}
+
+	// Select from to
+	public DalOrderedRangedResultMerger(Comparator<T> comparator, int start, int count) {
+		Objects.requireNonNull(comparator, "Comparator can't be null.");
+		if(start < 0)
+			throw new IllegalArgumentException("Start can not be negative number.");
+		if(count < 0 && count != NO_LIMIT)
+			throw new IllegalArgumentException("Count can not be negative number.");
+
+		this.comparator = comparator;
+		this.start = start;
+		this.count = count;
+	}
+
+	@Override
+	public void addPartial(String shard, List<T> partial) throws SQLException {
+		if(partial == null || partial.isEmpty())
+			return;
+
+		if(!isSorted(partial)) {
+			partial = new ArrayList<>(partial);
+			Collections.sort(partial, comparator);
+		}
+
+		// Elements after start + count of a sorted partial will never be selected
+		if(count != NO_LIMIT && partial.size() > start + count)
+			partial = partial.subList(0, start + count);
+
+		partials.add(partial);
+	}
+
+	@Override
+	public List<T> merge() throws SQLException {
+		int total = 0;
+		for(List<T> partial: partials)
+			total += partial.size();
+
+		int end = count == NO_LIMIT ? total : Math.min(total, start + count);
+		if(start >= end)
+			return new ArrayList<>();
+
+		List<T> result = new ArrayList<>(end - start);
+		PriorityQueue<Cursor<T>> heap = new PriorityQueue<>(partials.size(), new CursorComparator<>(comparator));
+		for(int i = 0; i < partials.size(); i++)
+			heap.add(new Cursor<>(i, partials.get(i)));
+
+		for(int i = 0; i < end; i++) {
+			Cursor<T> cursor = heap.poll();
+			T value = cursor.next();
+			if(i >= start)
+				result.add(value);
+
+			if(cursor.hasNext())
+				heap.add(cursor);
+		}
+
+		return result;
+	}
+
+	private boolean isSorted(List<T> partial) {
+		T previous = null;
+		boolean first = true;
+		for(T current: partial) {
+			if(!first && comparator.compare(previous, current) > 0)
+				return false;
+			first = false;
+			previous = current;
+		}
+		return true;
+	}
+
+	private static class Cursor<T> {
+		private int index;
+		private List<T> partial;
+		private int position;
+
+		Cursor(int index, List<T> partial) {
+			this.index = index;
+			this.partial = partial;
+		}
+
+		T current() {
+			return partial.get(position);
+		}
+
+		T next() {
+			return partial.get(position++);
+		}
+
+		boolean hasNext() {
+			return position < partial.size();
+		}
+	}
+
+	/**
+	 * For equal elements, the one from early added partial goes first. This keeps
+	 * the same order as stable sort on concatenated partials.
+	 */
+	private static class CursorComparator<T> implements Comparator<Cursor<T>> {
+		private Comparator<T> comparator;
+
+		CursorComparator(Comparator<T> comparator) {
+			this.comparator = comparator;
+		}
+
+		@Override
+		public int compare(Cursor<T> o1, Cursor<T> o2) {
+			int result = comparator.compare(o1.current(), o2.current());
+			return result != 0 ? result : Integer.compare(o1.index, o2.index);
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package com.ctrip.platform.dal.dao.helper;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -14,7 +16,9 @@ import com.ctrip.platform.dal.dao.StatementParameters;
 import com.ctrip.platform.dal.dao.client.DalTransactionManager;
 import com.ctrip.platform.dal.dao.configure.DalConfigure;
 import com.ctrip.platform.dal.dao.configure.DatabaseSet;
+import com.ctrip.platform.dal.dao.strategy.DalBulkShardingStrategy;
 import com.ctrip.platform.dal.dao.strategy.DalShardingStrategy;
+import com.ctrip.platform.dal.dao.strategy.ShardColModShardStrategy;
 
 public class DalShardingHelper {
 	public static boolean isShardingEnabled(String logicDbName) {
@@ -116,6 +120,19 @@ public class DalShardingHelper {
 		DatabaseSet dbSet = config.getDatabaseSet(logicDbName);
 		DalShardingStrategy strategy = dbSet.getStrategy();
 		
+		DalBulkShardingStrategy bulkStrategy = getBulkStrategy(strategy);
+		if(shardId == null && bulkStrategy != null) {
+			int[] shards = bulkStrategy.locateDbShards(config, logicDbName, daoPojos);
+			if(shards != null) {
+				shuffled = group(bulkStrategy.getDbShardIds(), shards, null, daoPojos);
+				for(String tmpShardId: shuffled.keySet())
+					dbSet.validate(tmpShardId);
+
+				detectDistributedTransaction(shuffled.keySet());
+				return shuffled;
+			}
+		}
+		
 		DalHints tmpHints = new DalHints();
 		for (int i = 0; i < daoPojos.size(); i++) {
 			Map<String, ?> pojo = daoPojos.get(i);
@@ -155,6 +172,31 @@ public class DalShardingHelper {
 		DatabaseSet dbSet = config.getDatabaseSet(logicDbName);
 		DalShardingStrategy strategy = dbSet.getStrategy();
 		
+		DalBulkShardingStrategy bulkStrategy = getBulkStrategy(strategy);
+		if(bulkStrategy != null) {
+			int[] shards = bulkStrategy.locateDbShardsByValue(config, logicDbName, parameters);
+			if(shards != null) {
+				String[] shardIds = bulkStrategy.getDbShardIds();
+				List<List<Object>> groups = new ArrayList<>(shardIds.length);
+				for (int i = 0; i < shardIds.length; i++)
+					groups.add(null);
+
+				for (int i = 0; i < shards.length; i++) {
+					List<Object> group = groups.get(shards[i]);
+					if(group == null) {
+						dbSet.validate(shardIds[shards[i]]);
+						group = new LinkedList<>();
+						groups.set(shards[i], group);
+						shuffled.put(shardIds[shards[i]], group);
+					}
+					group.add(parameters.get(i));
+				}
+
+				detectDistributedTransaction(shuffled.keySet());
+				return shuffled;
+			}
+		}
+		
 		DalHints tmpHints = new DalHints();
 		for (int i = 0; i < parameters.size(); i++) {
 			Object value = parameters.get(i);
@@ -194,6 +236,13 @@ public class DalShardingHelper {
 		DatabaseSet dbSet = config.getDatabaseSet(logicDbName);
 		DalShardingStrategy strategy = dbSet.getStrategy();
 		
+		DalBulkShardingStrategy bulkStrategy = getBulkStrategy(strategy);
+		if(tableShardId == null && bulkStrategy != null) {
+			int[] shards = bulkStrategy.locateTableShards(config, logicDbName, pojos.values());
+			if(shards != null)
+				return group(bulkStrategy.getTableShardIds(), shards, pojos.keySet().iterator(), pojos.values());
+		}
+		
 		DalHints tmpHints = new DalHints();
 		for (Integer index: pojos.keySet()) {
 			Map<String, ?> fields = pojos.get(index);
@@ -214,6 +263,51 @@ public class DalShardingHelper {
 		return shuffled;
 	}
 	
+	/**
+	 * Sub class of ShardColModShardStrategy may override how each row is located, which would be
+	 * bypassed by locating in bulk with the internals of ShardColModShardStrategy.
+	 * @return the strategy if shards can be located in bulk, otherwise null
+	 */
+	private static DalBulkShardingStrategy getBulkStrategy(DalShardingStrategy strategy) {
+		if(!(strategy instanceof DalBulkShardingStrategy))
+			return null;
+
+		if(strategy instanceof ShardColModShardStrategy && strategy.getClass() != ShardColModShardStrategy.class)
+			return null;
+
+		return (DalBulkShardingStrategy)strategy;
+	}
+
+	/**
+	 * Group pojos by shard ordinals located in bulk. Each group is created with the exact size,
+	 * and the order of pojos is kept in each group.
+	 * @param indexes index of each pojo, null means the position of the pojo
+	 */
+	private static Map<String, Map<Integer, Map<String, ?>>> group(String[] shardIds, int[] shards, Iterator<Integer> indexes, Iterable<Map<String, ?>> pojos) {
+		int[] counts = new int[shardIds.length];
+		for (int shard: shards)
+			counts[shard]++;
+		
+		Map<String, Map<Integer, Map<String, ?>>> shuffled = new HashMap<>();
+		List<Map<Integer, Map<String, ?>>> groups = new ArrayList<>(shardIds.length);
+		for (int i = 0; i < shardIds.length; i++) {
+			Map<Integer, Map<String, ?>> pojosInShard = null;
+			if(counts[i] > 0) {
+				pojosInShard = new LinkedHashMap<>(counts[i] * 4 / 3 + 1);
+				shuffled.put(shardIds[i], pojosInShard);
+			}
+			groups.add(pojosInShard);
+		}
+		
+		int i = 0;
+		for (Map<String, ?> pojo: pojos) {
+			groups.get(shards[i]).put(indexes == null ? i : indexes.next(), pojo);
+			i++;
+		}
+		
+		return shuffled;
+	}
+	
 	/**
 	 * Verify if shard id is already set for potential corss shard batch operation.
 	 * This includes combined insert, batch insert and batch delete.
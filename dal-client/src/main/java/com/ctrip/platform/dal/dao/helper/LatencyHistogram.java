@@ -0,0 +1,115 @@
+package com.ctrip.platform.dal.dao.helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free log-linear histogram of nanoseconds. Each power of 2 range is split into 16
+ * buckets, so the relative error of a recorded value is within 1/16. Values larger than
+ * about 18 minutes are counted in the last bucket.
+ *
+ * Recording is one atomic increment on the bucket plus count, sum and max, it does not
+ * allocate.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+	static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		if(nanos < 0)
+			return;
+
+		buckets.incrementAndGet(indexOf(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+
+		long current;
+		while(nanos > (current = max.get()))
+			if(max.compareAndSet(current, nanos))
+				break;
+	}
+
+	static int indexOf(long value) {
+		if(value < SUB_COUNT)
+			return (int)value;
+
+		value = Math.min(value, MAX_VALUE);
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * @return the smallest value that falls into the bucket
+	 */
+	static long lowerBoundOf(int index) {
+		if(index < SUB_COUNT)
+			return index;
+
+		int exponent = index / SUB_COUNT + SUB_BITS - 1;
+		int sub = index % SUB_COUNT;
+		return (long)(SUB_COUNT + sub) << (exponent - SUB_BITS);
+	}
+
+	static long upperBoundOf(int index) {
+		return index == BUCKETS - 1 ? MAX_VALUE : lowerBoundOf(index + 1) - 1;
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMean() {
+		long total = count.get();
+		return total == 0 ? 0 : sum.get() / total;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return upper bound of the bucket the percentile falls into, but not greater than max.
+	 * 0 if nothing is recorded
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++)
+			total += snapshot[i] = buckets.get(i);
+
+		if(total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if(seen >= rank)
+				return Math.min(upperBoundOf(i), max.get());
+		}
+
+		return max.get();
+	}
+
+	/**
+	 * Reset is not atomic, values recorded at the same time may be partially cleared.
+	 */
+	public void reset() {
+		for(int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+}
@@ -109,28 +109,32 @@ public class LoggerHelper {
 	}
 	
 	public static String getSqlTpl(LogEntry entry) {
-		if ( entry.isSensitive() )
+		return getSqlTpl(entry.getEvent(), entry.isSensitive(), entry.getSqls(), entry.getCallString());
+	}
+	
+	public static String getSqlTpl(DalEventEnum event, boolean sensitive, String[] sqls, String callString) {
+		if ( sensitive )
 			return SQLHIDDENString;
-		DalEventEnum event = entry.getEvent();
 		
 		if(event == DalEventEnum.QUERY ||  event == DalEventEnum.UPDATE_SIMPLE ||
 				event == DalEventEnum.UPDATE_KH || event == DalEventEnum.BATCH_UPDATE_PARAM){
-			return entry.getSqls() != null && entry.getSqls().length > 0 ? entry.getSqls()[0] : "";
+			return sqls != null && sqls.length > 0 ? sqls[0] : "";
 		}
 		if(event == DalEventEnum.BATCH_UPDATE){
-			return join(entry.getSqls(), ";");
+			return join(sqls, ";");
 		}
 		if(event == DalEventEnum.CALL || event == DalEventEnum.BATCH_CALL){
-			return entry.getCallString();
+			return callString;
 		}
 		
 		return "";
 	}
 	
 	public static String getParams(LogEntry entry) {
-		DalEventEnum event = entry.getEvent();
-		String[] pramemters = entry.getPramemters();
-		
+		return getParams(entry.getEvent(), entry.getPramemters());
+	}
+	
+	public static String getParams(DalEventEnum event, String[] pramemters) {
 		StringBuilder sbout = new StringBuilder();
 		if(pramemters == null || pramemters.length <= 0){
 			return sbout.toString();
@@ -1,5 +1,9 @@
 package com.ctrip.platform.dal.dao.markdown;
 
+/**
+ * @deprecated TimeoutDetector uses SlidingWindowCounter which is thread safe
+ */
+@Deprecated
 public class DetectorCounter {
 	private TimeBucketCounter request;
 	private TimeBucketCounter errors;
@@ -3,10 +3,6 @@ package com.ctrip.platform.dal.dao.markdown;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -21,18 +17,14 @@ import com.ctrip.platform.dal.dao.status.MarkdownStatus;
 
 public class MarkdownManager {
 	private static Logger logger = LoggerFactory.getLogger(MarkdownManager.class);
-	private static final int durations = 1000;
-	private static AtomicReference<ScheduledExecutorService> managerRef = new AtomicReference<>();
-
 	private static AtomicReference<List<ErrorDetector>> detectorsRef = new AtomicReference<>();
-	private static ConcurrentLinkedQueue<ErrorContext> exqueue = new ConcurrentLinkedQueue<ErrorContext>();
 
 	public static void init() {
-		if(managerRef.get() !=null)
+		if(detectorsRef.get() !=null)
 			return;
 		
 		synchronized (MarkdownManager.class) {
-			if(managerRef.get() !=null)
+			if(detectorsRef.get() !=null)
 				return;
 			
 			ArrayList<ErrorDetector> detectors = new ArrayList<ErrorDetector>();
@@ -40,24 +32,18 @@ public class MarkdownManager {
 			detectors.add(new TimeoutDetector());
 
 			detectorsRef.set(detectors);
-			ScheduledExecutorService manager = Executors.newSingleThreadScheduledExecutor();
-			manager.scheduleAtFixedRate(new CollectExceptionTask(), durations,
-					durations, TimeUnit.MICROSECONDS);
-
-			managerRef.set(manager);
 		}
 	}
 
 	public static void shutdown(){
-		if(managerRef.get() ==null)
+		if(detectorsRef.get() ==null)
 			return;
 		
 		synchronized (MarkdownManager.class) {
-			if(managerRef.get() ==null)
+			if(detectorsRef.get() ==null)
 				return;
 			
-			managerRef.get().shutdownNow();
-			managerRef.set(null);
+			detectorsRef.set(null);
 			logger.info("Markdown Manager has been destoryed");
 		}
 	}
@@ -110,9 +96,17 @@ public class MarkdownManager {
 			DalStatusManager.getDataSourceStatus(dbName).setAutoMarkdown(false);
 	}
 
+	/**
+	 * Errors are detected in the thread that encounters them, so that markdown happens
+	 * as soon as the threshold is reached.
+	 */
 	public static void detect(DalConnection conn, long start, Throwable e) {
 		if (conn == null || conn.getMeta() == null || !(e instanceof SQLException))
 			return;
+		
+		List<ErrorDetector> detectors = detectorsRef.get();
+		if(detectors == null || !DalStatusManager.getMarkdownStatus().isEnableAutoMarkdown())
+			return;
 			
 		ErrorContext ctx = new ErrorContext(
 				conn.getMeta().getDataBaseKeyName(), 
@@ -120,27 +114,15 @@ public class MarkdownManager {
 				System.currentTimeMillis() - start, 
 				(SQLException) e);
 		
-		exqueue.add(ctx);
-	}
-	
-	private static class CollectExceptionTask implements Runnable {
-		@Override
-		public void run() {
-			try {
-				ErrorContext ctx = exqueue.poll();
-				while (ctx != null) {
-					if(DalStatusManager.getMarkdownStatus().isEnableAutoMarkdown()) {
-						if (!isMarkdown(ctx.getName())) {
-							for (ErrorDetector mk : detectorsRef.get()) {
-								mk.detect(ctx);
-							}
-						}
-					}
-					ctx = exqueue.poll();
-				}
-			} catch (Throwable e) { 
-				e.printStackTrace();
+		try {
+			if (isMarkdown(ctx.getName()))
+				return;
+			
+			for (ErrorDetector mk : detectors) {
+				mk.detect(ctx);
 			}
+		} catch (Throwable ex) { 
+			logger.error("Error when detecting markdown", ex);
 		}
 	}
 }
\ No newline at end of file
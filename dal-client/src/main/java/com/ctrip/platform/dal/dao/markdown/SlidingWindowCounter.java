@@ -0,0 +1,124 @@
+package com.ctrip.platform.dal.dao.markdown;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count requests and errors in a sliding time window. The window is divided into
+ * slices, and the counters of each slice are striped by thread to reduce contention.
+ * Counters are allocated up front, so the memory is fixed however many errors happen.
+ *
+ * It is thread safe and lock free. A few counts may be lost when slices rotate,
+ * which is acceptable for error detecting.
+ */
+public class SlidingWindowCounter {
+	public static final int DEFAULT_SLICES = 10;
+
+	// Must be power of 2
+	private static final int STRIPES = 8;
+	private static final int REQUEST = 0;
+	private static final int ERROR = 1;
+	private static final int COUNTERS_PER_SLICE = STRIPES * 2;
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long duration;
+	private long sliceDuration;
+	private int slices;
+
+	// The time slice each slot currently counts for
+	private AtomicLongArray sliceIds;
+	private AtomicLongArray counters;
+
+	public SlidingWindowCounter(long duration) {
+		this(duration, DEFAULT_SLICES);
+	}
+
+	/**
+	 * @param duration length of window in milliseconds
+	 * @param slices number of slices the window is divided into
+	 */
+	public SlidingWindowCounter(long duration, int slices) {
+		if(duration <= 0 || slices <= 0)
+			throw new IllegalArgumentException("Duration and slices must be positive number.");
+
+		this.duration = duration;
+		this.slices = slices;
+		sliceDuration = Math.max(1, duration / slices);
+		sliceIds = new AtomicLongArray(slices);
+		counters = new AtomicLongArray(slices * COUNTERS_PER_SLICE);
+		reset();
+	}
+
+	public long getDuration() {
+		return duration;
+	}
+
+	public void increment(boolean error) {
+		increment(error, System.currentTimeMillis());
+	}
+
+	public void increment(boolean error, long now) {
+		long sliceId = now / sliceDuration;
+		int slot = (int)(sliceId % slices);
+		rotate(slot, sliceId);
+
+		int index = slot * COUNTERS_PER_SLICE + stripe() * 2;
+		counters.incrementAndGet(index + REQUEST);
+		if(error)
+			counters.incrementAndGet(index + ERROR);
+	}
+
+	public long getRequests() {
+		return sum(REQUEST, System.currentTimeMillis());
+	}
+
+	public long getRequests(long now) {
+		return sum(REQUEST, now);
+	}
+
+	public long getErrors() {
+		return sum(ERROR, System.currentTimeMillis());
+	}
+
+	public long getErrors(long now) {
+		return sum(ERROR, now);
+	}
+
+	public void reset() {
+		for(int i = 0; i < slices; i++)
+			sliceIds.set(i, EMPTY);
+		for(int i = 0; i < counters.length(); i++)
+			counters.set(i, 0);
+	}
+
+	private void rotate(int slot, long sliceId) {
+		long current = sliceIds.get(slot);
+		if(current >= sliceId)
+			return;
+
+		// Only the thread that moves the slot forward clears the old counts
+		if(sliceIds.compareAndSet(slot, current, sliceId)) {
+			int start = slot * COUNTERS_PER_SLICE;
+			for(int i = 0; i < COUNTERS_PER_SLICE; i++)
+				counters.set(start + i, 0);
+		}
+	}
+
+	private long sum(int type, long now) {
+		long sliceId = now / sliceDuration;
+		long total = 0;
+		for(int slot = 0; slot < slices; slot++) {
+			long id = sliceIds.get(slot);
+			if(id == EMPTY || id <= sliceId - slices || id > sliceId)
+				continue;
+
+			int start = slot * COUNTERS_PER_SLICE;
+			for(int i = 0; i < STRIPES; i++)
+				total += counters.get(start + i * 2 + type);
+		}
+		return total;
+	}
+
+	private int stripe() {
+		return (int)Thread.currentThread().getId() & (STRIPES - 1);
+	}
+}
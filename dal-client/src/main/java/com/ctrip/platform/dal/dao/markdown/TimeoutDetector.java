@@ -1,6 +1,5 @@
 package com.ctrip.platform.dal.dao.markdown;
 
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.ctrip.platform.dal.dao.Version;
@@ -8,10 +7,10 @@ import com.ctrip.platform.dal.dao.status.DalStatusManager;
 import com.ctrip.platform.dal.dao.status.TimeoutMarkdown;
 
 public class TimeoutDetector implements ErrorDetector{
-	private Map<String, DetectorCounter> data = new ConcurrentHashMap<String, DetectorCounter>();
+	private ConcurrentHashMap<String, SlidingWindowCounter> data = new ConcurrentHashMap<String, SlidingWindowCounter>();
 	
 	/**
-	 * This method will be invoked by one thread.
+	 * This method is invoked by the thread that encounters the error. It is thread safe.
 	 */
 	@Override
 	public void detect(ErrorContext ctx) {	
@@ -21,41 +20,66 @@ public class TimeoutDetector implements ErrorDetector{
 			return;
 
 		long duration = tmb.getSamplingDuration() * 1000 + 10;
-		if(!data.containsKey(ctx.getName()))
-			data.put(ctx.getName(), new DetectorCounter(duration));
-		DetectorCounter dt = data.get(ctx.getName());
-		if(dt.getDuration() != duration){
-			dt.reset(duration);
-		}
-		if(isTimeOutException(ctx)){
-			dt.incrementErrors();
-		}
-		dt.incrementRequest();
+		SlidingWindowCounter counter = getCounter(ctx.getName(), duration);
+		counter.increment(isTimeOutException(ctx));
 		
-		if(dt.getErrors() >= tmb.getErrorCountThreshold()){
-			this.markdown(ctx.getName(), dt, MarkDownReason.ERRORCOUNT);
-		}else if(dt.getRequestTimes() >= tmb.getErrorPercentReferCount()){
-			float percent = (dt.getErrors() + 0.0f) /dt.getRequestTimes();
-			if(percent >= tmb.getErrorPercentThreshold()){
-				this.markdown(ctx.getName(), dt, MarkDownReason.ERRORPERCENT);
-			}
-		}
+		if(checkThreshold(counter, tmb) != null)
+			markdown(ctx.getName(), counter, tmb);
+	}
+	
+	private SlidingWindowCounter getCounter(String key, long duration) {
+		SlidingWindowCounter counter = data.get(key);
+		if(counter != null && counter.getDuration() == duration)
+			return counter;
+		
+		// Sampling duration is changed
+		SlidingWindowCounter newCounter = new SlidingWindowCounter(duration);
+		if(counter == null)
+			counter = data.putIfAbsent(key, newCounter);
+		else
+			counter = data.replace(key, counter, newCounter) ? null : data.get(key);
+
+		return counter == null ? newCounter : counter;
 	}
 	
-	private void markdown(String key, DetectorCounter dc, MarkDownReason reason){
-		MarkDownInfo info = new MarkDownInfo(key, Version.getVersion(), MarkDownPolicy.TIMEOUT, dc.getDuration());
+	private MarkDownReason checkThreshold(SlidingWindowCounter counter, TimeoutMarkdown tmb) {
+		long errors = counter.getErrors();
+		if(errors >= tmb.getErrorCountThreshold())
+			return MarkDownReason.ERRORCOUNT;
 		
-		info.setReason(reason);	
-		info.setTotal(dc.getRequestTimes());
-		info.setFail(dc.getErrors());
+		long requests = counter.getRequests();
+		if(requests >= tmb.getErrorPercentReferCount()){
+			float percent = (errors + 0.0f) /requests;
+			if(percent >= tmb.getErrorPercentThreshold())
+				return MarkDownReason.ERRORPERCENT;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Only one of the threads that reach the threshold at the same time will markdown
+	 */
+	private void markdown(String key, SlidingWindowCounter counter, TimeoutMarkdown tmb){
+		MarkDownInfo info;
+		synchronized (counter) {
+			MarkDownReason reason = checkThreshold(counter, tmb);
+			if(reason == null)
+				return;
+			
+			info = new MarkDownInfo(key, Version.getVersion(), MarkDownPolicy.TIMEOUT, counter.getDuration());
+			info.setReason(reason);	
+			info.setTotal(counter.getRequests());
+			info.setFail(counter.getErrors());
+			counter.reset();
+		}
 		
 		MarkdownManager.autoMarkdown(info);
-		dc.reset();
 	}
 	
 	public String toDebugInfo(String key) {
 		return String.format("request:%s--hints:%s", 
-				data.get(key).getRequestTimes(), data.get(key).getErrors());
+				data.get(key).getRequests(), data.get(key).getErrors());
 	}
 
 	public static boolean isTimeOutException(ErrorContext ctx){
@@ -17,6 +17,7 @@ import com.ctrip.platform.dal.dao.helper.CustomizableMapper;
 import com.ctrip.platform.dal.dao.helper.DalFirstResultMerger;
 import com.ctrip.platform.dal.dao.helper.DalListMerger;
 import com.ctrip.platform.dal.dao.helper.DalObjectRowMapper;
+import com.ctrip.platform.dal.dao.helper.DalOrderedRangedResultMerger;
 import com.ctrip.platform.dal.dao.helper.DalRangedResultMerger;
 import com.ctrip.platform.dal.dao.helper.DalRowMapperExtractor;
 import com.ctrip.platform.dal.dao.helper.DalSingleResultExtractor;
@@ -62,6 +63,12 @@ public class BaseTableSelectBuilder implements TableSelectBuilder {
 	private int count;
 	private int start;
 
+	/**
+	 * For cross shard range query, each shard returns the first start + count rows
+	 * and the range is taken after merge. It is decided by mergeRange.
+	 */
+	private boolean rangeAfterMerge = false;
+
 	public BaseTableSelectBuilder() {
 		selectAll();
 	}
@@ -153,7 +160,7 @@ public class BaseTableSelectBuilder implements TableSelectBuilder {
 			return buildTop(effectiveTableName);
 
 		if(start > 0 && count > 0)
-			return buildPage(effectiveTableName);
+			return rangeAfterMerge ? buildTop(effectiveTableName, start + count) : buildPage(effectiveTableName);
 
 		return buildList(effectiveTableName);
 	}
@@ -201,6 +208,8 @@ public class BaseTableSelectBuilder implements TableSelectBuilder {
 		return this;
 	}
 
+	// Merged result type T is the list of entities, which is not known to the builder
+	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public <T> ResultMerger<T> getResultMerger(DalHints hints){
 		if(hints.is(DalHintEnum.resultMerger))
 			return (ResultMerger<T>)hints.get(DalHintEnum.resultMerger);
@@ -211,7 +220,16 @@ public class BaseTableSelectBuilder implements TableSelectBuilder {
 		if(isRequireSingle() || isRequireFirst())
 			return isRequireSingle() ? new DalSingleResultMerger() : new DalFirstResultMerger((Comparator)hints.getSorter());
 
-		return count > 0 ? new DalRangedResultMerger((Comparator)hints.getSorter(), count): new DalListMerger((Comparator)hints.getSorter());
+		if(count == 0)
+			return new DalListMerger((Comparator)hints.getSorter());
+
+		if(!rangeAfterMerge)
+			return new DalRangedResultMerger((Comparator)hints.getSorter(), count);
+
+		// Each shard's result is already limited to start + count
+		return hints.getSorter() == null ?
+				new DalRangedResultMerger(start, count) :
+				new DalOrderedRangedResultMerger((Comparator)hints.getSorter(), start, count);
 	}
 
 	public <T> DalResultSetExtractor<T> getResultExtractor(DalHints hints) throws SQLException {
@@ -222,7 +240,26 @@ public class BaseTableSelectBuilder implements TableSelectBuilder {
 		if(isRequireSingle() || isRequireFirst())
 			return new DalSingleResultExtractor<>(mapper, isRequireSingle());
 
-		return count > 0 ? new DalRowMapperExtractor(mapper, count): new DalRowMapperExtractor(mapper);
+		return count > 0 ? new DalRowMapperExtractor(mapper, rangeAfterMerge ? start + count : count): new DalRowMapperExtractor(mapper);
+	}
+
+	/**
+	 * Decide whether the range of query with the given hints is taken after merge. It is called
+	 * once for the query before the statement, merger and extractor are built, so that they agree.
+	 * Range can only be applied after merge if the merger is chosen by this builder
+	 * or it is DalOrderedRangedResultMerger, which knows the start and count.
+	 *
+	 * @param crossShard whether the query is executed on more than one of the resolved shards
+	 */
+	public BaseTableSelectBuilder mergeRange(boolean crossShard, DalHints hints) {
+		if(count == 0 || isRequireSingle() || isRequireFirst() || !crossShard) {
+			rangeAfterMerge = false;
+			return this;
+		}
+
+		Object customMerger = hints.is(DalHintEnum.resultMerger) ? hints.get(DalHintEnum.resultMerger) : merger;
+		rangeAfterMerge = customMerger == null || customMerger instanceof DalOrderedRangedResultMerger;
+		return this;
 	}
 
 	private <T> DalRowMapper<T> checkAllowPartial(DalHints hints) throws SQLException {
@@ -249,6 +286,10 @@ public class BaseTableSelectBuilder implements TableSelectBuilder {
 	}
 
 	private String buildTop(String effectiveTableName){
+		return buildTop(effectiveTableName, count);
+	}
+
+	private String buildTop(String effectiveTableName, int count){
 		return dbCategory.buildTop(effectiveTableName, buildColumns(), getCompleteWhereExp(), count);
 	}
 
@@ -341,7 +382,7 @@ public class BaseTableSelectBuilder implements TableSelectBuilder {
 		return this;
 	}
 
-	private static class LongNumberSummary implements ResultMerger<Number>{
+	private static class LongNumberSummary implements ResultMerger<Number>, ResultMerger.Unordered{
 		private long total;
 		@Override
 		public void addPartial(String shard, Number partial) {
@@ -11,6 +11,7 @@ import com.ctrip.platform.dal.dao.DalRowMapper;
 import com.ctrip.platform.dal.dao.ResultMerger;
 import com.ctrip.platform.dal.dao.StatementParameters;
 import com.ctrip.platform.dal.dao.helper.DalListMerger;
+import com.ctrip.platform.dal.dao.helper.DalOrderedRangedResultMerger;
 import com.ctrip.platform.dal.dao.helper.DalRowCallbackExtractor;
 import com.ctrip.platform.dal.dao.helper.DalRowMapperExtractor;
 import com.ctrip.platform.dal.dao.helper.EntityManager;
@@ -54,10 +55,10 @@ public class MultipleSqlBuilder implements SqlBuilder {
 	 * This mapper instance maybe used in more than one thread. Make sure it is thread safe.
 	 * To be thread safe is easy, just not keep any changeable state inside the object.
 	 * The default JPA parser is thread safe.
+	 * If the result of each shard is already sorted by sorter, e.g. with ORDER BY, it will be merged without resorting.
 	 */
 	public <T> MultipleSqlBuilder addQuery(String sql, StatementParameters parameters, DalRowMapper<T> mapper, Comparator<T> sorter) {
-		ResultMerger<List<T>> defaultMerger = new DalListMerger<>(sorter);
-		return addQuery(sql, parameters, new DalRowMapperExtractor<T>(mapper), defaultMerger);
+		return addQuery(sql, parameters, new DalRowMapperExtractor<T>(mapper), createSortedMerger(sorter));
 	}
 	
 	/**
@@ -96,7 +97,11 @@ public class MultipleSqlBuilder implements SqlBuilder {
 	 * @throws SQLException
 	 */
 	public <T> MultipleSqlBuilder addQuery(String sql, StatementParameters parameters, Class<T> clazz, Comparator<T> sorter) throws SQLException {
-		return addQuery(sql, parameters, clazz, new DalListMerger<T>(sorter));
+		return addQuery(sql, parameters, clazz, createSortedMerger(sorter));
+	}
+
+	private <T> ResultMerger<List<T>> createSortedMerger(Comparator<T> sorter) {
+		return sorter == null ? new DalListMerger<T>() : new DalOrderedRangedResultMerger<T>(sorter);
 	}
 	
 	/**
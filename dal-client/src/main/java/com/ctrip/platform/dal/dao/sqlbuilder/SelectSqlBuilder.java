@@ -142,6 +142,14 @@ public class SelectSqlBuilder extends AbstractSqlBuilder implements TableSelectB
 		return queryBuilder.getResultMerger(hints);
 	}
 
+	/**
+	 * @see BaseTableSelectBuilder#mergeRange(boolean, DalHints)
+	 */
+	public SelectSqlBuilder mergeRange(boolean crossShard, DalHints hints) {
+		queryBuilder.mergeRange(crossShard, hints);
+		return this;
+	}
+
 	@Override
 	public <T> SelectSqlBuilder mapWith(DalRowMapper<T> mapper) {
 		queryBuilder.mapWith(mapper);
@@ -0,0 +1,29 @@
+package com.ctrip.platform.dal.dao.status;
+
+import com.ctrip.platform.dal.dao.client.LoggerAdapter;
+
+public class AsyncLoggingStatus extends BaseStatus implements AsyncLoggingStatusMBean {
+	public int getCapacity() {
+		return LoggerAdapter.getAsyncLoggingCapacity();
+	}
+
+	public int getSize() {
+		return LoggerAdapter.getAsyncLoggingSize();
+	}
+
+	public long getLagMillis() {
+		return LoggerAdapter.getAsyncLoggingLagMillis();
+	}
+
+	public long getPublishedCount() {
+		return LoggerAdapter.getAsyncLoggingPublishedCount();
+	}
+
+	public long getDroppedCount() {
+		return LoggerAdapter.getAsyncLoggingDroppedCount();
+	}
+
+	public long getSampledCount() {
+		return LoggerAdapter.getAsyncLoggingSampledCount();
+	}
+}
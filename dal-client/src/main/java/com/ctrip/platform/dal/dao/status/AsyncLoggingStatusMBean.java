@@ -0,0 +1,17 @@
+package com.ctrip.platform.dal.dao.status;
+
+public interface AsyncLoggingStatusMBean {
+
+	int getCapacity();
+
+	int getSize();
+
+	long getLagMillis();
+
+	long getPublishedCount();
+
+	long getDroppedCount();
+
+	long getSampledCount();
+
+}
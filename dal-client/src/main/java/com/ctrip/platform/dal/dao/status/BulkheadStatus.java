@@ -0,0 +1,61 @@
+package com.ctrip.platform.dal.dao.status;
+
+import com.ctrip.platform.dal.dao.task.DalBulkheadExecutor;
+import com.ctrip.platform.dal.dao.task.DalRequestExecutor;
+
+/**
+ * Statistics of the logic DB's bulkhead. All values are 0 if there is no bulkhead
+ * configured or no cross shard request executed yet.
+ */
+public class BulkheadStatus extends BaseStatus implements BulkheadStatusMBean {
+	private volatile String name;
+
+	public BulkheadStatus(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxThreads() {
+		DalBulkheadExecutor bulkhead = DalRequestExecutor.getBulkhead(name);
+		return bulkhead == null ? 0 : bulkhead.getMaxThreads();
+	}
+
+	public int getActiveCount() {
+		DalBulkheadExecutor bulkhead = DalRequestExecutor.getBulkhead(name);
+		return bulkhead == null ? 0 : bulkhead.getActiveCount();
+	}
+
+	public int getQueueSize() {
+		DalBulkheadExecutor bulkhead = DalRequestExecutor.getBulkhead(name);
+		return bulkhead == null ? 0 : bulkhead.getQueueSize();
+	}
+
+	public long getCompletedCount() {
+		DalBulkheadExecutor bulkhead = DalRequestExecutor.getBulkhead(name);
+		return bulkhead == null ? 0 : bulkhead.getCompletedCount();
+	}
+
+	public long getRejectedCount() {
+		DalBulkheadExecutor bulkhead = DalRequestExecutor.getBulkhead(name);
+		return bulkhead == null ? 0 : bulkhead.getRejectedCount();
+	}
+
+	/**
+	 * @return in milliseconds
+	 */
+	public long getAverageWaitTime() {
+		DalBulkheadExecutor bulkhead = DalRequestExecutor.getBulkhead(name);
+		return bulkhead == null ? 0 : bulkhead.getAverageWaitTime();
+	}
+
+	/**
+	 * @return in milliseconds
+	 */
+	public long getMaxWaitTime() {
+		DalBulkheadExecutor bulkhead = DalRequestExecutor.getBulkhead(name);
+		return bulkhead == null ? 0 : bulkhead.getMaxWaitTime();
+	}
+}
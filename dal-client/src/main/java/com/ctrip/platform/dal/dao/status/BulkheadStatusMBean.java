@@ -0,0 +1,21 @@
+package com.ctrip.platform.dal.dao.status;
+
+public interface BulkheadStatusMBean {
+
+	String getName();
+
+	int getMaxThreads();
+
+	int getActiveCount();
+
+	int getQueueSize();
+
+	long getCompletedCount();
+
+	long getRejectedCount();
+
+	long getAverageWaitTime();
+
+	long getMaxWaitTime();
+
+}
@@ -15,6 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.platform.dal.dao.Version;
 import com.ctrip.platform.dal.dao.configure.DalConfigure;
+import com.ctrip.platform.dal.dao.helper.DalEntityCache;
 import com.ctrip.platform.dal.dao.markdown.MarkdownManager;
 
 /**
@@ -29,13 +30,22 @@ public class DalStatusManager {
 	private static final String TYPE = "type";
 	private static final String LOGIC_DB_CONFIG_DOMAIN_PREFIX = "com.ctrip.dal.client.DatabaseSet";
 	private static final String DATASOURCE_CONFIG_DOMAIN_PREFIX = "com.ctrip.dal.client.DataSource";
+	private static final String BULKHEAD_CONFIG_DOMAIN_PREFIX = "com.ctrip.dal.client.Bulkhead";
+	private static final String ENTITY_CACHE_CONFIG_DOMAIN_PREFIX = "com.ctrip.dal.client.EntityCache";
 	
 	private static AtomicBoolean initialized = new AtomicBoolean(false);
 	private static AtomicReference<TimeoutMarkdown> timeoutMarkDownRef = new AtomicReference<>();
 	private static AtomicReference<HAStatus> haStatusRef = new AtomicReference<>();
 	private static AtomicReference<MarkdownStatus> markdownStatusRef = new AtomicReference<>();
+	private static AtomicReference<ExecutorStatus> executorStatusRef = new AtomicReference<>();
+	private static AtomicReference<StatementCacheStatus> statementCacheStatusRef = new AtomicReference<>();
+	private static AtomicReference<AsyncLoggingStatus> asyncLoggingStatusRef = new AtomicReference<>();
+	private static AtomicReference<LatencyStatus> latencyStatusRef = new AtomicReference<>();
+	private static AtomicReference<HedgeStatus> hedgeStatusRef = new AtomicReference<>();
 	private static Map<String, DatabaseSetStatus> logicDbs = new ConcurrentHashMap<>();
 	private static Map<String, DataSourceStatus> dataSources = new ConcurrentHashMap<>();
+	private static Map<String, BulkheadStatus> bulkheads = new ConcurrentHashMap<>();
+	private static Map<String, EntityCacheStatus> entityCaches = new ConcurrentHashMap<>();
 	
 	public static void initialize(DalConfigure config) throws Exception {
 		if(initialized.get() == true)
@@ -49,6 +59,8 @@ public class DalStatusManager {
 			registerGlobal();
 			registerDatabaseSets(config.getDatabaseSetNames());
 			registerDataSources(config.getDataSourceNames());
+			for(String name: DalEntityCache.getCacheNames())
+				registerEntityCache(name, new EntityCacheStatus(name));
 			MarkdownManager.init();
 			
 			initialized.set(true);;
@@ -80,6 +92,21 @@ public class DalStatusManager {
 		
 		markdownStatusRef.set(new MarkdownStatus());
 		registerMBean(markdownStatusRef.get(), getGlobalName(MarkdownStatus.class));
+		
+		executorStatusRef.set(new ExecutorStatus());
+		registerMBean(executorStatusRef.get(), getGlobalName(ExecutorStatus.class));
+		
+		statementCacheStatusRef.set(new StatementCacheStatus());
+		registerMBean(statementCacheStatusRef.get(), getGlobalName(StatementCacheStatus.class));
+		
+		asyncLoggingStatusRef.set(new AsyncLoggingStatus());
+		registerMBean(asyncLoggingStatusRef.get(), getGlobalName(AsyncLoggingStatus.class));
+		
+		latencyStatusRef.set(new LatencyStatus());
+		registerMBean(latencyStatusRef.get(), getGlobalName(LatencyStatus.class));
+		
+		hedgeStatusRef.set(new HedgeStatus());
+		registerMBean(hedgeStatusRef.get(), getGlobalName(HedgeStatus.class));
 	}
 
 	private static void registerDatabaseSets(Set<String> logicDbNames) throws Exception {
@@ -87,6 +114,10 @@ public class DalStatusManager {
 			DatabaseSetStatus status = new DatabaseSetStatus(name);
 			registerMBean(status, new ObjectName(LOGIC_DB_CONFIG_DOMAIN_PREFIX, TYPE, name));
 			logicDbs.put(name, status);
+			
+			BulkheadStatus bulkhead = new BulkheadStatus(name);
+			registerMBean(bulkhead, new ObjectName(BULKHEAD_CONFIG_DOMAIN_PREFIX, TYPE, name));
+			bulkheads.put(name, bulkhead);
 		}
 	}
 
@@ -98,6 +129,31 @@ public class DalStatusManager {
 		}
 	}
 	
+	/**
+	 * Register status of the entity cache if status manager is initialized. Otherwise it is
+	 * registered when status manager is initialized.
+	 */
+	public static void registerEntityCache(String name) {
+		if(initialized.get() == false)
+			return;
+
+		synchronized (DalStatusManager.class) {
+			if(initialized.get() == false || entityCaches.containsKey(name))
+				return;
+
+			try {
+				registerEntityCache(name, new EntityCacheStatus(name));
+			} catch (Exception e) {
+				logger.warn("Can not register status of entity cache " + name, e);
+			}
+		}
+	}
+
+	private static void registerEntityCache(String name, EntityCacheStatus status) throws Exception {
+		registerMBean(status, new ObjectName(ENTITY_CACHE_CONFIG_DOMAIN_PREFIX, TYPE, name));
+		entityCaches.put(name, status);
+	}
+
 	public static void shutdown() throws Exception {
 		if(initialized.get() == false)
 			return;
@@ -110,6 +166,11 @@ public class DalStatusManager {
 			mbs.unregisterMBean(getGlobalName(HAStatus.class));
 			mbs.unregisterMBean(getGlobalName(TimeoutMarkdown.class));
 			mbs.unregisterMBean(getGlobalName(MarkdownStatus.class));
+			mbs.unregisterMBean(getGlobalName(ExecutorStatus.class));
+			mbs.unregisterMBean(getGlobalName(StatementCacheStatus.class));
+			mbs.unregisterMBean(getGlobalName(AsyncLoggingStatus.class));
+			mbs.unregisterMBean(getGlobalName(LatencyStatus.class));
+			mbs.unregisterMBean(getGlobalName(HedgeStatus.class));
 			
 			for(String name: dataSources.keySet())
 				mbs.unregisterMBean(new ObjectName(DATASOURCE_CONFIG_DOMAIN_PREFIX, TYPE, name));
@@ -119,6 +180,14 @@ public class DalStatusManager {
 				mbs.unregisterMBean(new ObjectName(LOGIC_DB_CONFIG_DOMAIN_PREFIX, TYPE, name));
 			logicDbs.clear();
 			
+			for(String name: bulkheads.keySet())
+				mbs.unregisterMBean(new ObjectName(BULKHEAD_CONFIG_DOMAIN_PREFIX, TYPE, name));
+			bulkheads.clear();
+			
+			for(String name: entityCaches.keySet())
+				mbs.unregisterMBean(new ObjectName(ENTITY_CACHE_CONFIG_DOMAIN_PREFIX, TYPE, name));
+			entityCaches.clear();
+			
 			initialized.set(false);
 		}
 	}
@@ -143,6 +212,34 @@ public class DalStatusManager {
 		return logicDbs.get(dbName);
 	}
 	
+	public static ExecutorStatus getExecutorStatus() {
+		return executorStatusRef.get();
+	}
+	
+	public static StatementCacheStatus getStatementCacheStatus() {
+		return statementCacheStatusRef.get();
+	}
+	
+	public static AsyncLoggingStatus getAsyncLoggingStatus() {
+		return asyncLoggingStatusRef.get();
+	}
+	
+	public static LatencyStatus getLatencyStatus() {
+		return latencyStatusRef.get();
+	}
+	
+	public static HedgeStatus getHedgeStatus() {
+		return hedgeStatusRef.get();
+	}
+	
+	public static BulkheadStatus getBulkheadStatus(String dbName) {
+		return bulkheads.get(dbName);
+	}
+	
+	public static EntityCacheStatus getEntityCacheStatus(String name) {
+		return entityCaches.get(name);
+	}
+	
 	public static DataSourceStatus getDataSourceStatus(String dbName) {
 		return dataSources.get(dbName);
 	}
@@ -5,6 +5,10 @@ import java.util.Date;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ctrip.platform.dal.dao.configure.ReplicationLagMonitor;
+import com.ctrip.platform.dal.dao.datasource.DataSourceTerminator;
+import com.ctrip.platform.dal.dao.helper.ConnectionStringKeyHelper;
+
 public class DataSourceStatus extends BaseStatus implements DataSourceStatusMBean {
 	private static Logger logger = LoggerFactory.getLogger(DataSourceStatus.class);
 	
@@ -53,4 +57,18 @@ public class DataSourceStatus extends BaseStatus implements DataSourceStatusMBea
 	public Date getAutoMarkdownTime() {
 		return autoMarkdownTime;
 	}
+
+	/**
+	 * Connections still in use of the replaced data source of this name
+	 */
+	public int getDrainingConnections() {
+		return DataSourceTerminator.getDrainingConnections(ConnectionStringKeyHelper.getKeyName(name));
+	}
+
+	/**
+	 * Replication lag in milliseconds of last probe, -1 if it is unknown
+	 */
+	public long getReplicationLag() {
+		return ReplicationLagMonitor.getLag(name);
+	}
 }
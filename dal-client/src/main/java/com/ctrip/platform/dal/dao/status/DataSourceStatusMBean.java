@@ -16,4 +16,8 @@ public interface DataSourceStatusMBean {
 
 	Date getAutoMarkdownTime();
 
+	int getDrainingConnections();
+
+	long getReplicationLag();
+
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.ctrip.platform.dal.dao.status;
+
+import com.ctrip.platform.dal.dao.helper.DalEntityCache;
+
+/**
+ * Statistics of the entity cache with the given name. All values are 0 if the cache
+ * does not exist.
+ */
+public class EntityCacheStatus extends BaseStatus implements EntityCacheStatusMBean {
+	private volatile String name;
+
+	public EntityCacheStatus(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getSize() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		return cache == null ? 0 : cache.getSize();
+	}
+
+	public long getBytes() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		return cache == null ? 0 : cache.getBytes();
+	}
+
+	public long getHitCount() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		return cache == null ? 0 : cache.getHitCount();
+	}
+
+	public long getMissCount() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		return cache == null ? 0 : cache.getMissCount();
+	}
+
+	public double getHitRatio() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		if(cache == null)
+			return 0;
+
+		long hits = cache.getHitCount();
+		long total = hits + cache.getMissCount();
+		return total == 0 ? 0 : hits * 100.0 / total;
+	}
+
+	public long getEvictionCount() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		return cache == null ? 0 : cache.getEvictionCount();
+	}
+
+	public long getInvalidationCount() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		return cache == null ? 0 : cache.getInvalidationCount();
+	}
+
+	public void clear() {
+		DalEntityCache<?> cache = DalEntityCache.getCache(name);
+		if(cache != null)
+			cache.clear();
+	}
+}
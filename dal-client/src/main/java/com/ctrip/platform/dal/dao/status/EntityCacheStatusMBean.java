@@ -0,0 +1,24 @@
+package com.ctrip.platform.dal.dao.status;
+
+public interface EntityCacheStatusMBean {
+
+	int getSize();
+
+	long getBytes();
+
+	long getHitCount();
+
+	long getMissCount();
+
+	/**
+	 * @return percentage of hits in all reads
+	 */
+	double getHitRatio();
+
+	long getEvictionCount();
+
+	long getInvalidationCount();
+
+	void clear();
+
+}
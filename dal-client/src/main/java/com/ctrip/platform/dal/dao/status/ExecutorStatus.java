@@ -0,0 +1,25 @@
+package com.ctrip.platform.dal.dao.status;
+
+import com.ctrip.platform.dal.dao.task.DalRequestExecutor;
+
+public class ExecutorStatus extends BaseStatus implements ExecutorStatusMBean {
+	public int getPoolSize() {
+		return DalRequestExecutor.getPoolSize();
+	}
+
+	public int getActiveCount() {
+		return DalRequestExecutor.getActiveCount();
+	}
+
+	public int getQueueSize() {
+		return DalRequestExecutor.getQueueSize();
+	}
+
+	public long getCompletedTaskCount() {
+		return DalRequestExecutor.getCompletedTaskCount();
+	}
+
+	public long getRejectedCount() {
+		return DalRequestExecutor.getRejectedCount();
+	}
+}
@@ -0,0 +1,15 @@
+package com.ctrip.platform.dal.dao.status;
+
+public interface ExecutorStatusMBean {
+
+	int getPoolSize();
+
+	int getActiveCount();
+
+	int getQueueSize();
+
+	long getCompletedTaskCount();
+
+	long getRejectedCount();
+
+}
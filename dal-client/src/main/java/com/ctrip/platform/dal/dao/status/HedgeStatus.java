@@ -0,0 +1,48 @@
+package com.ctrip.platform.dal.dao.status;
+
+import com.ctrip.platform.dal.dao.client.HedgedRead;
+
+/**
+ * Counters of hedged reads. Hedgeable reads are those sent to a slave while there are other
+ * slaves, fired are hedges sent to another slave, won are hedges that return first, throttled
+ * are hedges not sent because the budget is used up.
+ */
+public class HedgeStatus extends BaseStatus implements HedgeStatusMBean {
+	public int getBudget() {
+		return HedgedRead.getBudget();
+	}
+
+	public void setBudget(int budget) {
+		HedgedRead.setBudget(budget);
+		changed();
+	}
+
+	public int getDelay() {
+		return HedgedRead.getDelay();
+	}
+
+	public void setDelay(int delay) {
+		HedgedRead.setDelay(delay);
+		changed();
+	}
+
+	public long getHedgeableCount() {
+		return HedgedRead.getHedgeableCount();
+	}
+
+	public long getFiredCount() {
+		return HedgedRead.getFiredCount();
+	}
+
+	public long getWonCount() {
+		return HedgedRead.getWonCount();
+	}
+
+	public long getThrottledCount() {
+		return HedgedRead.getThrottledCount();
+	}
+
+	public void reset() {
+		HedgedRead.reset();
+	}
+}
@@ -0,0 +1,23 @@
+package com.ctrip.platform.dal.dao.status;
+
+public interface HedgeStatusMBean {
+
+	int getBudget();
+
+	void setBudget(int budget);
+
+	int getDelay();
+
+	void setDelay(int delay);
+
+	long getHedgeableCount();
+
+	long getFiredCount();
+
+	long getWonCount();
+
+	long getThrottledCount();
+
+	void reset();
+
+}
@@ -0,0 +1,34 @@
+package com.ctrip.platform.dal.dao.status;
+
+import com.ctrip.platform.dal.dao.client.DalLatencyMetrics;
+
+/**
+ * Latency of each phase by logic DB, data source, shard, event and SQL fingerprint.
+ * Values of latencies are in microseconds.
+ */
+public class LatencyStatus extends BaseStatus implements LatencyStatusMBean {
+	public int getKeyCount() {
+		return DalLatencyMetrics.getKeyCount();
+	}
+
+	public int getMaxKeys() {
+		return DalLatencyMetrics.getMaxKeys();
+	}
+
+	public void setMaxKeys(int maxKeys) {
+		DalLatencyMetrics.setMaxKeys(maxKeys);
+		changed();
+	}
+
+	public long getOverflowCount() {
+		return DalLatencyMetrics.getOverflowCount();
+	}
+
+	public String[] getLatencies() {
+		return DalLatencyMetrics.getLatencies();
+	}
+
+	public void reset() {
+		DalLatencyMetrics.reset();
+	}
+}
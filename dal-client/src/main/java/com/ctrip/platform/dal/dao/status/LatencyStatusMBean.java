@@ -0,0 +1,17 @@
+package com.ctrip.platform.dal.dao.status;
+
+public interface LatencyStatusMBean {
+
+	int getKeyCount();
+
+	int getMaxKeys();
+
+	void setMaxKeys(int maxKeys);
+
+	long getOverflowCount();
+
+	String[] getLatencies();
+
+	void reset();
+
+}
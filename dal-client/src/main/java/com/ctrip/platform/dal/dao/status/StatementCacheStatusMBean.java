@@ -0,0 +1,13 @@
+package com.ctrip.platform.dal.dao.status;
+
+public interface StatementCacheStatusMBean {
+
+	int getCacheSize();
+
+	long getHitCount();
+
+	long getMissCount();
+
+	long getEvictionCount();
+
+}
@@ -0,0 +1,302 @@
+package com.ctrip.platform.dal.dao.strategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ctrip.platform.dal.common.enums.ParameterDirection;
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.StatementParameter;
+import com.ctrip.platform.dal.dao.StatementParameters;
+import com.ctrip.platform.dal.dao.configure.DalConfigure;
+
+/**
+ * Base of strategies that locate DB and table shard by the integer value of shard columns.
+ * The value is looked up in the same sequence as ShardColModShardStrategy:
+ * Shard id
+ * Shard value
+ * Shard column values
+ * Parameters
+ * Entity fields
+ *
+ * Sub class creates a Router for DB and table at initialize. Router maps value to ordinal of
+ * shard id with immutable primitive arrays, so locating shard does not allocate.
+ */
+public abstract class AbstractColumnShardStrategy extends AbstractRWSeparationStrategy implements DalBulkShardingStrategy {
+	/**
+	 * Key used to declared columns for locating DB shard.
+	 */
+	public static final String COLUMNS = "columns";
+
+	/**
+	 * Key used to declared tables that qualified for table shard. That's not every table is sharded
+	 */
+	public static final String SHARDED_TABLES = "shardedTables";
+
+	/**
+	 * Key used to declared columns for locating table shard.
+	 */
+	public static final String TABLE_COLUMNS = "tableColumns";
+
+	private String[] columns;
+	private String[] tableColumns;
+	private Set<String> shardedTables = new HashSet<String>();
+	private String separator;
+
+	private Router dbRouter;
+	private Router tableRouter;
+
+	/**
+	 * Map value of shard column to shard.
+	 */
+	protected static abstract class Router {
+		private String[] shardIds;
+
+		/**
+		 * @param shardIds shard ids indexed by ordinal
+		 */
+		protected Router(List<String> shardIds) {
+			this.shardIds = new String[shardIds.size()];
+			for(int i = 0; i < this.shardIds.length; i++)
+				this.shardIds[i] = shardIds.get(i).intern();
+		}
+
+		/**
+		 * @return ordinal of shard id, or -1 if the value can not be routed
+		 */
+		public abstract int route(long value);
+	}
+
+	/**
+	 * Create router for DB shard.
+	 * @return null if not sharding by DB
+	 */
+	protected abstract Router createDbRouter(Map<String, String> settings);
+
+	/**
+	 * Create router for table shard.
+	 * @return null if not sharding by table
+	 */
+	protected abstract Router createTableRouter(Map<String, String> settings);
+
+	/**
+	 * columns are separated by ','
+	 */
+	@Override
+	public void initialize(Map<String, String> settings) {
+		if(settings.containsKey(COLUMNS))
+			columns = settings.get(COLUMNS).split(",");
+
+		if(settings.containsKey(TABLE_COLUMNS))
+			tableColumns = settings.get(TABLE_COLUMNS).split(",");
+
+		if(settings.containsKey(SHARDED_TABLES)) {
+			String[] tables = settings.get(SHARDED_TABLES).split(",");
+			for(String table: tables)
+				shardedTables.add(table);
+		}
+
+		if(settings.containsKey(SEPARATOR))
+			separator = settings.get(SEPARATOR);
+
+		dbRouter = createDbRouter(settings);
+		tableRouter = createTableRouter(settings);
+	}
+
+	@Override
+	public boolean isShardingByDb() {
+		return columns != null && dbRouter != null;
+	}
+
+	@Override
+	public boolean isShardingByTable() {
+		return tableColumns != null && tableRouter != null;
+	}
+
+	@Override
+	public boolean isShardingEnable(String tableName) {
+		return shardedTables.contains(tableName);
+	}
+
+	@Override
+	public String getTableShardSeparator() {
+		return separator;
+	}
+
+	@Override
+	public String locateDbShard(DalConfigure configure, String logicDbName, DalHints hints) {
+		if(!isShardingByDb())
+			throw new RuntimeException(String.format("Logic Db %s is not configured to be shard by database", logicDbName));
+
+		String shard = hints.getShardId();
+		if(shard != null)
+			return shard;
+
+		return locate(hints, DalHintEnum.shardValue, columns, dbRouter);
+	}
+
+	@Override
+	public String locateTableShard(DalConfigure configure, String logicDbName, DalHints hints) {
+		if(!isShardingByTable())
+			throw new RuntimeException(String.format("Logic Db %s is not configured to be shard by table", logicDbName));
+
+		String shard = hints.getTableShardId();
+		if(shard != null)
+			return shard;
+
+		return locate(hints, DalHintEnum.tableShardValue, tableColumns, tableRouter);
+	}
+
+	private String locate(DalHints hints, DalHintEnum shardValue, String[] columns, Router router) {
+		// Shard value take the highest priority
+		if(hints.is(shardValue))
+			return toShardId(router, hints.get(shardValue));
+
+		Object value = findValue((Map<?, ?>)hints.get(DalHintEnum.shardColValues), columns);
+		if(value != null)
+			return toShardId(router, value);
+
+		StatementParameters parameters = (StatementParameters)hints.get(DalHintEnum.parameters);
+		if(parameters != null) {
+			for(String column: columns) {
+				StatementParameter param = parameters.get(column, ParameterDirection.Input);
+				if(param != null && param.getValue() != null)
+					return toShardId(router, param.getValue());
+			}
+		}
+
+		value = findValue((Map<?, ?>)hints.get(DalHintEnum.fields), columns);
+		if(value != null)
+			return toShardId(router, value);
+
+		return null;
+	}
+
+	/**
+	 * @return value of the first column that is not null
+	 */
+	protected static Object findValue(Map<?, ?> values, String[] columns) {
+		if(values == null)
+			return null;
+
+		for(String column: columns) {
+			Object value = values.get(column);
+			if(value != null)
+				return value;
+		}
+		return null;
+	}
+
+	private String toShardId(Router router, Object value) {
+		int shard = router.route(toLong(value));
+		return shard < 0 ? null : router.shardIds[shard];
+	}
+
+	protected static long toLong(Object value) {
+		if(value instanceof Number)
+			return ((Number)value).longValue();
+
+		if(value instanceof String)
+			return Long.parseLong((String)value);
+
+		throw new RuntimeException(String.format("Shard value: %s can not be recoganized as int value", value));
+	}
+
+	@Override
+	public String[] getDbShardIds() {
+		return dbRouter == null ? null : dbRouter.shardIds;
+	}
+
+	@Override
+	public int[] locateDbShards(DalConfigure configure, String logicDbName, Collection<Map<String, ?>> pojos) {
+		if(!isShardingByDb())
+			throw new RuntimeException(String.format("Logic Db %s is not configured to be shard by database", logicDbName));
+
+		return locateByEntityFields(pojos, columns, dbRouter);
+	}
+
+	@Override
+	public int[] locateDbShardsByValue(DalConfigure configure, String logicDbName, List<?> values) {
+		if(!isShardingByDb())
+			throw new RuntimeException(String.format("Logic Db %s is not configured to be shard by database", logicDbName));
+
+		int[] shards = new int[values.size()];
+		for(int i = 0; i < shards.length; i++) {
+			Object value = values.get(i);
+			if(value == null)
+				return null;
+
+			shards[i] = dbRouter.route(toLong(value));
+			if(shards[i] < 0)
+				return null;
+		}
+		return shards;
+	}
+
+	@Override
+	public String[] getDbShardColumns() {
+		return columns;
+	}
+
+	@Override
+	public String[] getTableShardColumns() {
+		return tableColumns;
+	}
+
+	@Override
+	public String[] getTableShardIds() {
+		return tableRouter == null ? null : tableRouter.shardIds;
+	}
+
+	@Override
+	public int[] locateTableShards(DalConfigure configure, String logicDbName, Collection<Map<String, ?>> pojos) {
+		if(!isShardingByTable())
+			throw new RuntimeException(String.format("Logic Db %s is not configured to be shard by table", logicDbName));
+
+		return locateByEntityFields(pojos, tableColumns, tableRouter);
+	}
+
+	private int[] locateByEntityFields(Collection<Map<String, ?>> pojos, String[] columns, Router router) {
+		int[] shards = new int[pojos.size()];
+		int i = 0;
+		for(Map<String, ?> fields: pojos) {
+			Object value = findValue(fields, columns);
+			int shard = value == null ? -1 : router.route(toLong(value));
+			if(shard < 0)
+				return null;
+			shards[i++] = shard;
+		}
+		return shards;
+	}
+
+	/**
+	 * Parse entries like "key1:value1,key2:value2"
+	 * @return key and value of each entry
+	 */
+	protected static List<String[]> parseEntries(String setting, String name) {
+		List<String[]> entries = new ArrayList<String[]>();
+		for(String entry: setting.split(",")) {
+			String[] keyValue = entry.split(":");
+			if(keyValue.length != 2)
+				throw new IllegalArgumentException(String.format("Invalid entry %s in %s: %s", entry, name, setting));
+			entries.add(new String[]{keyValue[0].trim(), keyValue[1].trim()});
+		}
+		return entries;
+	}
+
+	/**
+	 * @return ordinal of shard id in shardIds, the shard id is added if not exists
+	 */
+	protected static int ordinalOf(List<String> shardIds, String shardId) {
+		int ordinal = shardIds.indexOf(shardId);
+		if(ordinal >= 0)
+			return ordinal;
+
+		shardIds.add(shardId);
+		return shardIds.size() - 1;
+	}
+}
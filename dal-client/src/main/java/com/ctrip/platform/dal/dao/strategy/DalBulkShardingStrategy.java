@@ -0,0 +1,56 @@
+package com.ctrip.platform.dal.dao.strategy;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.ctrip.platform.dal.dao.configure.DalConfigure;
+
+/**
+ * Optional extension of DalShardingStrategy that locates shards for many pojos or values
+ * in one call. It is used when shuffling bulk operations, so that the strategy can avoid
+ * creating hints and shard id string for each row.
+ *
+ * The located shards are returned as ordinals of the shard id array. If the shards can not
+ * be located in bulk, e.g. value of some row is missing, null is returned and shards are
+ * located row by row through DalShardingStrategy as before.
+ */
+public interface DalBulkShardingStrategy extends DalShardingStrategy {
+	/**
+	 * @return all the DB shard ids, indexed by ordinal
+	 */
+	String[] getDbShardIds();
+
+	/**
+	 * @return columns that DB shard is located by, in the order they are looked up
+	 */
+	String[] getDbShardColumns();
+
+	/**
+	 * Locate DB shard by entity fields of each pojo.
+	 * @return ordinal of DB shard id for each pojo in iteration order, or null if not located
+	 */
+	int[] locateDbShards(DalConfigure configure, String logicDbName, Collection<Map<String, ?>> pojos);
+
+	/**
+	 * Locate DB shard of each value as if it is set as shard value.
+	 * @return ordinal of DB shard id for each value, or null if not located
+	 */
+	int[] locateDbShardsByValue(DalConfigure configure, String logicDbName, List<?> values);
+
+	/**
+	 * @return all the table shard ids, indexed by ordinal
+	 */
+	String[] getTableShardIds();
+
+	/**
+	 * @return columns that table shard is located by, in the order they are looked up
+	 */
+	String[] getTableShardColumns();
+
+	/**
+	 * Locate table shard by entity fields of each pojo.
+	 * @return ordinal of table shard id for each pojo in iteration order, or null if not located
+	 */
+	int[] locateTableShards(DalConfigure configure, String logicDbName, Collection<Map<String, ?>> pojos);
+}
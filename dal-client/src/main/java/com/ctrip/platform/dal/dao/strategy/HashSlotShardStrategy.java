@@ -0,0 +1,105 @@
+package com.ctrip.platform.dal.dao.strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locate shard by hash slot of shard value. The value is hashed into a fixed number of slots,
+ * and each slot is mapped to a shard by the slot table. To re-shard, slots can be moved to
+ * another shard one at a time by changing the slot table, without changing the slot of any value.
+ *
+ * E.g. shardStrategy="class=com.ctrip.platform.dal.dao.strategy.HashSlotShardStrategy;columns=id;slotCount=1024;slots=0-511:0,512-1023:1"
+ * Every slot must be mapped to exactly one shard.
+ */
+public class HashSlotShardStrategy extends AbstractColumnShardStrategy {
+	public static final int DEFAULT_SLOT_COUNT = 1024;
+
+	/**
+	 * Key used to declared number of slots for DB shard, default is 1024.
+	 */
+	public static final String SLOT_COUNT = "slotCount";
+
+	/**
+	 * Key used to declared slot table for DB shard, in format of slot:shardId or firstSlot-lastSlot:shardId,...
+	 */
+	public static final String SLOTS = "slots";
+
+	/**
+	 * Key used to declared number of slots for table shard, default is 1024.
+	 */
+	public static final String TABLE_SLOT_COUNT = "tableSlotCount";
+
+	/**
+	 * Key used to declared slot table for table shard, in format of slot:shardId or firstSlot-lastSlot:shardId,...
+	 */
+	public static final String TABLE_SLOTS = "tableSlots";
+
+	@Override
+	protected Router createDbRouter(Map<String, String> settings) {
+		return settings.containsKey(SLOTS) ? SlotRouter.create(settings.get(SLOT_COUNT), settings.get(SLOTS), SLOTS) : null;
+	}
+
+	@Override
+	protected Router createTableRouter(Map<String, String> settings) {
+		return settings.containsKey(TABLE_SLOTS) ? SlotRouter.create(settings.get(TABLE_SLOT_COUNT), settings.get(TABLE_SLOTS), TABLE_SLOTS) : null;
+	}
+
+	/**
+	 * Spread consecutive values evenly across slots. This is the finalizer of MurmurHash3.
+	 */
+	public static int slotOf(long value, int slotCount) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return (int)((value & Long.MAX_VALUE) % slotCount);
+	}
+
+	private static class SlotRouter extends Router {
+		// Ordinal of shard for each slot
+		private int[] slots;
+
+		private SlotRouter(List<String> shardIds, int[] slots) {
+			super(shardIds);
+			this.slots = slots;
+		}
+
+		private static SlotRouter create(String slotCount, String setting, String name) {
+			int[] slots = new int[slotCount == null ? DEFAULT_SLOT_COUNT : Integer.parseInt(slotCount)];
+			if(slots.length <= 0)
+				throw new IllegalArgumentException("Slot count must be positive number.");
+
+			for(int i = 0; i < slots.length; i++)
+				slots[i] = -1;
+
+			List<String> shardIds = new ArrayList<String>();
+			for(String[] entry: parseEntries(setting, name)) {
+				int ordinal = ordinalOf(shardIds, entry[1]);
+				String[] range = entry[0].split("-");
+				int first = Integer.parseInt(range[0].trim());
+				int last = range.length == 1 ? first : Integer.parseInt(range[1].trim());
+				for(int slot = first; slot <= last; slot++) {
+					if(slot < 0 || slot >= slots.length)
+						throw new IllegalArgumentException(String.format("Slot %d is out of range in %s: %s", slot, name, setting));
+					if(slots[slot] != -1)
+						throw new IllegalArgumentException(String.format("Slot %d is mapped more than once in %s: %s", slot, name, setting));
+					slots[slot] = ordinal;
+				}
+			}
+
+			for(int i = 0; i < slots.length; i++) {
+				if(slots[i] == -1)
+					throw new IllegalArgumentException(String.format("Slot %d is not mapped in %s: %s", i, name, setting));
+			}
+
+			return new SlotRouter(shardIds, slots);
+		}
+
+		@Override
+		public int route(long value) {
+			return slots[slotOf(value, slots.length)];
+		}
+	}
+}
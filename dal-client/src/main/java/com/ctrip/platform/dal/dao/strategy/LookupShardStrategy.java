@@ -0,0 +1,126 @@
+package com.ctrip.platform.dal.dao.strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Locate shard by looking up shard value in a table, e.g. to isolate hot tenants in their own shard.
+ * Values not in the table are located by mod if declared, otherwise to the default shard if declared,
+ * otherwise they can not be located.
+ *
+ * E.g. shardStrategy="class=com.ctrip.platform.dal.dao.strategy.LookupShardStrategy;columns=tenantId;lookup=1001:2,1002:3;mod=2"
+ * locates tenant 1001 to shard 2, tenant 1002 to shard 3, and other tenants to shard 0 or 1 by tenantId%2.
+ */
+public class LookupShardStrategy extends AbstractColumnShardStrategy {
+	/**
+	 * Key used to declared lookup table for DB shard, in format of value:shardId,...
+	 */
+	public static final String LOOKUP = "lookup";
+
+	/**
+	 * Key used to declared mod for values not in DB shard lookup table.
+	 */
+	public static final String MOD = "mod";
+
+	/**
+	 * Key used to declared shard for values not in DB shard lookup table.
+	 */
+	public static final String DEFAULT_SHARD = "defaultShard";
+
+	/**
+	 * Key used to declared lookup table for table shard, in format of value:shardId,...
+	 */
+	public static final String TABLE_LOOKUP = "tableLookup";
+
+	/**
+	 * Key used to declared mod for values not in table shard lookup table.
+	 */
+	public static final String TABLE_MOD = "tableMod";
+
+	/**
+	 * Key used to declared shard for values not in table shard lookup table.
+	 */
+	public static final String TABLE_DEFAULT_SHARD = "tableDefaultShard";
+
+	@Override
+	protected Router createDbRouter(Map<String, String> settings) {
+		if(!settings.containsKey(LOOKUP))
+			return null;
+		return LookupRouter.create(settings.get(LOOKUP), settings.get(MOD), settings.get(DEFAULT_SHARD), LOOKUP);
+	}
+
+	@Override
+	protected Router createTableRouter(Map<String, String> settings) {
+		if(!settings.containsKey(TABLE_LOOKUP))
+			return null;
+		return LookupRouter.create(settings.get(TABLE_LOOKUP), settings.get(TABLE_MOD), settings.get(TABLE_DEFAULT_SHARD), TABLE_LOOKUP);
+	}
+
+	private static class LookupRouter extends Router {
+		// Sorted values in lookup table and ordinal of shard for each value
+		private long[] values;
+		private int[] shards;
+		// Ordinal of shard id i for value%mod == i, or null if mod is not declared
+		private int[] modShards;
+		private int defaultShard;
+
+		private LookupRouter(List<String> shardIds, long[] values, int[] shards, int[] modShards, int defaultShard) {
+			super(shardIds);
+			this.values = values;
+			this.shards = shards;
+			this.modShards = modShards;
+			this.defaultShard = defaultShard;
+		}
+
+		private static LookupRouter create(String setting, String mod, String defaultShard, String name) {
+			TreeMap<Long, String> lookup = new TreeMap<Long, String>();
+			for(String[] entry: parseEntries(setting, name)) {
+				if(lookup.put(Long.parseLong(entry[0]), entry[1]) != null)
+					throw new IllegalArgumentException(String.format("Duplicate value %s in %s: %s", entry[0], name, setting));
+			}
+
+			List<String> shardIds = new ArrayList<String>();
+			long[] values = new long[lookup.size()];
+			int[] shards = new int[lookup.size()];
+			int i = 0;
+			for(Map.Entry<Long, String> entry: lookup.entrySet()) {
+				values[i] = entry.getKey();
+				shards[i++] = ordinalOf(shardIds, entry.getValue());
+			}
+
+			int[] modShards = null;
+			if(mod != null) {
+				modShards = new int[Integer.parseInt(mod)];
+				for(i = 0; i < modShards.length; i++)
+					modShards[i] = ordinalOf(shardIds, String.valueOf(i));
+			}
+
+			int defaultOrdinal = defaultShard == null ? -1 : ordinalOf(shardIds, defaultShard);
+			return new LookupRouter(shardIds, values, shards, modShards, defaultOrdinal);
+		}
+
+		@Override
+		public int route(long value) {
+			int low = 0;
+			int high = values.length - 1;
+			while(low <= high) {
+				int mid = (low + high) >>> 1;
+				if(values[mid] < value)
+					low = mid + 1;
+				else if(values[mid] > value)
+					high = mid - 1;
+				else
+					return shards[mid];
+			}
+
+			if(modShards != null) {
+				int shard = (int)(value % modShards.length);
+				return shard < 0 ? -1 : modShards[shard];
+			}
+
+			return defaultShard;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.ctrip.platform.dal.dao.strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Locate shard by range of shard value. Each range is declared by its lower bound and shard id,
+ * and ends at the lower bound of the next range. Value less than the first lower bound can
+ * not be located.
+ *
+ * E.g. shardStrategy="class=com.ctrip.platform.dal.dao.strategy.RangeShardStrategy;columns=id;ranges=0:0,1000000:1,2000000:2"
+ * locates id in [0, 1000000) to shard 0, [1000000, 2000000) to shard 1 and the rest to shard 2.
+ */
+public class RangeShardStrategy extends AbstractColumnShardStrategy {
+	/**
+	 * Key used to declared ranges for locating DB shard, in format of lowerBound:shardId,...
+	 */
+	public static final String RANGES = "ranges";
+
+	/**
+	 * Key used to declared ranges for locating table shard, in format of lowerBound:shardId,...
+	 */
+	public static final String TABLE_RANGES = "tableRanges";
+
+	@Override
+	protected Router createDbRouter(Map<String, String> settings) {
+		return settings.containsKey(RANGES) ? RangeRouter.create(settings.get(RANGES), RANGES) : null;
+	}
+
+	@Override
+	protected Router createTableRouter(Map<String, String> settings) {
+		return settings.containsKey(TABLE_RANGES) ? RangeRouter.create(settings.get(TABLE_RANGES), TABLE_RANGES) : null;
+	}
+
+	private static class RangeRouter extends Router {
+		// Sorted lower bounds and ordinal of shard for each range
+		private long[] bounds;
+		private int[] shards;
+
+		private RangeRouter(List<String> shardIds, long[] bounds, int[] shards) {
+			super(shardIds);
+			this.bounds = bounds;
+			this.shards = shards;
+		}
+
+		private static RangeRouter create(String setting, String name) {
+			TreeMap<Long, String> ranges = new TreeMap<Long, String>();
+			for(String[] entry: parseEntries(setting, name)) {
+				if(ranges.put(Long.parseLong(entry[0]), entry[1]) != null)
+					throw new IllegalArgumentException(String.format("Duplicate lower bound %s in %s: %s", entry[0], name, setting));
+			}
+
+			List<String> shardIds = new ArrayList<String>();
+			long[] bounds = new long[ranges.size()];
+			int[] shards = new int[ranges.size()];
+			int i = 0;
+			for(Map.Entry<Long, String> range: ranges.entrySet()) {
+				bounds[i] = range.getKey();
+				shards[i++] = ordinalOf(shardIds, range.getValue());
+			}
+			return new RangeRouter(shardIds, bounds, shards);
+		}
+
+		@Override
+		public int route(long value) {
+			int low = 0;
+			int high = bounds.length - 1;
+			int found = -1;
+			while(low <= high) {
+				int mid = (low + high) >>> 1;
+				if(bounds[mid] <= value) {
+					found = mid;
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			return found < 0 ? -1 : shards[found];
+		}
+	}
+}
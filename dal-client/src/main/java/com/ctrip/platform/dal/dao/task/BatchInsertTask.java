@@ -47,12 +47,20 @@ public class BatchInsertTask<T> extends InsertTaskAdapter<T> implements BulkTask
 	}
 	
 	private String buildBatchInsertSql(DalHints hints, Set<String> unqualifiedColumns) throws SQLException {
+		String rawTableName = getRawTableName(hints);
+		SqlTemplateCache.Key key = SqlTemplateCache.key(rawTableName, unqualifiedColumns);
+		String sql = sqlCache.get(key);
+		if(sql != null)
+			return sql;
+		
 		List<String> finalInsertableColumns = buildValidColumnsForInsert(unqualifiedColumns);
 		
 		String values = combine(PLACE_HOLDER, finalInsertableColumns.size(), COLUMN_SEPARATOR);
 		String insertColumns = combineColumns(finalInsertableColumns, COLUMN_SEPARATOR);
 		
-		return String.format(TMPL_SQL_INSERT, getTableName(hints), insertColumns, values);
+		sql = String.format(TMPL_SQL_INSERT, quote(rawTableName), insertColumns, values);
+		sqlCache.put(key, sql);
+		return sql;
 	}
 	
 	@Override
@@ -59,7 +59,7 @@ public class BatchUpdateTask<T> extends AbstractIntArrayBulkTask<T> {
 			parametersList[i++] = parameters;
 		}
 		
-		String batchUpdateSql = buildBatchUpdateSql(getTableName(hints), pojoFieldStatus);
+		String batchUpdateSql = buildBatchUpdateSql(getRawTableName(hints), updateColumnNames, pojoFieldStatus);
 		
 		int[] result = client.batchUpdate(batchUpdateSql, parametersList, hints);
 		return result;
@@ -167,15 +167,24 @@ public class BatchUpdateTask<T> extends AbstractIntArrayBulkTask<T> {
 		return columnStatus;
 	}
 
-	private String buildBatchUpdateSql(String tableName, Map<String, Boolean> pojoFieldStatus) {
-		List<String> updateColumnTmpls = new ArrayList<>(pojoFieldStatus.size());
+	private String buildBatchUpdateSql(String rawTableName, String[] updateColumnNames, Map<String, Boolean> pojoFieldStatus) {
+		// Sql depends on the order of columns, which is the same as parameters
+		boolean[] nullable = new boolean[updateColumnNames.length];
+		for(int i = 0; i < updateColumnNames.length; i++)
+			nullable[i] = pojoFieldStatus.get(updateColumnNames[i]);
+		
+		SqlTemplateCache.Key key = SqlTemplateCache.key(rawTableName, updateColumnNames, nullable);
+		String sql = sqlCache.get(key);
+		if(sql != null)
+			return sql;
+		
+		List<String> updateColumnTmpls = new ArrayList<>(updateColumnNames.length);
 
-		for(Map.Entry<String, Boolean> fieldStatus: pojoFieldStatus.entrySet()) {
-			String columnName = fieldStatus.getKey();
-			String quotedColumnName = quote(columnName);
+		for(int i = 0; i < updateColumnNames.length; i++) {
+			String quotedColumnName = quote(updateColumnNames[i]);
 			
 			// If the field contains null value
-			if(fieldStatus.getValue())
+			if(nullable[i])
 				updateColumnTmpls.add(String.format(setValueTmpl, quotedColumnName, quotedColumnName));
 			else
 				updateColumnTmpls.add(String.format(TMPL_SET_VALUE, quotedColumnName));
@@ -185,7 +194,9 @@ public class BatchUpdateTask<T> extends AbstractIntArrayBulkTask<T> {
 			updateColumnTmpls.add(setVersionValueTmpl);
 		
 		String updateColumnsTmpl = StringUtils.join(updateColumnTmpls, COLUMN_SEPARATOR);
-		return String.format(TMPL_SQL_UPDATE, tableName, updateColumnsTmpl, updateCriteriaTmpl);
+		sql = String.format(TMPL_SQL_UPDATE, quote(rawTableName), updateColumnsTmpl, updateCriteriaTmpl);
+		sqlCache.put(key, sql);
+		return sql;
 	}
 	
 	private void addVersion(StatementParameters parameters, Map<String, ?> pojo) throws DalException {
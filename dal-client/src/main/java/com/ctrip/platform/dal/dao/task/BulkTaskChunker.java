@@ -0,0 +1,110 @@
+package com.ctrip.platform.dal.dao.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+
+/**
+ * Split pojos of bulk operation into chunks, so that each statement or batch sent to
+ * server is within the limit of parameter count and packet size of the database.
+ *
+ * The order of pojos is kept, each chunk is a consecutive part of the original pojos
+ * with the original index.
+ */
+public class BulkTaskChunker {
+	public static final int UNLIMITED = -1;
+
+	// Estimated protocol and sql text bytes for each parameter
+	private static final int PARAMETER_OVERHEAD = 4;
+
+	private int maxRows;
+	private int maxParameters;
+	private int maxBytes;
+
+	/**
+	 * @param maxRows max number of pojos in one chunk, or UNLIMITED
+	 * @param maxParameters max number of parameters in one chunk, or UNLIMITED
+	 * @param maxBytes max estimated bytes in one chunk, or UNLIMITED
+	 */
+	public BulkTaskChunker(int maxRows, int maxParameters, int maxBytes) {
+		this.maxRows = maxRows;
+		this.maxParameters = maxParameters;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Combined insert sends all pojos in one statement, so it is also limited by
+	 * max parameter count. Batch operation sends one statement for each pojo.
+	 */
+	public static BulkTaskChunker create(DatabaseCategory dbCategory, DalHints hints, BulkTask<?, ?> task) {
+		int maxRows = hints.getInt(DalHintEnum.bulkChunkSize, UNLIMITED);
+		int maxBytes = hints.getInt(DalHintEnum.bulkChunkBytes, dbCategory.getMaxPacketSize());
+		int maxParameters = task instanceof CombinedInsertTask ? dbCategory.getMaxParameterCount() : UNLIMITED;
+		return new BulkTaskChunker(maxRows, maxParameters, maxBytes);
+	}
+
+	/**
+	 * @return chunks of the pojos. If no split is needed, the only chunk is the given pojos itself
+	 */
+	public List<Map<Integer, Map<String, ?>>> split(Map<Integer, Map<String, ?>> pojos) {
+		List<Map<Integer, Map<String, ?>>> chunks = new ArrayList<>();
+		Map<Integer, Map<String, ?>> chunk = new LinkedHashMap<>();
+		long bytes = 0;
+		long parameters = 0;
+
+		for(Map.Entry<Integer, Map<String, ?>> entry: pojos.entrySet()) {
+			Map<String, ?> pojo = entry.getValue();
+			int pojoBytes = estimateBytes(pojo);
+
+			if(!chunk.isEmpty() && exceeds(chunk.size() + 1, parameters + pojo.size(), bytes + pojoBytes)) {
+				chunks.add(chunk);
+				chunk = new LinkedHashMap<>();
+				bytes = 0;
+				parameters = 0;
+			}
+
+			chunk.put(entry.getKey(), pojo);
+			bytes += pojoBytes;
+			parameters += pojo.size();
+		}
+
+		if(chunks.isEmpty())
+			return Collections.singletonList(pojos);
+
+		chunks.add(chunk);
+		return chunks;
+	}
+
+	private boolean exceeds(int rows, long parameters, long bytes) {
+		return (maxRows != UNLIMITED && rows > maxRows)
+				|| (maxParameters != UNLIMITED && parameters > maxParameters)
+				|| (maxBytes != UNLIMITED && bytes > maxBytes);
+	}
+
+	public static int estimateBytes(Map<String, ?> pojo) {
+		int bytes = 0;
+		for(Object value: pojo.values())
+			bytes += estimateBytes(value) + PARAMETER_OVERHEAD;
+		return bytes;
+	}
+
+	private static int estimateBytes(Object value) {
+		if(value == null)
+			return 1;
+
+		// Assume the worst case of UTF-8
+		if(value instanceof String)
+			return ((String)value).length() * 3;
+
+		if(value instanceof byte[])
+			return ((byte[])value).length;
+
+		return 8;
+	}
+}
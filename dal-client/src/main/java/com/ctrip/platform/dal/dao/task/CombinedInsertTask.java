@@ -28,14 +28,11 @@ public class CombinedInsertTask<T> extends InsertTaskAdapter<T> implements BulkT
 	@Override
 	public Integer execute(DalHints hints, Map<Integer, Map<String, ?>> daoPojos, BulkTaskContext<T> taskContext) throws SQLException {
 		StatementParameters parameters = new StatementParameters();
-		StringBuilder values = new StringBuilder();
 
 		Set<String> unqualifiedColumns = taskContext.getUnqualifiedColumns();
 		
 		List<String> finalInsertableColumns = buildValidColumnsForInsert(unqualifiedColumns);
 		
-		String insertColumns = combineColumns(finalInsertableColumns, COLUMN_SEPARATOR);
-		
 		int startIndex = 1;
 		for (Integer index :daoPojos.keySet()) {
 			Map<String, ?> pojo = daoPojos.get(index);
@@ -44,12 +41,9 @@ public class CombinedInsertTask<T> extends InsertTaskAdapter<T> implements BulkT
 			
 			int paramCount = addParameters(startIndex, parameters, pojo, finalInsertableColumns);
 			startIndex += paramCount;
-			values.append(String.format("(%s),", combine("?", paramCount, ",")));
 		}
 
-		String sql = String.format(TMPL_SQL_MULTIPLE_INSERT,
-				getTableName(hints), insertColumns,
-				values.substring(0, values.length() - 2) + ")");
+		String sql = buildCombinedInsertSql(hints, unqualifiedColumns, finalInsertableColumns, daoPojos.size());
 
 		KeyHolder keyHolder = hints.getKeyHolder();
 		KeyHolder tmpHolder = keyHolder != null && keyHolder.isRequireMerge() ? new KeyHolder() : keyHolder;
@@ -63,6 +57,22 @@ public class CombinedInsertTask<T> extends InsertTaskAdapter<T> implements BulkT
 		return count;
 	}
 
+	private String buildCombinedInsertSql(DalHints hints, Set<String> unqualifiedColumns, List<String> finalInsertableColumns, int rowCount) throws SQLException {
+		String rawTableName = getRawTableName(hints);
+		SqlTemplateCache.Key key = SqlTemplateCache.key(rawTableName, unqualifiedColumns, rowCount);
+		String sql = sqlCache.get(key);
+		if(sql != null)
+			return sql;
+		
+		String insertColumns = combineColumns(finalInsertableColumns, COLUMN_SEPARATOR);
+		String rowValues = "(" + combine("?", finalInsertableColumns.size(), ",") + ")";
+		String values = combine(rowValues, rowCount, ",");
+		
+		sql = String.format(TMPL_SQL_MULTIPLE_INSERT, quote(rawTableName), insertColumns, values);
+		sqlCache.put(key, sql);
+		return sql;
+	}
+
 	@Override
 	public BulkTaskResultMerger<Integer> createMerger() {
 		return new ShardedIntResultMerger();
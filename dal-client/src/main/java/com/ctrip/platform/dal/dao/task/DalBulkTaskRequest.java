@@ -1,5 +1,6 @@
 package com.ctrip.platform.dal.dao.task;
 
+import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.getDatabaseSet;
 import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.isAlreadySharded;
 import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.isShardingEnabled;
 import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.isTableShardingEnabled;
@@ -7,17 +8,20 @@ import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.shuffle;
 import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.shuffleByTable;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
+import com.ctrip.platform.dal.dao.DalHintEnum;
 import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.client.DalTransactionManager;
 import com.ctrip.platform.dal.dao.client.LogContext;
 import com.ctrip.platform.dal.exceptions.DalException;
 import com.ctrip.platform.dal.exceptions.ErrorCode;
 
-public class DalBulkTaskRequest<K, T> implements DalRequest<K>{
+public class DalBulkTaskRequest<K, T> implements DalRequest<K>, LogicDbRequest {
 	private String caller;
 	private String logicDbName;
 	private String rawTableName;
@@ -43,6 +47,11 @@ public class DalBulkTaskRequest<K, T> implements DalRequest<K>{
 		return caller;
 	}
 
+	@Override
+	public String getLogicDbName() {
+		return logicDbName;
+	}
+
 	@Override
 	public boolean isAsynExecution() {
 		return hints.isAsyncExecution();
@@ -153,7 +162,7 @@ public class DalBulkTaskRequest<K, T> implements DalRequest<K>{
 			if(isTableShardingEnabled(logicDbName, rawTableName)) {
 				return executeByTableShards();
 			}else{
-				return task.execute(hints, shaffled, taskContext);
+				return executeByChunks(hints, shaffled);
 			}
 		}
 
@@ -166,6 +175,10 @@ public class DalBulkTaskRequest<K, T> implements DalRequest<K>{
 				hints.getKeyHolder().requireMerge();
 			}
 
+			int maxConcurrency = hints.getInt(DalHintEnum.parallelTableShardExecution, 1);
+			if(pojosInTable.size() > 1 && maxConcurrency > 1 && !DalTransactionManager.isInTransaction())
+				return executeByTableShardsInParallel(merger, pojosInTable, maxConcurrency);
+
 			DalHints tmpHints;
 			for(String curTableShardId: pojosInTable.keySet()) {
 				Map<Integer, Map<String, ?>> pojosInShard = pojosInTable.get(curTableShardId);
@@ -174,11 +187,61 @@ public class DalBulkTaskRequest<K, T> implements DalRequest<K>{
 				tmpHints.inTableShard(curTableShardId);
 				merger.recordPartial(curTableShardId, pojosInShard.keySet().toArray(new Integer[pojosInShard.size()]));
 
-				K partial = task.execute(tmpHints, pojosInShard, taskContext);
+				K partial = executeByChunks(tmpHints, pojosInShard);
 				merger.addPartial(curTableShardId, partial);
 
 			}
 			return merger.merge();
 		}
+
+		/**
+		 * Each table shard is executed with its own connection. Partials are recorded and
+		 * added in the order of table shards, so the merged result is the same as sequential
+		 * execution.
+		 */
+		private K executeByTableShardsInParallel(BulkTaskResultMerger<K> merger, Map<String, Map<Integer, Map<String, ?>>> pojosInTable, int maxConcurrency) throws SQLException {
+			List<String> tableShards = new ArrayList<>(pojosInTable.keySet());
+			List<Callable<K>> tableShardTasks = new ArrayList<>(tableShards.size());
+
+			for(String curTableShardId: tableShards) {
+				final Map<Integer, Map<String, ?>> pojosInShard = pojosInTable.get(curTableShardId);
+				final DalHints tmpHints = hints.clone().inTableShard(curTableShardId);
+
+				merger.recordPartial(curTableShardId, pojosInShard.keySet().toArray(new Integer[pojosInShard.size()]));
+				tableShardTasks.add(new Callable<K>() {
+					@Override
+					public K call() throws Exception {
+						return executeByChunks(tmpHints, pojosInShard);
+					}
+				});
+			}
+
+			List<K> partials = DalParallelTaskExecutor.execute(DalRequestExecutor.getExecutor(logicDbName), tableShardTasks, maxConcurrency);
+			for(int i = 0; i < tableShards.size(); i++)
+				merger.addPartial(tableShards.get(i), partials.get(i));
+
+			return merger.merge();
+		}
+
+		/**
+		 * Pojos that exceed the parameter count or packet size limit of the database are
+		 * executed chunk by chunk. Chunks keep the original index, so that the merged result
+		 * and generated keys are in the same order as the pojos.
+		 */
+		private K executeByChunks(DalHints hints, Map<Integer, Map<String, ?>> pojos) throws SQLException {
+			BulkTaskChunker chunker = BulkTaskChunker.create(getDatabaseSet(logicDbName).getDatabaseCategory(), hints, task);
+			List<Map<Integer, Map<String, ?>>> chunks = chunker.split(pojos);
+			if(chunks.size() == 1)
+				return task.execute(hints, pojos, taskContext);
+
+			BulkTaskResultMerger<K> merger = task.createMerger();
+			for(int i = 0; i < chunks.size(); i++) {
+				Map<Integer, Map<String, ?>> chunk = chunks.get(i);
+				String chunkId = String.valueOf(i);
+				merger.recordPartial(chunkId, chunk.keySet().toArray(new Integer[chunk.size()]));
+				merger.addPartial(chunkId, task.execute(hints, chunk, taskContext));
+			}
+			return merger.merge();
+		}
 	}
 }
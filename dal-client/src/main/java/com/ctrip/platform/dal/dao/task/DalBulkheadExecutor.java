@@ -0,0 +1,211 @@
+package com.ctrip.platform.dal.dao.task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrip.platform.dal.dao.DalClientFactory;
+
+/**
+ * Limit the number of shared pool threads one logic DB can occupy. Tasks exceed the
+ * limit wait in bounded queue of this logic DB and are executed by the running
+ * workers one after another. So that a slow or misbehaving logic DB can only exhaust
+ * its own share of threads.
+ */
+public class DalBulkheadExecutor implements Executor {
+	private String logicDbName;
+	private Executor executor;
+	private int maxThreads;
+	private int maxQueueSize;
+	private boolean callerRuns;
+
+	private int running;
+	private Queue<Task> queue = new ArrayDeque<>();
+
+	private AtomicLong completed = new AtomicLong();
+	private AtomicLong rejected = new AtomicLong();
+	private AtomicLong totalWaitTime = new AtomicLong();
+	private AtomicLong maxWaitTime = new AtomicLong();
+
+	/**
+	 * @param executor the shared executor that actually runs the task
+	 * @param maxThreads max number of threads that can be used at the same time
+	 * @param maxQueueSize max number of tasks waiting for thread
+	 * @param callerRuns run the task in caller's thread instead of rejecting it when queue is full
+	 */
+	public DalBulkheadExecutor(String logicDbName, Executor executor, int maxThreads, int maxQueueSize, boolean callerRuns) {
+		if(maxThreads <= 0)
+			throw new IllegalArgumentException("Max threads must be positive number.");
+		if(maxQueueSize < 0)
+			throw new IllegalArgumentException("Max queue size can not be negative number.");
+
+		this.logicDbName = logicDbName;
+		this.executor = executor;
+		this.maxThreads = maxThreads;
+		this.maxQueueSize = maxQueueSize;
+		this.callerRuns = callerRuns;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		Task task = new Task(command);
+		boolean acquired = false;
+		synchronized (this) {
+			if(running < maxThreads) {
+				running++;
+				acquired = true;
+			} else if(queue.size() < maxQueueSize) {
+				queue.add(task);
+				return;
+			}
+		}
+
+		if(!acquired) {
+			reject(task);
+			return;
+		}
+
+		try {
+			executor.execute(new Worker(task));
+		} catch (RejectedExecutionException e) {
+			// Queued tasks are left to the running workers, or failed if there is none.
+			// They must not be executed in caller's thread.
+			List<Task> orphans = release();
+			for(Task orphan: orphans)
+				fail(orphan, e);
+			reject(task);
+		}
+	}
+
+	/**
+	 * Release the thread that is not started
+	 * @return waiting tasks if there is no running worker to execute them
+	 */
+	private synchronized List<Task> release() {
+		running--;
+		List<Task> orphans = new ArrayList<>();
+		if(running == 0) {
+			orphans.addAll(queue);
+			queue.clear();
+		}
+		return orphans;
+	}
+
+	private void fail(Task task, RejectedExecutionException e) {
+		rejected.incrementAndGet();
+		if(task.command instanceof Future)
+			((Future<?>)task.command).cancel(false);
+		DalClientFactory.getDalLogger().error("Waiting task of " + logicDbName + " is discarded because shared pool rejects it", e);
+	}
+
+	private void reject(Task task) {
+		rejected.incrementAndGet();
+		if(!callerRuns)
+			throw new RejectedExecutionException(String.format("Bulkhead of %s is full. Max threads: %d, max queue size: %d", logicDbName, maxThreads, maxQueueSize));
+
+		task.run();
+	}
+
+	/**
+	 * @return next waiting task, or null and release the thread if there is none
+	 */
+	private synchronized Task poll() {
+		Task task = queue.poll();
+		if(task == null)
+			running--;
+		return task;
+	}
+
+	public String getLogicDbName() {
+		return logicDbName;
+	}
+
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public synchronized int getActiveCount() {
+		return running;
+	}
+
+	public synchronized int getQueueSize() {
+		return queue.size();
+	}
+
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return average milliseconds a task waits in queue
+	 */
+	public long getAverageWaitTime() {
+		long count = completed.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitTime.get() / count);
+	}
+
+	/**
+	 * @return max milliseconds a task waits in queue
+	 */
+	public long getMaxWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
+	}
+
+	private class Task implements Runnable {
+		private Runnable command;
+		private long createTime = System.nanoTime();
+
+		Task(Runnable command) {
+			this.command = command;
+		}
+
+		@Override
+		public void run() {
+			long waitTime = System.nanoTime() - createTime;
+			totalWaitTime.addAndGet(waitTime);
+			long max;
+			while(waitTime > (max = maxWaitTime.get()) && !maxWaitTime.compareAndSet(max, waitTime));
+
+			try {
+				command.run();
+			} finally {
+				completed.incrementAndGet();
+			}
+		}
+	}
+
+	private class Worker implements Runnable {
+		private Task first;
+
+		Worker(Task first) {
+			this.first = first;
+		}
+
+		@Override
+		public void run() {
+			Task task = first;
+			while(task != null) {
+				try {
+					task.run();
+				} catch (Throwable e) {
+					DalClientFactory.getDalLogger().error("Error when executing task of " + logicDbName, e);
+				}
+				task = poll();
+			}
+		}
+	}
+}
@@ -0,0 +1,333 @@
+package com.ctrip.platform.dal.dao.task;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalResultIterator;
+import com.ctrip.platform.dal.exceptions.DalException;
+
+/**
+ * Merge streaming results of multiple shards into one iterator.
+ *
+ * Each shard has a read ahead queue of at most bufferSize rows. The queue is filled by short
+ * tasks in the executor. A fill task stops when the queue is full and returns its thread,
+ * and the next one is submitted when the consumer drains half of the queue. So no thread is
+ * parked on a full queue, and memory is bounded by shards * bufferSize however big the
+ * result is. If the executor is null or rejects, the queue is filled in caller's thread.
+ *
+ * Without comparator, rows are returned as soon as any shard has them, in round robin
+ * among the ready shards. With comparator, rows of each shard must already be sorted by
+ * it, e.g. by ORDER BY, and they are k-way merged.
+ */
+public class DalMergedResultIterator<T> implements DalResultIterator<T> {
+	public static final int DEFAULT_BUFFER_SIZE = 256;
+
+	private static final Object END = new Object();
+
+	private Executor executor;
+	private int bufferSize;
+	private List<ShardCursor> cursors = new ArrayList<>();
+	private Comparator<? super T> comparator;
+
+	// Shards not exhausted yet for unordered merge
+	private List<ShardCursor> active;
+	private int nextCursor;
+
+	// Current row of each shard for ordered merge
+	private PriorityQueue<Head> heads;
+	private ShardCursor last;
+
+	private T current;
+	private boolean fetched;
+	private boolean closed;
+
+	/**
+	 * @param executor executor to read ahead shards
+	 * @param tasks task for each shard that opens its streaming result
+	 * @param comparator null for unordered merge
+	 * @param bufferSize max rows read ahead for each shard
+	 */
+	public DalMergedResultIterator(Executor executor, Map<String, Callable<DalResultIterator<T>>> tasks, Comparator<? super T> comparator, int bufferSize) {
+		if(bufferSize <= 0)
+			throw new IllegalArgumentException("Buffer size must be positive number.");
+
+		this.executor = executor;
+		this.comparator = comparator;
+		this.bufferSize = bufferSize;
+
+		for(Map.Entry<String, Callable<DalResultIterator<T>>> task: tasks.entrySet())
+			cursors.add(new ShardCursor(task.getKey(), task.getValue()));
+
+		active = new ArrayList<>(cursors);
+
+		// Open all shards concurrently
+		for(ShardCursor cursor: cursors)
+			cursor.fill();
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(closed)
+			return false;
+
+		if(fetched)
+			return true;
+
+		try {
+			fetched = comparator == null ? fetchUnordered() : fetchOrdered();
+		} catch (Throwable e) {
+			throw fail(e);
+		}
+
+		if(!fetched)
+			close(null);
+
+		return fetched;
+	}
+
+	@Override
+	public T next() {
+		if(!hasNext())
+			throw new NoSuchElementException();
+
+		fetched = false;
+		T result = current;
+		current = null;
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		close(null);
+	}
+
+	/**
+	 * Called once when the iterator is closed
+	 * @param error the error that causes closing, or null
+	 */
+	protected void onClose(Throwable error) {
+	}
+
+	private void close(Throwable error) {
+		if(closed)
+			return;
+
+		closed = true;
+		for(ShardCursor cursor: cursors)
+			cursor.close();
+
+		onClose(error);
+	}
+
+	private RuntimeException fail(Throwable e) {
+		// Shard iterator wraps SQLException
+		Throwable error = e instanceof RuntimeException && e.getCause() instanceof SQLException ? e.getCause() : e;
+		close(error);
+		return new RuntimeException(DalException.wrap(error));
+	}
+
+	private boolean fetchUnordered() throws Exception {
+		while(!active.isEmpty()) {
+			// Take from the first shard that has row ready, or wait for the shard in turn
+			int size = active.size();
+			int index = nextCursor % size;
+			Object item = null;
+			for(int i = 0; i < size && item == null; i++) {
+				int j = (nextCursor + i) % size;
+				item = active.get(j).poll();
+				if(item != null)
+					index = j;
+			}
+
+			ShardCursor cursor = active.get(index);
+			if(item == null)
+				item = cursor.take();
+
+			if(item == END) {
+				active.remove(index);
+				nextCursor = index;
+				continue;
+			}
+
+			nextCursor = index + 1;
+			current = row(item);
+			return true;
+		}
+
+		return false;
+	}
+
+	private boolean fetchOrdered() throws Exception {
+		if(heads == null) {
+			heads = new PriorityQueue<>(cursors.size(), new Comparator<Head>() {
+				@Override
+				public int compare(Head o1, Head o2) {
+					return comparator.compare(o1.value, o2.value);
+				}
+			});
+
+			for(ShardCursor cursor: cursors)
+				advance(cursor);
+		} else if(last != null) {
+			advance(last);
+		}
+
+		Head head = heads.poll();
+		if(head == null)
+			return false;
+
+		last = head.cursor;
+		current = head.value;
+		return true;
+	}
+
+	private void advance(ShardCursor cursor) throws Exception {
+		Object item = cursor.take();
+		if(item != END)
+			heads.add(new Head(cursor, row(item)));
+	}
+
+	// Queue items other than END and failure are the rows read from shard iterator
+	@SuppressWarnings("unchecked")
+	private T row(Object item) {
+		return (T)item;
+	}
+
+	private class Head {
+		private ShardCursor cursor;
+		private T value;
+
+		Head(ShardCursor cursor, T value) {
+			this.cursor = cursor;
+			this.value = value;
+		}
+	}
+
+	private static class Failure {
+		private Throwable error;
+
+		Failure(Throwable error) {
+			this.error = error;
+		}
+	}
+
+	private class ShardCursor implements Runnable {
+		private String shard;
+		private Callable<DalResultIterator<T>> task;
+		private DalResultIterator<T> iterator;
+
+		// One more slot is reserved for END or failure
+		private ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferSize + 1);
+
+		// Owned by the thread that reads or closes the shard iterator
+		private AtomicBoolean filling = new AtomicBoolean();
+		private volatile boolean finished;
+		private volatile boolean closed;
+
+		ShardCursor(String shard, Callable<DalResultIterator<T>> task) {
+			this.shard = shard;
+			this.task = task;
+		}
+
+		Object poll() throws Exception {
+			Object item = queue.poll();
+			return item == null ? null : consumed(item);
+		}
+
+		Object take() throws Exception {
+			return consumed(queue.take());
+		}
+
+		private Object consumed(Object item) throws Exception {
+			fill();
+
+			if(item instanceof Failure)
+				throw DalException.wrap(((Failure)item).error);
+
+			return item;
+		}
+
+		void fill() {
+			if(finished || closed || queue.size() > bufferSize / 2 || !filling.compareAndSet(false, true))
+				return;
+
+			if(executor == null) {
+				run();
+				return;
+			}
+
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				run();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				if(iterator == null && !closed)
+					iterator = task.call();
+
+				while(!closed && queue.remainingCapacity() > 1) {
+					if(!iterator.hasNext()) {
+						finish(END);
+						break;
+					}
+					queue.add(iterator.next());
+				}
+			} catch (Throwable e) {
+				finish(new Failure(e));
+			} finally {
+				filling.set(false);
+				// Consumer may have drained the queue before the flag is cleared
+				if(closed)
+					release();
+				else
+					fill();
+			}
+		}
+
+		private void finish(Object item) {
+			finished = true;
+			queue.add(item);
+		}
+
+		void close() {
+			closed = true;
+			release();
+		}
+
+		private void release() {
+			// If a fill task is running, it releases the iterator when it stops
+			if(!filling.compareAndSet(false, true))
+				return;
+
+			queue.clear();
+			if(iterator == null)
+				return;
+
+			try {
+				iterator.close();
+			} catch (Throwable e) {
+				DalClientFactory.getDalLogger().error("Close result of shard " + shard + " failed.", e);
+			}
+		}
+	}
+}
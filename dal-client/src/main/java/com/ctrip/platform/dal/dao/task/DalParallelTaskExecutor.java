@@ -0,0 +1,114 @@
+package com.ctrip.platform.dal.dao.task;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ctrip.platform.dal.dao.client.DalWatcher;
+import com.ctrip.platform.dal.dao.client.LogEntry;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
+import com.ctrip.platform.dal.exceptions.DalException;
+
+/**
+ * Execute sub tasks of one request concurrently with at most maxConcurrency threads.
+ *
+ * The calling thread takes part in the execution, and helper threads submitted to the
+ * executor only pick up sub tasks that are not started yet. So the caller never waits for
+ * a sub task that is queued behind busy threads, even when the caller itself is a thread
+ * of the same pool.
+ *
+ * Results are returned in the order of the given tasks. Once a sub task fails, sub tasks
+ * not started yet are skipped, and the error of the first failed sub task is thrown.
+ */
+public class DalParallelTaskExecutor<K> {
+	private List<Callable<K>> tasks;
+	private List<K> results;
+	private Throwable[] errors;
+	private AtomicInteger next = new AtomicInteger();
+	private CountDownLatch completed;
+	private volatile boolean failed;
+
+	private DalParallelTaskExecutor(List<Callable<K>> tasks) {
+		this.tasks = tasks;
+		results = new ArrayList<>(tasks.size());
+		for(int i = 0; i < tasks.size(); i++)
+			results.add(null);
+		errors = new Throwable[tasks.size()];
+		completed = new CountDownLatch(tasks.size());
+	}
+
+	/**
+	 * @param executor executor for helper threads. If it is null or rejects, the remaining
+	 * tasks are executed in caller's thread
+	 */
+	public static <K> List<K> execute(Executor executor, List<Callable<K>> tasks, int maxConcurrency) throws SQLException {
+		return new DalParallelTaskExecutor<>(tasks).execute(executor, maxConcurrency);
+	}
+
+	private List<K> execute(Executor executor, int maxConcurrency) throws SQLException {
+		int helpers = executor == null ? 0 : Math.min(maxConcurrency, tasks.size()) - 1;
+		final String caller = LogEntry.getCurrentCaller();
+
+		for(int i = 0; i < helpers; i++) {
+			final Object watcher = DalWatcher.capture();
+			final Object writes = ReadYourWrites.capture();
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						// Continue the caller thread's context in the helper thread
+						DalWatcher.restore(watcher);
+						ReadYourWrites.restore(writes);
+						LogEntry.populateCurrentCaller(caller);
+						try {
+							runTasks();
+						} finally {
+							LogEntry.clearCurrentCaller();
+							ReadYourWrites.clear();
+							DalWatcher.clear();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				break;
+			}
+		}
+
+		runTasks();
+
+		try {
+			completed.await();
+		} catch (InterruptedException e) {
+			failed = true;
+			Thread.currentThread().interrupt();
+			throw DalException.wrap(e);
+		}
+
+		for(Throwable error: errors) {
+			if(error != null)
+				throw DalException.wrap(error);
+		}
+
+		return results;
+	}
+
+	private void runTasks() {
+		int i;
+		while((i = next.getAndIncrement()) < tasks.size()) {
+			try {
+				if(!failed)
+					results.set(i, tasks.get(i).call());
+			} catch (Throwable e) {
+				errors[i] = e;
+				failed = true;
+			} finally {
+				completed.countDown();
+			}
+		}
+	}
+}
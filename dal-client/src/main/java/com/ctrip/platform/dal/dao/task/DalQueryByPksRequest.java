@@ -0,0 +1,311 @@
+package com.ctrip.platform.dal.dao.task;
+
+import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.getDatabaseSet;
+import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.isShardingEnabled;
+import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.isTableShardingEnabled;
+import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.locateTableShardId;
+import static com.ctrip.platform.dal.dao.helper.DalShardingHelper.shuffle;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalParser;
+import com.ctrip.platform.dal.dao.ResultMerger;
+import com.ctrip.platform.dal.dao.client.DalTransactionManager;
+import com.ctrip.platform.dal.dao.client.LogContext;
+import com.ctrip.platform.dal.dao.helper.DalEntityCache;
+import com.ctrip.platform.dal.dao.strategy.DalBulkShardingStrategy;
+import com.ctrip.platform.dal.dao.strategy.DalShardingStrategy;
+import com.ctrip.platform.dal.exceptions.DalException;
+import com.ctrip.platform.dal.exceptions.ErrorCode;
+
+/**
+ * Query entities by list of primary key values. Values are grouped by DB shard and then by
+ * table shard, and each group is queried by "pk IN (...)" statements within the parameter
+ * limit of the database. DB shards are queried in parallel by DalRequestExecutor, table shards
+ * of one DB shard are queried in parallel if parallelTableShardExecution is set and the request
+ * is executed in caller's thread. Table shards of a task running in the executor's pool are
+ * queried in that thread, so that the task does not wait for threads of the same pool.
+ *
+ * Values are grouped by shard only if the shard column of the strategy is the primary key.
+ * Otherwise every shard is queried with all the values.
+ *
+ * The result is in the order of the given values, with null for value that is not found.
+ * Values not found are set to hints as missingPks.
+ */
+public class DalQueryByPksRequest<T> implements DalRequest<List<T>>, LogicDbRequest {
+	private String caller;
+	private String logicDbName;
+	private String rawTableName;
+	private DalHints hints;
+	private List<?> pks;
+	private QueryByPksTask<T> task;
+	private DalParser<T> parser;
+
+	// Distinct values that are not null
+	private List<Object> values;
+	private Map<String, List<?>> shuffled;
+	private PkResultMerger merger;
+
+	public DalQueryByPksRequest(String logicDbName, String rawTableName, DalHints hints, List<?> pks, QueryByPksTask<T> task) {
+		this.logicDbName = logicDbName;
+		this.rawTableName = rawTableName;
+		this.hints = hints;
+		this.pks = pks;
+		this.task = task;
+		this.caller = LogContext.getRequestCaller();
+	}
+
+	@Override
+	public String getCaller() {
+		return caller;
+	}
+
+	@Override
+	public String getLogicDbName() {
+		return logicDbName;
+	}
+
+	@Override
+	public boolean isAsynExecution() {
+		return hints.isAsyncExecution();
+	}
+
+	@Override
+	public void validate() throws SQLException {
+		if(null == pks)
+			throw new DalException(ErrorCode.ValidatePkList);
+
+		if(task == null)
+			throw new DalException(ErrorCode.ValidateTask);
+
+		parser = task.parser;
+		merger = new PkResultMerger();
+
+		Map<List<?>, Object> distinct = new LinkedHashMap<>();
+		for(Object pk: pks) {
+			if(pk == null)
+				continue;
+
+			List<?> key = DalEntityCache.keyOf(pk);
+			if(!distinct.containsKey(key))
+				distinct.put(key, pk);
+		}
+		values = new ArrayList<>(distinct.values());
+	}
+
+	@Override
+	public boolean isCrossShard() throws SQLException {
+		if(!isShardingEnabled(logicDbName) || hints.getShardId() != null || values.isEmpty())
+			return false;
+
+		DalShardingStrategy strategy = getDatabaseSet(logicDbName).getStrategy();
+		if(strategy instanceof DalBulkShardingStrategy && isShardedByPk(((DalBulkShardingStrategy)strategy).getDbShardColumns())) {
+			shuffled = shuffle(logicDbName, values);
+		} else {
+			shuffled = new LinkedHashMap<>();
+			for(String shard: getDatabaseSet(logicDbName).getAllShards())
+				shuffled.put(shard, values);
+		}
+		return shuffled.size() > 1;
+	}
+
+	/**
+	 * @return true if the first of the shard columns that belongs to the table is the primary key
+	 */
+	private boolean isShardedByPk(String[] shardColumns) {
+		String[] pkNames = parser.getPrimaryKeyNames();
+		if(shardColumns == null || pkNames.length != 1)
+			return false;
+
+		Set<String> columns = new HashSet<>(Arrays.asList(parser.getColumnNames()));
+		for(String column: shardColumns) {
+			if(columns.contains(column))
+				return column.equals(pkNames[0]);
+		}
+		return false;
+	}
+
+	@Override
+	public Callable<List<T>> createTask() throws SQLException {
+		DalHints tmpHints = hints.clone();
+		List<?> valuesInShard = values;
+
+		// Only in one shard
+		if(shuffled != null) {
+			String shard = shuffled.keySet().iterator().next();
+			tmpHints.inShard(shard);
+			valuesInShard = shuffled.get(shard);
+		}
+
+		final Callable<List<T>> task = new PkQueryCallable(tmpHints, valuesInShard, isAsynExecution());
+		return new Callable<List<T>>() {
+			@Override
+			public List<T> call() throws Exception {
+				merger.addPartial(null, task.call());
+				return merger.merge();
+			}
+		};
+	}
+
+	@Override
+	public Map<String, Callable<List<T>>> createTasks() throws SQLException {
+		Map<String, Callable<List<T>>> tasks = new HashMap<>();
+
+		for(String shard: shuffled.keySet())
+			tasks.put(shard, new PkQueryCallable(hints.clone().inShard(shard), shuffled.get(shard), true));
+
+		return tasks;
+	}
+
+	@Override
+	public ResultMerger<List<T>> getMerger() {
+		return merger;
+	}
+
+	private class PkQueryCallable implements Callable<List<T>> {
+		private DalHints hints;
+		private List<?> values;
+		// Executed by thread of the executor's pool
+		private boolean pooled;
+
+		public PkQueryCallable(DalHints hints, List<?> values, boolean pooled) {
+			this.hints = hints;
+			this.values = values;
+			this.pooled = pooled;
+		}
+
+		@Override
+		public List<T> call() throws Exception {
+			if(values.isEmpty())
+				return new ArrayList<>();
+
+			if(!isTableShardingEnabled(logicDbName, rawTableName) || hints.getTableShardId() != null)
+				return executeByChunks(hints, values);
+
+			return executeByTableShards();
+		}
+
+		private List<T> executeByTableShards() throws SQLException {
+			Map<String, List<Object>> valuesInTable = shuffleByTable();
+
+			List<Callable<List<T>>> tableShardTasks = new ArrayList<>(valuesInTable.size());
+			for(Map.Entry<String, List<Object>> entry: valuesInTable.entrySet()) {
+				final DalHints tmpHints = hints.clone().inTableShard(entry.getKey());
+				final List<Object> valuesInShard = entry.getValue();
+				tableShardTasks.add(new Callable<List<T>>() {
+					@Override
+					public List<T> call() throws Exception {
+						return executeByChunks(tmpHints, valuesInShard);
+					}
+				});
+			}
+
+			List<List<T>> partials;
+			int maxConcurrency = hints.getInt(DalHintEnum.parallelTableShardExecution, 1);
+			if(tableShardTasks.size() > 1 && maxConcurrency > 1 && !pooled && !DalTransactionManager.isInTransaction()) {
+				partials = DalParallelTaskExecutor.execute(DalRequestExecutor.getExecutor(logicDbName), tableShardTasks, maxConcurrency);
+			} else {
+				partials = new ArrayList<>(tableShardTasks.size());
+				for(Callable<List<T>> tableShardTask: tableShardTasks) {
+					try {
+						partials.add(tableShardTask.call());
+					} catch (Exception e) {
+						throw DalException.wrap(e);
+					}
+				}
+			}
+
+			List<T> result = new ArrayList<>();
+			for(List<T> partial: partials)
+				result.addAll(partial);
+			return result;
+		}
+
+		private Map<String, List<Object>> shuffleByTable() throws SQLException {
+			Map<String, List<Object>> valuesInTable = new LinkedHashMap<>();
+			DalShardingStrategy strategy = getDatabaseSet(logicDbName).getStrategy();
+			if(!(strategy instanceof DalBulkShardingStrategy))
+				throw new DalException(ErrorCode.ShardLocated, "table shard by primary key of " + rawTableName);
+
+			DalBulkShardingStrategy bulkStrategy = (DalBulkShardingStrategy)strategy;
+			if(!isShardedByPk(bulkStrategy.getTableShardColumns())) {
+				String[] tableShards = bulkStrategy.getTableShardIds();
+				if(tableShards == null)
+					throw new DalException(ErrorCode.ShardLocated, "table shard by primary key of " + rawTableName);
+
+				for(String tableShard: tableShards)
+					valuesInTable.put(tableShard, Collections.<Object>unmodifiableList(values));
+				return valuesInTable;
+			}
+
+			DalHints locateHints = new DalHints();
+			for(Object value: values) {
+				String tableShard = locateTableShardId(logicDbName, locateHints.setTableShardValue(value), null, null);
+				List<Object> valuesInShard = valuesInTable.get(tableShard);
+				if(valuesInShard == null) {
+					valuesInShard = new ArrayList<>();
+					valuesInTable.put(tableShard, valuesInShard);
+				}
+				valuesInShard.add(value);
+			}
+			return valuesInTable;
+		}
+	}
+
+	/**
+	 * Values are split into chunks of at most the max parameter count of the database,
+	 * or bulkChunkSize if it is smaller.
+	 */
+	private List<T> executeByChunks(DalHints hints, List<?> values) throws SQLException {
+		int chunkSize = getDatabaseSet(logicDbName).getDatabaseCategory().getMaxParameterCount();
+		int maxRows = hints.getInt(DalHintEnum.bulkChunkSize, BulkTaskChunker.UNLIMITED);
+		if(maxRows != BulkTaskChunker.UNLIMITED)
+			chunkSize = Math.min(chunkSize, maxRows);
+
+		if(values.size() <= chunkSize)
+			return task.execute(hints, values);
+
+		List<T> result = new ArrayList<>(values.size());
+		for(int i = 0; i < values.size(); i += chunkSize)
+			result.addAll(task.execute(hints, values.subList(i, Math.min(values.size(), i + chunkSize))));
+		return result;
+	}
+
+	private class PkResultMerger implements ResultMerger<List<T>>, ResultMerger.Unordered {
+		private Map<List<?>, T> found = new HashMap<>();
+
+		@Override
+		public void addPartial(String shard, List<T> partial) throws SQLException {
+			String[] pkNames = parser.getPrimaryKeyNames();
+			for(T entity: partial)
+				found.put(DalEntityCache.keyOf(pkNames, parser.getPrimaryKeys(entity)), entity);
+		}
+
+		@Override
+		public List<T> merge() throws SQLException {
+			List<T> result = new ArrayList<>(pks.size());
+			List<Object> missing = new ArrayList<>();
+			for(Object pk: pks) {
+				T entity = pk == null ? null : found.get(DalEntityCache.keyOf(pk));
+				result.add(entity);
+				if(entity == null)
+					missing.add(pk);
+			}
+
+			hints.set(DalHintEnum.missingPks, missing);
+			return result;
+		}
+	}
+}
@@ -1,23 +1,43 @@
 package com.ctrip.platform.dal.dao.task;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalFuture;
 import com.ctrip.platform.dal.dao.DalHintEnum;
 import com.ctrip.platform.dal.dao.DalHints;
 import com.ctrip.platform.dal.dao.DalResultCallback;
+import com.ctrip.platform.dal.dao.DalResultIterator;
 import com.ctrip.platform.dal.dao.ResultMerger;
+import com.ctrip.platform.dal.dao.client.DalLatencyMetrics;
+import com.ctrip.platform.dal.dao.client.DalLatencyMetrics.Phase;
 import com.ctrip.platform.dal.dao.client.DalLogger;
+import com.ctrip.platform.dal.dao.client.DalWatcher;
+import com.ctrip.platform.dal.dao.client.LogEntry;
 import com.ctrip.platform.dal.dao.client.LogContext;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
 import com.ctrip.platform.dal.exceptions.DalException;
 import com.ctrip.platform.dal.exceptions.ErrorCode;
 
@@ -29,20 +49,57 @@ import com.ctrip.platform.dal.exceptions.ErrorCode;
  */
 public class DalRequestExecutor {
 	private static AtomicReference<ExecutorService> serviceRef = new AtomicReference<>();
+	private static ConcurrentHashMap<String, DalBulkheadExecutor> bulkheads = new ConcurrentHashMap<>();
+	private static volatile BulkheadSettings bulkheadSettings;
 
 	public static final String MAX_POOL_SIZE = "maxPoolSize";
 	public static final String KEEP_ALIVE_TIME = "keepAliveTime";
+	public static final String MAX_QUEUE_SIZE = "maxQueueSize";
+	public static final String MAX_THREADS_PER_LOGIC_DB = "maxThreadsPerLogicDb";
+	public static final String MAX_QUEUE_SIZE_PER_LOGIC_DB = "maxQueueSizePerLogicDb";
+	public static final String REJECTION_POLICY = "rejectionPolicy";
+
+	public static final String ABORT = "abort";
+	public static final String CALLER_RUNS = "callerRuns";
 
 	// To be consist with default connection max active size
 	public static final int DEFAULT_MAX_POOL_SIZE = 500;
 
 	public static final int DEFAULT_KEEP_ALIVE_TIME = 10;
 
+	public static final int UNLIMITED = -1;
+
 	private DalLogger logger = DalClientFactory.getDalLogger();
 
 	private final static String NA = "N/A";
 
+	private final static long NO_DEADLINE = -1;
+
 	public static void init(String maxPoolSizeStr, String keepAliveTimeStr){
+		Map<String, String> settings = new HashMap<>();
+		settings.put(MAX_POOL_SIZE, maxPoolSizeStr);
+		settings.put(KEEP_ALIVE_TIME, keepAliveTimeStr);
+		init(settings);
+	}
+
+	public static void init(DalTaskFactory factory){
+		Map<String, String> settings = new HashMap<>();
+		for(String key: new String[]{MAX_POOL_SIZE, KEEP_ALIVE_TIME, MAX_QUEUE_SIZE, MAX_THREADS_PER_LOGIC_DB, MAX_QUEUE_SIZE_PER_LOGIC_DB, REJECTION_POLICY})
+			settings.put(key, factory.getProperty(key));
+		init(settings);
+	}
+
+	/**
+	 * Settings:
+	 * maxPoolSize: threads shared by all logic DBs
+	 * keepAliveTime: seconds idle thread will be kept
+	 * maxQueueSize: max waiting tasks of the shared pool, default is unlimited
+	 * maxThreadsPerLogicDb: max threads a logic DB can use, default is unlimited. It can be
+	 * 		overridden for logic DB in the form of "10;dbName1=20;dbName2=5"
+	 * maxQueueSizePerLogicDb: max waiting tasks of a logic DB when maxThreadsPerLogicDb is reached, default is unlimited
+	 * rejectionPolicy: abort or callerRuns when queue is full, default is abort
+	 */
+	public static void init(Map<String, String> settings){
 		if(serviceRef.get() != null)
 			return;
 
@@ -50,21 +107,38 @@ public class DalRequestExecutor {
 			if(serviceRef.get() != null)
 				return;
 
-			int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
-			if(maxPoolSizeStr != null)
-				maxPoolSize = Integer.parseInt(maxPoolSizeStr);
+			int maxPoolSize = getInt(settings, MAX_POOL_SIZE, DEFAULT_MAX_POOL_SIZE);
+			int keepAliveTime = getInt(settings, KEEP_ALIVE_TIME, DEFAULT_KEEP_ALIVE_TIME);
+			int maxQueueSize = getInt(settings, MAX_QUEUE_SIZE, UNLIMITED);
+			boolean callerRuns = isCallerRuns(settings.get(REJECTION_POLICY));
 
-			int keepAliveTime = DEFAULT_KEEP_ALIVE_TIME;
-			if(keepAliveTimeStr != null)
-				keepAliveTime = Integer.parseInt(keepAliveTimeStr);
+			LinkedBlockingQueue<Runnable> queue = maxQueueSize == UNLIMITED ?
+					new LinkedBlockingQueue<Runnable>() :
+					new LinkedBlockingQueue<Runnable>(maxQueueSize);
 
-			ThreadPoolExecutor executer = new ThreadPoolExecutor(maxPoolSize, maxPoolSize, keepAliveTime, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+			ThreadPoolExecutor executer = new ThreadPoolExecutor(maxPoolSize, maxPoolSize, keepAliveTime, TimeUnit.SECONDS, queue, new RejectionPolicy(callerRuns));
 			executer.allowCoreThreadTimeOut(true);
 
+			bulkheadSettings = new BulkheadSettings(settings.get(MAX_THREADS_PER_LOGIC_DB), getInt(settings, MAX_QUEUE_SIZE_PER_LOGIC_DB, UNLIMITED), callerRuns);
 			serviceRef.set(executer);
 		}
 	}
 
+	private static int getInt(Map<String, String> settings, String key, int defaultValue) {
+		String value = settings.get(key);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	private static boolean isCallerRuns(String policy) {
+		if(policy == null || ABORT.equalsIgnoreCase(policy.trim()))
+			return false;
+
+		if(CALLER_RUNS.equalsIgnoreCase(policy.trim()))
+			return true;
+
+		throw new IllegalArgumentException("Unknown rejection policy: " + policy);
+	}
+
 	public static void shutdown() {
 		if (serviceRef.get() == null)
 			return;
@@ -75,6 +149,7 @@ public class DalRequestExecutor {
 
 			serviceRef.get().shutdown();
 			serviceRef.set(null);
+			bulkheads.clear();
 		}
 	}
 
@@ -84,12 +159,31 @@ public class DalRequestExecutor {
 
 	public <T> T execute(final DalHints hints, final DalRequest<T> request, final boolean nullable) throws SQLException {
 		if (hints.isAsyncExecution()) {
-			Future<T> future = serviceRef.get().submit(new Callable<T>() {
+			final Object watcher = DalWatcher.capture();
+			final Object writes = ReadYourWrites.capture();
+			DalFuture<T> future = new DalFuture<>(new Callable<T>() {
 				public T call() throws Exception {
-					return internalExecute(hints, request, nullable);
+					// Continue the caller thread's context in the executing thread
+					DalWatcher.restore(watcher);
+					ReadYourWrites.restore(writes);
+					LogEntry.populateCurrentCaller(request.getCaller());
+					try {
+						return internalExecute(hints, request, nullable);
+					} finally {
+						LogEntry.clearCurrentCaller();
+						ReadYourWrites.clear();
+						DalWatcher.clear();
+					}
 				}
 			});
 
+			Executor asyncExecutor = hints.getAsyncExecutor();
+			try {
+				(asyncExecutor == null ? serviceRef.get() : asyncExecutor).execute(future);
+			} catch (RejectedExecutionException e) {
+				throw new DalException(ErrorCode.ExecutorRejected, e, getLogicDbName(request));
+			}
+
 			if(hints.isAsyncExecution())
 				hints.set(DalHintEnum.futureResult, future);
 			return null;
@@ -98,13 +192,57 @@ public class DalRequestExecutor {
 		return internalExecute(hints, request, nullable);
 	}
 
+	/**
+	 * Execute streaming query. Results of cross shard request are merged by DalMergedResultIterator,
+	 * which reads ahead each shard in the thread pool. The request is logged when the iterator is closed.
+	 *
+	 * @param comparator if not null, results of each shard must be sorted by it and are merge sorted
+	 */
+	public <T> DalResultIterator<T> executeStreaming(DalHints hints, DalRequest<DalResultIterator<T>> request, Comparator<? super T> comparator) throws SQLException {
+		if(!request.isCrossShard())
+			return execute(hints, request);
+
+		final LogContext logContext = logger.start(request);
+		if(logContext.getCaller() == null)
+			logContext.setCaller(request.getCaller());
+
+		try {
+			request.validate();
+
+			Map<String, Callable<DalResultIterator<T>>> tasks = new LinkedHashMap<>();
+			for(Map.Entry<String, Callable<DalResultIterator<T>>> task: request.createTasks().entrySet())
+				tasks.put(task.getKey(), new RequestTaskWrapper<>(task.getKey(), task.getValue(), logContext));
+
+			logContext.setShards(tasks.keySet());
+			logger.startCrossShardTasks(logContext, false);
+
+			int bufferSize = hints.getInt(DalHintEnum.streamingBufferSize, DalMergedResultIterator.DEFAULT_BUFFER_SIZE);
+			return new DalMergedResultIterator<T>(getExecutor(getLogicDbName(request)), tasks, comparator, bufferSize) {
+				@Override
+				protected void onClose(Throwable error) {
+					logger.endCrossShards(logContext, error);
+					logger.end(logContext, error);
+				}
+			};
+		} catch (Throwable e) {
+			logger.end(logContext, e);
+			throw DalException.wrap(e);
+		}
+	}
+
 	private <T> T internalExecute(DalHints hints, DalRequest<T> request, boolean nullable) throws SQLException {
 		T result = null;
 		Throwable error = null;
 
 		LogContext logContext = logger.start(request);
 
+		// Statements of this request can use request caller instead of walking the stack again
+		if(logContext.getCaller() == null)
+			logContext.setCaller(request.getCaller());
+
+		String outerCaller = LogEntry.getCurrentCaller();
 		try {
+			LogEntry.populateCurrentCaller(logContext.getCaller());
 			request.validate();
 
 			if(request.isCrossShard())
@@ -116,6 +254,8 @@ public class DalRequestExecutor {
 				throw new DalException(ErrorCode.AssertNull);
 		} catch (Throwable e) {
 			error = e;
+		} finally {
+			LogEntry.restoreCurrentCaller(outerCaller);
 		}
 
 		logger.end(logContext, error);
@@ -140,7 +280,9 @@ public class DalRequestExecutor {
 		boolean isSequentialExecution = hints.is(DalHintEnum.sequentialExecution);
 		logContext.setSeqencialExecution(isSequentialExecution);
 
-		ResultMerger<T> merger = request.getMerger();
+		ResultMerger<T> requestMerger = request.getMerger();
+		TimedResultMerger<T> merger = new TimedResultMerger<>(requestMerger);
+		long deadline = getDeadline(hints);
 
 		logger.startCrossShardTasks(logContext, isSequentialExecution);
 
@@ -149,13 +291,15 @@ public class DalRequestExecutor {
 
 		try {
 			result = isSequentialExecution?
-					seqncialExecute(hints, tasks, merger, logContext):
-					parallelExecute(hints, tasks, merger, logContext);
+					seqncialExecute(hints, tasks, merger, logContext, deadline):
+					parallelExecute(getLogicDbName(request), hints, tasks, merger, requestMerger instanceof ResultMerger.Unordered, logContext, deadline);
 
 		} catch (Throwable e) {
 			error = e;
 		}
 
+		if(error == null)
+			DalLatencyMetrics.record(getLogicDbName(request), Phase.MERGE, merger.nanos);
 		logger.endCrossShards(logContext, error);
 
 		if(error != null)
@@ -165,6 +309,38 @@ public class DalRequestExecutor {
 
 	}
 
+	/**
+	 * Sum the time spent in merging. It is only called by the thread that executes the request.
+	 */
+	private static class TimedResultMerger<T> implements ResultMerger<T> {
+		private ResultMerger<T> merger;
+		private long nanos;
+
+		public TimedResultMerger(ResultMerger<T> merger) {
+			this.merger = merger;
+		}
+
+		@Override
+		public void addPartial(String shard, T partial) throws SQLException {
+			long start = System.nanoTime();
+			try {
+				merger.addPartial(shard, partial);
+			} finally {
+				nanos += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public T merge() throws SQLException {
+			long start = System.nanoTime();
+			try {
+				return merger.merge();
+			} finally {
+				nanos += System.nanoTime() - start;
+			}
+		}
+	}
+
 	private <T> void handleCallback(final DalHints hints, T result, Throwable error) {
 		DalResultCallback qc = (DalResultCallback)hints.get(DalHintEnum.resultCallback);
 		if (qc == null)
@@ -176,25 +352,94 @@ public class DalRequestExecutor {
 			qc.onError(error);
 	}
 
-	private <T> T parallelExecute(DalHints hints, Map<String, Callable<T>> tasks, ResultMerger<T> merger, LogContext logContext) throws SQLException {
-		Map<String, Future<T>> resultFutures = new HashMap<>();
+	/**
+	 * Partial result of unordered merger is merged in the order of shard completion, so that
+	 * one slow shard will not delay merging of the others. For other mergers, partial results
+	 * are merged in the order of shards, each one as soon as the shards before it are done.
+	 * Pending shards are cancelled when the deadline is reached or execution stops on error.
+	 */
+	private <T> T parallelExecute(String logicDbName, DalHints hints, Map<String, Callable<T>> tasks, ResultMerger<T> merger, boolean unordered, LogContext logContext, long deadline) throws SQLException {
+		CompletionService<T> completionService = new ExecutorCompletionService<>(getExecutor(logicDbName));
+		Map<Future<T>, String> pending = new HashMap<>();
+
+		// Completed shards waiting for the shards before them
+		Map<String, Future<T>> completed = new HashMap<>();
+		Iterator<String> order = tasks.keySet().iterator();
+		String nextShard = order.hasNext() ? order.next() : null;
 
-		for(final String shard: tasks.keySet())
-			resultFutures.put(shard, serviceRef.get().submit(new RequestTaskWrapper<T>(shard, tasks.get(shard), logContext)));
+		try {
+			for(final String shard: tasks.keySet()) {
+				try {
+					pending.put(completionService.submit(new RequestTaskWrapper<T>(shard, tasks.get(shard), logContext)), shard);
+				} catch (RejectedExecutionException e) {
+					throw new DalException(ErrorCode.ExecutorRejected, e, logicDbName);
+				}
+			}
 
-		for(Map.Entry<String, Future<T>> entry: resultFutures.entrySet()) {
-			try {
-				merger.addPartial(entry.getKey(), entry.getValue().get());
-			} catch (Throwable e) {
-				hints.handleError("There is error during parallel execution: ", e);
+			while(!pending.isEmpty()) {
+				Future<T> future = next(completionService, deadline);
+				if(future == null)
+					break;
+
+				String shard = pending.remove(future);
+				if(unordered) {
+					addPartial(hints, merger, shard, future);
+					continue;
+				}
+
+				completed.put(shard, future);
+				while(nextShard != null && completed.containsKey(nextShard)) {
+					addPartial(hints, merger, nextShard, completed.remove(nextShard));
+					nextShard = order.hasNext() ? order.next() : null;
+				}
+			}
+
+			// Shards completed after the timed out ones
+			for(; nextShard != null && !completed.isEmpty(); nextShard = order.hasNext() ? order.next() : null) {
+				Future<T> future = completed.remove(nextShard);
+				if(future != null)
+					addPartial(hints, merger, nextShard, future);
 			}
+		} finally {
+			for(Future<T> future: pending.keySet())
+				future.cancel(true);
 		}
 
+		if(!pending.isEmpty())
+			handleTimeout(hints, pending.values());
+
 		return merger.merge();
 	}
 
-	private <T> T seqncialExecute(DalHints hints, Map<String, Callable<T>> tasks, ResultMerger<T> merger, LogContext logContext) throws SQLException {
+	private <T> void addPartial(DalHints hints, ResultMerger<T> merger, String shard, Future<T> future) throws SQLException {
+		try {
+			merger.addPartial(shard, future.get());
+		} catch (Throwable e) {
+			hints.handleError("There is error during parallel execution: ", e);
+		}
+	}
+
+	private <T> Future<T> next(CompletionService<T> completionService, long deadline) throws SQLException {
+		try {
+			if(deadline == NO_DEADLINE)
+				return completionService.take();
+
+			long remaining = deadline - System.nanoTime();
+			return remaining > 0 ? completionService.poll(remaining, TimeUnit.NANOSECONDS) : completionService.poll();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw DalException.wrap(e);
+		}
+	}
+
+	private <T> T seqncialExecute(DalHints hints, Map<String, Callable<T>> tasks, ResultMerger<T> merger, LogContext logContext, long deadline) throws SQLException {
+		Set<String> timeoutShards = new TreeSet<>();
 		for(final String shard: tasks.keySet()) {
+			if(deadline != NO_DEADLINE && System.nanoTime() >= deadline) {
+				timeoutShards.add(shard);
+				continue;
+			}
+
 			try {
 				merger.addPartial(shard, new RequestTaskWrapper<T>(shard, tasks.get(shard), logContext).call());
 			} catch (Throwable e) {
@@ -202,9 +447,65 @@ public class DalRequestExecutor {
 			}
 		}
 
+		if(!timeoutShards.isEmpty())
+			handleTimeout(hints, timeoutShards);
+
 		return merger.merge();
 	}
 
+	private long getDeadline(DalHints hints) {
+		Object timeout = hints.get(DalHintEnum.crossShardTimeout);
+		if(timeout == null)
+			return NO_DEADLINE;
+
+		return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(((Number)timeout).longValue());
+	}
+
+	private void handleTimeout(DalHints hints, Collection<String> shards) throws SQLException {
+		Set<String> timeoutShards = new TreeSet<>(shards);
+		DalException e = new DalException(ErrorCode.CrossShardTimeout, ((Number)hints.get(DalHintEnum.crossShardTimeout)).longValue(), timeoutShards);
+
+		if(!hints.is(DalHintEnum.partialResultOnTimeout))
+			throw e;
+
+		hints.set(DalHintEnum.timeoutShards, timeoutShards);
+		logger.warn(e.getMessage());
+	}
+
+	/**
+	 * @return logic DB of the request, or null if it is not a LogicDbRequest
+	 */
+	private static String getLogicDbName(DalRequest<?> request) {
+		return request instanceof LogicDbRequest ? ((LogicDbRequest)request).getLogicDbName() : null;
+	}
+
+	/**
+	 * @return bulkhead of the logic DB if maxThreadsPerLogicDb is configured, otherwise the shared pool.
+	 * The shared pool is also used if the logic DB is not known.
+	 */
+	static Executor getExecutor(String logicDbName) {
+		ExecutorService service = serviceRef.get();
+		BulkheadSettings settings = bulkheadSettings;
+		if(service == null || settings == null || logicDbName == null)
+			return service;
+
+		int maxThreads = settings.getMaxThreads(logicDbName);
+		if(maxThreads == UNLIMITED)
+			return service;
+
+		DalBulkheadExecutor bulkhead = bulkheads.get(logicDbName);
+		if(bulkhead != null)
+			return bulkhead;
+
+		int maxQueueSize = settings.maxQueueSize == UNLIMITED ? Integer.MAX_VALUE : settings.maxQueueSize;
+		bulkheads.putIfAbsent(logicDbName, new DalBulkheadExecutor(logicDbName, service, maxThreads, maxQueueSize, settings.callerRuns));
+		return bulkheads.get(logicDbName);
+	}
+
+	public static DalBulkheadExecutor getBulkhead(String logicDbName) {
+		return bulkheads.get(logicDbName);
+	}
+
 	public static int getPoolSize() {
 		ThreadPoolExecutor executer = (ThreadPoolExecutor)serviceRef.get();
 		if (serviceRef.get() == null)
@@ -212,4 +513,76 @@ public class DalRequestExecutor {
 
 		return executer.getPoolSize();
 	}
+
+	public static int getActiveCount() {
+		ThreadPoolExecutor executer = (ThreadPoolExecutor)serviceRef.get();
+		return executer == null ? 0 : executer.getActiveCount();
+	}
+
+	public static int getQueueSize() {
+		ThreadPoolExecutor executer = (ThreadPoolExecutor)serviceRef.get();
+		return executer == null ? 0 : executer.getQueue().size();
+	}
+
+	public static long getCompletedTaskCount() {
+		ThreadPoolExecutor executer = (ThreadPoolExecutor)serviceRef.get();
+		return executer == null ? 0 : executer.getCompletedTaskCount();
+	}
+
+	public static long getRejectedCount() {
+		ThreadPoolExecutor executer = (ThreadPoolExecutor)serviceRef.get();
+		return executer == null ? 0 : ((RejectionPolicy)executer.getRejectedExecutionHandler()).rejected.get();
+	}
+
+	private static class RejectionPolicy implements RejectedExecutionHandler {
+		private boolean callerRuns;
+		private AtomicLong rejected = new AtomicLong();
+
+		RejectionPolicy(boolean callerRuns) {
+			this.callerRuns = callerRuns;
+		}
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			rejected.incrementAndGet();
+			if(callerRuns && !executor.isShutdown()) {
+				r.run();
+				return;
+			}
+
+			throw new RejectedExecutionException("DAL request executor is full. Queue size: " + executor.getQueue().size());
+		}
+	}
+
+	private static class BulkheadSettings {
+		private int maxThreads = UNLIMITED;
+		private Map<String, Integer> maxThreadsByLogicDb = new HashMap<>();
+		private int maxQueueSize;
+		private boolean callerRuns;
+
+		BulkheadSettings(String maxThreadsStr, int maxQueueSize, boolean callerRuns) {
+			this.maxQueueSize = maxQueueSize;
+			this.callerRuns = callerRuns;
+
+			if(maxThreadsStr == null)
+				return;
+
+			for(String entry: maxThreadsStr.split(";")) {
+				entry = entry.trim();
+				if(entry.isEmpty())
+					continue;
+
+				int index = entry.indexOf('=');
+				if(index == -1)
+					maxThreads = Integer.parseInt(entry);
+				else
+					maxThreadsByLogicDb.put(entry.substring(0, index).trim(), Integer.parseInt(entry.substring(index + 1).trim()));
+			}
+		}
+
+		int getMaxThreads(String logicDbName) {
+			Integer value = logicDbName == null ? null : maxThreadsByLogicDb.get(logicDbName);
+			return value == null ? maxThreads : value;
+		}
+	}
 }
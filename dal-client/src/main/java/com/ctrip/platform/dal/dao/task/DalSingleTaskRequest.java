@@ -15,7 +15,7 @@ import com.ctrip.platform.dal.dao.client.LogContext;
 import com.ctrip.platform.dal.exceptions.DalException;
 import com.ctrip.platform.dal.exceptions.ErrorCode;
 
-public class DalSingleTaskRequest<T> implements DalRequest<int[]>{
+public class DalSingleTaskRequest<T> implements DalRequest<int[]>, LogicDbRequest {
 	private String caller;
 	private String logicDbName;
 	private DalHints hints;
@@ -50,6 +50,11 @@ public class DalSingleTaskRequest<T> implements DalRequest<int[]>{
 		return caller;
 	}
 
+	@Override
+	public String getLogicDbName() {
+		return logicDbName;
+	}
+
 	@Override
 	public boolean isAsynExecution() {
 		return hints.isAsyncExecution();
@@ -26,7 +26,7 @@ import com.ctrip.platform.dal.dao.helper.DalShardingHelper;
 import com.ctrip.platform.dal.dao.sqlbuilder.SqlBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.TableSqlBuilder;
 
-public class DalSqlTaskRequest<T> implements DalRequest<T>{
+public class DalSqlTaskRequest<T> implements DalRequest<T>, LogicDbRequest {
 	private String caller;
 	private DalLogger logger;
 	private String logicDbName;
@@ -51,11 +51,25 @@ public class DalSqlTaskRequest<T> implements DalRequest<T>{
 		this.caller = LogContext.getRequestCaller();
 	}
 
+	/**
+	 * Set the task and merger that are built after the shards of request are resolved.
+	 */
+	public DalSqlTaskRequest<T> with(SqlTask<T> task, ResultMerger<T> merger) {
+		this.task = task;
+		this.merger = merger;
+		return this;
+	}
+
 	@Override
 	public String getCaller() {
 		return caller;
 	}
 
+	@Override
+	public String getLogicDbName() {
+		return logicDbName;
+	}
+
 	@Override
 	public boolean isAsynExecution() {
 		return hints.isAsyncExecution();
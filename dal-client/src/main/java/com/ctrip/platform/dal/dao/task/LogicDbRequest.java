@@ -0,0 +1,13 @@
+package com.ctrip.platform.dal.dao.task;
+
+/**
+ * Request that knows the logic DB it is executed against, so that its shard tasks run in
+ * the bulkhead of the logic DB. It is separated from DalRequest, so that existing implementations
+ * of DalRequest keep working and use the shared pool.
+ */
+public interface LogicDbRequest {
+	/**
+	 * @return logic DB the request is executed against
+	 */
+	String getLogicDbName();
+}
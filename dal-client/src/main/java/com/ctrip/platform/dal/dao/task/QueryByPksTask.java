@@ -0,0 +1,32 @@
+package com.ctrip.platform.dal.dao.task;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.StatementParameters;
+import com.ctrip.platform.dal.dao.helper.DalRowMapperExtractor;
+
+/**
+ * Query entities by "pk IN (...)" in the DB and table shard given by hints.
+ * It only applies to table that the primary key is of one column.
+ */
+public class QueryByPksTask<T> extends TaskAdapter<T> {
+	private static final String TMPL_IN = "%s IN (?)";
+
+	public List<T> execute(DalHints hints, List<?> pks) throws SQLException {
+		String pkName = parser.getPrimaryKeyNames()[0];
+
+		StatementParameters parameters = new StatementParameters();
+		if(isSensitive(pkName))
+			parameters.setSensitiveInParameter(1, pkName, getColumnType(pkName), pks);
+		else
+			parameters.setInParameter(1, pkName, getColumnType(pkName), pks);
+
+		String sql = String.format(findtmp, getTableName(hints), String.format(TMPL_IN, quote(pkName)));
+		sql = SQLCompiler.compile(sql, parameters.getAllInParameters());
+		parameters.compile();
+
+		return client.query(sql, parameters, hints, new DalRowMapperExtractor<>(parser));
+	}
+}
@@ -6,6 +6,7 @@ import com.ctrip.platform.dal.dao.DalClientFactory;
 import com.ctrip.platform.dal.dao.client.DalLogger;
 import com.ctrip.platform.dal.dao.client.LogContext;
 import com.ctrip.platform.dal.dao.client.LogEntry;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
 import com.ctrip.platform.dal.exceptions.DalException;
 
 public class RequestTaskWrapper<T> implements Callable<T> {
@@ -14,6 +15,10 @@ public class RequestTaskWrapper<T> implements Callable<T> {
     private Callable<T> task;
     private LogContext logContext;
 
+    // Context of the thread that creates the task
+    private Thread creator = Thread.currentThread();
+    private Object writes = ReadYourWrites.capture();
+
     public RequestTaskWrapper(String shard, Callable<T> task, LogContext logContext) {
         this.shard = shard;
         this.task = task;
@@ -27,14 +32,20 @@ public class RequestTaskWrapper<T> implements Callable<T> {
 
         logger.startTask(logContext, shard);
 
+        String outerCaller = LogEntry.getCurrentCaller();
+        boolean pooled = Thread.currentThread() != creator;
         try {
             LogEntry.populateCurrentCaller(logContext.getCaller());
+            if(pooled)
+                ReadYourWrites.restore(writes);
 
             result = task.call();
-
-            LogEntry.clearCurrentCaller();
         } catch (Throwable e) {
             error = e;
+        } finally {
+            LogEntry.restoreCurrentCaller(outerCaller);
+            if(pooled)
+                ReadYourWrites.clear();
         }
 
         logger.endTask(logContext, shard, error);
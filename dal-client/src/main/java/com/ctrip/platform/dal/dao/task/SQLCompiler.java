@@ -11,6 +11,7 @@ import org.apache.commons.lang.StringUtils;
 public class SQLCompiler {
 	private static String regEx = null;
 	private static Pattern inRegxPattern = null;
+	private static SqlTemplateCache compiledCache = new SqlTemplateCache(1024);
 	static{
 		 regEx="(?i)In *\\(? *\\? *\\)?";
 		 inRegxPattern = Pattern.compile(regEx);
@@ -31,6 +32,24 @@ public class SQLCompiler {
 	{
 		if(null == parms || parms.size() == 0)
 			return original;
+		
+		// The compiled sql only depends on the size of each IN parameter
+		int[] sizes = new int[parms.size()];
+		for (int i = 0; i < sizes.length; i++)
+			sizes[i] = parms.get(i).size();
+		
+		SqlTemplateCache.Key key = SqlTemplateCache.key(original, sizes);
+		String compiled = compiledCache.get(key);
+		if(compiled != null)
+			return compiled;
+		
+		compiled = compile(original, sizes);
+		compiledCache.put(key, compiled);
+		return compiled;
+	}
+	
+	private static String compile(String original, int[] sizes) throws SQLException
+	{
 		StringBuffer temp = new StringBuffer();
 		Matcher m = inRegxPattern.matcher(original);
 		List<String> plains = new ArrayList<String>();
@@ -42,15 +61,15 @@ public class SQLCompiler {
     	}
 		plains.add(original.substring(start, original.length()));
 		
-		if(plains.size() != parms.size() + 1){
+		if(plains.size() != sizes.length + 1){
 			throw new SQLException(String.format("SQL Parser failed. The count of in parameters[%s] not match parameter count[%s]", 
-					plains.size() - 1, parms.size()));
+					plains.size() - 1, sizes.length));
 		}
 		
 		int index = 0;
-		for (; index < parms.size(); index++) {
-			List<String> qus = new ArrayList<String>(parms.get(index).size());
-			for(int j = 0; j < parms.get(index).size(); j ++)
+		for (; index < sizes.length; index++) {
+			List<String> qus = new ArrayList<String>(sizes[index]);
+			for(int j = 0; j < sizes[index]; j ++)
 				qus.add("?");
 			temp.append(plains.get(index))
 				.append(String.format("In (%s)", StringUtils.join(qus, ",")))
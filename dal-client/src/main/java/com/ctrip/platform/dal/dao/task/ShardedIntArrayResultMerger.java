@@ -5,12 +5,14 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
+import com.ctrip.platform.dal.dao.ResultMerger;
+
 /**
  * Can be used for both DB and Table shard
  * @author jhhe
  *
  */
-public class ShardedIntArrayResultMerger implements BulkTaskResultMerger<int[]>{
+public class ShardedIntArrayResultMerger implements BulkTaskResultMerger<int[]>, ResultMerger.Unordered{
 	private Map<String , Integer[]> indexByShard = new HashMap<>();
 	private Map<Integer, Integer> affectedRowsMap = new TreeMap<>();
 	
@@ -2,12 +2,14 @@ package com.ctrip.platform.dal.dao.task;
 
 import java.sql.SQLException;
 
+import com.ctrip.platform.dal.dao.ResultMerger;
+
 /**
  * The only interesting thing for this class is it needs to merge generated keys
  * @author jhhe
  *
  */
-public class ShardedIntResultMerger implements BulkTaskResultMerger<Integer>{
+public class ShardedIntResultMerger implements BulkTaskResultMerger<Integer>, ResultMerger.Unordered{
 	private int total;
 	
 	public void recordPartial(String shard, Integer[] partialIndex) {
@@ -0,0 +1,95 @@
+package com.ctrip.platform.dal.dao.task;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of generated sql. The key is built from whatever determines the
+ * final sql, e.g. table name with shard suffix, column set and row count, so that
+ * repeated bulk operations reuse the same sql string instead of rebuilding it.
+ *
+ * When the cache is full, all entries are dropped. In steady state the number of
+ * distinct sql is small, so this rarely happens.
+ */
+public class SqlTemplateCache {
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	private int maxSize;
+	private ConcurrentHashMap<Key, String> templates = new ConcurrentHashMap<>();
+
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	public SqlTemplateCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public SqlTemplateCache(int maxSize) {
+		if(maxSize <= 0)
+			throw new IllegalArgumentException("Max size must be positive number.");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param parts elements that determine the sql. Array element is compared by content.
+	 * The parts must not be changed after the key is created.
+	 */
+	public static Key key(Object... parts) {
+		return new Key(parts);
+	}
+
+	/**
+	 * @return cached sql, or null if not found
+	 */
+	public String get(Key key) {
+		String sql = templates.get(key);
+		if(sql == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return sql;
+	}
+
+	public void put(Key key, String sql) {
+		if(templates.size() >= maxSize)
+			templates.clear();
+		templates.put(key, sql);
+	}
+
+	public int size() {
+		return templates.size();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public static class Key {
+		private Object[] parts;
+		private int hashCode;
+
+		private Key(Object[] parts) {
+			this.parts = parts;
+			hashCode = Arrays.deepHashCode(parts);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key))
+				return false;
+
+			Key key = (Key)obj;
+			return hashCode == key.hashCode && Arrays.deepEquals(parts, key.parts);
+		}
+	}
+}
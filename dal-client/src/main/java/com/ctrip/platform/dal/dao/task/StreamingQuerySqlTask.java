@@ -0,0 +1,22 @@
+package com.ctrip.platform.dal.dao.task;
+
+import java.sql.SQLException;
+
+import com.ctrip.platform.dal.dao.DalClient;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalResultIterator;
+import com.ctrip.platform.dal.dao.DalRowMapper;
+import com.ctrip.platform.dal.dao.StatementParameters;
+
+public class StreamingQuerySqlTask<T> implements SqlTask<DalResultIterator<T>>{
+	private DalRowMapper<T> mapper;
+	
+	public StreamingQuerySqlTask(DalRowMapper<T> mapper) {
+		this.mapper = mapper;
+	}
+	
+	@Override
+	public DalResultIterator<T> execute(DalClient client, String sql, StatementParameters parameters, DalHints hints) throws SQLException {
+		return client.queryIterator(sql, parameters, hints, mapper);
+	}
+}
@@ -64,6 +64,9 @@ public class TaskAdapter<T> implements DaoTask<T> {
 	
 	public boolean tableShardingEnabled;
 	protected String rawTableName;
+	
+	// Generated sql of bulk operations, keyed by table name and everything else that determines the sql
+	protected SqlTemplateCache sqlCache = new SqlTemplateCache();
 
 	public void initialize(DalParser<T> parser) {
 		this.client = DalClientFactory.getClient(parser.getDatabaseName());
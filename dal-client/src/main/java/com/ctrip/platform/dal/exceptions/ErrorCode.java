@@ -93,6 +93,11 @@ public enum ErrorCode {
 	 */
 	ValidateVersion(ErrorClassify.Validate, 5204, "Version column can not be null"),
 	
+	/**
+	 * Primary keys cannot be null
+	 */
+	ValidatePkList(ErrorClassify.Validate, 5205, "The given primary key list is null"),
+	
 	/**
 	 * Column type is not defined
 	 */
@@ -123,6 +128,11 @@ public enum ErrorCode {
 	 */
 	NoShardStradegy(ErrorClassify.Shard, 5902, "No sharding stradegy defined"),
 	
+	/**
+	 * Cross shard execution is not completed before deadline
+	 */
+	CrossShardTimeout(ErrorClassify.Shard, 5903, "Cross shard execution is not completed in %d ms, timeout shards: %s"),
+	
 	/**
 	 * The current transaction is already rolled back or completed
 	 */
@@ -178,6 +188,11 @@ public enum ErrorCode {
 	
 	InvalidDatabaseKeyName(ErrorClassify.Connection, 5306, "The given database key name is not qualified: %s"),
 	
+	/**
+	 * The executor of logic DB is saturated
+	 */
+	ExecutorRejected(ErrorClassify.Connection, 5307, "The request for %s is rejected because the executor is saturated"),
+	
 	Unknown(ErrorClassify.Unknown, 9999 , "Unknown Exception, caused by: %s");
 	
 	private final ErrorClassify classify;
@@ -13,6 +13,10 @@ import org.junit.runners.Suite.SuiteClasses;
 	DalTransactionTest.class,
 	DalShardingHelperTest.class,
 	DalConfigureFactoryTest.class,
+	DalStatementCacheTest.class,
+	LoggerAdapterTest.class,
+	DalLatencyMetricsTest.class,
+	HedgedReadTest.class,
 })
 public class AllTest {
 
@@ -0,0 +1,97 @@
+package test.com.ctrip.platform.dal.dao.client;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalEventEnum;
+import com.ctrip.platform.dal.dao.client.DalLatencyMetrics;
+import com.ctrip.platform.dal.dao.client.DalLatencyMetrics.Phase;
+import com.ctrip.platform.dal.dao.client.DalWatcher;
+import com.ctrip.platform.dal.dao.client.LogEntry;
+
+public class DalLatencyMetricsTest {
+
+	@After
+	public void tearDown() {
+		DalLatencyMetrics.setMaxKeys(DalLatencyMetrics.DEFAULT_MAX_KEYS);
+		DalLatencyMetrics.reset();
+	}
+
+	private LogEntry createEntry(DalEventEnum event, String sql) {
+		LogEntry entry = new LogEntry();
+		entry.setLogicDbName("db");
+		entry.setEvent(event);
+		entry.setSqls(sql);
+		return entry;
+	}
+
+	private void execute() throws InterruptedException {
+		DalWatcher.begin();
+		DalWatcher.beginConnect();
+		DalWatcher.endConnect();
+		DalWatcher.beginExecute();
+		Thread.sleep(2);
+		DalWatcher.endExectue();
+		DalWatcher.endExectue();
+	}
+
+	@Test
+	public void testRecord() throws Exception {
+		execute();
+		DalLatencyMetrics.record(createEntry(DalEventEnum.QUERY, "/*app-caller*/SELECT * FROM t WHERE id = 1"));
+		execute();
+		DalLatencyMetrics.record(createEntry(DalEventEnum.QUERY, "/*app-other*/SELECT * FROM t WHERE id = 2"));
+
+		// Same fingerprint for different appid comment
+		assertEquals(1, DalLatencyMetrics.getKeyCount());
+
+		String[] latencies = DalLatencyMetrics.getLatencies();
+		assertEquals(4, latencies.length);
+		assertTrue(latencies[0].startsWith("db|-|-|QUERY|"));
+		assertTrue(latencies[0].contains("|CONNECT count=2"));
+		assertTrue(latencies[1].contains("|PREPARE count=2"));
+		assertTrue(latencies[2].contains("|EXECUTE count=2"));
+		assertTrue(latencies[3].contains("|MAP count=2"));
+	}
+
+	@Test
+	public void testNoMapForUpdate() throws Exception {
+		execute();
+		DalLatencyMetrics.record(createEntry(DalEventEnum.UPDATE_SIMPLE, "DELETE FROM t"));
+		assertEquals(3, DalLatencyMetrics.getLatencies().length);
+	}
+
+	@Test
+	public void testSensitive() throws Exception {
+		LogEntry entry = createEntry(DalEventEnum.QUERY, "SELECT * FROM t");
+		entry.setSensitive(true);
+		execute();
+		DalLatencyMetrics.record(entry);
+		assertTrue(DalLatencyMetrics.getLatencies()[0].startsWith("db|-|-|QUERY|*|"));
+	}
+
+	@Test
+	public void testMerge() throws Exception {
+		DalLatencyMetrics.record("db", Phase.MERGE, 1000);
+		String[] latencies = DalLatencyMetrics.getLatencies();
+		assertEquals(1, latencies.length);
+		assertTrue(latencies[0].startsWith("db|-|-|-|-|MERGE count=1"));
+	}
+
+	@Test
+	public void testMaxKeys() throws Exception {
+		DalLatencyMetrics.setMaxKeys(2);
+		for(int i = 0; i < 10; i++) {
+			execute();
+			DalLatencyMetrics.record(createEntry(DalEventEnum.QUERY, "SELECT * FROM t" + i));
+		}
+
+		// 2 keys and OTHERS
+		assertEquals(3, DalLatencyMetrics.getKeyCount());
+		assertEquals(8, DalLatencyMetrics.getOverflowCount());
+		assertNotNull(DalLatencyMetrics.getMetrics("db|OTHERS|-|-|-"));
+		assertEquals(8, DalLatencyMetrics.getMetrics("db|OTHERS|-|-|-").getHistogram(Phase.EXECUTE).getCount());
+	}
+}
@@ -3,13 +3,16 @@ package test.com.ctrip.platform.dal.dao.client;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -189,6 +192,62 @@ public class DalShardingHelperTest {
 		}
 	}
 
+	private Map<String, ?> pojo(String column, Object value) {
+		Map<String, Object> pojo = new HashMap<>();
+		pojo.put(column, value);
+		return pojo;
+	}
+
+	@Test
+	public void testShuffleInBulk() throws SQLException {
+		final String logicDbName = "dao_test_mod";//;columns=id;mod=2
+		List<Map<String, ?>> daoPojos = new ArrayList<>();
+		for(int id: new int[]{3, 0, 5, 2, 1})
+			daoPojos.add(pojo("id", id));
+
+		Map<String, Map<Integer, Map<String, ?>>> shuffled = DalShardingHelper.shuffle(logicDbName, null, daoPojos);
+		assertEquals(2, shuffled.size());
+		assertEquals(Arrays.asList(1, 3), new ArrayList<>(shuffled.get("0").keySet()));
+		assertEquals(Arrays.asList(0, 2, 4), new ArrayList<>(shuffled.get("1").keySet()));
+		for(Map<Integer, Map<String, ?>> pojosInShard: shuffled.values()) {
+			for(Integer index: pojosInShard.keySet())
+				assertSame(daoPojos.get(index), pojosInShard.get(index));
+		}
+
+		// Pojo without shard column is located row by row, which fails
+		daoPojos.add(pojo("name", 1));
+		try {
+			DalShardingHelper.shuffle(logicDbName, null, daoPojos);
+			fail();
+		} catch (SQLException e) {
+		}
+	}
+
+	@Test
+	public void testShuffleValuesInBulk() throws SQLException {
+		final String logicDbName = "dao_test_mod";//;columns=id;mod=2
+		Map<String, List<?>> shuffled = DalShardingHelper.shuffle(logicDbName, Arrays.<Object>asList(3, 0, 5L, 2, "1"));
+		assertEquals(2, shuffled.size());
+		assertEquals(Arrays.<Object>asList(0, 2), shuffled.get("0"));
+		assertEquals(Arrays.<Object>asList(3, 5L, "1"), shuffled.get("1"));
+	}
+
+	@Test
+	public void testShuffleByTableInBulk() throws SQLException {
+		final String logicDbName = "dao_test_sqlsvr_tableShard";//tableColumns=index,tableIndex;tableMod=4;separator=_;shardedTables=dal_client_test
+		Map<Integer, Map<String, ?>> daoPojos = new LinkedHashMap<>();
+		daoPojos.put(10, pojo("index", 5));
+		daoPojos.put(11, pojo("tableIndex", 2));
+		daoPojos.put(12, pojo("index", 6));
+		daoPojos.put(13, pojo("index", 1));
+
+		Map<String, Map<Integer, Map<String, ?>>> shuffled = DalShardingHelper.shuffleByTable(logicDbName, null, daoPojos);
+		assertEquals(2, shuffled.size());
+		assertEquals(Arrays.asList(10, 13), new ArrayList<>(shuffled.get("1").keySet()));
+		assertEquals(Arrays.asList(11, 12), new ArrayList<>(shuffled.get("2").keySet()));
+		assertSame(daoPojos.get(11), shuffled.get("2").get(11));
+	}
+
 	@Test
 	public void testShuffleByTable() {
 		final String logicDbName = "dao_test_sqlsvr_tableShard";//tableColumns=index,tableIndex;tableMod=4;separator=_;shardedTables=dal_client_test
@@ -0,0 +1,360 @@
+package test.com.ctrip.platform.dal.dao.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.client.DalStatementCache;
+import com.ctrip.platform.dal.dao.configure.DataSourceConfigureConstants;
+
+public class DalStatementCacheTest {
+	private static final int TYPE = ResultSet.TYPE_FORWARD_ONLY;
+	private static final int CONCURRENCY = ResultSet.CONCUR_READ_ONLY;
+
+	private static AtomicInteger intercepted = new AtomicInteger();
+
+	private org.apache.tomcat.jdbc.pool.DataSource ds;
+
+	@Before
+	public void setUp() throws Exception {
+		DalStatementCache.init("2", null);
+		ds = createDataSource();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ds.close(true);
+		DalStatementCache.init(null, null);
+	}
+
+	private org.apache.tomcat.jdbc.pool.DataSource createDataSource() {
+		return createDataSource(CountingInterceptor.class.getName());
+	}
+
+	private org.apache.tomcat.jdbc.pool.DataSource createDataSource(String interceptors) {
+		PoolProperties p = new PoolProperties();
+		p.setDataSource(createStub(DataSource.class, new StubHandler()));
+		p.setInitialSize(0);
+		p.setMaxActive(1);
+		p.setMaxIdle(1);
+		p.setMinIdle(0);
+		p.setJdbcInterceptors(interceptors);
+		return new org.apache.tomcat.jdbc.pool.DataSource(p);
+	}
+
+	/**
+	 * Count statements prepared through the pool
+	 */
+	public static class CountingInterceptor extends JdbcInterceptor {
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if("prepareStatement".equals(method.getName()))
+				intercepted.incrementAndGet();
+			return super.invoke(proxy, method, args);
+		}
+
+		@Override
+		public void reset(ConnectionPool parent, PooledConnection con) {
+		}
+	}
+
+	@Test
+	public void testIsEnabled() throws Exception {
+		assertTrue(DalStatementCache.isEnabled(DatabaseCategory.MySql));
+		assertTrue(DalStatementCache.isEnabled(DatabaseCategory.SqlServer));
+
+		DalStatementCache.init("2", "MySql");
+		assertTrue(DalStatementCache.isEnabled(DatabaseCategory.MySql));
+		assertFalse(DalStatementCache.isEnabled(DatabaseCategory.SqlServer));
+
+		DalStatementCache.init("0", "MySql");
+		assertFalse(DalStatementCache.isEnabled(DatabaseCategory.MySql));
+
+		DalStatementCache.init(null, null);
+		assertFalse(DalStatementCache.isEnabled(DatabaseCategory.MySql));
+	}
+
+	@Test
+	public void testHit() throws Exception {
+		long hits = DalStatementCache.getHitCount();
+		long misses = DalStatementCache.getMissCount();
+
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		assertTrue(DalStatementCache.release(conn, ps));
+		assertSame(ps, prepare(conn, "select 1"));
+		assertTrue(DalStatementCache.release(conn, ps));
+		conn.close();
+
+		// Same pooled connection is returned
+		conn = ds.getConnection();
+		assertSame(ps, prepare(conn, "select 1"));
+		assertTrue(DalStatementCache.release(conn, ps));
+		assertFalse(ps.isClosed());
+		conn.close();
+
+		assertEquals(hits + 2, DalStatementCache.getHitCount());
+		assertEquals(misses + 1, DalStatementCache.getMissCount());
+	}
+
+	@Test
+	public void testFilterInterceptors() throws Exception {
+		assertEquals("org.apache.tomcat.jdbc.pool.interceptor.ConnectionState;"
+				+ "com.ctrip.platform.dal.dao.datasource.ConnectionReleaseInterceptor",
+				DalStatementCache.filterInterceptors(DataSourceConfigureConstants.DEFAULT_JDBCINTERCEPTORS));
+		assertEquals("ConnectionState(a=1)", DalStatementCache.filterInterceptors("ConnectionState(a=1); StatementFinalizer(trace=true)"));
+		assertNull(DalStatementCache.filterInterceptors(null));
+
+		// Kept if the cache is disabled
+		DalStatementCache.init(null, null);
+		assertEquals(DataSourceConfigureConstants.DEFAULT_JDBCINTERCEPTORS,
+				DalStatementCache.filterInterceptors(DataSourceConfigureConstants.DEFAULT_JDBCINTERCEPTORS));
+	}
+
+	@Test
+	public void testHitWithDefaultInterceptors() throws Exception {
+		ds.close(true);
+		ds = createDataSource(DalStatementCache.filterInterceptors(DataSourceConfigureConstants.DEFAULT_JDBCINTERCEPTORS));
+		long hits = DalStatementCache.getHitCount();
+
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		assertTrue(DalStatementCache.release(conn, ps));
+		conn.close();
+
+		// Statement is not closed when the connection is returned to the pool
+		assertFalse(ps.isClosed());
+		conn = ds.getConnection();
+		assertSame(ps, prepare(conn, "select 1"));
+		assertTrue(DalStatementCache.release(conn, ps));
+		conn.close();
+
+		assertEquals(hits + 1, DalStatementCache.getHitCount());
+	}
+
+	@Test
+	public void testKey() throws Exception {
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		DalStatementCache.release(conn, ps);
+
+		PreparedStatement ps2 = DalStatementCache.prepare(conn, "select 1", TYPE, CONCURRENCY, Statement.RETURN_GENERATED_KEYS);
+		assertNotSame(ps, ps2);
+		DalStatementCache.release(conn, ps2);
+
+		PreparedStatement ps3 = DalStatementCache.prepare(conn, "select 1", ResultSet.TYPE_SCROLL_INSENSITIVE, CONCURRENCY, Statement.NO_GENERATED_KEYS);
+		assertNotSame(ps, ps3);
+		assertNotSame(ps2, ps3);
+		DalStatementCache.release(conn, ps3);
+		conn.close();
+	}
+
+	@Test
+	public void testInUse() throws Exception {
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		assertNull(prepare(conn, "select 1"));
+
+		// Not cached statement should be closed by caller
+		assertTrue(DalStatementCache.release(conn, ps));
+		assertFalse(DalStatementCache.release(conn, ps));
+		conn.close();
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		long evictions = DalStatementCache.getEvictionCount();
+
+		Connection conn = ds.getConnection();
+		PreparedStatement ps1 = prepare(conn, "select 1");
+		DalStatementCache.release(conn, ps1);
+		PreparedStatement ps2 = prepare(conn, "select 2");
+		DalStatementCache.release(conn, ps2);
+
+		// Make select 1 the most recently used
+		assertSame(ps1, prepare(conn, "select 1"));
+		DalStatementCache.release(conn, ps1);
+
+		PreparedStatement ps3 = prepare(conn, "select 3");
+		DalStatementCache.release(conn, ps3);
+
+		assertEquals(evictions + 1, DalStatementCache.getEvictionCount());
+		assertTrue(ps2.isClosed());
+		assertFalse(ps1.isClosed());
+		assertSame(ps1, prepare(conn, "select 1"));
+		conn.close();
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		DalStatementCache.release(conn, ps);
+
+		DalStatementCache.invalidate(ds.getPoolProperties());
+
+		PreparedStatement ps2 = prepare(conn, "select 1");
+		assertNotSame(ps, ps2);
+		assertTrue(ps.isClosed());
+		DalStatementCache.release(conn, ps2);
+		conn.close();
+	}
+
+	@Test
+	public void testInvalidateOtherPool() throws Exception {
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		DalStatementCache.release(conn, ps);
+
+		org.apache.tomcat.jdbc.pool.DataSource other = createDataSource();
+		try {
+			other.createPool();
+			DalStatementCache.invalidate(other.getPoolProperties());
+		} finally {
+			other.close(true);
+		}
+
+		assertSame(ps, prepare(conn, "select 1"));
+		DalStatementCache.release(conn, ps);
+		conn.close();
+	}
+
+	@Test
+	public void testPreparedThroughPool() throws Exception {
+		int count = intercepted.get();
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		DalStatementCache.release(conn, ps);
+		conn.close();
+
+		assertEquals(count + 1, intercepted.get());
+	}
+
+	@Test
+	public void testResultSetClosedOnReuse() throws Exception {
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		ResultSet rs = ps.getResultSet();
+		DalStatementCache.release(conn, ps);
+
+		assertSame(ps, prepare(conn, "select 1"));
+		assertTrue(rs.isClosed());
+		DalStatementCache.release(conn, ps);
+		conn.close();
+	}
+
+	@Test
+	public void testResetFailure() throws Exception {
+		Connection conn = ds.getConnection();
+		PreparedStatement ps = prepare(conn, "select 1");
+		DalStatementCache.release(conn, ps);
+		ps.setCursorName("fail");
+
+		try {
+			prepare(conn, "select 1");
+			fail();
+		} catch (SQLException e) {
+		}
+
+		// Statement that failed is discarded instead of being kept in use
+		assertTrue(ps.isClosed());
+		PreparedStatement ps2 = prepare(conn, "select 1");
+		assertNotSame(ps, ps2);
+		assertTrue(DalStatementCache.release(conn, ps2));
+		conn.close();
+	}
+
+	@Test
+	public void testNotPooled() throws Exception {
+		Connection conn = createStub(Connection.class, new StubHandler());
+		assertNull(prepare(conn, "select 1"));
+	}
+
+	private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+		return DalStatementCache.prepare(conn, sql, TYPE, CONCURRENCY, Statement.NO_GENERATED_KEYS);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T createStub(Class<T> clazz, InvocationHandler handler) {
+		return (T)Proxy.newProxyInstance(DalStatementCacheTest.class.getClassLoader(), new Class<?>[]{clazz}, handler);
+	}
+
+	/**
+	 * Simulate data source, connection and statement of JDBC driver
+	 */
+	private static class StubHandler implements InvocationHandler {
+		private boolean closed;
+		private boolean failing;
+		private ResultSet rs;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "getConnection":
+				return createStub(Connection.class, new StubHandler());
+			case "prepareStatement":
+				return createStub(PreparedStatement.class, new StubHandler());
+			case "getResultSet":
+				if(rs == null)
+					rs = createStub(ResultSet.class, new StubHandler());
+				return rs;
+			case "setCursorName":
+				failing = true;
+				return null;
+			case "clearParameters":
+				if(failing)
+					throw new SQLException("Statement is broken");
+				return null;
+			case "close":
+				closed = true;
+				return null;
+			case "isClosed":
+				return closed;
+			case "isValid":
+				return true;
+			case "unwrap":
+				throw new SQLException("Not a wrapper");
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "equals":
+				return proxy == args[0];
+			case "toString":
+				return "Stub";
+			}
+
+			Class<?> type = method.getReturnType();
+			if(type == boolean.class)
+				return false;
+			if(type == int.class)
+				return 0;
+			if(type == long.class)
+				return 0L;
+			return null;
+		}
+	}
+}
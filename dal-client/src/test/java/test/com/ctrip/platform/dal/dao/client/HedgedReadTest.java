@@ -0,0 +1,287 @@
+package test.com.ctrip.platform.dal.dao.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalEventEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.client.ConnectionAction;
+import com.ctrip.platform.dal.dao.client.DalConnectionLocator;
+import com.ctrip.platform.dal.dao.client.DalConnectionManager;
+import com.ctrip.platform.dal.dao.client.HedgedRead;
+import com.ctrip.platform.dal.dao.configure.DalConfigure;
+import com.ctrip.platform.dal.dao.configure.DatabaseSet;
+import com.ctrip.platform.dal.dao.markdown.MarkdownManager;
+import com.ctrip.platform.dal.dao.status.DalStatusManager;
+
+public class HedgedReadTest {
+	private static final String DB = "HA_Test";
+
+	static {
+		try {
+			DalClientFactory.initClientFactory();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private DalConnectionManager manager;
+
+	// Milliseconds each query takes by the order of getting connection, negative means failing at once
+	private List<Long> costs = new CopyOnWriteArrayList<>();
+	private List<String> dataSources = new CopyOnWriteArrayList<>();
+	private List<Thread> threads = new CopyOnWriteArrayList<>();
+	private CountDownLatch cancelled = new CountDownLatch(1);
+
+	@Before
+	public void setUp() {
+		DalConfigure config = DalClientFactory.getDalConfigure();
+		Map<String, DatabaseSet> databaseSets = Collections.singletonMap(DB, config.getDatabaseSet(DB));
+		manager = new DalConnectionManager(DB, new DalConfigure("hedge", databaseSets, config.getDalLogger(),
+				new MockLocator(), config.getFacory()));
+		HedgedRead.reset();
+		HedgedRead.setBudget(100);
+	}
+
+	@After
+	public void tearDown() {
+		HedgedRead.setBudget(HedgedRead.DEFAULT_BUDGET);
+		HedgedRead.setDelay(0);
+		HedgedRead.reset();
+	}
+
+	private class MockLocator implements DalConnectionLocator {
+		@Override
+		public void initialize(Map<String, String> settings) throws Exception {
+		}
+
+		@Override
+		public void setup(Set<String> dbNames) {
+		}
+
+		@Override
+		public Connection getConnection(final String name) throws Exception {
+			dataSources.add(name);
+			return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					switch (method.getName()) {
+					case "getTransactionIsolation":
+						return Connection.TRANSACTION_READ_COMMITTED;
+					case "getAutoCommit":
+						return true;
+					case "isClosed":
+						return false;
+					case "getCatalog":
+						return name;
+					case "getMetaData":
+						return mock(DatabaseMetaData.class, "jdbc:mysql://" + name + ":3306/db");
+					default:
+						return null;
+					}
+				}
+			});
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T mock(Class<T> clazz, final String url) {
+		return (T)Proxy.newProxyInstance(HedgedReadTest.class.getClassLoader(), new Class[]{clazz}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				return "getURL".equals(method.getName()) ? url : null;
+			}
+		});
+	}
+
+	// Query that takes the cost of its data source, or until it is cancelled
+	private ConnectionAction<String> createAction(final DalHints hints) {
+		ConnectionAction<String> action = new ConnectionAction<String>() {
+			@Override
+			public String execute() throws Exception {
+				threads.add(Thread.currentThread());
+				connHolder = manager.getNewConnection(hints, false, operation);
+				conn = connHolder.getConn();
+
+				final CountDownLatch cancel = new CountDownLatch(1);
+				statement = (Statement)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Statement.class}, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if("cancel".equals(method.getName())) {
+							cancel.countDown();
+							cancelled.countDown();
+						}
+						return null;
+					}
+				});
+
+				String dataSource = connHolder.getMeta().getDataBaseKeyName();
+				long cost = costs.get(dataSources.indexOf(dataSource));
+				if(cost < 0)
+					throw new SQLException("Can not connect", "08S01", 1043);
+				if(cancel.await(cost, TimeUnit.MILLISECONDS))
+					throw new SQLException("Query is cancelled");
+
+				return dataSource;
+			}
+		};
+		action.operation = DalEventEnum.QUERY;
+		action.sql = "select 1";
+		action.setHedgeable(true);
+		return action;
+	}
+
+	private String query(DalHints hints, Long... costs) throws SQLException {
+		Collections.addAll(this.costs, costs);
+		return manager.doInConnection(createAction(hints), hints);
+	}
+
+	@Test
+	public void testHedgeWins() throws Exception {
+		long begin = System.currentTimeMillis();
+		String result = query(new DalHints().hedgeReads(200), 5000L, 10L);
+
+		assertTrue(System.currentTimeMillis() - begin < 2000);
+		assertTrue(cancelled.await(1, TimeUnit.SECONDS));
+		assertEquals(2, dataSources.size());
+		assertNotEquals(dataSources.get(0), dataSources.get(1));
+		assertEquals(dataSources.get(1), result);
+		assertEquals(Thread.currentThread(), threads.get(0));
+		assertNotEquals(Thread.currentThread(), threads.get(1));
+
+		assertEquals(1, HedgedRead.getHedgeableCount());
+		assertEquals(1, HedgedRead.getFiredCount());
+		assertEquals(1, HedgedRead.getWonCount());
+
+		// Cancelled query does not mark down the slave
+		assertFalse(MarkdownManager.isMarkdown(dataSources.get(0)));
+	}
+
+	@Test
+	public void testPrimaryReturnsInTime() throws Exception {
+		String result = query(new DalHints().hedgeReads(500), 10L);
+
+		assertEquals(1, dataSources.size());
+		assertEquals(dataSources.get(0), result);
+		assertEquals(1, HedgedRead.getHedgeableCount());
+		assertEquals(0, HedgedRead.getFiredCount());
+
+		// Primary attempt is not handed off
+		assertEquals(Collections.singletonList(Thread.currentThread()), threads);
+	}
+
+	@Test
+	public void testPrimaryWinsAfterHedge() throws Exception {
+		String result = query(new DalHints().hedgeReads(200), 500L, 5000L);
+
+		assertEquals(2, dataSources.size());
+		assertEquals(dataSources.get(0), result);
+		assertTrue(cancelled.await(1, TimeUnit.SECONDS));
+		assertEquals(1, HedgedRead.getFiredCount());
+		assertEquals(0, HedgedRead.getWonCount());
+	}
+
+	@Test
+	public void testThrottledByBudget() throws Exception {
+		HedgedRead.setBudget(0);
+		String result = query(new DalHints().hedgeReads(20), 200L);
+
+		assertEquals(1, dataSources.size());
+		assertEquals(dataSources.get(0), result);
+		assertEquals(0, HedgedRead.getFiredCount());
+		assertEquals(1, HedgedRead.getThrottledCount());
+	}
+
+	@Test
+	public void testBudget() throws Exception {
+		HedgedRead.setBudget(50);
+
+		// The first read deposits half of a hedge
+		query(new DalHints().hedgeReads(20), 100L);
+		assertEquals(1, HedgedRead.getThrottledCount());
+
+		costs.clear();
+		dataSources.clear();
+		query(new DalHints().hedgeReads(20), 100L, 10L);
+		assertEquals(1, HedgedRead.getFiredCount());
+	}
+
+	@Test
+	public void testNotHedgedForStatefulAction() throws Exception {
+		DalHints hints = new DalHints().hedgeReads(20);
+		Collections.addAll(costs, 200L, 10L);
+		ConnectionAction<String> action = createAction(hints);
+		action.setHedgeable(false);
+		manager.doInConnection(action, hints);
+
+		assertEquals(1, dataSources.size());
+		assertEquals(0, HedgedRead.getHedgeableCount());
+		assertEquals(0, HedgedRead.getFiredCount());
+	}
+
+	@Test
+	public void testFailoverOnPrimaryFailure() throws Exception {
+		DalStatusManager.getHaStatus().setEnabled(true);
+		DalStatusManager.getHaStatus().setRetryCount(2);
+		try {
+			HedgedRead.setBudget(0);
+			long begin = System.currentTimeMillis();
+			String result = query(new DalHints().hedgeReads(5000), -1L, 10L);
+
+			// Another slave is tried at once without waiting for the delay or budget
+			assertTrue(System.currentTimeMillis() - begin < 2000);
+			assertEquals(2, dataSources.size());
+			assertEquals(dataSources.get(1), result);
+			assertEquals(Collections.nCopies(2, Thread.currentThread()), threads);
+			assertEquals(0, HedgedRead.getFiredCount());
+			assertEquals(0, HedgedRead.getWonCount());
+		} finally {
+			DalStatusManager.getHaStatus().setEnabled(false);
+			DalStatusManager.getHaStatus().setRetryCount(1);
+		}
+	}
+
+	@Test
+	public void testNoFailoverWithoutHA() throws Exception {
+		try {
+			query(new DalHints().hedgeReads(5000), -1L, 10L);
+			fail();
+		} catch (SQLException e) {
+			assertEquals(1043, e.getErrorCode());
+		}
+		assertEquals(1, dataSources.size());
+	}
+
+	@Test
+	public void testNotHedgedWithoutHint() throws Exception {
+		HedgedRead.setDelay(1);
+		query(new DalHints(), 100L);
+
+		assertEquals(1, dataSources.size());
+		assertEquals(0, HedgedRead.getHedgeableCount());
+		assertEquals(0, HedgedRead.getFiredCount());
+	}
+}
@@ -1,25 +1,100 @@
-package test.com.ctrip.platform.dal.dao.client;
-
-import org.junit.Test;
-import static org.junit.Assert.assertEquals;
-
-import com.ctrip.platform.dal.dao.client.LogEntry;
-
-public class LogEntryTest {
-    @Test
-    public void testGetCallerInShort() {
-        LogEntry test = new LogEntry();
-
-        assertEquals("NativeMethodAccessorImpl.invoke", test.getCallerInShort());
-    }
-
-    @Test
-    public void testGetCallerInShortPopulate() {
-        LogEntry.populateCurrentCaller("test.com.ctrip.platform.dal.dao.client.LogEntryTest.testGetCallerInShortPopulate");
-        LogEntry test = new LogEntry();
-
-        assertEquals("LogEntryTest.testGetCallerInShortPopulate", test.getCallerInShort());
-        LogEntry.clearCurrentCaller();
-        assertEquals("NativeMethodAccessorImpl.invoke", test.getCallerInShort());
-    }
-}
+package test.com.ctrip.platform.dal.dao.client;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.ctrip.platform.dal.dao.client.LogContext;
+import com.ctrip.platform.dal.dao.client.LogEntry;
+
+public class LogEntryTest {
+    @After
+    public void tearDown() {
+        LogEntry.setCallerSampling(LogEntry.DEFAULT_CALLER_SAMPLING);
+    }
+
+    @Test
+    public void testGetCallerInShort() {
+        LogEntry.setCallerSampling(1);
+        LogEntry test = new LogEntry();
+
+        assertEquals("NativeMethodAccessorImpl.invoke", test.getCallerInShort());
+    }
+
+    @Test
+    public void testGetCallerInShortPopulate() {
+        LogEntry.init();
+        LogEntry.setCallerSampling(1);
+        LogEntry.populateCurrentCaller("test.com.ctrip.platform.dal.dao.client.LogEntryTest.testGetCallerInShortPopulate");
+        LogEntry test = new LogEntry();
+
+        assertEquals("LogEntryTest.testGetCallerInShortPopulate", test.getCallerInShort());
+
+        // Stack is not captured when the request caller is known
+        LogEntry.clearCurrentCaller();
+        assertEquals("LogEntryTest.testGetCallerInShortPopulate", test.getCallerInShort());
+    }
+
+    @Test
+    public void testLazyCaller() {
+        LogEntry.setCallerSampling(1);
+        LogEntry test = new LogEntry();
+
+        assertNotNull(test.getDao());
+        assertNotNull(test.getMethod());
+        assertNotNull(test.getSource());
+    }
+
+    @Test
+    public void testRequestCaller() {
+        LogEntry.init();
+        LogEntry.setCallerSampling(1);
+        assertEquals("test.com.ctrip.platform.dal.dao.client.LogEntryTest.testRequestCaller", LogContext.getRequestCaller());
+
+        // Caller of the outer request is reused without walking the stack
+        LogEntry.populateCurrentCaller("test.com.ctrip.platform.dal.dao.client.PersonDao.queryAll");
+        try {
+            assertEquals("test.com.ctrip.platform.dal.dao.client.PersonDao.queryAll", LogContext.getRequestCaller());
+        } finally {
+            LogEntry.clearCurrentCaller();
+        }
+
+        LogEntry.setCallerSampling(Integer.MAX_VALUE);
+        assertNull(LogContext.getRequestCaller());
+    }
+
+    @Test
+    public void testCallerSampling() {
+        LogEntry.init();
+        LogEntry.setCallerSampling(Integer.MAX_VALUE);
+        try {
+            LogEntry.populateCurrentCaller("test.com.ctrip.platform.dal.dao.client.PersonDao.queryAll");
+            LogEntry test = new LogEntry();
+            LogEntry.clearCurrentCaller();
+
+            // Not sampled, caller comes from request caller
+            assertEquals("test.com.ctrip.platform.dal.dao.client.PersonDao", test.getDao());
+            assertEquals("queryAll", test.getMethod());
+            assertEquals("PersonDao.queryAll", test.getCallerInShort());
+        } finally {
+            LogEntry.setCallerSampling(LogEntry.DEFAULT_CALLER_SAMPLING);
+        }
+    }
+
+    @Test
+    public void testCallerSamplingWithoutRequestCaller() {
+        LogEntry.init();
+        LogEntry.setCallerSampling(Integer.MAX_VALUE);
+        try {
+            LogEntry test = new LogEntry();
+
+            // Not sampled, the stack is not walked
+            assertNull(test.getDao());
+            assertEquals("unknown", test.getCaller());
+        } finally {
+            LogEntry.setCallerSampling(LogEntry.DEFAULT_CALLER_SAMPLING);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package test.com.ctrip.platform.dal.dao.client;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.client.DefaultLogger;
+import com.ctrip.platform.dal.dao.client.LogEntry;
+import com.ctrip.platform.dal.dao.client.LoggerAdapter;
+
+public class LoggerAdapterTest {
+	private DefaultLogger logger = new DefaultLogger();
+
+	@After
+	public void tearDown() {
+		disable();
+	}
+
+	private void disable() {
+		Map<String, String> settings = new HashMap<>();
+		settings.put("asyncLogging", "false");
+		logger.initialize(settings);
+		logger.shutdown();
+	}
+
+	private void initialize(String capacity, String policy) {
+		Map<String, String> settings = new HashMap<>();
+		settings.put("asyncLogging", "true");
+		settings.put("capacity", capacity);
+		if(policy != null)
+			settings.put("overflowPolicy", policy);
+		settings.put("overflowSampling", "2");
+		logger.initialize(settings);
+	}
+
+	// Block the logging thread until the latch is released
+	private CountDownLatch block() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		logger.call(new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+				}
+			}
+		});
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		return release;
+	}
+
+	@Test
+	public void testSync() {
+		disable();
+		final List<Integer> logged = new ArrayList<>();
+		logger.call(new Runnable() {
+			@Override
+			public void run() {
+				logged.add(1);
+			}
+		});
+		assertEquals(1, logged.size());
+		assertEquals(0, LoggerAdapter.getAsyncLoggingCapacity());
+	}
+
+	@Test
+	public void testAsyncInOrder() throws Exception {
+		initialize("100", null);
+		assertEquals(128, LoggerAdapter.getAsyncLoggingCapacity());
+
+		final List<Integer> logged = Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch done = new CountDownLatch(1000);
+		for(int i = 0; i < 1000; i++) {
+			final int index = i;
+			logger.call(new Runnable() {
+				@Override
+				public void run() {
+					logged.add(index);
+					done.countDown();
+				}
+			});
+
+			// Keep within capacity
+			if(i % 100 == 99)
+				while(LoggerAdapter.getAsyncLoggingSize() > 0)
+					Thread.sleep(1);
+		}
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for(int i = 0; i < 1000; i++)
+			assertEquals(i, logged.get(i).intValue());
+		assertEquals(0, LoggerAdapter.getAsyncLoggingDroppedCount());
+	}
+
+	// Sub class built on the executor of old versions
+	private static class ExecutorLogger extends DefaultLogger {
+		@SuppressWarnings("deprecation")
+		void submit(Runnable task) {
+			executor.submit(task);
+		}
+	}
+
+	@Test
+	public void testDeprecatedExecutor() throws Exception {
+		initialize("8", null);
+		final CountDownLatch logged = new CountDownLatch(1);
+		final List<Thread> threads = new ArrayList<>();
+		new ExecutorLogger().submit(new Runnable() {
+			@Override
+			public void run() {
+				threads.add(Thread.currentThread());
+				logged.countDown();
+			}
+		});
+
+		assertTrue(logged.await(1, TimeUnit.SECONDS));
+		assertNotSame(Thread.currentThread(), threads.get(0));
+		assertEquals(1, LoggerAdapter.getAsyncLoggingPublishedCount());
+	}
+
+	@Test
+	public void testSuccessCopyFailure() throws Exception {
+		initialize("8", null);
+		try {
+			logger.success(new LogEntry() {
+				@Override
+				public String getSource() {
+					throw new IllegalStateException();
+				}
+			}, 1);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+
+		// The claimed slot is still published, so later events are consumed
+		final CountDownLatch logged = new CountDownLatch(1);
+		logger.call(new Runnable() {
+			@Override
+			public void run() {
+				logged.countDown();
+			}
+		});
+		assertTrue(logged.await(1, TimeUnit.SECONDS));
+		for(int i = 0; i < 100 && LoggerAdapter.getAsyncLoggingSize() > 0; i++)
+			Thread.sleep(10);
+		assertEquals(0, LoggerAdapter.getAsyncLoggingSize());
+	}
+
+	@Test
+	public void testDropWhenFull() throws Exception {
+		initialize("8", "drop");
+		CountDownLatch release = block();
+
+		for(int i = 0; i < 20; i++)
+			logger.info("info " + i);
+
+		// The blocked one is in the buffer too
+		assertEquals(8, LoggerAdapter.getAsyncLoggingSize());
+		assertEquals(13, LoggerAdapter.getAsyncLoggingDroppedCount());
+		assertEquals(0, LoggerAdapter.getAsyncLoggingSampledCount());
+
+		release.countDown();
+		for(int i = 0; i < 100 && LoggerAdapter.getAsyncLoggingSize() > 0; i++)
+			Thread.sleep(10);
+		assertEquals(0, LoggerAdapter.getAsyncLoggingSize());
+	}
+
+	@Test
+	public void testSampleWhenHalfFull() throws Exception {
+		initialize("8", "sample");
+		CountDownLatch release = block();
+
+		// Half full with the blocked one
+		for(int i = 0; i < 3; i++)
+			logger.info("info " + i);
+		assertEquals(4, LoggerAdapter.getAsyncLoggingSize());
+
+		// One of every 2 info is kept
+		for(int i = 0; i < 4; i++)
+			logger.info("info " + i);
+		assertEquals(6, LoggerAdapter.getAsyncLoggingSize());
+		assertEquals(2, LoggerAdapter.getAsyncLoggingSampledCount());
+
+		// Warn is not sampled
+		logger.warn("warn");
+		logger.warn("warn");
+		assertEquals(8, LoggerAdapter.getAsyncLoggingSize());
+
+		logger.error("error", null);
+		assertEquals(1, LoggerAdapter.getAsyncLoggingDroppedCount());
+
+		release.countDown();
+	}
+}
@@ -7,6 +7,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({ 
 		DatabasePoolConfigParserTest.class, 
+		DataSourceLocatorTest.class,
+		DataSourceTerminatorTest.class,
 })
 public class AllTests {
 
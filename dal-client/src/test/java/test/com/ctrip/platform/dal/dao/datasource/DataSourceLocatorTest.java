@@ -0,0 +1,121 @@
+package test.com.ctrip.platform.dal.dao.datasource;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.configure.DataSourceConfigure;
+import com.ctrip.platform.dal.dao.configure.DataSourceConfigureChangeListener;
+import com.ctrip.platform.dal.dao.configure.DataSourceConfigureProvider;
+import com.ctrip.platform.dal.dao.datasource.DataSourceLocator;
+
+public class DataSourceLocatorTest {
+	private static final int DELAY = 300;
+
+	private static class SlowProvider implements DataSourceConfigureProvider {
+		private AtomicInteger count = new AtomicInteger();
+		private volatile boolean found = true;
+
+		@Override
+		public void initialize(Map<String, String> settings) throws Exception {}
+
+		@Override
+		public void setup(Set<String> dbNames) {}
+
+		@Override
+		public DataSourceConfigure getDataSourceConfigure(String dbName) {
+			count.incrementAndGet();
+			try {
+				Thread.sleep(DELAY);
+			} catch (InterruptedException e) {
+			}
+			return found ? new DataSourceConfigure(dbName) : null;
+		}
+
+		@Override
+		public void register(String dbName, DataSourceConfigureChangeListener listener) {}
+	}
+
+	private List<DataSource> getDataSources(final DataSourceLocator locator, String... names) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(names.length);
+		try {
+			List<Future<DataSource>> futures = new ArrayList<>();
+			for(final String name: names) {
+				futures.add(executor.submit(new Callable<DataSource>() {
+					@Override
+					public DataSource call() throws Exception {
+						return locator.getDataSource(name);
+					}
+				}));
+			}
+
+			List<DataSource> dataSources = new ArrayList<>();
+			for(Future<DataSource> future: futures)
+				dataSources.add(future.get());
+			return dataSources;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCreateOnce() throws Exception {
+		SlowProvider provider = new SlowProvider();
+		DataSourceLocator locator = new DataSourceLocator(provider);
+		String name = "testCreateOnce" + System.nanoTime();
+
+		List<DataSource> dataSources = getDataSources(locator, name, name, name, name, name, name, name, name);
+		assertEquals(1, provider.count.get());
+		for(DataSource ds: dataSources)
+			assertSame(dataSources.get(0), ds);
+
+		assertSame(dataSources.get(0), locator.getDataSource(name));
+		assertEquals(1, provider.count.get());
+	}
+
+	@Test
+	public void testCreateInParallel() throws Exception {
+		SlowProvider provider = new SlowProvider();
+		DataSourceLocator locator = new DataSourceLocator(provider);
+		String name = "testCreateInParallel" + System.nanoTime();
+
+		long start = System.currentTimeMillis();
+		getDataSources(locator, name + 1, name + 2, name + 3, name + 4);
+		long cost = System.currentTimeMillis() - start;
+
+		assertEquals(4, provider.count.get());
+		assertTrue("Cost " + cost, cost < DELAY * 3);
+	}
+
+	@Test
+	public void testRetryAfterFailure() throws Exception {
+		SlowProvider provider = new SlowProvider();
+		DataSourceLocator locator = new DataSourceLocator(provider);
+		String name = "testRetryAfterFailure" + System.nanoTime();
+
+		provider.found = false;
+		try {
+			locator.getDataSource(name);
+			fail();
+		} catch (RuntimeException e) {
+		}
+		assertFalse(DataSourceLocator.containsKey(name));
+
+		provider.found = true;
+		assertNotNull(locator.getDataSource(name));
+		assertTrue(DataSourceLocator.containsKey(name));
+		assertEquals(2, provider.count.get());
+	}
+}
@@ -0,0 +1,137 @@
+package test.com.ctrip.platform.dal.dao.datasource;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.configure.DataSourceConfigure;
+import com.ctrip.platform.dal.dao.datasource.DataSourceTerminator;
+import com.ctrip.platform.dal.dao.datasource.SingleDataSource;
+
+public class DataSourceTerminatorTest {
+	private static final AtomicInteger opened = new AtomicInteger();
+
+	public static class MockDriver implements Driver {
+		@Override
+		public Connection connect(String url, Properties info) throws SQLException {
+			opened.incrementAndGet();
+			return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					Class<?> type = method.getReturnType();
+					if(method.getName().equals("isValid"))
+						return true;
+					if(type == boolean.class)
+						return false;
+					if(type == int.class)
+						return 0;
+					return null;
+				}
+			});
+		}
+
+		@Override
+		public boolean acceptsURL(String url) throws SQLException {
+			return true;
+		}
+
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		@Override
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+	}
+
+	private SingleDataSource createDataSource(String name, int minIdle) throws SQLException {
+		Map<String, String> properties = new HashMap<>();
+		properties.put("connectionUrl", "jdbc:mock:" + name);
+		properties.put("driverClassName", MockDriver.class.getName());
+		properties.put("userName", "test");
+		properties.put("password", "test");
+		properties.put("testOnBorrow", "false");
+		properties.put("initialSize", "1");
+		properties.put("minIdle", String.valueOf(minIdle));
+		return new SingleDataSource(name, new DataSourceConfigure(name, properties));
+	}
+
+	private boolean waitClosed(ConnectionPool pool, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while(!pool.isClosed() && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		return pool.isClosed();
+	}
+
+	@Test
+	public void testWarmUp() throws Exception {
+		SingleDataSource dataSource = createDataSource("testWarmUp", 5);
+		ConnectionPool pool = dataSource.getPool();
+		assertEquals(1, pool.getSize());
+
+		int before = opened.get();
+		dataSource.warmUp(1000);
+		assertEquals(5, pool.getSize());
+		assertEquals(5, pool.getIdle());
+		assertEquals(0, dataSource.getActiveConnections());
+		assertEquals(4, opened.get() - before);
+
+		DataSourceTerminator.getInstance().close(dataSource);
+		assertTrue(waitClosed(pool, 1000));
+	}
+
+	@Test
+	public void testCloseWhenDrained() throws Exception {
+		SingleDataSource dataSource = createDataSource("testCloseWhenDrained", 0);
+		ConnectionPool pool = dataSource.getPool();
+		Connection conn1 = dataSource.getDataSource().getConnection();
+		Connection conn2 = dataSource.getDataSource().getConnection();
+
+		DataSourceTerminator terminator = DataSourceTerminator.getInstance();
+		terminator.close(dataSource);
+		assertEquals(2, DataSourceTerminator.getDrainingConnections("testCloseWhenDrained"));
+
+		conn1.close();
+		Thread.sleep(100);
+		assertFalse(pool.isClosed());
+		assertEquals(1, DataSourceTerminator.getDrainingConnections("testCloseWhenDrained"));
+		// Returned connection is closed instead of kept idle
+		assertEquals(0, pool.getIdle());
+
+		// Closed on release instead of waiting for the next check in 5 seconds
+		conn2.close();
+		assertTrue(waitClosed(pool, 1000));
+		assertEquals(0, DataSourceTerminator.getDrainingConnections("testCloseWhenDrained"));
+		assertFalse(terminator.getDrainingConnections().containsKey("testCloseWhenDrained"));
+	}
+}
@@ -13,6 +13,10 @@ import org.junit.runners.Suite.SuiteClasses;
 	DalColumnMapRowMapperTest.class,
 	DalCustomRowMapperTest.class,
 	SQLCompilerTest.class,
+	DalCompiledJpaMapperTest.class,
+	DalOrderedRangedResultMergerTest.class,
+	DalEntityCacheTest.class,
+	LatencyHistogramTest.class,
 	
 })
 public class AllTests {}
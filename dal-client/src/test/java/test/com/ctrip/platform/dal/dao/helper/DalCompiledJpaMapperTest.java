@@ -0,0 +1,167 @@
+package test.com.ctrip.platform.dal.dao.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalRowMapper;
+import com.ctrip.platform.dal.dao.annotation.Database;
+import com.ctrip.platform.dal.dao.annotation.Type;
+import com.ctrip.platform.dal.dao.helper.CustomizableMapper;
+import com.ctrip.platform.dal.dao.helper.DalCompiledJpaMapper;
+import com.ctrip.platform.dal.dao.helper.DalDefaultJpaMapper;
+import com.ctrip.platform.dal.dao.helper.DalRowMapperExtractor;
+import com.ctrip.platform.dal.dao.helper.EntityManager;
+import com.ctrip.platform.dal.exceptions.DalException;
+import com.ctrip.platform.dal.exceptions.ErrorCode;
+
+public class DalCompiledJpaMapperTest {
+	private static final Timestamp NOW = new Timestamp(System.currentTimeMillis());
+
+	private ResultSetStub createStub() {
+		return new ResultSetStub("id", "quantity", "type", "score", "name", "last_changed")
+				.addRow(1L, 10, 2, 1.5d, "a", NOW)
+				.addRow(2L, null, null, 2.5d, null, null);
+	}
+
+	@Test
+	public void testCreate() throws SQLException {
+		assertTrue(DalCompiledJpaMapper.create(MapperModel.class) instanceof DalCompiledJpaMapper);
+		assertTrue(EntityManager.getMapper(MapperModel.class) instanceof DalCompiledJpaMapper);
+
+		// Not public entity can not be compiled
+		assertTrue(DalCompiledJpaMapper.create(HiddenModel.class) instanceof DalDefaultJpaMapper);
+	}
+
+	@Test
+	public void testMap() throws SQLException {
+		DalRowMapper<MapperModel> mapper = DalCompiledJpaMapper.create(MapperModel.class);
+		ResultSet rs = createStub().build();
+
+		rs.next();
+		MapperModel model = mapper.map(rs, 0);
+		assertEquals(1L, model.id);
+		assertEquals(10, model.quantity.intValue());
+		assertEquals(2, model.type.shortValue());
+		assertEquals(1.5d, model.score, 0);
+		assertEquals("a", model.name);
+		assertEquals(NOW, model.lastChanged);
+
+		rs.next();
+		model = mapper.map(rs, 1);
+		assertEquals(2L, model.id);
+		assertNull(model.quantity);
+		assertNull(model.type);
+		assertNull(model.name);
+		assertNull(model.lastChanged);
+	}
+
+	@Test
+	public void testSameAsDefaultMapper() throws SQLException {
+		List<MapperModel> expected = new DalRowMapperExtractor<>(new DalDefaultJpaMapper<>(MapperModel.class))
+				.extractWith(new DalHints()).extract(createStub().build());
+		List<MapperModel> actual = new DalRowMapperExtractor<>(DalCompiledJpaMapper.create(MapperModel.class))
+				.extractWith(new DalHints()).extract(createStub().build());
+
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).id, actual.get(i).id);
+			assertEquals(expected.get(i).quantity, actual.get(i).quantity);
+			assertEquals(expected.get(i).type, actual.get(i).type);
+			assertEquals(expected.get(i).score, actual.get(i).score, 0);
+			assertEquals(expected.get(i).name, actual.get(i).name);
+			assertEquals(expected.get(i).lastChanged, actual.get(i).lastChanged);
+		}
+	}
+
+	@Test
+	public void testNullToPrimitive() throws SQLException {
+		DalRowMapper<MapperModel> mapper = DalCompiledJpaMapper.create(MapperModel.class);
+		ResultSet rs = new ResultSetStub("id", "quantity", "type", "score", "name", "last_changed")
+				.addRow(null, 1, 1, 1d, "a", NOW).build();
+		rs.next();
+		try {
+			mapper.map(rs, 0);
+			fail();
+		} catch (DalException e) {
+			assertEquals(ErrorCode.ResultMappingError.getCode(), e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void testPartialColumns() throws SQLException {
+		CustomizableMapper<MapperModel> mapper = (CustomizableMapper<MapperModel>)DalCompiledJpaMapper.create(MapperModel.class);
+		List<MapperModel> result = new DalRowMapperExtractor<>(mapper.mapWith(new String[]{"id", "name"}))
+				.extractWith(new DalHints()).extract(new ResultSetStub("id", "name").addRow(3L, "c").build());
+
+		assertEquals(1, result.size());
+		assertEquals(3L, result.get(0).id);
+		assertEquals("c", result.get(0).name);
+		assertNull(result.get(0).quantity);
+	}
+
+	@Test
+	public void testMissingField() throws SQLException {
+		CustomizableMapper<MapperModel> mapper = (CustomizableMapper<MapperModel>)DalCompiledJpaMapper.create(MapperModel.class);
+		DalRowMapperExtractor<MapperModel> extractor = new DalRowMapperExtractor<>(mapper.mapWith(new String[]{"id", "unknown"}));
+		try {
+			extractor.extractWith(new DalHints()).extract(new ResultSetStub("id", "unknown").addRow(3L, "c").build());
+			fail();
+		} catch (DalException e) {
+			assertEquals(ErrorCode.FieldNotExists.getCode(), e.getErrorCode());
+		}
+
+		List<MapperModel> result = extractor.extractWith(new DalHints().ignoreMissingFields()).extract(new ResultSetStub("id").addRow(3L).build());
+		assertEquals(3L, result.get(0).id);
+	}
+
+	@Entity
+	@Database(name="dao_test")
+	public static class MapperModel {
+		@Id
+		@Type(value = Types.BIGINT)
+		private long id;
+
+		@Column
+		@Type(value = Types.INTEGER)
+		private Integer quantity;
+
+		@Column
+		@Type(value = Types.SMALLINT)
+		private Short type;
+
+		@Column
+		@Type(value = Types.DOUBLE)
+		private double score;
+
+		@Column
+		@Type(value = Types.VARCHAR)
+		private String name;
+
+		@Column(name="last_changed")
+		@Type(value = Types.TIMESTAMP)
+		private Timestamp lastChanged;
+	}
+
+	@Entity
+	@Database(name="dao_test")
+	static class HiddenModel {
+		@Id
+		@Type(value = Types.BIGINT)
+		private long id;
+	}
+}
@@ -0,0 +1,219 @@
+package test.com.ctrip.platform.dal.dao.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.UpdatableEntity;
+import com.ctrip.platform.dal.dao.helper.DalEntityCache;
+
+public class DalEntityCacheTest {
+	private static final String SHARD = "0/";
+
+	@Test
+	public void testKey() {
+		assertEquals(DalEntityCache.keyOf(1), DalEntityCache.keyOf(1L));
+		assertEquals(DalEntityCache.keyOf(1), DalEntityCache.keyOf(BigInteger.ONE));
+
+		Map<String, Object> pk = new HashMap<>();
+		pk.put("id", 1);
+		pk.put("type", "a");
+		assertEquals(Arrays.asList(1L, "a"), DalEntityCache.keyOf(new String[]{"id", "type"}, pk));
+		assertEquals(DalEntityCache.keyOf(1), DalEntityCache.keyOf(new String[]{"id"}, pk));
+	}
+
+	@Test
+	public void testGetAndPut() {
+		DalEntityCache<String> cache = new DalEntityCache<>("testGetAndPut", 10, DalEntityCache.UNLIMITED);
+		List<?> key = DalEntityCache.keyOf(1);
+
+		assertNull(cache.get(key, SHARD));
+		cache.put(key, SHARD, "a", 0, cache.getVersion());
+		assertSame("a", cache.get(key, SHARD));
+		assertNull(cache.get(key, "1/"));
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertSame(cache, DalEntityCache.getCache("testGetAndPut"));
+	}
+
+	public static class Person {
+		private Long id;
+		private String name;
+		private Timestamp updateTime;
+	}
+
+	@Test
+	public void testCopy() {
+		DalEntityCache<Person> cache = new DalEntityCache<>("testCopy", 10, DalEntityCache.UNLIMITED);
+		List<?> key = DalEntityCache.keyOf(1);
+
+		Person p = new Person();
+		p.id = 1L;
+		p.name = "a";
+		p.updateTime = new Timestamp(1000);
+		cache.put(key, SHARD, p, 0, cache.getVersion());
+
+		// Changing the put entity does not change the cache
+		p.name = "b";
+		p.updateTime.setTime(2000);
+		Person cached = cache.get(key, SHARD);
+		assertNotSame(p, cached);
+		assertEquals(1L, cached.id.longValue());
+		assertEquals("a", cached.name);
+		assertEquals(1000, cached.updateTime.getTime());
+
+		// Neither does changing the returned one
+		cached.name = "c";
+		cached.updateTime.setTime(3000);
+		assertEquals("a", cache.get(key, SHARD).name);
+		assertEquals(1000, cache.get(key, SHARD).updateTime.getTime());
+	}
+
+	public static class UpdatablePerson extends UpdatableEntity {
+		private Long id;
+		private String name;
+
+		public void setName(String name) {
+			this.name = name;
+			update("name");
+		}
+	}
+
+	@Test
+	public void testCopyUpdatedColumns() {
+		DalEntityCache<UpdatablePerson> cache = new DalEntityCache<>("testCopyUpdatedColumns", 10, DalEntityCache.UNLIMITED);
+		List<?> key = DalEntityCache.keyOf(1);
+
+		UpdatablePerson p = new UpdatablePerson();
+		p.id = 1L;
+		p.name = "a";
+		cache.put(key, SHARD, p, 0, cache.getVersion());
+
+		// Changing one returned copy does not mark columns of the cache or other copies
+		UpdatablePerson first = cache.get(key, SHARD);
+		UpdatablePerson second = cache.get(key, SHARD);
+		first.setName("b");
+		assertTrue(first.isUpdated("name"));
+		assertFalse(second.isUpdated("name"));
+		assertTrue(second.getUpdatedColumns().isEmpty());
+
+		UpdatablePerson third = cache.get(key, SHARD);
+		assertEquals("a", third.name);
+		assertEquals(1L, third.id.longValue());
+		assertTrue(third.getUpdatedColumns().isEmpty());
+	}
+
+	public static class UnmodifiableTags {
+		private List<String> tags = Collections.unmodifiableList(Arrays.asList("a"));
+	}
+
+	@Test
+	public void testNotCopyable() {
+		DalEntityCache<UnmodifiableTags> cache = new DalEntityCache<>("testNotCopyable", 10, DalEntityCache.UNLIMITED);
+		List<?> key = DalEntityCache.keyOf(1);
+
+		cache.put(key, SHARD, new UnmodifiableTags(), 0, cache.getVersion());
+		assertNull(cache.get(key, SHARD));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testInvalidate() {
+		DalEntityCache<String> cache = new DalEntityCache<>("testInvalidate", 10, DalEntityCache.UNLIMITED);
+		List<?> key1 = DalEntityCache.keyOf(1);
+		List<?> key2 = DalEntityCache.keyOf(2);
+
+		cache.put(key1, SHARD, "a", 0, cache.getVersion());
+		cache.put(key1, "1/", "b", 0, cache.getVersion());
+		cache.put(key2, SHARD, "c", 0, cache.getVersion());
+		assertEquals(3, cache.getSize());
+
+		// All shards of the key are invalidated
+		List<List<?>> keys = Collections.<List<?>>singletonList(key1);
+		cache.invalidate(keys);
+		assertNull(cache.get(key1, SHARD));
+		assertNull(cache.get(key1, "1/"));
+		assertSame("c", cache.get(key2, SHARD));
+		assertEquals(2, cache.getInvalidationCount());
+
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		assertNull(cache.get(key2, SHARD));
+	}
+
+	@Test
+	public void testStaleRead() {
+		DalEntityCache<String> cache = new DalEntityCache<>("testStaleRead", 10, DalEntityCache.UNLIMITED);
+		List<?> key = DalEntityCache.keyOf(1);
+
+		// Entity read before invalidation is not cached
+		long version = cache.getVersion();
+		cache.invalidate(Collections.<List<?>>singletonList(key));
+		cache.put(key, SHARD, "old", 0, version);
+		assertNull(cache.get(key, SHARD));
+	}
+
+	@Test
+	public void testEvict() {
+		DalEntityCache<String> cache = new DalEntityCache<>("testEvict", 2, DalEntityCache.UNLIMITED);
+		cache.put(DalEntityCache.keyOf(1), SHARD, "a", 0, cache.getVersion());
+		cache.put(DalEntityCache.keyOf(2), SHARD, "b", 0, cache.getVersion());
+
+		// Least recently used is evicted
+		cache.get(DalEntityCache.keyOf(1), SHARD);
+		cache.put(DalEntityCache.keyOf(3), SHARD, "c", 0, cache.getVersion());
+
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame("a", cache.get(DalEntityCache.keyOf(1), SHARD));
+		assertNull(cache.get(DalEntityCache.keyOf(2), SHARD));
+
+		cache = new DalEntityCache<>("testEvictBytes", 10, 100, DalEntityCache.UNLIMITED);
+		cache.put(DalEntityCache.keyOf(1), SHARD, "a", 60, cache.getVersion());
+		cache.put(DalEntityCache.keyOf(2), SHARD, "b", 60, cache.getVersion());
+		assertEquals(1, cache.getSize());
+		assertEquals(60, cache.getBytes());
+		assertSame("b", cache.get(DalEntityCache.keyOf(2), SHARD));
+	}
+
+	@Test
+	public void testExpire() throws Exception {
+		DalEntityCache<String> cache = new DalEntityCache<>("testExpire", 10, 50);
+		cache.put(DalEntityCache.keyOf(1), SHARD, "a", 0, cache.getVersion());
+		assertSame("a", cache.get(DalEntityCache.keyOf(1), SHARD));
+
+		Thread.sleep(100);
+		assertNull(cache.get(DalEntityCache.keyOf(1), SHARD));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testInvalidSettings() {
+		try {
+			new DalEntityCache<>("testInvalidSettings", 0, DalEntityCache.UNLIMITED);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		try {
+			new DalEntityCache<>("testInvalidSettings", 10, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package test.com.ctrip.platform.dal.dao.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.helper.DalOrderedRangedResultMerger;
+import com.ctrip.platform.dal.dao.helper.DalRangedResultMerger;
+
+public class DalOrderedRangedResultMergerTest {
+	private Comparator<Integer> comparator = new Comparator<Integer>() {
+		@Override
+		public int compare(Integer o1, Integer o2) {
+			return o1.compareTo(o2);
+		}
+	};
+
+	@Test
+	public void testMergeAll() throws SQLException {
+		DalOrderedRangedResultMerger<Integer> test = new DalOrderedRangedResultMerger<>(comparator);
+		test.addPartial("0", Arrays.asList(1, 4, 7));
+		test.addPartial("1", Arrays.asList(2, 5, 8));
+		test.addPartial("2", null);
+		test.addPartial("3", Arrays.asList(3, 6, 9));
+
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9), test.merge());
+	}
+
+	@Test
+	public void testMergeRange() throws SQLException {
+		DalOrderedRangedResultMerger<Integer> test = new DalOrderedRangedResultMerger<>(comparator, 2, 3);
+		test.addPartial("0", Arrays.asList(1, 4, 7));
+		test.addPartial("1", Arrays.asList(2, 5, 8));
+		test.addPartial("2", Arrays.asList(3, 6, 9));
+
+		assertEquals(Arrays.asList(3, 4, 5), test.merge());
+	}
+
+	@Test
+	public void testMergeTop() throws SQLException {
+		DalOrderedRangedResultMerger<Integer> test = new DalOrderedRangedResultMerger<>(comparator, 2);
+		test.addPartial("0", Arrays.asList(5, 6));
+		test.addPartial("1", Arrays.asList(1, 2));
+
+		assertEquals(Arrays.asList(1, 2), test.merge());
+	}
+
+	@Test
+	public void testOutOfRange() throws SQLException {
+		DalOrderedRangedResultMerger<Integer> test = new DalOrderedRangedResultMerger<>(comparator, 10, 3);
+		test.addPartial("0", Arrays.asList(1, 4, 7));
+
+		assertEquals(0, test.merge().size());
+		assertEquals(0, new DalOrderedRangedResultMerger<>(comparator).merge().size());
+	}
+
+	@Test
+	public void testUnsortedPartial() throws SQLException {
+		DalOrderedRangedResultMerger<Integer> test = new DalOrderedRangedResultMerger<>(comparator, 1, 3);
+		test.addPartial("0", Arrays.asList(7, 1, 4));
+		test.addPartial("1", Arrays.asList(8, 2, 5));
+
+		assertEquals(Arrays.asList(2, 4, 5), test.merge());
+	}
+
+	@Test
+	public void testSameAsRangedMerger() throws SQLException {
+		Random random = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			int start = random.nextInt(20);
+			int count = random.nextInt(20) + 1;
+			DalOrderedRangedResultMerger<Integer> test = new DalOrderedRangedResultMerger<>(comparator, start, count);
+			DalRangedResultMerger<Integer> expected = new DalRangedResultMerger<>(comparator, start, count);
+
+			for (int shard = 0; shard < 8; shard++) {
+				List<Integer> partial = new ArrayList<>();
+				for (int i = random.nextInt(10); i > 0; i--)
+					partial.add(random.nextInt(30));
+				Collections.sort(partial);
+
+				test.addPartial(String.valueOf(shard), partial);
+				expected.addPartial(String.valueOf(shard), partial);
+			}
+
+			assertEquals(expected.merge(), test.merge());
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package test.com.ctrip.platform.dal.dao.helper;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.helper.LatencyHistogram;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getMean());
+		assertEquals(0, histogram.getPercentile(99));
+	}
+
+	@Test
+	public void testSmallValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 10; i++)
+			histogram.record(i);
+
+		// Values less than 16 are exact
+		assertEquals(10, histogram.getCount());
+		assertEquals(5, histogram.getPercentile(50));
+		assertEquals(9, histogram.getPercentile(90));
+		assertEquals(10, histogram.getPercentile(100));
+		assertEquals(10, histogram.getMax());
+		assertEquals(5, histogram.getMean());
+	}
+
+	@Test
+	public void testPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long i = 1; i <= 10000; i++)
+			histogram.record(i * 1000);
+
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000, histogram.getMax());
+		assertWithin(5000000, histogram.getPercentile(50));
+		assertWithin(9900000, histogram.getPercentile(99));
+		assertEquals(10000000, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testLargeAndNegative() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-1);
+		assertEquals(0, histogram.getCount());
+
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(1, histogram.getCount());
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+		assertTrue(histogram.getPercentile(50) > 0);
+	}
+
+	@Test
+	public void testReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(100);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(50));
+	}
+
+	@Test
+	public void testConcurrentRecord() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < 8; i++) {
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for(int j = 1; j <= 10000; j++)
+						histogram.record(j);
+				}
+			});
+			threads.add(t);
+			t.start();
+		}
+
+		for(Thread t: threads)
+			t.join();
+
+		assertEquals(80000, histogram.getCount());
+		assertEquals(10000, histogram.getMax());
+		assertWithin(5000, histogram.getPercentile(50));
+	}
+
+	// Relative error is within 1/16
+	private void assertWithin(long expected, long actual) {
+		assertTrue("expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 16);
+	}
+}
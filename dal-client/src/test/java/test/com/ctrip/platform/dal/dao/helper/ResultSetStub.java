@@ -0,0 +1,92 @@
+package test.com.ctrip.platform.dal.dao.helper;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In memory result set for testing mappers without database.
+ */
+public class ResultSetStub implements InvocationHandler {
+	private String[] labels;
+	private List<Object[]> rows = new ArrayList<>();
+	private int current = -1;
+	private boolean wasNull;
+
+	public ResultSetStub(String... labels) {
+		this.labels = labels;
+	}
+
+	public ResultSetStub addRow(Object... values) {
+		rows.add(values);
+		return this;
+	}
+
+	public ResultSet build() {
+		current = -1;
+		return (ResultSet)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, this);
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		switch (name) {
+		case "next":
+			return ++current < rows.size();
+		case "findColumn":
+			return findColumn((String)args[0]);
+		case "wasNull":
+			return wasNull;
+		case "close":
+			return null;
+		case "getMetaData":
+			return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSetMetaData.class}, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if(method.getName().equals("getColumnCount"))
+						return labels.length;
+					return labels[(Integer)args[0] - 1];
+				}
+			});
+		}
+
+		if(!name.startsWith("get"))
+			throw new UnsupportedOperationException(name);
+
+		int index = args[0] instanceof String ? findColumn((String)args[0]) : (Integer)args[0];
+		Object value = rows.get(current)[index - 1];
+		wasNull = value == null;
+
+		Class<?> type = method.getReturnType();
+		if(type == Object.class || !type.isPrimitive())
+			return value;
+
+		Number n = value == null ? 0 : (Number)value;
+		if(type == long.class)
+			return n.longValue();
+		if(type == int.class)
+			return n.intValue();
+		if(type == short.class)
+			return n.shortValue();
+		if(type == byte.class)
+			return n.byteValue();
+		if(type == double.class)
+			return n.doubleValue();
+		if(type == float.class)
+			return n.floatValue();
+
+		throw new UnsupportedOperationException(name);
+	}
+
+	private int findColumn(String label) throws SQLException {
+		for (int i = 0; i < labels.length; i++) {
+			if(labels[i].equalsIgnoreCase(label))
+				return i + 1;
+		}
+		throw new SQLException("Column not found: " + label);
+	}
+}
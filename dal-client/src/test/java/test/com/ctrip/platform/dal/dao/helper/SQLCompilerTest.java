@@ -2,6 +2,7 @@ package test.com.ctrip.platform.dal.dao.helper;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.Assert;
@@ -81,5 +82,20 @@ public class SQLCompilerTest {
 		
 		Assert.assertEquals(expected_sql, new_sql);
 	}
+	
+	@Test
+	public void testCompiledCache() throws SQLException{
+		String sql = "SELECT * FROM Person WHERE ID In (?) And Name in( ?)";
+		List idList = new ArrayList<>();
+		idList.add(Arrays.asList(1, 2));
+		idList.add(Arrays.asList("hi"));
+		
+		String new_sql = SQLCompiler.compile(sql, idList);
+		Assert.assertSame(new_sql, SQLCompiler.compile(sql, idList));
+		
+		// Different size of IN parameter
+		idList.set(1, Arrays.asList("hi", "there"));
+		Assert.assertEquals("SELECT * FROM Person WHERE ID In (?,?)  And Name In (?,?) ", SQLCompiler.compile(sql, idList));
+	}
 
 }
@@ -12,6 +12,7 @@ import org.junit.runners.Suite.SuiteClasses;
 	AutoMarkdownTest.class,
 	ManualMarkDownTest.class,
 	TimeBucketCounterTest.class,
+	SlidingWindowCounterTest.class,
 	})
 public class AllTests {
 
@@ -0,0 +1,81 @@
+package test.com.ctrip.platform.dal.dao.markdown;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.markdown.SlidingWindowCounter;
+
+public class SlidingWindowCounterTest {
+
+	@Test
+	public void testCount() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(1000);
+		long now = 10000;
+		for (int i = 0; i < 10; i++)
+			counter.increment(i % 2 == 0, now + i * 10);
+
+		assertEquals(10, counter.getRequests(now + 100));
+		assertEquals(5, counter.getErrors(now + 100));
+	}
+
+	@Test
+	public void testSliding() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+		long now = 10000;
+		// One request and one error in each 100ms slice
+		for (int i = 0; i < 20; i++)
+			counter.increment(true, now + i * 100);
+
+		// Only the last 10 slices are in window
+		assertEquals(10, counter.getRequests(now + 1900));
+		assertEquals(10, counter.getErrors(now + 1900));
+
+		assertEquals(5, counter.getRequests(now + 2400));
+		assertEquals(0, counter.getRequests(now + 2900));
+	}
+
+	@Test
+	public void testAllOverdue() throws InterruptedException {
+		SlidingWindowCounter counter = new SlidingWindowCounter(1000);
+		for (int i = 0; i < 10; i++)
+			counter.increment(i % 2 == 0);
+
+		Thread.sleep(1100);
+
+		assertEquals(0, counter.getErrors());
+		assertEquals(0, counter.getRequests());
+	}
+
+	@Test
+	public void testReset() {
+		SlidingWindowCounter counter = new SlidingWindowCounter(1000);
+		for (int i = 0; i < 10; i++)
+			counter.increment(true);
+
+		counter.reset();
+		assertEquals(0, counter.getErrors());
+		assertEquals(0, counter.getRequests());
+	}
+
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		final SlidingWindowCounter counter = new SlidingWindowCounter(60 * 1000);
+		final CountDownLatch latch = new CountDownLatch(10);
+		for (int i = 0; i < 10; i++) {
+			new Thread() {
+				public void run() {
+					for (int j = 0; j < 1000; j++)
+						counter.increment(j % 10 == 0);
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+
+		assertEquals(10000, counter.getRequests());
+		assertEquals(1000, counter.getErrors());
+	}
+}
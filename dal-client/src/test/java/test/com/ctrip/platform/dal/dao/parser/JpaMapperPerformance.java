@@ -0,0 +1,57 @@
+package test.com.ctrip.platform.dal.dao.parser;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import test.com.ctrip.platform.dal.dao.helper.ResultSetStub;
+
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalRowMapper;
+import com.ctrip.platform.dal.dao.helper.DalCompiledJpaMapper;
+import com.ctrip.platform.dal.dao.helper.DalDefaultJpaMapper;
+import com.ctrip.platform.dal.dao.helper.DalRowMapperExtractor;
+
+/**
+ * Compare the reflective DalDefaultJpaMapper with DalCompiledJpaMapper against in memory
+ * result set, so that only the mapping cost is measured.
+ */
+public class JpaMapperPerformance {
+	private static final int ROWS = 10000;
+	private static final int WARM_UP = 20;
+	private static final int ROUNDS = 50;
+
+	public static void main(String[] args) throws Exception {
+		ResultSetStub stub = new ResultSetStub("id", "quantity", "type", "score", "orderid",
+				"address1", "address2", "address3", "address4", "address5",
+				"address6", "address7", "address8", "address9", "address10", "last_changed");
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		for (int i = 0; i < ROWS; i++)
+			stub.addRow(i, i % 10, i % 3, 1.5f, (long)i, "CTRIP", "CTRIP", "CTRIP", "CTRIP", "CTRIP",
+					"CTRIP", "CTRIP", "CTRIP", "CTRIP", "CTRIP", now);
+
+		DalRowMapper<DalDefaultJpaPerformance.ClientTestModel> jpa = new DalDefaultJpaMapper<>(DalDefaultJpaPerformance.ClientTestModel.class);
+		DalRowMapper<DalDefaultJpaPerformance.ClientTestModel> compiled = DalCompiledJpaMapper.create(DalDefaultJpaPerformance.ClientTestModel.class);
+		System.out.println("compiled mapper: " + compiled.getClass().getSimpleName());
+
+		for (int i = 0; i < WARM_UP; i++) {
+			run(jpa, stub);
+			run(compiled, stub);
+		}
+
+		System.out.println(String.format("default jpa mapper: %d(ns/row)", measure(jpa, stub)));
+		System.out.println(String.format("compiled jpa mapper: %d(ns/row)", measure(compiled, stub)));
+	}
+
+	private static long measure(DalRowMapper<?> mapper, ResultSetStub stub) throws SQLException {
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++)
+			run(mapper, stub);
+		return (System.nanoTime() - start) / ROUNDS / ROWS;
+	}
+
+	private static int run(DalRowMapper<?> mapper, ResultSetStub stub) throws SQLException {
+		ResultSet rs = stub.build();
+		return new DalRowMapperExtractor<>(mapper).extractWith(new DalHints()).extract(rs).size();
+	}
+}
@@ -7,6 +7,9 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
 	ShardColModShardStrategyTest.class,
+	RangeShardStrategyTest.class,
+	HashSlotShardStrategyTest.class,
+	LookupShardStrategyTest.class,
 	
 	DalTabelDaoShardByTableSqlSvrTest.class,
 	DalTabelDaoShardByTableMySqlTest.class,
@@ -623,6 +623,27 @@ public abstract class BaseDalTableDaoShardByDbTest {
 		}
 	}
 	
+	/**
+	 * Test Query page of result in shards that resolve to one shard
+	 * @throws SQLException
+	 */
+	@Test
+	public void testQueryPageInSingleShard() throws SQLException{
+		for(int i = 0; i < mod; i++) {
+			Set<String> shards = new HashSet<>();
+			shards.add(String.valueOf(i));
+
+			SelectSqlBuilder builder = new SelectSqlBuilder();
+			builder.equal("type", 1, Types.SMALLINT);
+			builder.selectAll().orderBy("id", true).atPage(2, 2);
+			List<ClientTestModel> models = dao.query(builder, new DalHints().inShards(shards));
+
+			// Each shard has 3 rows of type 1, the last one is on page 2
+			assertEquals(1, models.size());
+			assertEquals(3, models.get(0).getId().intValue());
+		}
+	}
+	
 	/**
 	 * Test Query range of result with where clause failed when return not enough recodes
 	 * @throws SQLException
@@ -0,0 +1,81 @@
+package test.com.ctrip.platform.dal.dao.shard;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.strategy.HashSlotShardStrategy;
+
+public class HashSlotShardStrategyTest {
+	private final String logicDbName = "DB_TABLE_SHARD";
+
+	private HashSlotShardStrategy create(String slots) {
+		HashSlotShardStrategy strategy = new HashSlotShardStrategy();
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put(HashSlotShardStrategy.COLUMNS, "id");
+		settings.put(HashSlotShardStrategy.SLOTS, slots);
+		settings.put(HashSlotShardStrategy.TABLE_COLUMNS, "index");
+		settings.put(HashSlotShardStrategy.TABLE_SLOT_COUNT, "4");
+		settings.put(HashSlotShardStrategy.TABLE_SLOTS, "0-1:0,2:1,3:2");
+		strategy.initialize(settings);
+		return strategy;
+	}
+
+	@Test
+	public void testLocateDbShard() {
+		HashSlotShardStrategy strategy = create("0-511:0,512-1023:1");
+		assertTrue(strategy.isShardingByDb());
+		assertArrayEquals(new String[]{"0", "1"}, strategy.getDbShardIds());
+
+		int[] counts = new int[2];
+		for(int id = 0; id < 10000; id++) {
+			String shard = strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(id));
+			assertEquals(HashSlotShardStrategy.slotOf(id, 1024) < 512 ? "0" : "1", shard);
+			counts[Integer.parseInt(shard)]++;
+		}
+
+		// Consecutive ids are spread evenly
+		assertTrue(counts[0] > 4500 && counts[1] > 4500);
+	}
+
+	@Test
+	public void testMoveSlot() {
+		HashSlotShardStrategy strategy = create("0-511:0,512-1023:1");
+		HashSlotShardStrategy moved = create("0-510:0,511-1023:1");
+
+		// Only values in the moved slot change shard
+		for(int id = 0; id < 10000; id++) {
+			String before = strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(id));
+			String after = moved.locateDbShard(null, logicDbName, new DalHints().setShardValue(id));
+			assertEquals(HashSlotShardStrategy.slotOf(id, 1024) == 511, !before.equals(after));
+		}
+	}
+
+	@Test
+	public void testLocateTableShard() {
+		HashSlotShardStrategy strategy = create("0-1023:0");
+		for(long id = -100; id < 100; id++) {
+			int slot = HashSlotShardStrategy.slotOf(id, 4);
+			String expected = slot < 2 ? "0" : String.valueOf(slot - 1);
+			assertEquals(expected, strategy.locateTableShard(null, logicDbName, new DalHints().setTableShardValue(id)));
+		}
+	}
+
+	@Test
+	public void testInvalidSlots() {
+		for(String slots: new String[]{"0-511:0", "0-512:0,512-1023:1", "0-1024:0"}) {
+			try {
+				create(slots);
+				fail();
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package test.com.ctrip.platform.dal.dao.shard;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.strategy.LookupShardStrategy;
+
+public class LookupShardStrategyTest {
+	private final String logicDbName = "DB_TABLE_SHARD";
+
+	private LookupShardStrategy create(String key, String value) {
+		LookupShardStrategy strategy = new LookupShardStrategy();
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put(LookupShardStrategy.COLUMNS, "tenantId");
+		settings.put(LookupShardStrategy.LOOKUP, "1002:3,1001:2");
+		if(key != null)
+			settings.put(key, value);
+		strategy.initialize(settings);
+		return strategy;
+	}
+
+	@Test
+	public void testLookupWithMod() {
+		LookupShardStrategy strategy = create(LookupShardStrategy.MOD, "2");
+		assertEquals("2", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(1001)));
+		assertEquals("3", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(1002)));
+		assertEquals("1", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(1003)));
+		assertEquals("0", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(1004)));
+		assertNull(strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(-1)));
+
+		assertArrayEquals(new String[]{"2", "3", "0", "1"}, strategy.getDbShardIds());
+		assertArrayEquals(new int[]{0, 2, 3, 1}, strategy.locateDbShardsByValue(null, logicDbName, Arrays.asList(1001, 2, 3, 1002)));
+	}
+
+	@Test
+	public void testLookupWithDefault() {
+		LookupShardStrategy strategy = create(LookupShardStrategy.DEFAULT_SHARD, "0");
+		assertEquals("2", strategy.locateDbShard(null, logicDbName, new DalHints().setShardColValue("tenantId", 1001)));
+		assertEquals("0", strategy.locateDbShard(null, logicDbName, new DalHints().setShardColValue("tenantId", 1003)));
+	}
+
+	@Test
+	public void testLookupOnly() {
+		LookupShardStrategy strategy = create(null, null);
+		assertEquals("3", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue("1002")));
+		assertNull(strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(1003)));
+		assertNull(strategy.locateDbShardsByValue(null, logicDbName, Arrays.asList(1001, 1003)));
+	}
+}
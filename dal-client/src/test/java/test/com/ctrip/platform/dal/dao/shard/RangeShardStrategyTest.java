@@ -0,0 +1,121 @@
+package test.com.ctrip.platform.dal.dao.shard;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.StatementParameters;
+import com.ctrip.platform.dal.dao.strategy.RangeShardStrategy;
+
+public class RangeShardStrategyTest {
+	private final String logicDbName = "DB_TABLE_SHARD";
+
+	private RangeShardStrategy create() {
+		RangeShardStrategy strategy = new RangeShardStrategy();
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put(RangeShardStrategy.COLUMNS, "id,id1");
+		settings.put(RangeShardStrategy.RANGES, "1000:1,0:0,2000:2");
+		settings.put(RangeShardStrategy.TABLE_COLUMNS, "index");
+		settings.put(RangeShardStrategy.TABLE_RANGES, "-100:_a,0:_b,100:_a");
+		settings.put(RangeShardStrategy.SHARDED_TABLES, "person");
+		strategy.initialize(settings);
+		return strategy;
+	}
+
+	@Test
+	public void testIsSharding() {
+		RangeShardStrategy strategy = create();
+		assertTrue(strategy.isShardingByDb());
+		assertTrue(strategy.isShardingByTable());
+		assertTrue(strategy.isShardingEnable("person"));
+
+		strategy = new RangeShardStrategy();
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put(RangeShardStrategy.COLUMNS, "id");
+		strategy.initialize(settings);
+		assertFalse(strategy.isShardingByDb());
+		assertFalse(strategy.isShardingByTable());
+	}
+
+	@Test
+	public void testLocateDbShard() {
+		RangeShardStrategy strategy = create();
+		assertEquals("5", strategy.locateDbShard(null, logicDbName, new DalHints().inShard(5)));
+		assertEquals("0", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(0)));
+		assertEquals("0", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(999)));
+		assertEquals("1", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(1000L)));
+		assertEquals("2", strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue("100000000000")));
+		assertNull(strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(-1)));
+
+		assertEquals("1", strategy.locateDbShard(null, logicDbName, new DalHints().setShardColValue("id1", 1500)));
+
+		StatementParameters parameters = new StatementParameters();
+		parameters.set(1, "id", java.sql.Types.INTEGER, 2500);
+		assertEquals("2", strategy.locateDbShard(null, logicDbName, new DalHints().setParameters(parameters)));
+
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("id", 10);
+		assertEquals("0", strategy.locateDbShard(null, logicDbName, new DalHints().setFields(fields)));
+
+		assertNull(strategy.locateDbShard(null, logicDbName, new DalHints()));
+	}
+
+	@Test
+	public void testLocateTableShard() {
+		RangeShardStrategy strategy = create();
+		assertEquals("_a", strategy.locateTableShard(null, logicDbName, new DalHints().setTableShardValue(-50)));
+		assertEquals("_b", strategy.locateTableShard(null, logicDbName, new DalHints().setTableShardValue(50)));
+		assertEquals("_a", strategy.locateTableShard(null, logicDbName, new DalHints().setTableShardValue(150)));
+		assertNull(strategy.locateTableShard(null, logicDbName, new DalHints().setTableShardValue(-150)));
+		assertArrayEquals(new String[]{"_a", "_b"}, strategy.getTableShardIds());
+	}
+
+	@Test
+	public void testLocateDbShards() {
+		RangeShardStrategy strategy = create();
+		assertArrayEquals(new String[]{"0", "1", "2"}, strategy.getDbShardIds());
+
+		List<Map<String, ?>> pojos = new ArrayList<Map<String, ?>>();
+		for(int id: new int[]{2000, 5, 1999}) {
+			Map<String, Object> pojo = new HashMap<String, Object>();
+			pojo.put("id", id);
+			pojos.add(pojo);
+		}
+		assertArrayEquals(new int[]{2, 0, 1}, strategy.locateDbShards(null, logicDbName, pojos));
+
+		Map<String, Object> pojo = new HashMap<String, Object>();
+		pojo.put("id", -5);
+		pojos.add(pojo);
+		assertNull(strategy.locateDbShards(null, logicDbName, pojos));
+	}
+
+	@Test
+	public void testInvalidSettings() {
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put(RangeShardStrategy.COLUMNS, "id");
+		settings.put(RangeShardStrategy.RANGES, "0:0,0:1");
+		try {
+			new RangeShardStrategy().initialize(settings);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		settings.put(RangeShardStrategy.RANGES, "0");
+		try {
+			new RangeShardStrategy().initialize(settings);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -1,11 +1,16 @@
 package test.com.ctrip.platform.dal.dao.shard;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.BeforeClass;
@@ -463,4 +468,76 @@ public class ShardColModShardStrategyTest {
 		fields.put("index1", 100000000007L);
 		assertEquals("3", strategy.locateTableShard(configure, logicDbName, new DalHints().setFields(fields)));
 	}
+
+	private ShardColModShardStrategy createBulkStrategy() {
+		ShardColModShardStrategy strategy = new ShardColModShardStrategy();
+		Map<String, String> settings = new HashMap<String, String>();
+		settings.put(ShardColModShardStrategy.COLUMNS, "id,id1");
+		settings.put(ShardColModShardStrategy.MOD, "2");
+		settings.put(ShardColModShardStrategy.TABLE_COLUMNS, "index,index1");
+		settings.put(ShardColModShardStrategy.TABLE_MOD, "4");
+		strategy.initialize(settings);
+		return strategy;
+	}
+
+	private Map<String, Object> pojo(String column, Object value) {
+		Map<String, Object> pojo = new HashMap<String, Object>();
+		pojo.put(column, value);
+		return pojo;
+	}
+
+	@Test
+	public void testLocateDbShards() throws Exception {
+		ShardColModShardStrategy strategy = createBulkStrategy();
+		assertArrayEquals(new String[]{"0", "1"}, strategy.getDbShardIds());
+
+		List<Map<String, ?>> pojos = new ArrayList<Map<String, ?>>();
+		pojos.add(pojo("id", 0));
+		pojos.add(pojo("id", "3"));
+		pojos.add(pojo("id1", 100000000001L));
+		pojos.add(pojo("id", 2));
+		int[] shards = strategy.locateDbShards(null, logicDbName, pojos);
+		assertArrayEquals(new int[]{0, 1, 1, 0}, shards);
+
+		// Same shard as located row by row
+		for(int i = 0; i < shards.length; i++)
+			assertEquals(strategy.locateDbShard(null, logicDbName, new DalHints().setFields(pojos.get(i))), strategy.getDbShardIds()[shards[i]]);
+
+		// Fall back to locate row by row
+		pojos.add(pojo("id2", 1));
+		assertNull(strategy.locateDbShards(null, logicDbName, pojos));
+
+		pojos.remove(4);
+		pojos.add(pojo("id", -1));
+		assertNull(strategy.locateDbShards(null, logicDbName, pojos));
+	}
+
+	@Test
+	public void testLocateDbShardsByValue() throws Exception {
+		ShardColModShardStrategy strategy = createBulkStrategy();
+		List<Object> values = Arrays.<Object>asList(0, 1L, "3");
+		int[] shards = strategy.locateDbShardsByValue(null, logicDbName, values);
+		assertArrayEquals(new int[]{0, 1, 1}, shards);
+		for(int i = 0; i < shards.length; i++)
+			assertEquals(strategy.locateDbShard(null, logicDbName, new DalHints().setShardValue(values.get(i))), strategy.getDbShardIds()[shards[i]]);
+
+		assertNull(strategy.locateDbShardsByValue(null, logicDbName, Arrays.asList(0, null)));
+	}
+
+	@Test
+	public void testLocateTableShards() throws Exception {
+		ShardColModShardStrategy strategy = createBulkStrategy();
+		assertArrayEquals(new String[]{"0", "1", "2", "3"}, strategy.getTableShardIds());
+
+		List<Map<String, ?>> pojos = new ArrayList<Map<String, ?>>();
+		pojos.add(pojo("index", 5));
+		pojos.add(pojo("index1", 2));
+		int[] shards = strategy.locateTableShards(null, logicDbName, pojos);
+		assertArrayEquals(new int[]{1, 2}, shards);
+
+		// Same shard id as located row by row
+		for(int i = 0; i < shards.length; i++)
+			assertEquals(strategy.locateTableShard(null, logicDbName, new DalHints().setFields(pojos.get(i))), strategy.getTableShardIds()[shards[i]]);
+		assertEquals("1", strategy.locateTableShard(null, logicDbName, new DalHints().setTableShardValue(5)));
+	}
 }
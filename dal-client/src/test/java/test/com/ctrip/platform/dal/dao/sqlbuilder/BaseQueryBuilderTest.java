@@ -2,11 +2,17 @@ package test.com.ctrip.platform.dal.dao.sqlbuilder;
 
 import static junit.framework.Assert.assertEquals;
 
+import static junit.framework.Assert.assertTrue;
+
 import java.sql.SQLException;
+import java.util.Comparator;
 
 import org.junit.Test;
 
 import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.helper.DalOrderedRangedResultMerger;
+import com.ctrip.platform.dal.dao.helper.DalRangedResultMerger;
 import com.ctrip.platform.dal.dao.sqlbuilder.BaseTableSelectBuilder;
 
 public class BaseQueryBuilderTest {
@@ -100,4 +106,35 @@ public class BaseQueryBuilderTest {
 		assertEquals("SELECT [columns] FROM [Test] WITH (NOLOCK) WHERE conditions ORDER BY [ob] ASC OFFSET 100 ROWS FETCH NEXT 200 ROWS ONLY", qb.build());
 		assertEquals("SELECT [columns] FROM [Test_0] WITH (NOLOCK) WHERE conditions ORDER BY [ob] ASC OFFSET 100 ROWS FETCH NEXT 200 ROWS ONLY", qb.build("_0"));
 	}
+
+	@Test
+	public void testBuildCrossShardRange() throws SQLException {
+		BaseTableSelectBuilder qb;
+		DalHints hints = new DalHints().inAllShards();
+
+		qb = new BaseTableSelectBuilder("Test", DatabaseCategory.MySql);
+		qb.select("columns").where("conditions").orderBy("ob", true).range(100,  200).mergeRange(true, hints);
+		assertTrue(qb.getResultMerger(hints) instanceof DalRangedResultMerger);
+		assertEquals("SELECT `columns` FROM `Test_0` WHERE conditions ORDER BY `ob` ASC LIMIT 300", qb.build("_0"));
+
+		qb = new BaseTableSelectBuilder("Test", DatabaseCategory.SqlServer);
+		qb.select("columns").where("conditions").orderBy("ob", true).range(100,  200);
+		hints.sortBy(new Comparator<Object>() {
+			public int compare(Object o1, Object o2) {
+				return 0;
+			}
+		});
+		qb.mergeRange(true, hints);
+		assertTrue(qb.getResultMerger(hints) instanceof DalOrderedRangedResultMerger);
+		assertEquals("SELECT TOP 300 [columns] FROM [Test_0] WITH (NOLOCK) WHERE conditions ORDER BY [ob] ASC", qb.build("_0"));
+
+		// Getting merger or extractor does not change the statement
+		qb.getResultMerger(new DalHints());
+		qb.getResultExtractor(new DalHints());
+		assertEquals("SELECT TOP 300 [columns] FROM [Test_0] WITH (NOLOCK) WHERE conditions ORDER BY [ob] ASC", qb.build("_0"));
+
+		// Not cross shard
+		qb.mergeRange(false, new DalHints());
+		assertEquals("SELECT [columns] FROM [Test_0] WITH (NOLOCK) WHERE conditions ORDER BY [ob] ASC OFFSET 100 ROWS FETCH NEXT 200 ROWS ONLY", qb.build("_0"));
+	}
 }
@@ -44,6 +44,12 @@ import org.junit.runners.Suite.SuiteClasses;
 	DalBulkTaskRequestTest.class,
 	DalSingleTaskRequestTest.class,
 	DalSqlTaskRequestTest.class,
+	DalBulkheadExecutorTest.class,
+	SqlTemplateCacheTest.class,
+	BulkTaskChunkerTest.class,
+	DalParallelTaskExecutorTest.class,
+	DalMergedResultIteratorTest.class,
+	DalQueryByPksRequestTest.class,
 })
 public class AllTest {
 
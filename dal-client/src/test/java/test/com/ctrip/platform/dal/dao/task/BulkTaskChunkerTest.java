@@ -0,0 +1,109 @@
+package test.com.ctrip.platform.dal.dao.task;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.task.BatchInsertTask;
+import com.ctrip.platform.dal.dao.task.BulkTaskChunker;
+import com.ctrip.platform.dal.dao.task.CombinedInsertTask;
+
+public class BulkTaskChunkerTest {
+	private static final int UNLIMITED = BulkTaskChunker.UNLIMITED;
+
+	private Map<Integer, Map<String, ?>> createPojos(int count, int columns) {
+		Map<Integer, Map<String, ?>> pojos = new LinkedHashMap<>();
+		for(int i = 0; i < count; i++) {
+			Map<String, Object> pojo = new HashMap<>();
+			for(int j = 0; j < columns; j++)
+				pojo.put("c" + j, i);
+			pojos.put(i, pojo);
+		}
+		return pojos;
+	}
+
+	@Test
+	public void testNoSplit() {
+		Map<Integer, Map<String, ?>> pojos = createPojos(10, 3);
+		List<Map<Integer, Map<String, ?>>> chunks = new BulkTaskChunker(UNLIMITED, UNLIMITED, UNLIMITED).split(pojos);
+		assertEquals(1, chunks.size());
+		assertSame(pojos, chunks.get(0));
+
+		chunks = new BulkTaskChunker(10, 30, UNLIMITED).split(pojos);
+		assertEquals(1, chunks.size());
+		assertSame(pojos, chunks.get(0));
+	}
+
+	@Test
+	public void testSplitByRows() {
+		List<Map<Integer, Map<String, ?>>> chunks = new BulkTaskChunker(4, UNLIMITED, UNLIMITED).split(createPojos(10, 3));
+		assertEquals(3, chunks.size());
+		assertArrayEquals(new Integer[]{0, 1, 2, 3}, chunks.get(0).keySet().toArray());
+		assertArrayEquals(new Integer[]{4, 5, 6, 7}, chunks.get(1).keySet().toArray());
+		assertArrayEquals(new Integer[]{8, 9}, chunks.get(2).keySet().toArray());
+	}
+
+	@Test
+	public void testSplitByParameters() {
+		List<Map<Integer, Map<String, ?>>> chunks = new BulkTaskChunker(UNLIMITED, 10, UNLIMITED).split(createPojos(10, 3));
+		assertEquals(4, chunks.size());
+		assertEquals(3, chunks.get(0).size());
+		assertEquals(1, chunks.get(3).size());
+		assertEquals(9, chunks.get(3).keySet().iterator().next().intValue());
+	}
+
+	@Test
+	public void testSplitByBytes() {
+		Map<Integer, Map<String, ?>> pojos = createPojos(10, 3);
+		int pojoBytes = BulkTaskChunker.estimateBytes(pojos.get(0));
+
+		List<Map<Integer, Map<String, ?>>> chunks = new BulkTaskChunker(UNLIMITED, UNLIMITED, pojoBytes * 5).split(pojos);
+		assertEquals(2, chunks.size());
+		assertEquals(5, chunks.get(0).size());
+		assertEquals(5, chunks.get(1).size());
+
+		// Pojo larger than limit is still sent in its own chunk
+		chunks = new BulkTaskChunker(UNLIMITED, UNLIMITED, 1).split(pojos);
+		assertEquals(10, chunks.size());
+	}
+
+	@Test
+	public void testEstimateBytes() {
+		Map<String, Object> pojo = new HashMap<>();
+		pojo.put("a", "abc");
+		pojo.put("b", new byte[100]);
+		pojo.put("c", null);
+		pojo.put("d", 1L);
+		assertEquals(9 + 100 + 1 + 8 + 4 * 4, BulkTaskChunker.estimateBytes(pojo));
+	}
+
+	@Test
+	public void testCreate() {
+		Map<Integer, Map<String, ?>> pojos = createPojos(1000, 3);
+
+		// SqlServer limits parameters of one statement
+		BulkTaskChunker chunker = BulkTaskChunker.create(DatabaseCategory.SqlServer, new DalHints(), new CombinedInsertTask<Object>());
+		assertEquals(2, chunker.split(pojos).size());
+
+		chunker = BulkTaskChunker.create(DatabaseCategory.SqlServer, new DalHints(), new BatchInsertTask<Object>());
+		assertEquals(1, chunker.split(pojos).size());
+
+		chunker = BulkTaskChunker.create(DatabaseCategory.MySql, new DalHints(), new CombinedInsertTask<Object>());
+		assertEquals(1, chunker.split(pojos).size());
+
+		chunker = BulkTaskChunker.create(DatabaseCategory.MySql, new DalHints().bulkChunkSize(300), new BatchInsertTask<Object>());
+		assertEquals(4, chunker.split(pojos).size());
+
+		chunker = BulkTaskChunker.create(DatabaseCategory.MySql, new DalHints().bulkChunkBytes(BulkTaskChunker.estimateBytes(pojos.get(0)) * 500), new BatchInsertTask<Object>());
+		assertEquals(2, chunker.split(pojos).size());
+	}
+}
@@ -0,0 +1,173 @@
+package test.com.ctrip.platform.dal.dao.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.task.DalBulkheadExecutor;
+
+public class DalBulkheadExecutorTest {
+	private ExecutorService service;
+
+	@Before
+	public void setUp() {
+		service = Executors.newFixedThreadPool(10);
+	}
+
+	@After
+	public void tearDown() {
+		service.shutdownNow();
+	}
+
+	private Runnable block(final CountDownLatch started, final CountDownLatch release, final AtomicInteger counter) {
+		return new Runnable() {
+			public void run() {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+				}
+				counter.incrementAndGet();
+			}
+		};
+	}
+
+	@Test
+	public void testMaxThreads() throws Exception {
+		DalBulkheadExecutor test = new DalBulkheadExecutor("dao_test", service, 2, 10, false);
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger counter = new AtomicInteger();
+
+		for(int i = 0; i < 5; i++)
+			test.execute(block(started, release, counter));
+
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		assertEquals(2, test.getActiveCount());
+		assertEquals(3, test.getQueueSize());
+
+		release.countDown();
+		service.shutdown();
+		service.awaitTermination(1, TimeUnit.SECONDS);
+
+		assertEquals(5, counter.get());
+		assertEquals(5, test.getCompletedCount());
+		assertEquals(0, test.getActiveCount());
+		assertEquals(0, test.getQueueSize());
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		DalBulkheadExecutor test = new DalBulkheadExecutor("dao_test", service, 1, 1, false);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger counter = new AtomicInteger();
+
+		test.execute(block(started, release, counter));
+		test.execute(block(started, release, counter));
+		try {
+			test.execute(block(started, release, counter));
+			fail();
+		} catch (RejectedExecutionException e) {
+		}
+		assertEquals(1, test.getRejectedCount());
+
+		release.countDown();
+		service.shutdown();
+		service.awaitTermination(1, TimeUnit.SECONDS);
+		assertEquals(2, counter.get());
+	}
+
+	@Test
+	public void testCallerRuns() throws Exception {
+		DalBulkheadExecutor test = new DalBulkheadExecutor("dao_test", service, 1, 0, true);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger counter = new AtomicInteger();
+
+		test.execute(block(started, release, counter));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+
+		final Thread caller = Thread.currentThread();
+		test.execute(new Runnable() {
+			public void run() {
+				assertEquals(caller, Thread.currentThread());
+				counter.incrementAndGet();
+			}
+		});
+		assertEquals(1, counter.get());
+		assertEquals(1, test.getRejectedCount());
+
+		release.countDown();
+		service.shutdown();
+		service.awaitTermination(1, TimeUnit.SECONDS);
+		assertEquals(2, counter.get());
+	}
+
+	@Test
+	public void testSharedPoolRejected() throws Exception {
+		DalBulkheadExecutor test = new DalBulkheadExecutor("dao_test", service, 1, 1, false);
+		service.shutdown();
+
+		try {
+			test.execute(block(new CountDownLatch(1), new CountDownLatch(0), new AtomicInteger()));
+			fail();
+		} catch (RejectedExecutionException e) {
+		}
+		assertEquals(0, test.getActiveCount());
+	}
+
+	@Test
+	public void testWaitingTaskNotRunInCallerThread() throws Exception {
+		final CountDownLatch submitting = new CountDownLatch(1);
+		final CountDownLatch queued = new CountDownLatch(1);
+		// Shared pool that rejects after the second task is queued
+		final DalBulkheadExecutor test = new DalBulkheadExecutor("dao_test", new Executor() {
+			public void execute(Runnable command) {
+				submitting.countDown();
+				try {
+					queued.await();
+				} catch (InterruptedException e) {
+				}
+				throw new RejectedExecutionException();
+			}
+		}, 1, 1, false);
+
+		final AtomicInteger counter = new AtomicInteger();
+		Thread caller = new Thread(new Runnable() {
+			public void run() {
+				try {
+					test.execute(block(new CountDownLatch(1), new CountDownLatch(0), counter));
+				} catch (RejectedExecutionException e) {
+				}
+			}
+		});
+		caller.start();
+		assertTrue(submitting.await(1, TimeUnit.SECONDS));
+
+		FutureTask<Object> waiting = new FutureTask<>(block(new CountDownLatch(1), new CountDownLatch(0), counter), null);
+		test.execute(waiting);
+		assertEquals(1, test.getQueueSize());
+		queued.countDown();
+		caller.join();
+
+		assertTrue(waiting.isCancelled());
+		assertEquals(0, counter.get());
+		assertEquals(0, test.getActiveCount());
+		assertEquals(0, test.getQueueSize());
+		assertEquals(2, test.getRejectedCount());
+	}
+}
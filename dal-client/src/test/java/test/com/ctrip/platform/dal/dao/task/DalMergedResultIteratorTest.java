@@ -0,0 +1,191 @@
+package test.com.ctrip.platform.dal.dao.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalResultIterator;
+import com.ctrip.platform.dal.dao.task.DalMergedResultIterator;
+
+public class DalMergedResultIteratorTest {
+	private static final Comparator<Integer> ASC = new Comparator<Integer>() {
+		public int compare(Integer o1, Integer o2) {
+			return o1.compareTo(o2);
+		}
+	};
+
+	private ExecutorService service;
+	private AtomicInteger opened;
+	private AtomicInteger closed;
+	private CountDownLatch allClosed;
+	private AtomicInteger maxRead;
+
+	@Before
+	public void setUp() {
+		service = Executors.newFixedThreadPool(2);
+		opened = new AtomicInteger();
+		closed = new AtomicInteger();
+		maxRead = new AtomicInteger();
+	}
+
+	@After
+	public void tearDown() {
+		service.shutdownNow();
+	}
+
+	private class ListIterator implements DalResultIterator<Integer> {
+		private List<Integer> values;
+		private int index;
+		private int failAt;
+
+		ListIterator(List<Integer> values, int failAt) {
+			this.values = values;
+			this.failAt = failAt;
+		}
+
+		public boolean hasNext() {
+			return index < values.size();
+		}
+
+		public Integer next() {
+			if(index == failAt)
+				throw new RuntimeException(new SQLException("Read failed"));
+
+			int read = index + 1;
+			int max;
+			while(read > (max = maxRead.get()) && !maxRead.compareAndSet(max, read));
+			return values.get(index++);
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() {
+			closed.incrementAndGet();
+			allClosed.countDown();
+		}
+	}
+
+	/**
+	 * Shard i contains sorted values v where v % shards == i
+	 */
+	private Map<String, Callable<DalResultIterator<Integer>>> createTasks(final int shards, final int rows, final int failShard) {
+		allClosed = new CountDownLatch(shards);
+		Map<String, Callable<DalResultIterator<Integer>>> tasks = new LinkedHashMap<>();
+		for(int i = 0; i < shards; i++) {
+			final List<Integer> values = new ArrayList<>();
+			for(int j = 0; j < rows; j++)
+				values.add(j * shards + i);
+
+			final int failAt = i == failShard ? rows / 2 : -1;
+			tasks.put(String.valueOf(i), new Callable<DalResultIterator<Integer>>() {
+				public DalResultIterator<Integer> call() throws Exception {
+					opened.incrementAndGet();
+					return new ListIterator(values, failAt);
+				}
+			});
+		}
+		return tasks;
+	}
+
+	private List<Integer> readAll(DalResultIterator<Integer> it) {
+		List<Integer> values = new ArrayList<>();
+		while(it.hasNext())
+			values.add(it.next());
+		return values;
+	}
+
+	@Test
+	public void testUnordered() throws Exception {
+		DalResultIterator<Integer> it = new DalMergedResultIterator<>(service, createTasks(4, 100, -1), null, 10);
+		List<Integer> values = readAll(it);
+
+		assertEquals(400, values.size());
+		Collections.sort(values);
+		for(int i = 0; i < values.size(); i++)
+			assertEquals(i, values.get(i).intValue());
+
+		assertEquals(4, opened.get());
+		assertFalse(it.hasNext());
+		try {
+			it.next();
+			fail();
+		} catch (NoSuchElementException e) {
+		}
+	}
+
+	@Test
+	public void testOrdered() throws Exception {
+		// More shards than threads
+		DalResultIterator<Integer> it = new DalMergedResultIterator<>(service, createTasks(8, 50, -1), ASC, 4);
+		List<Integer> values = readAll(it);
+
+		assertEquals(400, values.size());
+		for(int i = 0; i < values.size(); i++)
+			assertEquals(i, values.get(i).intValue());
+	}
+
+	@Test
+	public void testInCallerThread() throws Exception {
+		DalResultIterator<Integer> it = new DalMergedResultIterator<>(null, createTasks(3, 20, -1), ASC, 1);
+		List<Integer> values = readAll(it);
+
+		assertEquals(60, values.size());
+		for(int i = 0; i < values.size(); i++)
+			assertEquals(i, values.get(i).intValue());
+	}
+
+	@Test
+	public void testReadAheadIsBounded() throws Exception {
+		DalResultIterator<Integer> it = new DalMergedResultIterator<>(service, createTasks(2, 1000, -1), ASC, 8);
+		assertEquals(0, it.next().intValue());
+
+		// Wait for the read ahead tasks to stop
+		service.shutdown();
+		assertTrue(service.awaitTermination(1, TimeUnit.SECONDS));
+
+		// Buffered rows plus the row being taken
+		assertTrue(maxRead.get() <= 9 + 1);
+		it.close();
+
+		assertTrue(allClosed.await(1, TimeUnit.SECONDS));
+		assertEquals(2, closed.get());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testShardError() throws Exception {
+		DalResultIterator<Integer> it = new DalMergedResultIterator<>(service, createTasks(4, 100, 2), null, 10);
+		try {
+			readAll(it);
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+
+		assertTrue(allClosed.await(1, TimeUnit.SECONDS));
+		assertEquals(4, closed.get());
+		assertFalse(it.hasNext());
+	}
+}
@@ -0,0 +1,140 @@
+package test.com.ctrip.platform.dal.dao.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.client.LogEntry;
+import com.ctrip.platform.dal.dao.task.DalParallelTaskExecutor;
+
+public class DalParallelTaskExecutorTest {
+	private ExecutorService service;
+
+	@Before
+	public void setUp() {
+		LogEntry.init();
+		service = Executors.newFixedThreadPool(10);
+	}
+
+	@After
+	public void tearDown() {
+		service.shutdownNow();
+	}
+
+	private List<Callable<Integer>> createTasks(int count, final AtomicInteger running, final AtomicInteger maxRunning, final AtomicInteger executed) {
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			final int value = i;
+			tasks.add(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					int cur = running.incrementAndGet();
+					int max;
+					while(cur > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, cur));
+					Thread.sleep(20);
+					running.decrementAndGet();
+					executed.incrementAndGet();
+					return value;
+				}
+			});
+		}
+		return tasks;
+	}
+
+	@Test
+	public void testOrderAndConcurrency() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger executed = new AtomicInteger();
+
+		List<Integer> results = DalParallelTaskExecutor.execute(service, createTasks(20, running, maxRunning, executed), 4);
+
+		assertEquals(20, results.size());
+		for(int i = 0; i < 20; i++)
+			assertEquals(i, results.get(i).intValue());
+
+		assertEquals(20, executed.get());
+		assertTrue(maxRunning.get() > 1);
+		assertTrue(maxRunning.get() <= 4);
+	}
+
+	@Test
+	public void testCallerRuns() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger executed = new AtomicInteger();
+
+		List<Integer> results = DalParallelTaskExecutor.execute(null, createTasks(5, running, maxRunning, executed), 4);
+		assertEquals(5, results.size());
+		assertEquals(1, maxRunning.get());
+
+		Executor rejecting = new Executor() {
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		};
+		results = DalParallelTaskExecutor.execute(rejecting, createTasks(5, running, maxRunning, executed), 4);
+		assertEquals(5, results.size());
+		assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void testBusyExecutor() throws Exception {
+		// The only thread of the executor is busy, caller should not wait for it
+		ExecutorService single = Executors.newSingleThreadExecutor();
+		final CountDownLatch release = new CountDownLatch(1);
+		single.execute(new Runnable() {
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+				}
+			}
+		});
+
+		try {
+			AtomicInteger executed = new AtomicInteger();
+			List<Integer> results = DalParallelTaskExecutor.execute(single, createTasks(5, new AtomicInteger(), new AtomicInteger(), executed), 4);
+			assertEquals(5, results.size());
+			assertEquals(5, executed.get());
+		} finally {
+			release.countDown();
+			single.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testError() throws Exception {
+		AtomicInteger executed = new AtomicInteger();
+		List<Callable<Integer>> tasks = createTasks(10, new AtomicInteger(), new AtomicInteger(), executed);
+		tasks.set(0, new Callable<Integer>() {
+			public Integer call() throws Exception {
+				throw new SQLException("test");
+			}
+		});
+
+		try {
+			DalParallelTaskExecutor.execute(service, tasks, 2);
+			fail();
+		} catch (SQLException e) {
+			assertEquals("test", e.getMessage());
+		}
+
+		// Tasks not started are skipped after error
+		assertTrue(executed.get() < 9);
+	}
+}
@@ -0,0 +1,210 @@
+package test.com.ctrip.platform.dal.dao.task;
+
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.task.DalQueryByPksRequest;
+import com.ctrip.platform.dal.dao.task.QueryByPksTask;
+
+public class DalQueryByPksRequestTest {
+	// Sharded by id
+	private static final String DB_SHARD = "dao_test_mod_mysql";
+	// Sharded by column other than id
+	private static final String DB_SHARD_BY_INDEX = "dao_test_sqlsvr_dbShard";
+	private static final String DB_TABLE_SHARD_BY_INDEX = "dao_test_sqlsvr_dbTableShard";
+	private static final String TABLE_NAME = "dal_client_test";
+
+	private static class TestQueryByPksTask extends QueryByPksTask<ClientTestModel> {
+		private List<List<?>> executed = new ArrayList<>();
+		private Set<Thread> threads = new HashSet<>();
+
+		TestQueryByPksTask() {
+			this(DB_SHARD);
+		}
+
+		TestQueryByPksTask(String logicDbName) {
+			parser = new ClientTestDalParser(logicDbName);
+		}
+
+		// Only id less than 100 exists
+		@Override
+		public synchronized List<ClientTestModel> execute(DalHints hints, List<?> pks) throws SQLException {
+			executed.add(new ArrayList<>(pks));
+			threads.add(Thread.currentThread());
+
+			List<ClientTestModel> result = new ArrayList<>();
+			for(Object pk: pks) {
+				if(((Number)pk).intValue() >= 100)
+					continue;
+
+				ClientTestModel model = new ClientTestModel();
+				model.setId(((Number)pk).intValue());
+				result.add(model);
+			}
+			return result;
+		}
+	}
+
+	static{
+		try {
+			DalClientFactory.initClientFactory();
+		} catch (Exception e) {
+			fail();
+		}
+	}
+
+	@Test
+	public void testValidate() {
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_SHARD, "", new DalHints(), null, new TestQueryByPksTask());
+		try {
+			test.validate();
+			fail();
+		} catch (SQLException e) {
+		}
+
+		test = new DalQueryByPksRequest<>(DB_SHARD, "", new DalHints(), new ArrayList<>(), null);
+		try {
+			test.validate();
+			fail();
+		} catch (SQLException e) {
+		}
+	}
+
+	@Test
+	public void testIsCrossShard() throws Exception {
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_SHARD, "", new DalHints(), Arrays.asList(2, 4), new TestQueryByPksTask());
+		test.validate();
+		assertFalse(test.isCrossShard());
+
+		test = new DalQueryByPksRequest<>(DB_SHARD, "", new DalHints(), Arrays.asList(1, 2), new TestQueryByPksTask());
+		test.validate();
+		assertTrue(test.isCrossShard());
+
+		test = new DalQueryByPksRequest<>(DB_SHARD, "", new DalHints().inShard(0), Arrays.asList(1, 2), new TestQueryByPksTask());
+		test.validate();
+		assertFalse(test.isCrossShard());
+	}
+
+	@Test
+	public void testCreateTasks() throws Exception {
+		TestQueryByPksTask task = new TestQueryByPksTask();
+		DalHints hints = new DalHints();
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_SHARD, "", hints, Arrays.asList(3, 2, 1, 100), task);
+		test.validate();
+		assertTrue(test.isCrossShard());
+
+		Map<String, Callable<List<ClientTestModel>>> tasks = test.createTasks();
+		assertEquals(2, tasks.size());
+		for(String shard: tasks.keySet())
+			test.getMerger().addPartial(shard, tasks.get(shard).call());
+
+		List<ClientTestModel> result = test.getMerger().merge();
+		assertEquals(4, result.size());
+		assertEquals(3, result.get(0).getId().intValue());
+		assertEquals(2, result.get(1).getId().intValue());
+		assertEquals(1, result.get(2).getId().intValue());
+		assertNull(result.get(3));
+		assertEquals(Arrays.asList(100), hints.getMissingPks());
+	}
+
+	@Test
+	public void testCreateTaskDistinct() throws Exception {
+		TestQueryByPksTask task = new TestQueryByPksTask();
+		DalHints hints = new DalHints();
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_SHARD, "", hints, Arrays.asList(2, 200, null, 2L), task);
+		test.validate();
+		assertFalse(test.isCrossShard());
+
+		List<ClientTestModel> result = test.createTask().call();
+		assertEquals(1, task.executed.size());
+		assertEquals(Arrays.asList(2, 200), task.executed.get(0));
+
+		assertEquals(4, result.size());
+		assertEquals(2, result.get(0).getId().intValue());
+		assertNull(result.get(1));
+		assertNull(result.get(2));
+		assertSame(result.get(0), result.get(3));
+		assertEquals(Arrays.asList(200, null), hints.getMissingPks());
+	}
+
+	@Test
+	public void testCreateTaskByChunks() throws Exception {
+		TestQueryByPksTask task = new TestQueryByPksTask();
+		DalHints hints = new DalHints().inShard(0).bulkChunkSize(2);
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_SHARD, "", hints, Arrays.asList(5, 4, 3, 2, 1), task);
+		test.validate();
+		assertFalse(test.isCrossShard());
+
+		List<ClientTestModel> result = test.createTask().call();
+		assertEquals(3, task.executed.size());
+		assertEquals(Arrays.asList(5, 4), task.executed.get(0));
+		assertEquals(Arrays.asList(3, 2), task.executed.get(1));
+		assertEquals(Arrays.asList(1), task.executed.get(2));
+
+		for(int i = 0; i < 5; i++)
+			assertEquals(5 - i, result.get(i).getId().intValue());
+		assertTrue(hints.getMissingPks().isEmpty());
+	}
+
+	@Test
+	public void testNotShardedByPk() throws Exception {
+		TestQueryByPksTask task = new TestQueryByPksTask(DB_SHARD_BY_INDEX);
+		DalHints hints = new DalHints();
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_SHARD_BY_INDEX, "", hints, Arrays.asList(2, 4, 100), task);
+		test.validate();
+
+		// Entity can be in any shard
+		assertTrue(test.isCrossShard());
+		Map<String, Callable<List<ClientTestModel>>> tasks = test.createTasks();
+		assertEquals(new HashSet<>(Arrays.asList("0", "1")), tasks.keySet());
+		for(String shard: tasks.keySet())
+			tasks.get(shard).call();
+
+		assertEquals(2, task.executed.size());
+		assertEquals(Arrays.asList(2, 4, 100), task.executed.get(0));
+		assertEquals(Arrays.asList(2, 4, 100), task.executed.get(1));
+	}
+
+	@Test
+	public void testTableShardNotShardedByPk() throws Exception {
+		TestQueryByPksTask task = new TestQueryByPksTask(DB_TABLE_SHARD_BY_INDEX);
+		DalHints hints = new DalHints().inShard(0);
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_TABLE_SHARD_BY_INDEX, TABLE_NAME, hints, Arrays.asList(1, 2), task);
+		test.validate();
+		assertFalse(test.isCrossShard());
+
+		List<ClientTestModel> result = test.createTask().call();
+		assertEquals(4, task.executed.size());
+		for(List<?> executed: task.executed)
+			assertEquals(Arrays.asList(1, 2), executed);
+		assertEquals(1, result.get(0).getId().intValue());
+		assertEquals(2, result.get(1).getId().intValue());
+	}
+
+	@Test
+	public void testTableShardsOfCrossShardTaskInSameThread() throws Exception {
+		TestQueryByPksTask task = new TestQueryByPksTask(DB_TABLE_SHARD_BY_INDEX);
+		DalHints hints = new DalHints().parallelTableShardExecution(4);
+		DalQueryByPksRequest<ClientTestModel> test = new DalQueryByPksRequest<>(DB_TABLE_SHARD_BY_INDEX, TABLE_NAME, hints, Arrays.asList(1, 2), task);
+		test.validate();
+		assertTrue(test.isCrossShard());
+
+		// Task of one DB shard does not use other threads of the pool it runs in
+		test.createTasks().get("0").call();
+		assertEquals(4, task.executed.size());
+		assertEquals(Collections.singleton(Thread.currentThread()), task.threads);
+	}
+}
@@ -6,25 +6,41 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.ctrip.platform.dal.dao.DalFuture;
 import com.ctrip.platform.dal.dao.DalHints;
 import com.ctrip.platform.dal.dao.ResultMerger;
+import com.ctrip.platform.dal.dao.client.LogEntry;
+import com.ctrip.platform.dal.dao.helper.DalListMerger;
 import com.ctrip.platform.dal.dao.helper.DefaultResultCallback;
 import com.ctrip.platform.dal.dao.task.DalRequest;
 import com.ctrip.platform.dal.dao.task.DalRequestExecutor;
+import com.ctrip.platform.dal.dao.task.LogicDbRequest;
+import com.ctrip.platform.dal.exceptions.DalException;
+import com.ctrip.platform.dal.exceptions.ErrorCode;
 
 public class DalRequestExecutorTest {
-	private class TestDalRequest implements DalRequest<Integer> {
+	private class TestDalRequest implements DalRequest<Integer>, LogicDbRequest {
 		private SQLException e;
 		public Integer[] values;
 
@@ -80,6 +96,11 @@ public class DalRequestExecutorTest {
 			return null;
 		}
 
+		@Override
+		public String getLogicDbName() {
+			return "dao_test";
+		}
+
 		@Override
 		public boolean isAsynExecution() {
 			// TODO Auto-generated method stub
@@ -87,6 +108,59 @@ public class DalRequestExecutorTest {
 		}
 	}
 
+	// Each shard returns its index after the given milliseconds
+	private class TestListDalRequest implements DalRequest<List<Integer>> {
+		private long[] costs;
+
+		TestListDalRequest(long... costs) {
+			this.costs = costs;
+		}
+
+		@Override
+		public void validate() throws SQLException {
+		}
+
+		@Override
+		public boolean isCrossShard() throws SQLException {
+			return true;
+		}
+
+		@Override
+		public Callable<List<Integer>> createTask() throws SQLException {
+			return null;
+		}
+
+		@Override
+		public Map<String, Callable<List<Integer>>> createTasks() throws SQLException {
+			Map<String, Callable<List<Integer>>> tasks = new LinkedHashMap<>();
+			for(int i = 0; i < costs.length; i++) {
+				final int k = i;
+				tasks.put(String.valueOf(i), new Callable<List<Integer>>() {
+					public List<Integer> call() throws Exception {
+						Thread.sleep(costs[k]);
+						return Collections.singletonList(k);
+					}
+				});
+			}
+			return tasks;
+		}
+
+		@Override
+		public ResultMerger<List<Integer>> getMerger() {
+			return new DalListMerger<>();
+		}
+
+		@Override
+		public String getCaller() {
+			return null;
+		}
+
+		@Override
+		public boolean isAsynExecution() {
+			return false;
+		}
+	}
+
 	static ConcurrentHashMap<String, Object> all = new ConcurrentHashMap<>();
 
 	private class TestThreadPoolDalRequest extends TestDalRequest {
@@ -112,6 +186,32 @@ public class DalRequestExecutorTest {
 		}
 	}
 
+	private class TestSlowDalRequest extends TestDalRequest {
+		private int slowValue;
+		private boolean interrupted;
+
+		TestSlowDalRequest(int slowValue, Integer[] values) {
+			super(null, values);
+			this.slowValue = slowValue;
+		}
+
+		public Callable<Integer> createInternalTask(final Integer k) throws SQLException {
+			return new Callable<Integer>() {
+				public Integer call() throws Exception {
+					if(k == slowValue) {
+						try {
+							Thread.sleep(5000);
+						} catch (InterruptedException e) {
+							interrupted = true;
+							throw e;
+						}
+					}
+					return k;
+				}
+			};
+		}
+	}
+
 	@Before
 	public void setUp() {
 		try{
@@ -227,6 +327,182 @@ public class DalRequestExecutorTest {
 		}
 	}
 
+	@Test
+	public void testExecuteAsyncFuture() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestDalRequest request = new TestDalRequest(null, new Integer[]{1, 2});
+		DalHints hints = new DalHints().asyncExecution();
+
+		assertNull(test.execute(hints, request));
+		DalFuture<Integer> future = hints.getFuture();
+		assertEquals(3, future.get().intValue());
+
+		// Callback added after completion is invoked immediately
+		DefaultResultCallback callback = new DefaultResultCallback();
+		future.addCallback(callback);
+		assertTrue(callback.isDone());
+		assertEquals(3, ((Integer)callback.getResult()).intValue());
+	}
+
+	@Test
+	public void testExecuteAsyncFutureError() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+		SQLException ex = new SQLException("Test");
+		TestDalRequest request = new TestDalRequest(ex, null);
+		DalHints hints = new DalHints().asyncExecution();
+
+		test.execute(hints, request);
+		DefaultResultCallback callback = new DefaultResultCallback();
+		hints.<Integer>getFuture().addCallback(callback);
+		callback.waitForDone(1000);
+		assertEquals(ex, callback.getError());
+	}
+
+	@Test
+	public void testExecuteAsyncExecutor() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestDalRequest request = new TestDalRequest(null, new Integer[]{1});
+		final Thread[] executed = new Thread[1];
+		ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				return executed[0] = new Thread(r, "caller-executor");
+			}
+		});
+
+		try {
+			DalHints hints = new DalHints().asyncExecution(executor);
+			DefaultResultCallback callback = new DefaultResultCallback();
+			test.execute(hints.callbackWith(callback), request);
+			assertEquals(1, hints.<Integer>getFuture().get().intValue());
+			assertTrue(callback.isDone());
+			assertEquals(1, ((Integer)callback.getResult()).intValue());
+			assertTrue(executed[0] != null);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCrossShardTimeout() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestSlowDalRequest request = new TestSlowDalRequest(3, new Integer[]{1, 2, 3});
+		DalHints hints = new DalHints().crossShardTimeout(200);
+
+		long start = System.currentTimeMillis();
+		try {
+			test.execute(hints, request);
+			fail();
+		} catch (DalException e) {
+			assertEquals(ErrorCode.CrossShardTimeout.getCode(), e.getErrorCode());
+		}
+		assertTrue(System.currentTimeMillis() - start < 2000);
+
+		// The slow shard is cancelled
+		Thread.sleep(200);
+		assertTrue(request.interrupted);
+	}
+
+	@Test
+	public void testCrossShardPartialResultOnTimeout() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestSlowDalRequest request = new TestSlowDalRequest(3, new Integer[]{1, 2, 3});
+		DalHints hints = new DalHints().crossShardTimeout(200).partialResultOnTimeout();
+
+		Integer result = test.execute(hints, request);
+		assertEquals(3, result.intValue());
+
+		Set<String> timeoutShards = new HashSet<>();
+		timeoutShards.add("2");
+		assertEquals(timeoutShards, hints.getTimeoutShards());
+	}
+
+	@Test
+	public void testCrossShardNotTimeout() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestSlowDalRequest request = new TestSlowDalRequest(-1, new Integer[]{1, 2, 3});
+		DalHints hints = new DalHints().crossShardTimeout(1000).partialResultOnTimeout();
+
+		assertEquals(6, test.execute(hints, request).intValue());
+		assertNull(hints.getTimeoutShards());
+	}
+
+	@Test
+	public void testSequentialCrossShardTimeout() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestSlowDalRequest request = new TestSlowDalRequest(-1, new Integer[]{1, 2, 3});
+		DalHints hints = new DalHints().sequentialExecute().crossShardTimeout(0).partialResultOnTimeout();
+
+		assertEquals(0, test.execute(hints, request).intValue());
+		assertEquals(3, hints.getTimeoutShards().size());
+	}
+
+	@Test
+	public void testBulkhead() throws Exception {
+		DalRequestExecutor.shutdown();
+		Map<String, String> settings = new HashMap<>();
+		settings.put(DalRequestExecutor.MAX_POOL_SIZE, "20");
+		settings.put(DalRequestExecutor.MAX_THREADS_PER_LOGIC_DB, "10;dao_test=2");
+		DalRequestExecutor.init(settings);
+
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestDalRequest request = new TestThreadPoolDalRequest(10) {
+			public Callable<Integer> createInternalTask(final Integer k) throws SQLException {
+				return new Callable<Integer>() {
+					public Integer call() throws Exception {
+						synchronized (maxRunning) {
+							maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+						}
+						Thread.sleep(50);
+						running.decrementAndGet();
+						return k;
+					}
+				};
+			}
+		};
+		assertEquals(45, test.execute(new DalHints(), request).intValue());
+		assertEquals(2, maxRunning.get());
+		assertEquals(2, DalRequestExecutor.getBulkhead("dao_test").getMaxThreads());
+	}
+
+	@Test
+	public void testBulkheadRejected() throws Exception {
+		DalRequestExecutor.shutdown();
+		Map<String, String> settings = new HashMap<>();
+		settings.put(DalRequestExecutor.MAX_THREADS_PER_LOGIC_DB, "2");
+		settings.put(DalRequestExecutor.MAX_QUEUE_SIZE_PER_LOGIC_DB, "1");
+		settings.put(DalRequestExecutor.REJECTION_POLICY, DalRequestExecutor.ABORT);
+		DalRequestExecutor.init(settings);
+
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestThreadPoolDalRequest request = new TestThreadPoolDalRequest(5);
+		request.sleep = true;
+		try {
+			test.execute(new DalHints(), request);
+			fail();
+		} catch (DalException e) {
+			assertEquals(ErrorCode.ExecutorRejected.getCode(), e.getErrorCode());
+		}
+		assertEquals(1, DalRequestExecutor.getBulkhead("dao_test").getRejectedCount());
+	}
+
+	@Test
+	public void testBulkheadCallerRuns() throws Exception {
+		DalRequestExecutor.shutdown();
+		Map<String, String> settings = new HashMap<>();
+		settings.put(DalRequestExecutor.MAX_THREADS_PER_LOGIC_DB, "2");
+		settings.put(DalRequestExecutor.MAX_QUEUE_SIZE_PER_LOGIC_DB, "1");
+		settings.put(DalRequestExecutor.REJECTION_POLICY, DalRequestExecutor.CALLER_RUNS);
+		DalRequestExecutor.init(settings);
+
+		DalRequestExecutor test = new DalRequestExecutor();
+		TestThreadPoolDalRequest request = new TestThreadPoolDalRequest(5);
+		request.sleep = true;
+		assertEquals(10, test.execute(new DalHints(), request).intValue());
+		assertTrue(DalRequestExecutor.getBulkhead("dao_test").getRejectedCount() > 0);
+	}
+
 	@Test
 	public void testThreadPoolFeature() {
 		DalRequestExecutor.shutdown();
@@ -372,4 +648,53 @@ public class DalRequestExecutorTest {
 			fail();
 		}
 	}
+
+	@Test
+	public void testMergeInShardOrder() throws Exception {
+		DalRequestExecutor test = new DalRequestExecutor();
+
+		// The first shard completes last
+		List<Integer> result = test.execute(new DalHints(), new TestListDalRequest(300, 0, 100, 0));
+		assertEquals(Arrays.asList(0, 1, 2, 3), result);
+
+		// Shards completed after the timed out one are still merged in order
+		DalHints hints = new DalHints().crossShardTimeout(500).partialResultOnTimeout();
+		result = test.execute(hints, new TestListDalRequest(100, 5000, 0, 200));
+		assertEquals(Arrays.asList(0, 2, 3), result);
+		assertEquals(Collections.singleton("1"), hints.getTimeoutShards());
+	}
+
+	@Test
+	public void testCallerNotSampled() throws Exception {
+		final String caller = "test.com.ctrip.platform.dal.dao.task.PersonDao.queryAll";
+		final Map<String, String> sources = new ConcurrentHashMap<>();
+		TestDalRequest request = new TestDalRequest(null, new Integer[]{1}) {
+			@Override
+			public Callable<Integer> createInternalTask(final Integer k) throws SQLException {
+				return new Callable<Integer>() {
+					public Integer call() throws Exception {
+						LogEntry entry = new LogEntry();
+						sources.put(String.valueOf(k), entry.getSource());
+						return k;
+					}
+				};
+			}
+
+			@Override
+			public String getCaller() {
+				return caller;
+			}
+		};
+
+		LogEntry.setCallerSampling(Integer.MAX_VALUE);
+		try {
+			new DalRequestExecutor().execute(new DalHints(), request);
+		} finally {
+			LogEntry.setCallerSampling(LogEntry.DEFAULT_CALLER_SAMPLING);
+		}
+
+		// Stack is not captured, source is the request caller instead of the frame of call site
+		assertEquals(caller, sources.get("1"));
+		assertNull(LogEntry.getCurrentCaller());
+	}
 }
@@ -17,11 +17,14 @@ import java.util.concurrent.Callable;
 
 import org.junit.Test;
 
+import com.ctrip.platform.dal.common.enums.DatabaseCategory;
 import com.ctrip.platform.dal.dao.DalClient;
 import com.ctrip.platform.dal.dao.DalClientFactory;
 import com.ctrip.platform.dal.dao.DalHints;
 import com.ctrip.platform.dal.dao.ResultMerger;
 import com.ctrip.platform.dal.dao.StatementParameters;
+import com.ctrip.platform.dal.dao.helper.DalRangedResultMerger;
+import com.ctrip.platform.dal.dao.sqlbuilder.BaseTableSelectBuilder;
 import com.ctrip.platform.dal.dao.sqlbuilder.SqlBuilder;
 import com.ctrip.platform.dal.dao.task.DalSqlTaskRequest;
 import com.ctrip.platform.dal.dao.task.SqlTask;
@@ -106,6 +109,29 @@ public class DalSqlTaskRequestTest {
 		assertTrue(test.isCrossShard());
 	}
 
+	@Test
+	public void testPageInSingleShard() throws SQLException {
+		Set<String> shards = new HashSet<>();
+		shards.add("1");
+		DalHints hints = new DalHints().inShards(shards);
+		BaseTableSelectBuilder builder = new BaseTableSelectBuilder("Test", DatabaseCategory.MySql);
+		builder.select("columns").where("conditions").orderBy("ob", true).with(new StatementParameters()).atPage(3, 10);
+
+		// In shards resolves to one shard, the page is taken by the statement
+		DalSqlTaskRequest<Integer> test = new DalSqlTaskRequest<>("dao_test_sqlsvr_dbShard", builder, hints, null, null);
+		assertFalse(test.isCrossShard());
+		builder.mergeRange(test.isCrossShard(), hints);
+		assertEquals("SELECT `columns` FROM `Test` WHERE conditions ORDER BY `ob` ASC LIMIT 20, 10", builder.build());
+		assertTrue(builder.getResultMerger(hints) instanceof DalRangedResultMerger);
+
+		shards.add("0");
+		hints = new DalHints().inShards(shards);
+		test = new DalSqlTaskRequest<>("dao_test_sqlsvr_dbShard", builder, hints, null, null);
+		assertTrue(test.isCrossShard());
+		builder.mergeRange(test.isCrossShard(), hints);
+		assertEquals("SELECT `columns` FROM `Test` WHERE conditions ORDER BY `ob` ASC LIMIT 30", builder.build());
+	}
+
 	@Test
 	public void testCreateTask() throws SQLException {
 		DalSqlTaskRequest<Integer> test = null;
@@ -0,0 +1,61 @@
+package test.com.ctrip.platform.dal.dao.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.task.SqlTemplateCache;
+
+public class SqlTemplateCacheTest {
+	@Test
+	public void testGet() {
+		SqlTemplateCache cache = new SqlTemplateCache();
+		String sql = "INSERT INTO t(a, b) VALUES (?,?),(?,?)";
+
+		assertNull(cache.get(SqlTemplateCache.key("t", new HashSet<>(Arrays.asList("c")), 2)));
+		cache.put(SqlTemplateCache.key("t", new HashSet<>(Arrays.asList("c")), 2), sql);
+
+		assertSame(sql, cache.get(SqlTemplateCache.key("t", new HashSet<>(Arrays.asList("c")), 2)));
+		assertNull(cache.get(SqlTemplateCache.key("t", new HashSet<>(Arrays.asList("c")), 3)));
+		assertNull(cache.get(SqlTemplateCache.key("t_1", new HashSet<>(Arrays.asList("c")), 2)));
+		assertNull(cache.get(SqlTemplateCache.key("t", new HashSet<>(), 2)));
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void testArrayKey() {
+		SqlTemplateCache cache = new SqlTemplateCache();
+		String sql = "UPDATE t SET a=?, b=? WHERE id=?";
+		cache.put(SqlTemplateCache.key("t", new String[]{"a", "b"}, new boolean[]{false, true}), sql);
+
+		assertSame(sql, cache.get(SqlTemplateCache.key("t", new String[]{"a", "b"}, new boolean[]{false, true})));
+		assertNull(cache.get(SqlTemplateCache.key("t", new String[]{"b", "a"}, new boolean[]{false, true})));
+		assertNull(cache.get(SqlTemplateCache.key("t", new String[]{"a", "b"}, new boolean[]{false, false})));
+	}
+
+	@Test
+	public void testMaxSize() {
+		SqlTemplateCache cache = new SqlTemplateCache(2);
+		cache.put(SqlTemplateCache.key("t", 1), "1");
+		cache.put(SqlTemplateCache.key("t", 2), "2");
+		assertEquals(2, cache.size());
+
+		cache.put(SqlTemplateCache.key("t", 3), "3");
+		assertEquals(1, cache.size());
+		assertEquals("3", cache.get(SqlTemplateCache.key("t", 3)));
+
+		try {
+			new SqlTemplateCache(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -19,10 +19,15 @@ import org.junit.runners.Suite.SuiteClasses;
 	DalTableDaoOracleTest.class,
 		
 	DatabaseSelectorTest.class,
+	DatabaseSelectionPolicyTest.class,
+	ReplicationLagTest.class,
 	DalClientFactoryTest.class,
+	DalConfigureTest.class,
 	DalClientFactoryLazeLoadTest.class,
 	DalStatusManagerTest.class,
 	StatementParametersTest.class,
+	DalHintsTest.class,
+	DalStreamingResultIteratorTest.class,
 	
 	KeyHolderTest.class,
 })
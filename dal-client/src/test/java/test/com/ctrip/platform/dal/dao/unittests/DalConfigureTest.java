@@ -0,0 +1,141 @@
+package test.com.ctrip.platform.dal.dao.unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.client.DalConnectionLocator;
+import com.ctrip.platform.dal.dao.configure.DalConfigure;
+import com.ctrip.platform.dal.dao.configure.DatabaseSet;
+
+public class DalConfigureTest {
+	private static final String DB = "dao_test_mod_mysql";
+	private static final String FAST = "dal_test_new";
+	private static final String SLOW = "dao_test_mysql_0";
+
+	static {
+		try {
+			DalClientFactory.initClientFactory();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private DalConfigure configure;
+
+	// Slow data source waits for it before connecting
+	private CountDownLatch slowReleased;
+	private CountDownLatch slowConnected;
+	private Map<String, Exception> failures = new ConcurrentHashMap<>();
+
+	@Before
+	public void setUp() {
+		DalConfigure config = DalClientFactory.getDalConfigure();
+		Map<String, DatabaseSet> databaseSets = Collections.singletonMap(DB, config.getDatabaseSet(DB));
+		configure = new DalConfigure("warmUp", databaseSets, config.getDalLogger(), new MockLocator(), config.getFacory());
+		slowReleased = new CountDownLatch(1);
+		slowConnected = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		slowReleased.countDown();
+	}
+
+	private class MockLocator implements DalConnectionLocator {
+		@Override
+		public void initialize(Map<String, String> settings) throws Exception {
+		}
+
+		@Override
+		public void setup(Set<String> dbNames) {
+		}
+
+		@Override
+		public Connection getConnection(final String name) throws Exception {
+			if(failures.containsKey(name))
+				throw failures.get(name);
+
+			if(SLOW.equals(name)) {
+				slowReleased.await();
+				slowConnected.countDown();
+			}
+
+			return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					switch (method.getName()) {
+					case "getCatalog":
+						return name;
+					case "getMetaData":
+						return mockMeta("jdbc:mysql://" + name + ":3306/db");
+					default:
+						return null;
+					}
+				}
+			});
+		}
+	}
+
+	private static DatabaseMetaData mockMeta(final String url) {
+		return (DatabaseMetaData)Proxy.newProxyInstance(DalConfigureTest.class.getClassLoader(), new Class[]{DatabaseMetaData.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				return "getURL".equals(method.getName()) ? url : null;
+			}
+		});
+	}
+
+	@Test
+	public void testWarmUpAll() throws Exception {
+		slowReleased.countDown();
+		Map<String, Long> costs = configure.warmUpConnections(2, DalConfigure.NO_WARM_UP_TIMEOUT);
+
+		assertEquals(new TreeSet<>(configure.getDataSourceNames()), costs.keySet());
+		for(Long cost: costs.values())
+			assertTrue(cost >= 0);
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		long start = System.currentTimeMillis();
+		Map<String, Long> costs = configure.warmUpConnections(2, 200);
+		long cost = System.currentTimeMillis() - start;
+
+		assertTrue("Cost " + cost, cost < 2000);
+		assertEquals(Collections.singleton(FAST), costs.keySet());
+
+		// Not done data source keeps warming up in background
+		assertFalse(slowConnected.await(50, TimeUnit.MILLISECONDS));
+		slowReleased.countDown();
+		assertTrue(slowConnected.await(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		slowReleased.countDown();
+		failures.put(SLOW, new SQLException("Can not connect"));
+		Map<String, Long> costs = configure.warmUpConnections(1, 1000);
+
+		assertEquals(Collections.singleton(FAST), costs.keySet());
+	}
+}
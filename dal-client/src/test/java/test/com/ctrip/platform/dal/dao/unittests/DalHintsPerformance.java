@@ -0,0 +1,94 @@
+package test.com.ctrip.platform.dal.dao.unittests;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+
+/**
+ * Measure bytes allocated for hints of one cross shard request, which clones the hints for
+ * each shard and table shard. It is compared with the map based hints used before, which
+ * copied the whole map and deep copied shardColValues and fields on each clone.
+ */
+public class DalHintsPerformance {
+	private static final int SHARDS = 16;
+	private static final int TABLE_SHARDS = 4;
+	private static final int WARM_UP = 10000;
+	private static final int ROUNDS = 100000;
+
+	public static void main(String[] args) throws Exception {
+		for (int i = 0; i < WARM_UP; i++) {
+			crossShard();
+			mapCrossShard();
+		}
+
+		System.out.println(String.format("array hints: %d(bytes/request)", measure(false)));
+		System.out.println(String.format("map hints: %d(bytes/request)", measure(true)));
+	}
+
+	private static long measure(boolean map) {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		long start = bean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < ROUNDS; i++) {
+			if(map)
+				mapCrossShard();
+			else
+				crossShard();
+		}
+		return (bean.getThreadAllocatedBytes(id) - start) / ROUNDS;
+	}
+
+	private static int crossShard() {
+		DalHints hints = new DalHints().continueOnError().timeout(10).setShardColValue("id", 1).setFields(fields());
+		int count = 0;
+		for (int i = 0; i < SHARDS; i++) {
+			DalHints shardHints = hints.clone().inShard(i);
+			for (int j = 0; j < TABLE_SHARDS; j++)
+				count += shardHints.clone().inTableShard(j).is(DalHintEnum.continueOnError) ? 1 : 0;
+		}
+		return count;
+	}
+
+	private static int mapCrossShard() {
+		Map<DalHintEnum, Object> hints = new ConcurrentHashMap<>();
+		hints.put(DalHintEnum.continueOnError, hints);
+		hints.put(DalHintEnum.timeout, 10);
+		Map<String, Object> shardColValues = new HashMap<>();
+		shardColValues.put("id", 1);
+		hints.put(DalHintEnum.shardColValues, shardColValues);
+		hints.put(DalHintEnum.fields, fields());
+
+		int count = 0;
+		for (int i = 0; i < SHARDS; i++) {
+			Map<DalHintEnum, Object> shardHints = mapClone(hints);
+			shardHints.put(DalHintEnum.shard, i);
+			for (int j = 0; j < TABLE_SHARDS; j++) {
+				Map<DalHintEnum, Object> tableShardHints = mapClone(shardHints);
+				tableShardHints.put(DalHintEnum.tableShard, j);
+				count += tableShardHints.containsKey(DalHintEnum.continueOnError) ? 1 : 0;
+			}
+		}
+		return count;
+	}
+
+	private static Map<DalHintEnum, Object> mapClone(Map<DalHintEnum, Object> hints) {
+		Map<DalHintEnum, Object> newHints = new ConcurrentHashMap<>();
+		newHints.putAll(hints);
+		newHints.put(DalHintEnum.shardColValues, new HashMap<>((Map<String, ?>)hints.get(DalHintEnum.shardColValues)));
+		newHints.put(DalHintEnum.fields, new LinkedHashMap<>((Map<String, ?>)hints.get(DalHintEnum.fields)));
+		return newHints;
+	}
+
+	private static Map<String, Object> fields() {
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("id", 1);
+		fields.put("name", "CTRIP");
+		fields.put("quantity", 10);
+		return fields;
+	}
+}
@@ -0,0 +1,89 @@
+package test.com.ctrip.platform.dal.dao.unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalHintEnum;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.KeyHolder;
+
+public class DalHintsTest {
+	@Test
+	public void testSetAndGet() {
+		DalHints hints = new DalHints(DalHintEnum.continueOnError);
+		assertTrue(hints.is(DalHintEnum.continueOnError));
+		assertFalse(hints.isStopOnError());
+		assertFalse(hints.is(DalHintEnum.masterOnly));
+
+		hints.inShard(1).timeout(10);
+		assertEquals("1", hints.getShardId());
+		assertEquals(10, hints.getInt(DalHintEnum.timeout).intValue());
+		assertEquals(5, hints.getInt(DalHintEnum.bulkChunkSize, 5).intValue());
+
+		try {
+			hints.set(DalHintEnum.shard, null);
+			fail();
+		} catch (NullPointerException e) {
+		}
+	}
+
+	@Test
+	public void testCleanUp() {
+		Map<String, Object> fields = new HashMap<>();
+		DalHints hints = new DalHints().setFields(fields).inShard(1);
+		hints.cleanUp();
+		assertFalse(hints.is(DalHintEnum.fields));
+		assertEquals("1", hints.getShardId());
+	}
+
+	@Test
+	public void testCloneIsolation() {
+		KeyHolder holder = new KeyHolder();
+		DalHints hints = new DalHints().inShard(1).setKeyHolder(holder);
+		DalHints copy = hints.clone();
+
+		assertEquals("1", copy.getShardId());
+		assertSame(holder, copy.getKeyHolder());
+
+		copy.inShard(2).inTableShard(3);
+		assertEquals("1", hints.getShardId());
+		assertNull(hints.getTableShardId());
+
+		hints.masterOnly();
+		assertFalse(copy.is(DalHintEnum.masterOnly));
+
+		DalHints copy2 = copy.clone();
+		copy.inShard(4);
+		assertEquals("2", copy2.getShardId());
+		assertEquals("3", copy2.getTableShardId());
+	}
+
+	@Test
+	public void testCloneShardColValues() {
+		DalHints hints = new DalHints().setShardColValue("a", 1);
+		DalHints copy = hints.clone();
+
+		copy.setShardColValue("b", 2);
+		Map<String, ?> values = (Map<String, ?>)hints.get(DalHintEnum.shardColValues);
+		assertEquals(1, values.size());
+		assertEquals(2, ((Map<String, ?>)copy.get(DalHintEnum.shardColValues)).size());
+
+		hints.setShardColValue("c", 3);
+		assertFalse(((Map<String, ?>)copy.get(DalHintEnum.shardColValues)).containsKey("c"));
+		assertTrue(((Map<String, ?>)hints.get(DalHintEnum.shardColValues)).containsKey("c"));
+
+		// Not shared after it is copied
+		Map<String, ?> copied = (Map<String, ?>)copy.get(DalHintEnum.shardColValues);
+		copy.setShardColValue("d", 4);
+		assertSame(copied, copy.get(DalHintEnum.shardColValues));
+	}
+}
@@ -13,6 +13,7 @@ import test.com.ctrip.platform.dal.dao.unitbase.BaseTestStub;
 import test.com.ctrip.platform.dal.dao.unitbase.ClientTestModel;
 
 import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalFuture;
 import com.ctrip.platform.dal.dao.DalHints;
 import com.ctrip.platform.dal.dao.DalQueryDao;
 import com.ctrip.platform.dal.dao.DalRowCallback;
@@ -61,6 +62,35 @@ public class DalQueryDaoTestStub extends BaseTestStub {
 		List<ClientTestModel> models = client.query(sql, param, hints, mapper);
 		Assert.assertEquals(ROW_COUNT, models.size());
 	}
+
+	/**
+	 * Async query does not change the given hints
+	 * @throws Exception
+	 */
+	@Test
+	public void testQueryAsync() throws Exception {
+		String sql = "SELECT * FROM " + TABLE_NAME;
+		StatementParameters param = new StatementParameters();
+		DalHints hints = new DalHints();
+
+		DalFuture<List<ClientTestModel>> future = client.queryAsync(sql, param, hints, mapper);
+		Assert.assertEquals(ROW_COUNT, future.get().size());
+		Assert.assertFalse(hints.isAsyncExecution());
+		Assert.assertNull(hints.getFuture());
+
+		// The hints can be reused for synchronized call
+		Assert.assertEquals(ROW_COUNT, client.query(sql, param, hints, mapper).size());
+	}
+
+	@Test
+	public void testQueryAsyncWithClazz() throws Exception {
+		String sql = "SELECT quantity FROM " + TABLE_NAME;
+		DalHints hints = new DalHints();
+
+		DalFuture<List<Integer>> future = client.queryAsync(sql, new StatementParameters(), hints, Integer.class);
+		Assert.assertEquals(ROW_COUNT, future.get().size());
+		Assert.assertFalse(hints.isAsyncExecution());
+	}
 	
 	@Test
 	public void testQueryWithClazz() throws SQLException {
@@ -0,0 +1,156 @@
+package test.com.ctrip.platform.dal.dao.unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import test.com.ctrip.platform.dal.dao.helper.ResultSetStub;
+
+import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.DalRowMapper;
+import com.ctrip.platform.dal.dao.client.ConnectionAction;
+import com.ctrip.platform.dal.dao.client.DalStreamingResultIterator;
+import com.ctrip.platform.dal.dao.helper.CustomizableMapper;
+
+public class DalStreamingResultIteratorTest {
+	private static final DalRowMapper<Integer> MAPPER = new DalRowMapper<Integer>() {
+		public Integer map(ResultSet rs, int rowNum) throws SQLException {
+			return rs.getInt("id");
+		}
+	};
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		DalClientFactory.initClientFactory();
+	}
+
+	private static class ActionStub extends ConnectionAction<Object> {
+		int cleanups;
+
+		ActionStub() {
+			entry = logger.createLogEntry();
+			start = System.currentTimeMillis();
+		}
+
+		@Override
+		public Object execute() throws Exception {
+			return null;
+		}
+
+		@Override
+		public void cleanup() {
+			cleanups++;
+			super.cleanup();
+		}
+	}
+
+	private ResultSet createResultSet(int count) {
+		ResultSetStub stub = new ResultSetStub("id");
+		for(int i = 0; i < count; i++)
+			stub.addRow(i);
+		return stub.build();
+	}
+
+	@Test
+	public void testIterateToEnd() throws Exception {
+		ActionStub action = new ActionStub();
+		DalStreamingResultIterator<Integer> it = new DalStreamingResultIterator<>(action, createResultSet(3), MAPPER);
+
+		List<Integer> values = new ArrayList<>();
+		while(it.hasNext())
+			values.add(it.next());
+
+		assertEquals(3, values.size());
+		assertEquals(2, values.get(2).intValue());
+		assertTrue(it.isClosed());
+		assertEquals(1, action.cleanups);
+		assertEquals(3, action.entry.getResultCount());
+
+		it.close();
+		assertFalse(it.hasNext());
+		assertEquals(1, action.cleanups);
+
+		try {
+			it.next();
+			fail();
+		} catch (NoSuchElementException e) {
+		}
+	}
+
+	@Test
+	public void testCloseEarly() throws Exception {
+		ActionStub action = new ActionStub();
+		try(DalStreamingResultIterator<Integer> it = new DalStreamingResultIterator<>(action, createResultSet(10), MAPPER)) {
+			assertEquals(0, it.next().intValue());
+			assertTrue(it.hasNext());
+			assertTrue(it.hasNext());
+			assertEquals(1, it.next().intValue());
+			assertEquals(0, action.cleanups);
+		}
+
+		assertEquals(1, action.cleanups);
+		assertEquals(2, action.entry.getResultCount());
+	}
+
+	private static class CustomizableMapperStub implements DalRowMapper<Integer>, CustomizableMapper<Integer> {
+		int bound;
+
+		public Integer map(ResultSet rs, int rowNum) throws SQLException {
+			throw new SQLException("Mapper is not bound");
+		}
+
+		public DalRowMapper<Integer> mapWith(String[] columns) throws SQLException {
+			throw new UnsupportedOperationException();
+		}
+
+		public DalRowMapper<Integer> mapWith(ResultSet rs, DalHints hints) throws SQLException {
+			bound++;
+			return MAPPER;
+		}
+	}
+
+	@Test
+	public void testMapperBoundOnce() throws Exception {
+		ActionStub action = new ActionStub();
+		CustomizableMapperStub mapper = new CustomizableMapperStub();
+		DalStreamingResultIterator<Integer> it = new DalStreamingResultIterator<>(action, createResultSet(3), mapper, new DalHints());
+
+		List<Integer> values = new ArrayList<>();
+		while(it.hasNext())
+			values.add(it.next());
+
+		assertEquals(3, values.size());
+		assertEquals(1, mapper.bound);
+	}
+
+	@Test
+	public void testMappingError() throws Exception {
+		ActionStub action = new ActionStub();
+		DalStreamingResultIterator<Integer> it = new DalStreamingResultIterator<>(action, createResultSet(3), new DalRowMapper<Integer>() {
+			public Integer map(ResultSet rs, int rowNum) throws SQLException {
+				throw new SQLException("Can not map");
+			}
+		});
+
+		try {
+			it.next();
+			fail();
+		} catch (RuntimeException e) {
+		}
+
+		assertTrue(it.isClosed());
+		assertEquals(1, action.cleanups);
+		assertFalse(it.hasNext());
+	}
+}
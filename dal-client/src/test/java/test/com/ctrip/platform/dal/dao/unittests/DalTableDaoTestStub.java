@@ -12,6 +12,7 @@ import test.com.ctrip.platform.dal.dao.unitbase.BaseTestStub;
 import test.com.ctrip.platform.dal.dao.unitbase.ClientTestModel;
 
 import com.ctrip.platform.dal.common.enums.DatabaseCategory;
+import com.ctrip.platform.dal.dao.DalFuture;
 import com.ctrip.platform.dal.dao.DalHintEnum;
 import com.ctrip.platform.dal.dao.DalHints;
 import com.ctrip.platform.dal.dao.KeyHolder;
@@ -34,6 +35,40 @@ public class DalTableDaoTestStub extends BaseTestStub {
 		Assert.assertEquals(10, model.getQuantity().intValue());
 	}
 
+	/**
+	 * Async query by Primary key does not change the given hints
+	 * @throws Exception
+	 */
+	@Test
+	public void testQueryByPkAsync() throws Exception {
+		DalHints hints = new DalHints();
+		DalFuture<ClientTestModel> future = dao.queryByPkAsync(1, hints);
+		Assert.assertEquals(10, future.get().getQuantity().intValue());
+		Assert.assertFalse(hints.isAsyncExecution());
+		Assert.assertNull(hints.getFuture());
+
+		// The hints can be reused for synchronized call
+		ClientTestModel model = dao.queryByPk(1, hints);
+		Assert.assertEquals(10, model.getQuantity().intValue());
+	}
+
+	/**
+	 * Async query with where clause
+	 * @throws Exception
+	 */
+	@Test
+	public void testQueryAsync() throws Exception {
+		String whereClause = "type=?";
+		StatementParameters parameters = new StatementParameters();
+		parameters.set(1, Types.SMALLINT, 1);
+
+		DalHints hints = new DalHints();
+		DalFuture<List<ClientTestModel>> future = dao.queryAsync(whereClause, parameters, hints);
+		Assert.assertEquals(3, future.get().size());
+		Assert.assertFalse(hints.isAsyncExecution());
+		Assert.assertEquals(3, dao.query(whereClause, parameters, hints).size());
+	}
+
 	/**
 	 * Query by Entity with Primary key
 	 * @throws SQLException
@@ -0,0 +1,156 @@
+package test.com.ctrip.platform.dal.dao.unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.configure.DataBase;
+import com.ctrip.platform.dal.dao.configure.DatabaseLoadStats;
+import com.ctrip.platform.dal.dao.configure.DatabaseSelectionPolicy;
+import com.ctrip.platform.dal.dao.configure.DatabaseSelector;
+import com.ctrip.platform.dal.dao.configure.LeastOutstandingRequestsPolicy;
+import com.ctrip.platform.dal.dao.configure.PowerOfTwoChoicesPolicy;
+import com.ctrip.platform.dal.dao.configure.RandomSelectionPolicy;
+
+public class DatabaseSelectionPolicyTest {
+	private static final String S1 = "policy_test_0";
+	private static final String S2 = "policy_test_1";
+
+	private DataBase s1;
+	private DataBase s2;
+	private List<DataBase> candidates;
+
+	@Before
+	public void setUp() {
+		DatabaseLoadStats.clear();
+		s1 = new DataBase(S1, false, "", S1);
+		s2 = new DataBase(S2, false, "", S2, 3);
+		candidates = new ArrayList<>();
+		candidates.add(s1);
+		candidates.add(s2);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		DatabaseLoadStats.clear();
+		DatabaseSelector.init(null);
+	}
+
+	@Test
+	public void testWeight() {
+		assertEquals(DataBase.DEFAULT_WEIGHT, s1.getWeight());
+		assertEquals(3, s2.getWeight());
+
+		try {
+			new DataBase(S1, false, "", S1, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testRandomByWeight() {
+		DatabaseSelectionPolicy policy = new RandomSelectionPolicy();
+		int count = 0;
+		for(int i = 0; i < 4000; i++) {
+			if(policy.select(candidates) == s2)
+				count++;
+		}
+
+		// Expected 3000
+		assertTrue(count > 2700 && count < 3300);
+	}
+
+	@Test
+	public void testLatency() {
+		DatabaseLoadStats stats = DatabaseLoadStats.getStats(S1);
+		assertEquals(0, stats.getLatency(), 0);
+
+		stats.recordLatency(10);
+		assertEquals(10, stats.getLatency(), 0.001);
+
+		stats.recordLatency(20);
+		assertEquals(12, stats.getLatency(), 0.001);
+	}
+
+	@Test
+	public void testZeroLatency() {
+		DatabaseLoadStats stats = DatabaseLoadStats.getStats(S1);
+		stats.recordLatency(0);
+		assertEquals(0, stats.getLatency(), 0);
+
+		// Average of zero is not taken as no sample
+		stats.recordLatency(10);
+		assertEquals(2, stats.getLatency(), 0.001);
+	}
+
+	@Test
+	public void testInFlight() {
+		DatabaseLoadStats.acquire(S1);
+		DatabaseLoadStats.acquire(S1);
+		DatabaseLoadStats.release(S1);
+		assertEquals(1, DatabaseLoadStats.getStats(S1).getInFlight());
+
+		// Null key is ignored
+		DatabaseLoadStats.acquire(null);
+		DatabaseLoadStats.release(null);
+	}
+
+	@Test
+	public void testLeastOutstandingRequests() {
+		DatabaseSelectionPolicy policy = new LeastOutstandingRequestsPolicy();
+
+		// 1/1 is less than 4/3
+		DatabaseLoadStats.acquire(S1);
+		for(int i = 0; i < 4; i++)
+			DatabaseLoadStats.acquire(S2);
+		for(int i = 0; i < 100; i++)
+			assertSame(s1, policy.select(candidates));
+
+		// 2/1 is more than 4/3
+		DatabaseLoadStats.acquire(S1);
+		for(int i = 0; i < 100; i++)
+			assertSame(s2, policy.select(candidates));
+	}
+
+	@Test
+	public void testPowerOfTwoChoices() {
+		DatabaseSelectionPolicy policy = new PowerOfTwoChoicesPolicy();
+		DatabaseLoadStats.getStats(S2).recordLatency(100);
+		DatabaseLoadStats.getStats(S1).recordLatency(10);
+
+		// With two candidates, both are always compared
+		for(int i = 0; i < 100; i++)
+			assertSame(s1, policy.select(candidates));
+
+		for(int i = 0; i < 20; i++)
+			DatabaseLoadStats.acquire(S1);
+		for(int i = 0; i < 100; i++)
+			assertSame(s2, policy.select(candidates));
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertTrue(DatabaseSelector.getPolicy() instanceof RandomSelectionPolicy);
+
+		DatabaseSelector.init(DatabaseSelector.POWER_OF_TWO_CHOICES);
+		assertTrue(DatabaseSelector.getPolicy() instanceof PowerOfTwoChoicesPolicy);
+
+		DatabaseSelector.init(DatabaseSelector.LEAST_OUTSTANDING_REQUESTS);
+		assertTrue(DatabaseSelector.getPolicy() instanceof LeastOutstandingRequestsPolicy);
+
+		DatabaseSelector.init(LeastOutstandingRequestsPolicy.class.getName());
+		assertTrue(DatabaseSelector.getPolicy() instanceof LeastOutstandingRequestsPolicy);
+
+		DatabaseSelector.init(DatabaseSelector.RANDOM);
+		assertTrue(DatabaseSelector.getPolicy() instanceof RandomSelectionPolicy);
+	}
+}
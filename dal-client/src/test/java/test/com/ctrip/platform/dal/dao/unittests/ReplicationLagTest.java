@@ -0,0 +1,205 @@
+package test.com.ctrip.platform.dal.dao.unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.platform.dal.dao.DalClientFactory;
+import com.ctrip.platform.dal.dao.DalHints;
+import com.ctrip.platform.dal.dao.client.LogContext;
+import com.ctrip.platform.dal.dao.configure.DataBase;
+import com.ctrip.platform.dal.dao.configure.DatabaseSelector;
+import com.ctrip.platform.dal.dao.configure.ReadYourWrites;
+import com.ctrip.platform.dal.dao.configure.ReplicationLagMonitor;
+import com.ctrip.platform.dal.dao.task.RequestTaskWrapper;
+
+public class ReplicationLagTest {
+	private static final String DB = "lagTestDb";
+	private static final String M1 = "MySqlShard_0";
+	private static final String S1 = "dao_test_sqlsvr_0";
+	private static final String S2 = "dao_test_sqlsvr_1";
+
+	static {
+		try {
+			DalClientFactory.initClientFactory();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private List<DataBase> masters;
+	private List<DataBase> slaves;
+
+	@Before
+	public void setUp() {
+		masters = new ArrayList<>();
+		masters.add(new DataBase(M1, true, "", M1));
+		slaves = new ArrayList<>();
+		slaves.add(new DataBase(S1, false, "", S1));
+		slaves.add(new DataBase(S2, false, "", S2));
+	}
+
+	@After
+	public void tearDown() {
+		ReplicationLagMonitor.setThreshold(null);
+		ReplicationLagMonitor.setLag(S1, ReplicationLagMonitor.UNKNOWN);
+		ReplicationLagMonitor.setLag(S2, ReplicationLagMonitor.UNKNOWN);
+		ReadYourWrites.init(null);
+		ReadYourWrites.clear();
+	}
+
+	private String select(String logicDbName, DalHints hints) throws Exception {
+		return new DatabaseSelector(logicDbName, hints, masters, slaves, false, true).select();
+	}
+
+	@Test
+	public void testExcludeLaggingSlave() throws Exception {
+		ReplicationLagMonitor.setThreshold("-1;" + DB + "=1000");
+		ReplicationLagMonitor.setLag(S1, 5000);
+		ReplicationLagMonitor.setLag(S2, 500);
+
+		assertTrue(ReplicationLagMonitor.isLagging(DB, S1));
+		assertFalse(ReplicationLagMonitor.isLagging(DB, S2));
+		for(int i = 0; i < 50; i++)
+			assertEquals(S2, select(DB, new DalHints()));
+
+		// Other logic DB has no threshold
+		assertFalse(ReplicationLagMonitor.isLagging("otherDb", S1));
+	}
+
+	@Test
+	public void testUnknownLagNotExcluded() throws Exception {
+		ReplicationLagMonitor.setThreshold("1000");
+		ReplicationLagMonitor.setLag(S1, ReplicationLagMonitor.UNKNOWN);
+		ReplicationLagMonitor.setLag(S2, ReplicationLagMonitor.NOT_REPLICATING);
+
+		assertFalse(ReplicationLagMonitor.isLagging(DB, S1));
+		assertTrue(ReplicationLagMonitor.isLagging(DB, S2));
+		for(int i = 0; i < 50; i++)
+			assertEquals(S1, select(DB, new DalHints()));
+	}
+
+	@Test
+	public void testAllSlavesLaggingFallbackToMaster() throws Exception {
+		ReplicationLagMonitor.setThreshold("1000");
+		ReplicationLagMonitor.setLag(S1, 5000);
+		ReplicationLagMonitor.setLag(S2, 5000);
+
+		assertEquals(M1, select(DB, new DalHints()));
+	}
+
+	@Test
+	public void testReadYourWritesInThread() throws Exception {
+		ReadYourWrites.init("0;" + DB + "=200");
+		assertFalse(ReadYourWrites.isPinnedToMaster(DB, new DalHints()));
+
+		ReadYourWrites.recordWrite(DB, new DalHints());
+		assertTrue(ReadYourWrites.isPinnedToMaster(DB, new DalHints()));
+		assertFalse(ReadYourWrites.isPinnedToMaster("otherDb", new DalHints()));
+
+		// Not pinned in other thread
+		assertFalse(isPinnedInThread(null, new DalHints()));
+
+		Thread.sleep(300);
+		assertFalse(ReadYourWrites.isPinnedToMaster(DB, new DalHints()));
+	}
+
+	@Test
+	public void testReadYourWritesDisabled() throws Exception {
+		ReadYourWrites.init(null);
+		ReadYourWrites.recordWrite(DB, new DalHints());
+		assertFalse(ReadYourWrites.isPinnedToMaster(DB, new DalHints()));
+	}
+
+	@Test
+	public void testReadYourWritesCapturedInOtherThread() throws Exception {
+		ReadYourWrites.init("1000");
+		Object captured = ReadYourWrites.capture();
+
+		// Write in other thread is seen by the captured thread
+		runInThread(new Runnable() {
+			@Override
+			public void run() {
+				ReadYourWrites.recordWrite(DB, new DalHints());
+			}
+		}, captured);
+
+		assertTrue(ReadYourWrites.isPinnedToMaster(DB, new DalHints()));
+		assertTrue(isPinnedInThread(captured, new DalHints()));
+	}
+
+	@Test
+	public void testReadYourWritesInSession() throws Exception {
+		ReadYourWrites.init("1000");
+		ReadYourWrites.recordWrite(DB, new DalHints().readYourWrites("user1"));
+
+		assertTrue(isPinnedInThread(null, new DalHints().readYourWrites("user1")));
+		assertFalse(isPinnedInThread(null, new DalHints().readYourWrites("user2")));
+		assertFalse(ReadYourWrites.isPinnedToMaster(DB, new DalHints()));
+	}
+
+	@Test
+	public void testReadYourWritesInShardTask() throws Exception {
+		ReadYourWrites.init("1000");
+		ReadYourWrites.recordWrite(DB, new DalHints());
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Callable<Boolean> isPinned = new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					return ReadYourWrites.isPinnedToMaster(DB, new DalHints());
+				}
+			};
+
+			// Task created by the caller continues its writes in pool thread
+			assertTrue(executor.submit(new RequestTaskWrapper<>("0", isPinned, new LogContext())).get());
+
+			// And the writes do not leak to other tasks of the pool thread
+			assertFalse(executor.submit(isPinned).get());
+		} finally {
+			executor.shutdown();
+		}
+
+		// Task executed in the caller thread keeps the caller's writes
+		assertTrue(new RequestTaskWrapper<>("0", new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return true;
+			}
+		}, new LogContext()).call());
+		assertTrue(ReadYourWrites.isPinnedToMaster(DB, new DalHints()));
+	}
+
+	private void runInThread(final Runnable task, final Object writes) throws Exception {
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				ReadYourWrites.restore(writes);
+				task.run();
+			}
+		});
+		t.start();
+		t.join();
+	}
+
+	private boolean isPinnedInThread(Object writes, final DalHints hints) throws Exception {
+		final AtomicBoolean pinned = new AtomicBoolean();
+		runInThread(new Runnable() {
+			@Override
+			public void run() {
+				pinned.set(ReadYourWrites.isPinnedToMaster(DB, hints));
+			}
+		}, writes);
+		return pinned.get();
+	}
+}